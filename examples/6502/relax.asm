@@ -0,0 +1,39 @@
+;==============================================================================
+; Jump Relaxation Checks
+;------------------------------------------------------------------------------
+; Assemble with -relax and link, for example:
+;
+;	As65 -relax relax.asm
+;	Lk65 -code 1000-1fff -bin -output relax.bin relax.obj
+;
+; The expected image is:
+;
+;	4C 08 10 00 00 00 00 00 80 01 EA EA 04 05 00 80 F7
+;------------------------------------------------------------------------------
+
+	.65C02
+
+	.CODE
+
+;==============================================================================
+; Alignment padding
+;------------------------------------------------------------------------------
+
+; Jumps before an .ALIGN are kept long so the padding stays correct
+
+	JMP	START		; Kept as JMP
+	.ALIGN	8
+
+;==============================================================================
+; Label differences
+;------------------------------------------------------------------------------
+
+; The JMP at START becomes a BRA so the differences that span it must be
+; resolved by the linker
+
+START:	JMP	NEAR		; Shortened to BRA
+	NOP
+NEAR:	NOP
+ENDL:	.BYTE	ENDL-START	; Must be 4 after relaxation
+	.WORD	ENDL-START+1
+	JMP	START		; Shortened to BRA
@@ -446,6 +446,17 @@ public final class As1802 extends Assembler
 	 * {@inheritDoc}
 	 */
 	protected void startUp ()
+	{
+		// The keyword table is built by the first run and then reused
+		if (tokens.isEmpty ()) addTokens ();
+		
+		super.startUp ();
+	}
+	
+	/**
+	 * Adds the keyword tokens to the hash table.
+	 */
+	private void addTokens ()
 	{
 		// Directives
 		addToken (APPEND);
@@ -465,6 +476,7 @@ public final class As1802 extends Assembler
 		addToken (EXITM);
 		addToken (EXTERN);
 		addToken (GLOBAL);
+		addToken (KEEP);
 		addToken (IF);
 		addToken (IFABS);
 		addToken (IFNABS);
@@ -431,6 +431,31 @@ public final class As4040 extends Assembler
 	 * {@inheritDoc}
 	 */
 	protected void startUp ()
+	{
+		// The keyword table is built by the first run and then reused
+		if (tokens.isEmpty ()) addTokens ();
+		
+		symbols.put ("NC", new Value (null, 0x0));
+		symbols.put ("TZ", new Value (null, 0x1));
+		symbols.put ("T0", new Value (null, 0x1));
+		symbols.put ("TN", new Value (null, 0x9));
+		symbols.put ("T1", new Value (null, 0x9));
+		symbols.put ("CN", new Value (null, 0x2));
+		symbols.put ("C1", new Value (null, 0x2));
+		symbols.put ("CZ", new Value (null, 0xa));
+		symbols.put ("C0", new Value (null, 0xa));
+		symbols.put ("AZ", new Value (null, 0x4));
+		symbols.put ("A0", new Value (null, 0x4));
+		symbols.put ("AN", new Value (null, 0xc));
+		symbols.put ("A1", new Value (null, 0xc));
+		
+		super.startUp ();
+	}
+	
+	/**
+	 * Adds the keyword tokens to the hash table.
+	 */
+	private void addTokens ()
 	{
 		// Directives
 		addToken (APPEND);
@@ -450,6 +475,7 @@ public final class As4040 extends Assembler
 		addToken (EXITM);
 		addToken (EXTERN);
 		addToken (GLOBAL);
+		addToken (KEEP);
 		addToken (IF);
 		addToken (IFABS);
 		addToken (IFNABS);
@@ -533,22 +559,6 @@ public final class As4040 extends Assembler
 		addToken (WR2);
 		addToken (WR3);
 		addToken (XCH);
-		
-		symbols.put ("NC", new Value (null, 0x0));
-		symbols.put ("TZ", new Value (null, 0x1));
-		symbols.put ("T0", new Value (null, 0x1));
-		symbols.put ("TN", new Value (null, 0x9));
-		symbols.put ("T1", new Value (null, 0x9));
-		symbols.put ("CN", new Value (null, 0x2));
-		symbols.put ("C1", new Value (null, 0x2));
-		symbols.put ("CZ", new Value (null, 0xa));
-		symbols.put ("C0", new Value (null, 0xa));
-		symbols.put ("AZ", new Value (null, 0x4));
-		symbols.put ("A0", new Value (null, 0x4));
-		symbols.put ("AN", new Value (null, 0xc));
-		symbols.put ("A1", new Value (null, 0xc));
-		
-		super.startUp ();
 	}
 	
 	/**
@@ -447,6 +447,26 @@ public final class As8008 extends Assembler
 	 * {@inheritDoc}
 	 */
 	protected void startUp ()
+	{
+		// The keyword table is built by the first run and then reused
+		if (tokens.isEmpty ()) addTokens ();
+		
+		symbols.put ("A", new Value (null, 0));
+		symbols.put ("B", new Value (null, 1));
+		symbols.put ("C", new Value (null, 2));
+		symbols.put ("D", new Value (null, 3));
+		symbols.put ("E", new Value (null, 4));
+		symbols.put ("H", new Value (null, 5));
+		symbols.put ("L", new Value (null, 6));
+		symbols.put ("M", new Value (null, 7));
+		
+		super.startUp ();
+	}
+	
+	/**
+	 * Adds the keyword tokens to the hash table.
+	 */
+	private void addTokens ()
 	{
 		// Directives
 		addToken (APPEND);
@@ -466,6 +486,7 @@ public final class As8008 extends Assembler
 		addToken (EXITM);
 		addToken (EXTERN);
 		addToken (GLOBAL);
+		addToken (KEEP);
 		addToken (IF);
 		addToken (IFABS);
 		addToken (IFNABS);
@@ -544,17 +565,6 @@ public final class As8008 extends Assembler
 		addToken (SUI);
 		addToken (XRA);
 		addToken (XRI);
-		
-		symbols.put ("A", new Value (null, 0));
-		symbols.put ("B", new Value (null, 1));
-		symbols.put ("C", new Value (null, 2));
-		symbols.put ("D", new Value (null, 3));
-		symbols.put ("E", new Value (null, 4));
-		symbols.put ("H", new Value (null, 5));
-		symbols.put ("L", new Value (null, 6));
-		symbols.put ("M", new Value (null, 7));
-		
-		super.startUp ();
 	}
 
 	/**
@@ -947,6 +947,17 @@ public final class As8080 extends Assembler
 	 * {@inheritDoc}
 	 */
 	protected void startUp ()
+	{
+		// The keyword table is built by the first run and then reused
+		if (tokens.isEmpty ()) addTokens ();
+		
+		super.startUp ();
+	}
+	
+	/**
+	 * Adds the keyword tokens to the hash table.
+	 */
+	private void addTokens ()
 	{
 		// Directives
 		addToken (APPEND);
@@ -966,6 +977,7 @@ public final class As8080 extends Assembler
 		addToken (EXITM);
 		addToken (EXTERN);
 		addToken (GLOBAL);
+		addToken (KEEP);
 		addToken (IF);
 		addToken (IFABS);
 		addToken (IFNABS);
@@ -1082,8 +1094,6 @@ public final class As8080 extends Assembler
 		
 		addToken (PSW);
 		addToken (SP);
-
-		super.startUp ();
 	}
 	
 	/**
@@ -152,6 +152,17 @@ public class AsIcl430 extends Assembler
 	 * {@inheritDoc}
 	 */
 	protected void startUp ()
+	{
+		// The keyword table is built by the first run and then reused
+		if (tokens.isEmpty ()) addTokens ();
+		
+		super.startUp ();
+	}
+	
+	/**
+	 * Adds the keyword tokens to the hash table.
+	 */
+	private void addTokens ()
 	{
 		// Directives
 		addToken (BSS);
@@ -167,8 +178,6 @@ public class AsIcl430 extends Assembler
 		addToken (ALR);
 		addToken (BALR);
 		addToken (BCTR);
-		
-		super.startUp();
 	}
 	/**
 	 * {@inheritDoc}
@@ -347,6 +347,17 @@ public final class AsKb1  extends Assembler
 	 * {@inheritDoc}
 	 */
 	protected void startUp ()
+	{
+		// The keyword table is built by the first run and then reused
+		if (tokens.isEmpty ()) addTokens ();
+		
+		super.startUp ();
+	}
+	
+	/**
+	 * Adds the keyword tokens to the hash table.
+	 */
+	private void addTokens ()
 	{
 		// Directives
 		addToken (APPEND);
@@ -366,6 +377,7 @@ public final class AsKb1  extends Assembler
 		addToken (EXITM);
 		addToken (EXTERN);
 		addToken (GLOBAL);
+		addToken (KEEP);
 		addToken (IF);
 		addToken (IFABS);
 		addToken (IFNABS);
@@ -414,8 +426,6 @@ public final class AsKb1  extends Assembler
 		addToken (A);
 		addToken (B);
 		addToken (X);
-		
-		super.startUp ();
 	}
 
 	/**
@@ -1459,6 +1459,17 @@ public final class As6800 extends Assembler
 	}
 	
 	protected void startUp ()
+	{
+		// The keyword table is built by the first run and then reused
+		if (tokens.isEmpty ()) addTokens ();
+		
+		super.startUp ();
+	}
+	
+	/**
+	 * Adds the keyword tokens to the hash table.
+	 */
+	private void addTokens ()
 	{
 		// Directives
 		addToken (APPEND);
@@ -1478,6 +1489,7 @@ public final class As6800 extends Assembler
 		addToken (EXITM);
 		addToken (EXTERN);
 		addToken (GLOBAL);
+		addToken (KEEP);
 		addToken (IF);
 		addToken (IFABS);
 		addToken (IFNABS);
@@ -1578,8 +1590,6 @@ public final class As6800 extends Assembler
 		addToken (A);
 		addToken (B);
 		addToken (X);
-
-		super.startUp ();
 	}
 	
 	/**
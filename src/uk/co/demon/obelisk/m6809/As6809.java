@@ -2692,6 +2692,17 @@ public class As6809 extends Assembler
 	}
 	
 	protected void startUp ()
+	{
+		// The keyword table is built by the first run and then reused
+		if (tokens.isEmpty ()) addTokens ();
+		
+		super.startUp ();
+	}
+	
+	/**
+	 * Adds the keyword tokens to the hash table.
+	 */
+	private void addTokens ()
 	{
 		// Directives
 		addToken (APPEND);
@@ -2711,6 +2722,7 @@ public class As6809 extends Assembler
 		addToken (EXITM);
 		addToken (EXTERN);
 		addToken (GLOBAL);
+		addToken (KEEP);
 		addToken (IF);
 		addToken (IFABS);
 		addToken (IFNABS);
@@ -2886,8 +2898,6 @@ public class As6809 extends Assembler
 		addToken (S);
 		addToken (PC);
 		addToken (PCR);
-
-		super.startUp ();
 	}
 	
 	/**
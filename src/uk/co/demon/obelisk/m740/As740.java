@@ -2344,6 +2344,30 @@ public final class As740 extends Assembler
 	}
 	
 	protected void startUp ()
+	{
+		// The keyword table is built by the first run and then reused
+		// unless the structured directives have been turned on or off
+		if (tokens.isEmpty () || (traditional != traditionalOption.isPresent ())) {
+			traditional = traditionalOption.isPresent ();
+			tokens.clear ();
+			addTokens ();
+		}
+		
+		// Forget any structures left open by an earlier run
+		ifs.clear ();
+		loops.clear ();
+		elseAddr.clear ();
+		endifAddr.clear ();
+		loopAddr.clear ();
+		endAddr.clear ();
+		
+		super.startUp ();
+	}
+	
+	/**
+	 * Adds the keyword tokens to the hash table.
+	 */
+	private void addTokens ()
 	{
 		// Directives
 		addToken (ADDR);
@@ -2368,6 +2392,7 @@ public final class As740 extends Assembler
 		addToken (EXITM);
 		addToken (EXTERN);
 		addToken (GLOBAL);
+		addToken (KEEP);
 		addToken (super.IF);
 		addToken (IFABS);
 		addToken (IFNABS);
@@ -2510,8 +2535,6 @@ public final class As740 extends Assembler
 			addToken (JVS);
 			addToken (JPA);
 		}
-		
-		super.startUp ();
 	}
 
 	/**
@@ -3507,13 +3530,18 @@ public final class As740 extends Assembler
 	 * The <CODE>Option</CODE> instance use to detect <CODE>-traditional</CODE>
 	 */
 	private Option				traditionalOption
-		= new Option ("-traditional",	"Disables structured directives");
+		= new Option (this, "-traditional",	"Disables structured directives");
 
 	/**
 	 * A <CODE>Hashtable</CODE> of keyword tokens to speed up classification.
 	 */
 	private Hashtable<String, Token> tokens	= new Hashtable<String, Token> ();
 	
+	/**
+	 * Set if the keyword tokens were built without the structured directives.
+	 */
+	private boolean					traditional	= false;
+	
 	/**
 	 * A <CODE>StringBuffer</CODE> used to format output.
 	 */
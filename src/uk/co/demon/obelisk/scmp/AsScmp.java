@@ -548,6 +548,17 @@ public class AsScmp extends Assembler
 	 * {@inheritDoc}
 	 */
 	protected void startUp ()
+	{
+		// The keyword table is built by the first run and then reused
+		if (tokens.isEmpty ()) addTokens ();
+		
+		super.startUp ();
+	}
+	
+	/**
+	 * Adds the keyword tokens to the hash table.
+	 */
+	private void addTokens ()
 	{
 		// Directives
 		addToken (APPEND);
@@ -567,6 +578,7 @@ public class AsScmp extends Assembler
 		addToken (EXITM);
 		addToken (EXTERN);
 		addToken (GLOBAL);
+		addToken (KEEP);
 		addToken (IF);
 		addToken (IFABS);
 		addToken (IFNABS);
@@ -641,8 +653,6 @@ public class AsScmp extends Assembler
 		addToken (LO);
 		addToken (HI);
 		addToken (STRLEN);
-
-		super.startUp ();
 	}
 	
 	/**
@@ -34,6 +34,7 @@ import uk.co.demon.obelisk.xasm.Opcode;
 import uk.co.demon.obelisk.xasm.Pass;
 import uk.co.demon.obelisk.xasm.Token;
 import uk.co.demon.obelisk.xasm.TokenKind;
+import uk.co.demon.obelisk.xobj.BinaryExpr;
 import uk.co.demon.obelisk.xobj.Expr;
 import uk.co.demon.obelisk.xobj.Hex;
 import uk.co.demon.obelisk.xobj.Module;
@@ -670,7 +671,7 @@ public final class As65 extends Assembler
 				if (origin != null) {
 					addByte (opcode);
 					addByte (addr);				
-					addByte (Expr.sub (jump, Expr.add (origin, THREE)));
+					addByte (distance (jump, Expr.add (origin, THREE)));
 				}
 				else
 					error ("No active section");
@@ -1740,7 +1741,13 @@ public final class As65 extends Assembler
 		{
 			switch (parseMode (PBANK)) {
 			case DPAG:
-			case ABSL:	genAbsl (0x4C, arg); break;	
+			case ABSL:
+				// Let the linker turn it into a BRA if the target is close
+				if (isRelaxable () && hasShortBranch () && !arg.isAbsolute ())
+					addJump (new uk.co.demon.obelisk.xobj.Jump (0x80, -1, 0x4C, false, arg));
+				else
+					genAbsl (0x4C, arg);
+				break;	
 			case INDI:	genIndi	(0x6C, arg, true);	break;
 			case INDX:	
 				if ((processor & (M65C02 | M65SC02 | M65816 | M65832)) != 0)
@@ -3964,6 +3971,30 @@ public final class As65 extends Assembler
 	}
 	
 	protected void startUp ()
+	{
+		// The keyword table is built by the first run and then reused
+		// unless the structured directives have been turned on or off
+		if (tokens.isEmpty () || (traditional != traditionalOption.isPresent ())) {
+			traditional = traditionalOption.isPresent ();
+			tokens.clear ();
+			addTokens ();
+		}
+		
+		// Forget any structures left open by an earlier run
+		ifs.clear ();
+		loops.clear ();
+		elseAddr.clear ();
+		endifAddr.clear ();
+		loopAddr.clear ();
+		endAddr.clear ();
+		
+		super.startUp ();
+	}
+	
+	/**
+	 * Adds the keyword tokens to the hash table.
+	 */
+	private void addTokens ()
 	{
 		// Directives
 		addToken (P6501);
@@ -3996,6 +4027,7 @@ public final class As65 extends Assembler
 		addToken (EXITM);
 		addToken (EXTERN);
 		addToken (GLOBAL);
+		addToken (KEEP);
 		addToken (super.IF);
 		addToken (IFABS);
 		addToken (IFNABS);
@@ -4196,8 +4228,6 @@ public final class As65 extends Assembler
 			addToken (JVS);
 			addToken (JPA);
 		}
-		
-		super.startUp ();
 	}
 
 	/**
@@ -5250,7 +5280,7 @@ public final class As65 extends Assembler
 					if (dist.isAbsolute () && ((dist.resolve () < -32768) || (dist.resolve () > 32767)))
 						error ("Relative branch is out of range");
 				}
-				addWord (dist);
+				addWord (distance (expr, Expr.add (origin, THREE)));
 			}
 			else {
 				Expr dist = Expr.sub (expr, Expr.add (origin, TWO));
@@ -5259,7 +5289,7 @@ public final class As65 extends Assembler
 					if (dist.isAbsolute () && ((dist.resolve () < -128) || (dist.resolve () > 127)))
 						error ("Relative branch is out of range");
 				}
-				addByte (dist);
+				addByte (distance (expr, Expr.add (origin, TWO)));
 			}
 		}
 		else
@@ -5297,6 +5327,21 @@ public final class As65 extends Assembler
 			if (condition == VC) genRel (0x50, target, false);
 			if (condition == VS) genRel (0x70, target, false);
 		}
+		else if (isRelaxable ()) {
+			int			opcode = -1;
+			
+			if (condition == EQ) opcode = 0xF0;
+			if (condition == NE) opcode = 0xD0;
+			if (condition == CC) opcode = 0x90;
+			if (condition == CS) opcode = 0xB0;
+			if (condition == PL) opcode = 0x10;
+			if (condition == MI) opcode = 0x30;
+			if (condition == VC) opcode = 0x50;
+			if (condition == VS) opcode = 0x70;
+			
+			// The opposite condition differs only in bit 5 
+			if (opcode != -1) addJump (longJump (opcode, opcode ^ 0x20, target));
+		}
 		else {
 			Expr skipOver = Expr.add (getOrigin (), FIVE);
 			
@@ -5316,6 +5361,54 @@ public final class As65 extends Assembler
 		}
 	}
 	
+	/**
+	 * Creates a relaxable <CODE>Jump</CODE> whose long form is a JMP, or
+	 * BRL on the 65C816 and 65832, for the linker to shorten if it can.
+	 * 
+	 * @param shortOp		The opcode of the short branch.
+	 * @param skipOp		The opcode of the branch over the long form or -1.
+	 * @param target		The target address.
+	 * @return	The <CODE>Jump</CODE> instance.
+	 */
+	private uk.co.demon.obelisk.xobj.Jump longJump (int shortOp, int skipOp, final Expr target)
+	{
+		if ((processor & (M65816 | M65832)) != 0)
+			return (new uk.co.demon.obelisk.xobj.Jump (shortOp, skipOp, 0x82, true, target));
+		else
+			return (new uk.co.demon.obelisk.xobj.Jump (shortOp, skipOp, 0x4C, false, target));
+	}
+	
+	/**
+	 * Determines if jumps generated at the current origin may be relaxed.
+	 * Labels in an absolute section are resolved by the assembler and can
+	 * not follow the code if it moves, so only relative sections qualify.
+	 * 
+	 * @return	<CODE>true</CODE> if relaxable jumps should be generated.
+	 */
+	private boolean isRelaxable ()
+	{
+		return (relaxOption.isPresent () && (getOrigin ().getSection () != null));
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <P>
+	 * When relaxing jumps the distance between two locations in the same
+	 * section, including the displacement of a relative branch, is left
+	 * for the linker to resolve as any code between them may be moved.
+	 */
+	protected Expr distance (final Expr target, final Expr origin)
+	{
+		if (relaxOption.isPresent () && (target instanceof Value) && (origin instanceof Value)) {
+			Value	lhs = (Value) target;
+			Value	rhs = (Value) origin;
+			
+			if ((lhs.getSection () != null) && (lhs.getSection () == rhs.getSection ()))
+				return (new BinaryExpr.Sub (lhs, rhs));
+		}
+		return (Expr.sub (target, origin));
+	}
+	
 	/**
 	 * Generates a jump to a target address using BRA if supported
 	 * and within range.
@@ -5326,6 +5419,8 @@ public final class As65 extends Assembler
 	{
 		if (hasShortBranch () && isShortDistance (target))
 			genRel (0x80, target, false);
+		else if (hasShortBranch () && isRelaxable ())
+			addJump (longJump (0x80, -1, target));
 		else {
 			if ((processor & (M65816 | M65832)) != 0)
 				genRel (0x82, target, true);
@@ -5379,13 +5474,24 @@ public final class As65 extends Assembler
 	 * The <CODE>Option</CODE> instance use to detect <CODE>-traditional</CODE>
 	 */
 	private Option				traditionalOption
-		= new Option ("-traditional",	"Disables structured directives");
+		= new Option (this, "-traditional",	"Disables structured directives");
+
+	/**
+	 * The <CODE>Option</CODE> instance use to detect <CODE>-relax</CODE>
+	 */
+	private Option				relaxOption
+		= new Option (this, "-relax",	"Lets the linker shorten long jumps");
 
 	/**
 	 * A <CODE>Hashtable</CODE> of keyword tokens to speed up classification.
 	 */
 	private Hashtable<String, Token> tokens	= new Hashtable<String, Token> ();
 	
+	/**
+	 * Set if the keyword tokens were built without the structured directives.
+	 */
+	private boolean					traditional	= false;
+	
 	/**
 	 * A <CODE>StringBuffer</CODE> used to format output.
 	 */
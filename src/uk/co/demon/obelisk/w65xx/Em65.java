@@ -22,19 +22,36 @@
 
 package uk.co.demon.obelisk.w65xx;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+import uk.co.demon.obelisk.xapp.Option;
+import uk.co.demon.obelisk.xemu.AddressMap;
 import uk.co.demon.obelisk.xemu.Emulator;
+import uk.co.demon.obelisk.xemu.memory.ByteRAM;
 import uk.co.demon.obelisk.xobj.Hex;
 
+/**
+ * The <CODE>Em65</CODE> application runs 65xx code headless against a
+ * machine described by a configuration file. The processor is executed in
+ * batches of instructions that end at the next device event so devices are
+ * only run when they have something to do. Execution stops when the
+ * processor enters a jump or branch to itself or the cycle limit is reached.
+ * 
+ * @author 	Andrew Jacobs
+ * @version	$Id$
+ */
 public class Em65 extends Emulator
 {
-	public static void main (String [] args)
+	/**
+	 * Main program entry point.
+	 * 
+	 * @param	arguments		Command line arguments.
+	 */
+	public static void main (String [] arguments)
 	{
-		if (args.length != 2) {
-			System.err.println ("Usage: <config>.xml <app>.hex");
-		}
-		
-		// loadConfiguration (args [0]);
-		
+		new Em65 ().run (arguments);
 	}
 	
 	/**
@@ -45,7 +62,7 @@ public class Em65 extends Emulator
 	{
 		public abstract int step ();
 		
-		public abstract void trace ();
+		public abstract int trace ();
 		
 		
 		protected abstract class AddressMode
@@ -215,7 +232,7 @@ public class Em65 extends Emulator
 			
 			public String forPC (int pc)
 			{
-				int mem = read (pc + 1);
+				int mem = read (pc + 1) | (read (pc + 2) << 8);
 				
 				return ("$" + Hex.toHex (mem, 4));
 			}
@@ -275,7 +292,7 @@ public class Em65 extends Emulator
 			
 			public String forPC (int pc)
 			{
-				int mem = read (pc + 1);
+				int mem = read (pc + 1) | (read (pc + 2) << 8);
 				
 				return ("($" + Hex.toHex (mem, 4) + ")");
 			}
@@ -347,8 +364,12 @@ public class Em65 extends Emulator
 				
 				if ((P & F_D) == F_D) {
 					// Decimal mode
-					if ((val & 0x00f) > 0x09) val += 0x06;
-					if ((val & 0x0f0) > 0x90) val += 0x60;			
+					int lo = (A & 0x0f) + (mem & 0x0f) + (P & F_C);
+					
+					if (lo > 0x09) lo += 0x06;
+					val = (A & 0xf0) + (mem & 0xf0) + (lo & 0x0f) + ((lo > 0x0f) ? 0x10 : 0);
+					ovr = (A ^ val) & (mem ^ val);
+					if ((val & 0x1f0) > 0x90) val += 0x60;
 				}
 				
 				if ((val & 0x080) == 0x080) flg |= F_N; else flg &= ~F_N;
@@ -371,7 +392,6 @@ public class Em65 extends Emulator
 				
 				if ((val & 0x080) == 0x080) flg |= F_N; else flg &= ~F_N;
 				if ((val & 0x0ff) == 0x000) flg |= F_Z; else flg &= ~F_Z;
-				if ((val & 0x100) == 0x100) flg |= F_C; else flg &= ~F_C;
 				
 				setA (val);
 				setP (flg);			
@@ -502,6 +522,14 @@ public class Em65 extends Emulator
 		{
 			public void execute ()
 			{
+				write (0x0100 + S, toByte (PC >> 8));
+				setS (S - 1);
+				write (0x0100 + S, toByte (PC));
+				setS (S - 1);
+				write (0x0100 + S, P | F_B);
+				setS (S - 1);
+				setP (P | F_I);
+				setPC (read (0xfffe) | (read (0xffff) << 8));
 			}
 		};
 			
@@ -565,6 +593,15 @@ public class Em65 extends Emulator
 		{
 			public void execute ()
 			{
+				int	mem = read (EA);
+				int val = A - mem;
+				int flg = P;
+				
+				if ((val & 0x080) == 0x080) flg |= F_N; else flg &= ~F_N;
+				if ((val & 0x0ff) == 0x000) flg |= F_Z; else flg &= ~F_Z;
+				if ((val & 0x100) == 0x000) flg |= F_C; else flg &= ~F_C;
+				
+				setP (flg);
 			}
 		};
 		
@@ -572,13 +609,32 @@ public class Em65 extends Emulator
 		{
 			public void execute ()
 			{
+				int	mem = read (EA);
+				int val = X - mem;
+				int flg = P;
+				
+				if ((val & 0x080) == 0x080) flg |= F_N; else flg &= ~F_N;
+				if ((val & 0x0ff) == 0x000) flg |= F_Z; else flg &= ~F_Z;
+				if ((val & 0x100) == 0x000) flg |= F_C; else flg &= ~F_C;
+				
+				setP (flg);
 			}
 		};
 		
 		protected final Instruction CPY = new Instruction ("CPY")
 		{
 			public void execute ()
-			{}
+			{
+				int	mem = read (EA);
+				int val = Y - mem;
+				int flg = P;
+				
+				if ((val & 0x080) == 0x080) flg |= F_N; else flg &= ~F_N;
+				if ((val & 0x0ff) == 0x000) flg |= F_Z; else flg &= ~F_Z;
+				if ((val & 0x100) == 0x000) flg |= F_C; else flg &= ~F_C;
+				
+				setP (flg);
+			}
 		};
 		
 		protected final Instruction DEC = new Instruction ("DEC")
@@ -705,6 +761,7 @@ public class Em65 extends Emulator
 				setS (S - 1);
 				write (0x0100 + S, toByte (adr));
 				setS (S - 1);
+				setPC (EA);
 			}
 		};
 		
@@ -923,7 +980,7 @@ public class Em65 extends Emulator
 			public void execute ()
 			{
 				setS (S + 1);
-				setP (read (0x0100 + S) & ~F_I);
+				setP (read (0x0100 + S));
 				setS (S + 1);
 				int lo = read (0x0100 + S);
 				setS (S + 1);
@@ -949,7 +1006,30 @@ public class Em65 extends Emulator
 		protected final Instruction SBC = new Instruction ("SBC")
 		{
 			public void execute ()
-			{}
+			{
+				int	mem = read (EA);
+				int	val = A - mem - (~P & F_C);
+				int ovr = (A ^ mem) & (A ^ val);
+				int flg = P;
+				
+				if ((val & 0x080) == 0x080) flg |= F_N; else flg &= ~F_N;
+				if ((ovr & 0x080) == 0x080) flg |= F_V; else flg &= ~F_V;
+				if ((val & 0x0ff) == 0x000) flg |= F_Z; else flg &= ~F_Z;
+				if ((val & 0x100) == 0x000) flg |= F_C; else flg &= ~F_C;
+				
+				if ((P & F_D) == F_D) {
+					// Decimal mode
+					int lo = (A & 0x0f) - (mem & 0x0f) - (~P & F_C);
+					int hi = (A & 0xf0) - (mem & 0xf0);
+					
+					if (lo < 0) { lo -= 0x06; hi -= 0x10; }
+					if (hi < 0) hi -= 0x60;
+					val = (hi & 0xf0) | (lo & 0x0f);
+				}
+				
+				setA (val);
+				setP (flg);
+			}
 		};
 		
 		protected final Instruction SEC = new Instruction ("SEC")
@@ -1107,7 +1187,7 @@ public class Em65 extends Emulator
 		}
 		
 		@Override
-		public void trace ()
+		public int trace ()
 		{
 			int opcode = read (PC);
 			int size = addressModes [opcode].getSize ();
@@ -1126,7 +1206,7 @@ public class Em65 extends Emulator
 			
 			System.out.println ();
 			
-			step ();
+			return (step ());
 		}
 		
 		
@@ -1139,11 +1219,11 @@ public class Em65 extends Emulator
 /* 5 */		REL, IZY, IMP, IMP, IMP, ZPX, ZPX, IMP, IMP, ABY, IMP, IMP, IMP, ABX, ABX, IMP,
 /* 6 */		IMP, IZX, IMP, IMP, IMP, ZPG, ZPG, IMP, STK, IMM, ACC, IMP, IND, ABS, ABS, IMP,
 /* 7 */		REL, IZY, IMP, IMP, IMP, ZPX, ZPX, IMP, IMP, ABY, IMP, IMP, IMP, ABX, ABX, IMP,
-/* 8 */		IMP, IZX, IMP, IMP, IMP, ZPG, ZPG, IMP, IMP, IMP, IMP, IMP, ABS, ABS, ABS, IMP,
-/* 9 */		REL, IZY, IMP, IMP, ZPG, ZPX, ZPY, IMP, IMP, ABY, IMP, IMP, IMP, ABX, ABX, IMP,
-/* A */		IMM, IZX, IMM, IMP, ZPX, ZPG, ZPG, IMP, IMP, IMM, IMP, IMP, ABS, ABS, ABS, IMP,
-/* B */		REL, IZY, IMP, IMP, ZPG, ZPX, ZPY, IMP, IMP, ABY, IMP, IMP, ABX, ABX, ABY, IMP,
-/* C */		IMM, IZX, IMP, IMP, ZPX, ZPG, ZPG, IMP, IMP, IMM, IMP, IMP, ABS, ABS, ABS, IMP,
+/* 8 */		IMP, IZX, IMP, IMP, ZPG, ZPG, ZPG, IMP, IMP, IMP, IMP, IMP, ABS, ABS, ABS, IMP,
+/* 9 */		REL, IZY, IMP, IMP, ZPX, ZPX, ZPY, IMP, IMP, ABY, IMP, IMP, IMP, ABX, ABX, IMP,
+/* A */		IMM, IZX, IMM, IMP, ZPG, ZPG, ZPG, IMP, IMP, IMM, IMP, IMP, ABS, ABS, ABS, IMP,
+/* B */		REL, IZY, IMP, IMP, ZPX, ZPX, ZPY, IMP, IMP, ABY, IMP, IMP, ABX, ABX, ABY, IMP,
+/* C */		IMM, IZX, IMP, IMP, ZPG, ZPG, ZPG, IMP, IMP, IMM, IMP, IMP, ABS, ABS, ABS, IMP,
 /* D */		REL, IZY, IMP, IMP, IMP, ZPX, ZPX, IMP, IMP, ABY, IMP, IMP, IMP, ABX, ABX, IMP,
 /* E */		IMM, IZX, IMP, IMP, ZPG, ZPG, ZPG, IMP, IMP, IMM, IMP, IMP, ABS, ABS, ABS, IMP,
 /* F */		REL, IZY, IMP, IMP, IMP, ZPX, ZPX, IMP, IMP, ABY, IMP, IMP, IMP, ABX, ABX, IMP,
@@ -1164,8 +1244,8 @@ public class Em65 extends Emulator
 /* B */		BCS, LDA, NOP, NOP, LDY, LDA, LDX, NOP, CLV, LDA, TSX, NOP, LDY, LDA, LDX, NOP,
 /* C */		CPY, CMP, NOP, NOP, CPY, CMP, DEC, NOP, INY, CMP, DEX, NOP, CPY, CMP, DEC, NOP,
 /* D */		BNE, CMP, NOP, NOP, NOP, CMP, DEC, NOP, CLD, CMP, NOP, NOP, NOP, CMP, DEC, NOP,
-/* E */		CPX, SBC, NOP, NOP, CPX, CPX, INC, NOP, INX, SBC, NOP, NOP, CPX, SBC, INC, NOP,
-/* F */		BEQ, SBC, NOP, NOP, NOP, NOP, INC, NOP, SED, SBC, NOP, NOP, NOP, SBC, INC, NOP
+/* E */		CPX, SBC, NOP, NOP, CPX, SBC, INC, NOP, INX, SBC, NOP, NOP, CPX, SBC, INC, NOP,
+/* F */		BEQ, SBC, NOP, NOP, NOP, SBC, INC, NOP, SED, SBC, NOP, NOP, NOP, SBC, INC, NOP
 		};
 		
 		protected final int [] cycles = new int [] {
@@ -1208,7 +1288,7 @@ public class Em65 extends Emulator
 		}
 		
 		@Override
-		public void trace ()
+		public int trace ()
 		{
 			int opcode = read (PC);
 			int size = addressModes [opcode].getSize ();
@@ -1227,7 +1307,7 @@ public class Em65 extends Emulator
 			
 			System.out.println ();
 			
-			step ();
+			return (step ());
 		}
 		
 		protected int	MA;
@@ -1239,13 +1319,13 @@ public class Em65 extends Emulator
 			{
 				extra = 0;
 				EA = read (PC + 1) | (read (PC + 2) << 8);
-				EA = read (EA) | (read (EA + 1) << 8);
+				EA = read (EA) | (read (toWord (EA + 1)) << 8);
 				setPC (PC + 3);
 			}
 			
 			public String forPC (int pc)
 			{
-				int mem = read (pc + 1);
+				int mem = read (pc + 1) | (read (pc + 2) << 8);
 				
 				return ("($" + Hex.toHex (mem, 4) + ")");
 			}
@@ -1256,14 +1336,14 @@ public class Em65 extends Emulator
 			public void decode ()
 			{
 				extra = 0;
-				EA = (read (PC + 1) | (read (PC + 2) << 8)) + X;
-				EA = read (EA) | (read (EA + 1) << 8);
+				EA = toWord ((read (PC + 1) | (read (PC + 2) << 8)) + X);
+				EA = read (EA) | (read (toWord (EA + 1)) << 8);
 				setPC (PC + 3);
 			}
 			
 			public String forPC (int pc)
 			{
-				int mem = read (pc + 1);
+				int mem = read (pc + 1) | (read (pc + 2) << 8);
 				
 				return ("($" + Hex.toHex (mem, 4) + ",X)");
 			}
@@ -1285,9 +1365,9 @@ public class Em65 extends Emulator
 			@Override
 			public String forPC (int pc)
 			{
-				int mem = read (pc);
+				int mem = read (pc + 1);
 				
-				return ("($" + Hex.toHex (mem, 3) + ")");
+				return ("($" + Hex.toHex (mem, 2) + ")");
 			}
 		};
 		
@@ -1296,6 +1376,7 @@ public class Em65 extends Emulator
 			@Override
 			public void decode ()
 			{
+				extra = 0;
 				EA = read (PC + 1);
 				setPC (PC + 2);
 			}
@@ -1314,22 +1395,22 @@ public class Em65 extends Emulator
 			@Override
 			public void decode ()
 			{
+				extra = 0;
 				MA = read (PC + 1);
 				EA = read (PC + 2);
 				if ((EA & 0x80) != 0) EA |= 0xffffff00;
-				EA = (PC + 3) + EA;
+				EA = toWord ((PC + 3) + EA);
 				setPC (PC + 3);
 			}
 
 			@Override
 			public String forPC (int pc)
 			{
-				MA = read (PC + 1);
-				EA = read (PC + 2);
-				if ((EA & 0x80) != 0) EA |= 0xffffff00;
-				EA = (PC + 3) + EA;
+				int mem = read (pc + 1);
+				int off = read (pc + 2);
+				if ((off & 0x80) != 0) off |= 0xffffff00;
 				
-				return (" $" + Hex.toHex (MA, 2) + ",$" + Hex.toHex (EA, 4));
+				return (" $" + Hex.toHex (mem, 2) + ",$" + Hex.toHex (toWord (pc + 3 + off), 4));
 			}
 		};
 		
@@ -1385,6 +1466,19 @@ public class Em65 extends Emulator
 		protected final Instruction BBS6 = new BranchOnBitSet ("BBS6", 1 << 6);
 		protected final Instruction BBS7 = new BranchOnBitSet ("BBS7", 1 << 7);
 		
+		protected final Instruction BITI = new Instruction ("BIT")
+		{
+			public void execute ()
+			{
+				int mem	= read (EA);
+				int	flg = P;
+				
+				if ((mem & A) == 0x000) flg |= F_Z; else flg &= ~F_Z;
+				
+				setP (flg);				 
+			}
+		};
+		
 		protected final Instruction BRA = new Instruction ("BRA")
 		{
 			public void execute ()
@@ -1530,7 +1624,8 @@ public class Em65 extends Emulator
 		{
 			public void execute ()
 			{
-				;
+				// Stay on this instruction
+				setPC (PC - 1);
 			}
 		};
 		
@@ -1546,6 +1641,13 @@ public class Em65 extends Emulator
 		{
 			public void execute ()
 			{
+				int mem = read (EA);
+				int	flg = P;
+				
+				if ((mem & A) == 0x000) flg |= F_Z; else flg &= ~F_Z;
+				
+				write (EA, mem & ~A);
+				setP (flg);
 			}
 		};
 		
@@ -1553,6 +1655,13 @@ public class Em65 extends Emulator
 		{
 			public void execute ()
 			{
+				int mem = read (EA);
+				int	flg = P;
+				
+				if ((mem & A) == 0x000) flg |= F_Z; else flg &= ~F_Z;
+				
+				write (EA, mem | A);
+				setP (flg);
 			}
 		};
 		
@@ -1560,6 +1669,8 @@ public class Em65 extends Emulator
 		{
 			public void execute ()
 			{
+				// No interrupt sources so stay on this instruction
+				setPC (PC - 1);
 			}
 		};
 		
@@ -1567,16 +1678,16 @@ public class Em65 extends Emulator
 /* 0 */		IMM, IZX, IMP, IMP, ZPG, ZPG, ZPG, BRS, STK, IMM, ACC, IMP, ABS, ABS, ABS, BRL,
 /* 1 */		REL, IZY, IZP, IMP, ZPG, ZPX, ZPX, BRS, IMP, ABY, IMP, IMP, ABS, ABX, ABX, BRL,
 /* 2 */		ABS, IZX, IMP, IMP, ZPG, ZPG, ZPG, BRS, STK, IMM, ACC, IMP, ABS, ABS, ABS, BRL,
-/* 3 */		REL, IZY, IZP, IMP, ZPG, ZPX, ZPX, BRS, IMP, ABY, IMP, IMP, ABX, ABX, ABX, BRL,
+/* 3 */		REL, IZY, IZP, IMP, ZPX, ZPX, ZPX, BRS, IMP, ABY, IMP, IMP, ABX, ABX, ABX, BRL,
 /* 4 */		IMP, IZX, IMP, IMP, IMP, ZPG, ZPG, BRS, STK, IMM, ACC, IMP, ABS, ABS, ABS, BRL,
 /* 5 */		REL, IZY, IZP, IMP, IMP, ZPX, ZPX, BRS, IMP, ABY, IMP, IMP, IMP, ABX, ABX, BRL,
 /* 6 */		IMP, IZX, IMP, IMP, ZPG, ZPG, ZPG, BRS, STK, IMM, ACC, IMP, IND, ABS, ABS, BRL,
-/* 7 */		REL, IZY, IZP, IMP, ZPX, ZPX, ZPX, BRS, IMP, ABY, IMP, IMP, IMP, ABX, ABX, BRL,
-/* 8 */		REL, IZX, IMP, IMP, IMP, ZPG, ZPG, BRS, IMP, IMP, IMP, IMP, ABS, ABS, ABS, BRL,
-/* 9 */		REL, IZY, IZP, IMP, ZPG, ZPX, ZPY, BRS, IMP, ABY, IMP, IMP, IAX, ABX, ABX, BRL,
-/* A */		IMM, IZX, IMM, IMP, ZPX, ZPG, ZPG, BRS, IMP, IMM, IMP, IMP, ABS, ABS, ABS, BRL,
-/* B */		REL, IZY, IZP, IMP, ZPG, ZPX, ZPY, BRS, IMP, ABY, IMP, IMP, ABX, ABX, ABY, BRL,
-/* C */		IMM, IZX, IMP, IMP, ZPX, ZPG, ZPG, BRS, IMP, IMM, IMP, IMP, ABS, ABS, ABS, BRL,
+/* 7 */		REL, IZY, IZP, IMP, ZPX, ZPX, ZPX, BRS, IMP, ABY, IMP, IMP, IAX, ABX, ABX, BRL,
+/* 8 */		REL, IZX, IMP, IMP, ZPG, ZPG, ZPG, BRS, IMP, IMM, IMP, IMP, ABS, ABS, ABS, BRL,
+/* 9 */		REL, IZY, IZP, IMP, ZPX, ZPX, ZPY, BRS, IMP, ABY, IMP, IMP, ABS, ABX, ABX, BRL,
+/* A */		IMM, IZX, IMM, IMP, ZPG, ZPG, ZPG, BRS, IMP, IMM, IMP, IMP, ABS, ABS, ABS, BRL,
+/* B */		REL, IZY, IZP, IMP, ZPX, ZPX, ZPY, BRS, IMP, ABY, IMP, IMP, ABX, ABX, ABY, BRL,
+/* C */		IMM, IZX, IMP, IMP, ZPG, ZPG, ZPG, BRS, IMP, IMM, IMP, IMP, ABS, ABS, ABS, BRL,
 /* D */		REL, IZY, IZP, IMP, IMP, ZPX, ZPX, BRS, IMP, ABY, IMP, IMP, IMP, ABX, ABX, BRL,
 /* E */		IMM, IZX, IMP, IMP, ZPG, ZPG, ZPG, BRS, IMP, IMM, IMP, IMP, ABS, ABS, ABS, BRL,
 /* F */		REL, IZY, IZP, IMP, IMP, ZPX, ZPX, BRS, IMP, ABY, IMP, IMP, IMP, ABX, ABX, BRL,
@@ -1584,43 +1695,43 @@ public class Em65 extends Emulator
 		                                        
 		protected final Instruction [] instructions = new Instruction [] {
 /* 0 */		BRK, ORA, NOP, NOP, TSB, ORA, ASL, RMB0,PHP, ORA, ASLA,NOP, TSB, ORA, ASL, BBR0,
-/* 1 */		BPL, ORA, ORA, NOP, TRB, ORA, ASL, RMB1,CLC, ORA, NOP, NOP, TRB, ORA, ASL, BBR1,
+/* 1 */		BPL, ORA, ORA, NOP, TRB, ORA, ASL, RMB1,CLC, ORA, INCA, NOP, TRB, ORA, ASL, BBR1,
 /* 2 */		JSR, AND, NOP, NOP, BIT, AND, ROL, RMB2,PLP, AND, ROLA,NOP, BIT, AND, ROL, BBR2,
-/* 3 */		BMI, AND, AND, NOP, BIT, AND, ROL, RMB3,SEC, AND, NOP, NOP, BIT, AND, ROL, BBR3,
+/* 3 */		BMI, AND, AND, NOP, BIT, AND, ROL, RMB3,SEC, AND, DECA, NOP, BIT, AND, ROL, BBR3,
 /* 4 */		RTI, EOR, NOP, NOP, NOP, EOR, LSR, RMB4,PHA, EOR, LSRA,NOP, JMP, EOR, LSR, BBR4,
 /* 5 */		BVC, EOR, EOR, NOP, NOP, EOR, LSR, RMB5,CLI, EOR, PHY, NOP, NOP, EOR, LSR, BBR5,
 /* 6 */		RTS, ADC, NOP, NOP, STZ, ADC, ROR, RMB6,PLA, ADC, RORA,NOP, JMP, ADC, ROR, BBR6,
 /* 7 */		BVS, ADC, ADC, NOP, STZ, ADC, ROR, RMB7,SEI, ADC, PLY, NOP, JMP, ADC, ROR, BBR7,
-/* 8 */		BRA, STA, NOP, NOP, STY, STA, STX, SMB0,DEY, NOP, TXA, NOP, STY, STA, STX, BBS0,
+/* 8 */		BRA, STA, NOP, NOP, STY, STA, STX, SMB0,DEY, BITI, TXA, NOP, STY, STA, STX, BBS0,
 /* 9 */		BCC, STA, STA, NOP, STY, STA, STX, SMB1,TYA, STA, TXS, NOP, STZ, STA, STZ, BBS1,
 /* A */		LDY, LDA, LDX, NOP, LDY, LDA, LDX, SMB2,TAY, LDA, TAX, NOP, LDY, LDA, LDX, BBS2,
 /* B */		BCS, LDA, LDA, NOP, LDY, LDA, LDX, SMB3,CLV, LDA, TSX, NOP, LDY, LDA, LDX, BBS3,
 /* C */		CPY, CMP, NOP, NOP, CPY, CMP, DEC, SMB4,INY, CMP, DEX, WAI, CPY, CMP, DEC, BBS4,
 /* D */		BNE, CMP, CMP, NOP, NOP, CMP, DEC, SMB5,CLD, CMP, PHX, STP, NOP, CMP, DEC, BBS5,
-/* E */		CPX, SBC, NOP, NOP, CPX, CPX, INC, SMB6,INX, SBC, NOP, NOP, CPX, SBC, INC, BBS6,
-/* F */		BEQ, SBC, SBC, NOP, NOP, NOP, INC, SMB7,SED, SBC, PLX, NOP, NOP, SBC, INC, BBS7
+/* E */		CPX, SBC, NOP, NOP, CPX, SBC, INC, SMB6,INX, SBC, NOP, NOP, CPX, SBC, INC, BBS6,
+/* F */		BEQ, SBC, SBC, NOP, NOP, SBC, INC, SMB7,SED, SBC, PLX, NOP, NOP, SBC, INC, BBS7
 		};
 		
 		protected final int [] cycles = new int [] {
-			7, 6, 0, 8,  3, 3, 5, 5,  3, 2, 2, 2,  4, 4, 6, 6, 
-			2, 5, 0, 8,  4, 4, 6, 6,  2, 4, 2, 7,  4, 4, 7, 7, 
-			6, 6, 0, 8,  3, 3, 5, 5,  4, 2, 2, 2,  4, 4, 6, 6, 
-			2, 5, 0, 8,  4, 4, 6, 6,  2, 4, 2, 7,  4, 4, 7, 7,
+			7, 6, 2, 1,  5, 3, 5, 5,  3, 2, 2, 1,  6, 4, 6, 5, 
+			2, 5, 5, 1,  5, 4, 6, 5,  2, 4, 2, 1,  6, 4, 6, 5, 
+			6, 6, 2, 1,  3, 3, 5, 5,  4, 2, 2, 1,  4, 4, 6, 5, 
+			2, 5, 5, 1,  4, 4, 6, 5,  2, 4, 2, 1,  4, 4, 6, 5,
 			
-			6, 6, 0, 8,  3, 3, 5, 5,  3, 2, 2, 2,  3, 4, 6, 6, 
-			2, 5, 0, 8,  4, 4, 6, 6,  2, 4, 2, 7,  4, 4, 7, 7, 
-			6, 6, 0, 8,  3, 3, 5, 5,  4, 2, 2, 2,  5, 4, 6, 6, 
-			2, 5, 0, 8,  4, 4, 6, 6,  2, 4, 2, 7,  4, 4, 7, 7, 
+			6, 6, 2, 1,  3, 3, 5, 5,  3, 2, 2, 1,  3, 4, 6, 5, 
+			2, 5, 5, 1,  4, 4, 6, 5,  2, 4, 3, 1,  8, 4, 6, 5, 
+			6, 6, 2, 1,  3, 3, 5, 5,  4, 2, 2, 1,  6, 4, 6, 5, 
+			2, 5, 5, 1,  4, 4, 6, 5,  2, 4, 4, 1,  6, 4, 6, 5, 
 			
-			2, 6, 2, 6,  3, 3, 3, 3,  2, 2, 2, 2,  4, 4, 4, 4, 
-			2, 6, 0, 6,  4, 4, 4, 4,  2, 5, 2, 5,  5, 5, 5, 5, 
-			2, 6, 2, 6,  3, 3, 3, 3,  2, 2, 2, 2,  4, 4, 4, 4, 
-			2, 5, 0, 5,  4, 4, 4, 4,  2, 4, 2, 4,  4, 4, 4, 4, 
+			3, 6, 2, 1,  3, 3, 3, 5,  2, 2, 2, 1,  4, 4, 4, 5, 
+			2, 6, 5, 1,  4, 4, 4, 5,  2, 5, 2, 1,  4, 5, 5, 5, 
+			2, 6, 2, 1,  3, 3, 3, 5,  2, 2, 2, 1,  4, 4, 4, 5, 
+			2, 5, 5, 1,  4, 4, 4, 5,  2, 4, 2, 1,  4, 4, 4, 5, 
 			
-			2, 6, 2, 8,  3, 3, 5, 5,  2, 2, 2, 2,  4, 4, 6, 6, 
-			2, 5, 0, 8,  4, 4, 6, 6,  2, 4, 2, 7,  4, 4, 7, 7, 
-			2, 6, 2, 8,  3, 3, 5, 5,  2, 2, 2, 2,  4, 4, 6, 6, 
-			2, 5, 0, 8,  4, 4, 6, 6,  2, 4, 2, 7,  4, 4, 7, 7, 
+			2, 6, 2, 1,  3, 3, 5, 5,  2, 2, 2, 3,  4, 4, 6, 5, 
+			2, 5, 5, 1,  4, 4, 6, 5,  2, 4, 3, 3,  4, 4, 7, 5, 
+			2, 6, 2, 1,  3, 3, 5, 5,  2, 2, 2, 1,  4, 4, 6, 5, 
+			2, 5, 5, 1,  4, 4, 6, 5,  2, 4, 4, 1,  4, 4, 7, 5, 
 		};
 	}
 	
@@ -1647,21 +1758,448 @@ public class Em65 extends Emulator
 	
 	protected int			EA;
 	
+	/**
+	 * The number of memory map pages in the 64K address space.
+	 */
+	private static final int	PAGES		= 0x10000 >>> AddressMap.PAGE_BITS;
+	
+	private static final int	PAGE_MASK	= AddressMap.PAGE_SIZE - 1;
+	
+	/**
+	 * The arrays backing readable RAM and ROM pages, or <CODE>null</CODE>
+	 * for pages that must be accessed through the memory map.
+	 */
+	final byte [][]				readPages	= new byte [PAGES][];
+	
+	/**
+	 * The arrays backing writable RAM pages.
+	 */
+	final byte [][]				writePages	= new byte [PAGES][];
+	
+	/**
+	 * The index in the backing array of the first byte of each page.
+	 */
+	final int []				pageOffsets	= new int [PAGES];
+	
 	protected CPU6502		cpu;
 	
+	/**
+	 * The maximum number of cycles run before returning to the application
+	 * loop when no device event is pending.
+	 */
+	private static final int	BATCH		= 1 << 20;
+	
+	/**
+	 * The number of cycles run by <CODE>-bench</CODE> if no limit is given.
+	 */
+	private static final long	BENCH_CYCLES = 100000000L;
+	
+	/**
+	 * The number of random machine states used for each opcode by
+	 * <CODE>-check</CODE>.
+	 */
+	private static final int	CHECK_TRIALS = 64;
+	
+	/**
+	 * The <CODE>Option</CODE> used to detect <CODE>-trace</CODE>
+	 */
+	private Option				traceOption
+		= new Option (this, "-trace", "Trace each instruction executed");
+	
+	/**
+	 * The <CODE>Option</CODE> used to detect <CODE>-cycles</CODE>
+	 */
+	private Option				cyclesOption
+		= new Option (this, "-cycles", "Stop after the given number of cycles", "<count>");
+	
+	/**
+	 * The <CODE>Option</CODE> used to detect <CODE>-core</CODE>
+	 */
+	private Option				coreOption
+		= new Option (this, "-core", "Interpreter core to use (default jit)", "table|switch|jit");
+	
+	/**
+	 * The <CODE>Option</CODE> used to detect <CODE>-check</CODE>
+	 */
+	private Option				checkOption
+		= new Option (this, "-check", "Cross-check the switch and jit cores against the table core");
+	
+	/**
+	 * The <CODE>Option</CODE> used to detect <CODE>-bench</CODE>
+	 */
+	private Option				benchOption
+		= new Option (this, "-bench", "Report the emulated speed of each core");
+	
+	/**
+	 * The switch dispatched core for the selected processor.
+	 */
+	private Switch65			core		= null;
+	
+	/**
+	 * Set when the switch dispatched core is to be used.
+	 */
+	private boolean				fast		= false;
+	
+	/**
+	 * The number of cycles after which execution stops.
+	 */
+	private long				limit		= Long.MAX_VALUE;
+	
+	/**
+	 * Set when the processor enters a jump or branch to itself.
+	 */
+	private boolean				halted		= false;
+	
+	/**
+	 * {@inheritDoc}
+	 */
 	@Override
 	protected void startUp ()
 	{
-		cpu = new MOS6502 ();
+		super.startUp ();
+		
+		if (checkOption.isPresent ()) {
+			crossCheck ();
+			setFinished (true);
+			return;
+		}
+		
+		if (getArguments ().length < 1) {
+			System.err.println ("Error: No configuration file specified");
+			setFinished (true);
+			return;
+		}
+		
+		if (cyclesOption.isPresent ()) {
+			try {
+				limit = Long.parseLong (cyclesOption.getValue ());
+			}
+			catch (Exception error) {
+				System.err.println ("Error: Invalid cycle limit");
+				setFinished (true);
+				return;
+			}
+		}
+		else if (benchOption.isPresent ())
+			limit = BENCH_CYCLES;
+		
+		String			name = coreOption.isPresent () ? coreOption.getValue () : "jit";
+		
+		if (!"table".equals (name) && !"switch".equals (name) && !"jit".equals (name)) {
+			System.err.println ("Error: Unknown core " + name);
+			setFinished (true);
+			return;
+		}
+		
+		if (benchOption.isPresent ()) {
+			benchmark ();
+			setFinished (true);
+			return;
+		}
+		
+		if (!loadMachine (traceOption.isPresent () ? "table" : name))
+			setFinished (true);
 	}
 		
+	/**
+	 * Runs the processor until the next device event (or the cycle limit)
+	 * and then lets the scheduler run any devices that are due.
+	 */
 	@Override
 	protected void execute ()
 	{
-		// TODO Auto-generated method stub
+		long		stop	= Math.min (limit, scheduler.getTime () + BATCH);
+		
+		if (fast) {
+			while (!halted && !scheduler.isDue () && (scheduler.getTime () < stop)) {
+				core.run ((int) Math.min (Math.min (scheduler.getDeadline (), stop) - scheduler.getTime (), BATCH));
+				halted = core.isHalted ();
+			}
+		}
+		else {
+			boolean		tracing = traceOption.isPresent ();
+			
+			while (!scheduler.isDue () && (scheduler.getTime () < stop)) {
+				int		pc = PC;
+				
+				scheduler.tick (tracing ? trace () : step ());
+				if (PC == pc) {
+					halted = true;
+					break;
+				}
+			}
+		}
+		scheduler.runDue ();
 		
+		if (halted || (scheduler.getTime () >= limit)) setFinished (true);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void cleanUp ()
+	{
+		if ((cpu != null) && !benchOption.isPresent ())
+			System.err.println ((halted ? "Halted at $" : "Stopped at $") + Hex.toHex (PC, 4)
+					+ " after " + scheduler.getTime () + " cycles");
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected String describeArguments ()
+	{
+		return (" config.xml [image[@addr] ...]");
 	}
 	
+	/**
+	 * Builds the machine described by the configuration file and any
+	 * additional images on the command line and resets it.
+	 * 
+	 * @param	name			The core to use (table, switch or jit).
+	 * @return	<CODE>true</CODE> if the machine was loaded.
+	 */
+	private boolean loadMachine (String name)
+	{
+		String []		arguments = getArguments ();
+		
+		if (!loadConfiguration (arguments [0])) return (false);
+		
+		for (int index = 1; index < arguments.length; ++index) {
+			String		image = arguments [index];
+			int			base  = 0;
+			int			split = image.lastIndexOf ('@');
+			
+			try {
+				if (split > 0) {
+					base  = Integer.parseInt (image.substring (split + 1), 16);
+					image = image.substring (0, split);
+				}
+				loadImage (new File (image), base);
+			}
+			catch (Exception error) {
+				System.err.println ("Error: Failed to load image " + image);
+				return (false);
+			}
+		}
+		
+		if ((processor == null) || processor.equals ("6502")) {
+			MOS6502		table = new MOS6502 ();
+			
+			cpu  = table;
+			core = new Switch65 (this, table, table.cycles, false, name.equals ("jit"));
+		}
+		else if (processor.equals ("65C02")) {
+			WDC65C02	table = new WDC65C02 ();
+			
+			cpu  = table;
+			core = new Switch65 (this, table, table.cycles, true, name.equals ("jit"));
+		}
+		else {
+			System.err.println ("Error: Unsupported processor " + processor);
+			return (false);
+		}
+		
+		fast   = !name.equals ("table");
+		halted = false;
+		
+		mapPages ();
+		resetDevices ();
+		reset ();
+		return (true);
+	}
+	
+	/**
+	 * Runs the machine from reset with each core in turn and reports the
+	 * emulated clock rate achieved.
+	 */
+	private void benchmark ()
+	{
+		for (String name : new String [] { "table", "switch", "jit" }) {
+			if (!loadMachine (name)) return;
+			
+			long		start = System.nanoTime ();
+			
+			setFinished (false);
+			while (!isFinished ())
+				execute ();
+			
+			long		elapsed = Math.max (System.nanoTime () - start, 1);
+			long		cycles  = scheduler.getTime ();
+			
+			System.err.println (name + " core: " + cycles + " cycles in " + (elapsed / 1000000)
+					+ " ms (" + String.format ("%.1f", cycles * 1000.0 / elapsed) + " MHz)");
+		}
+	}
+	
+	/**
+	 * Executes every opcode of both processors from random machine states
+	 * using the table core and both the interpreted and translated forms
+	 * of the switch core and reports any differences in the registers,
+	 * cycle counts or memory contents that result.
+	 * <P>
+	 * Translated blocks of one or two instructions are made for each state
+	 * so that blocks which run to completion and those which are left early
+	 * are both checked.
+	 */
+	private void crossCheck ()
+	{
+		Random			random	 = new Random (6502);
+		ByteRAM			ram		 = new ByteRAM (0, 0x10000);
+		byte []			memory	 = ram.getBytes ();
+		byte []			initial  = new byte [0x10000];
+		byte []			expected = new byte [0x10000];
+		int				total	 = 0;
+		int				failures = 0;
+		
+		memoryMap = new AddressMap (0xffff);
+		memoryMap.add (ram);
+		mapPages ();
+		random.nextBytes (initial);
+		
+		for (int variant = 0; variant < 2; ++variant) {
+			CPU6502			table;
+			Switch65 []		check;
+			
+			if (variant == 0) {
+				MOS6502		nmos = new MOS6502 ();
+				
+				table = nmos;
+				check = new Switch65 [] {
+						new Switch65 (this, nmos, nmos.cycles, false, false),
+						new Switch65 (this, nmos, nmos.cycles, false, true) };
+			}
+			else {
+				WDC65C02	cmos = new WDC65C02 ();
+				
+				table = cmos;
+				check = new Switch65 [] {
+						new Switch65 (this, cmos, cmos.cycles, true, false),
+						new Switch65 (this, cmos, cmos.cycles, true, true) };
+			}
+			
+			for (int opcode = 0; opcode < 256; ++opcode) {
+				for (int trial = 0; trial < CHECK_TRIALS; ++trial) {
+					int []		state = new int [] {
+							random.nextInt (256), random.nextInt (256), random.nextInt (256),
+							random.nextInt (256), random.nextInt (256) | 0x30, random.nextInt (0x10000) };
+					
+					for (int index = 0; index < 0x200; ++index)
+						initial [index] = (byte) random.nextInt ();
+					initial [state [5]] = (byte) opcode;
+					
+					System.arraycopy (initial, 0, memory, 0, memory.length);
+					setState (state);
+					int			want   = table.step ();
+					int []		before = getState ();
+					System.arraycopy (memory, 0, expected, 0, memory.length);
+					
+					for (int kind = 0; kind < check.length; ++kind) {
+						System.arraycopy (initial, 0, memory, 0, memory.length);
+						setState (state);
+						if (kind == 1) check [kind].translate (state [5], 1 + (trial & 1));
+						
+						int			got	   = check [kind].run (1);
+						int []		after  = getState ();
+						
+						if (kind == 1) check [kind].modified (state [5]);
+						
+						++total;
+						if ((want != got) || !Arrays.equals (before, after) || !Arrays.equals (expected, memory)) {
+							if (++failures <= 10)
+								System.err.println ("Mismatch: " + ((variant == 0) ? "6502" : "65C02")
+									+ " opcode $" + Hex.toHex (opcode, 2) + " from " + describe (state)
+									+ " table " + describe (before) + " (" + want + ")"
+									+ ((kind == 0) ? " switch " : " jit ") + describe (after) + " (" + got + ")");
+						}
+					}
+				}
+			}
+		}
+		
+		System.err.println ("Cross-check: " + total + " instructions, " + failures + " mismatches");
+		if (failures != 0) System.exit (1);
+	}
+	
+	/**
+	 * Sets the processor registers from an array holding A, X, Y, S, P
+	 * and PC.
+	 * 
+	 * @param	state			The register values.
+	 */
+	private void setState (int [] state)
+	{
+		A  = state [0];
+		X  = state [1];
+		Y  = state [2];
+		S  = state [3];
+		P  = state [4];
+		PC = state [5];
+	}
+	
+	/**
+	 * Captures the processor registers as an array holding A, X, Y, S, P
+	 * and PC.
+	 * 
+	 * @return	The register values.
+	 */
+	private int [] getState ()
+	{
+		return (new int [] { A, X, Y, S, P, PC });
+	}
+	
+	/**
+	 * Formats a register array for a cross-check report.
+	 * 
+	 * @param	state			The register values.
+	 * @return	A printable description.
+	 */
+	private static String describe (int [] state)
+	{
+		return ("A=" + Hex.toHex (state [0], 2) + " X=" + Hex.toHex (state [1], 2)
+				+ " Y=" + Hex.toHex (state [2], 2) + " S=" + Hex.toHex (state [3], 2)
+				+ " P=" + Hex.toHex (state [4], 2) + " PC=" + Hex.toHex (state [5], 4));
+	}
+	
+	/**
+	 * Passes cycles executed by the switch core on to the scheduler.
+	 * 
+	 * @param	cycles			The number of cycles executed.
+	 */
+	void tick (int cycles)
+	{
+		scheduler.tick (cycles);
+	}
+	
+	/**
+	 * Places the processor in its reset state and loads the program
+	 * counter from the reset vector.
+	 */
+	protected void reset ()
+	{
+		setS (0xff);
+		setP (P | F_I);
+		setPC (read (0xfffc) | (read (0xfffd) << 8));
+	}
+	
+	/**
+	 * Captures the backing arrays of any RAM or ROM pages in the memory map
+	 * so that <CODE>read</CODE> and <CODE>write</CODE> can access them
+	 * directly. This must be repeated if the memory map is changed.
+	 */
+	protected void mapPages ()
+	{
+		for (int page = 0; page < PAGES; ++page) {
+			int		address = page << AddressMap.PAGE_BITS;
+			
+			readPages [page]  = memoryMap.getReadable (address);
+			writePages [page] = memoryMap.getWritable (address);
+			pageOffsets [page] = memoryMap.getOffset (address);
+		}
+	}
+		
 	protected void setA (int value)
 	{
 		A = toByte (value);
@@ -1694,11 +2232,26 @@ public class Em65 extends Emulator
 
 	protected int read (int addr)
 	{
-		return (0);
+		int		page = (addr & 0xffff) >>> AddressMap.PAGE_BITS;
+		byte []	data = readPages [page];
+		
+		if (data != null)
+			return (data [pageOffsets [page] + (addr & PAGE_MASK)] & 0xff);
+		
+		return ((memoryMap != null) ? memoryMap.read (toWord (addr)) : 0);
 	}
 	
 	protected void write (int addr, int value)
 	{
+		int		page = (addr & 0xffff) >>> AddressMap.PAGE_BITS;
+		byte []	data = writePages [page];
+		
+		if (data != null) {
+			data [pageOffsets [page] + (addr & PAGE_MASK)] = (byte) value;
+			if (core != null) core.modified (addr);
+		}
+		else if (memoryMap != null)
+			memoryMap.write (toWord (addr), toByte (value));
 	}
 
 	/**
@@ -1714,9 +2267,9 @@ public class Em65 extends Emulator
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected void trace ()
+	protected int trace ()
 	{
-		cpu.trace ();
+		return (cpu.trace ());
 	}
 
 	/**
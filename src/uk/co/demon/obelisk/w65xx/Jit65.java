@@ -0,0 +1,429 @@
+/*
+ * Copyright (C),2014 Andrew John Jacobs.
+ *
+ * This program is provided free of charge for educational purposes
+ *
+ * Redistribution and use in binary form without modification, is permitted
+ * provided that the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS 'AS IS' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package uk.co.demon.obelisk.w65xx;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Hashtable;
+
+import uk.co.demon.obelisk.xobj.Hex;
+
+/**
+ * The <CODE>Jit65</CODE> class translates a run of 6502/65C02 instructions
+ * into a JVM class derived from <CODE>Switch65.Block</CODE>.
+ * <P>
+ * The generated <CODE>run</CODE> method calls the block's instruction
+ * methods in turn, passing each the operand and next address decoded at
+ * translation time as constants, and then accounts for its cycles. As the
+ * instruction methods are small and final the JVM inlines them into the
+ * generated code where the constants can be folded.
+ * <P>
+ * Classes are written in the Java 5 format so that no stack map frames
+ * are needed. Each is defined in its own class loader so that it can be
+ * unloaded once the block is discarded.
+ * 
+ * @author	Andrew Jacobs
+ * @version	$Id$
+ */
+final class Jit65
+{
+	/**
+	 * Translates a decoded run of instructions into a block.
+	 * 
+	 * @param	start			The address of the first instruction.
+	 * @param	ops				The opcode of each instruction.
+	 * @param	operands		The decoded operand of each instruction.
+	 * @param	nexts			The address following each instruction.
+	 * @param	count			The number of instructions.
+	 * @param	control			<CODE>true</CODE> if the last instruction
+	 * 							sets the program counter itself.
+	 * @param	cycles			The base cycle count for each opcode.
+	 * @return	A new instance of the translated block or <CODE>null</CODE>
+	 * 			if it could not be created.
+	 */
+	static Switch65.Block translate (int start, int [] ops, int [] operands, int [] nexts,
+			int count, boolean control, int [] cycles)
+	{
+		String			name = PACKAGE + "Block" + Hex.toHex (start, 4);
+		
+		try {
+			byte []		bytes = new Jit65 ().generate (name, ops, operands, nexts, count, control, cycles);
+			Class<?>	type  = new Loader ().define (name.replace ('/', '.'), bytes);
+			
+			return ((Switch65.Block) type.getConstructor ().newInstance ());
+		}
+		catch (Exception error) {
+			return (null);
+		}
+	}
+	
+	/**
+	 * The internal name of the package holding the generated classes.
+	 */
+	private static final String	PACKAGE		= "uk/co/demon/obelisk/w65xx/";
+	
+	/**
+	 * The internal name of the superclass of all generated classes.
+	 */
+	private static final String	BLOCK		= PACKAGE + "Switch65$Block";
+	
+	/**
+	 * The class file version written (Java 5).
+	 */
+	private static final int	VERSION		= 49;
+	
+	/**
+	 * Constant pool entry tags.
+	 */
+	private static final int	UTF8		= 1;
+	private static final int	INTEGER		= 3;
+	private static final int	CLASS		= 7;
+	private static final int	METHODREF	= 10;
+	private static final int	NAMETYPE	= 12;
+	
+	/**
+	 * Bytecode instructions.
+	 */
+	private static final int	ICONST_0	= 0x03;
+	private static final int	ICONST_1	= 0x04;
+	private static final int	BIPUSH		= 0x10;
+	private static final int	SIPUSH		= 0x11;
+	private static final int	LDC_W		= 0x13;
+	private static final int	ALOAD_0		= 0x2a;
+	private static final int	IFEQ		= 0x99;
+	private static final int	IRETURN		= 0xac;
+	private static final int	RETURN		= 0xb1;
+	private static final int	INVOKEVIRTUAL = 0xb6;
+	private static final int	INVOKESPECIAL = 0xb7;
+	
+	/**
+	 * A <CODE>ClassLoader</CODE> that defines a single generated class.
+	 */
+	private static final class Loader extends ClassLoader
+	{
+		Loader ()
+		{
+			super (Jit65.class.getClassLoader ());
+		}
+		
+		Class<?> define (String name, byte [] bytes)
+		{
+			return (defineClass (name, bytes, 0, bytes.length));
+		}
+	}
+	
+	/**
+	 * The constant pool entries written so far.
+	 */
+	private final ByteArrayOutputStream	poolBytes = new ByteArrayOutputStream ();
+	
+	private final DataOutputStream		pool	  = new DataOutputStream (poolBytes);
+	
+	/**
+	 * Maps the description of each constant pool entry to its index.
+	 */
+	private final Hashtable<String, Integer>	entries	= new Hashtable<String, Integer> ();
+	
+	/**
+	 * The bytecode of the method being generated.
+	 */
+	private final ByteArrayOutputStream	code	  = new ByteArrayOutputStream ();
+	
+	/**
+	 * Constructs a <CODE>Jit65</CODE> to generate one class.
+	 */
+	private Jit65 ()
+	{ }
+	
+	/**
+	 * Generates the class file for a block.
+	 * 
+	 * @param	name			The internal name of the class.
+	 * @param	ops				The opcode of each instruction.
+	 * @param	operands		The decoded operand of each instruction.
+	 * @param	nexts			The address following each instruction.
+	 * @param	count			The number of instructions.
+	 * @param	control			<CODE>true</CODE> if the last instruction
+	 * 							sets the program counter itself.
+	 * @param	cycles			The base cycle count for each opcode.
+	 * @return	The bytes of the class file.
+	 * @throws	IOException		Not expected for in memory streams.
+	 */
+	private byte [] generate (String name, int [] ops, int [] operands, int [] nexts,
+			int count, boolean control, int [] cycles)
+		throws IOException
+	{
+		int				thisClass  = classEntry (name);
+		int				superClass = classEntry (BLOCK);
+		int				init	   = methodEntry (BLOCK, "<init>", "()V");
+		int				step	   = methodEntry (BLOCK, "step", "(III)Z");
+		int				finish	   = control
+			? methodEntry (BLOCK, "transfer", "(II)V")
+			: methodEntry (BLOCK, "complete", "(III)V");
+		
+		ByteArrayOutputStream	classBytes = new ByteArrayOutputStream ();
+		DataOutputStream		out		   = new DataOutputStream (classBytes);
+		
+		out.writeInt (0xCAFEBABE);
+		out.writeShort (0);
+		out.writeShort (VERSION);
+		
+		// Build the method bodies first so all constants are known
+		byte []			initCode;
+		byte []			runCode;
+		
+		emit (ALOAD_0);
+		emit (INVOKESPECIAL);
+		emitShort (init);
+		emit (RETURN);
+		initCode = code.toByteArray ();
+		code.reset ();
+		
+		for (int index = 0; index < count; ++index) {
+			int			op = ops [index];
+			
+			emit (ALOAD_0);
+			emit (ALOAD_0);
+			push (operands [index]);
+			push (nexts [index]);
+			emit (INVOKEVIRTUAL);
+			emitShort (methodEntry (BLOCK, "op" + Hex.toHex (op, 2), "(II)I"));
+			
+			if (index < count - 1) {
+				push (nexts [index]);
+				push (cycles [op]);
+				emit (INVOKEVIRTUAL);
+				emitShort (step);
+				emit (IFEQ);
+				emitShort (5);
+				emit (ICONST_0);
+				emit (IRETURN);
+			}
+			else {
+				if (!control) push (nexts [index]);
+				push (cycles [op]);
+				emit (INVOKEVIRTUAL);
+				emitShort (finish);
+				emit (ICONST_1);
+				emit (IRETURN);
+			}
+		}
+		runCode = code.toByteArray ();
+		
+		int				initName = utf8Entry ("<init>");
+		int				initType = utf8Entry ("()V");
+		int				runName	 = utf8Entry ("run");
+		int				runType	 = utf8Entry ("()Z");
+		int				codeName = utf8Entry ("Code");
+		
+		out.writeShort (entries.size () + 1);
+		out.write (poolBytes.toByteArray ());
+		
+		out.writeShort (0x0031);					// public final super
+		out.writeShort (thisClass);
+		out.writeShort (superClass);
+		out.writeShort (0);							// interfaces
+		out.writeShort (0);							// fields
+		
+		out.writeShort (2);							// methods
+		writeMethod (out, initName, initType, codeName, 1, initCode);
+		writeMethod (out, runName, runType, codeName, 4, runCode);
+		
+		out.writeShort (0);							// attributes
+		return (classBytes.toByteArray ());
+	}
+	
+	/**
+	 * Writes a public method with a <CODE>Code</CODE> attribute.
+	 * 
+	 * @param	out				The class file stream.
+	 * @param	name			The pool index of the method name.
+	 * @param	type			The pool index of the method descriptor.
+	 * @param	codeName		The pool index of "Code".
+	 * @param	maxStack		The maximum operand stack depth.
+	 * @param	bytecode		The method body.
+	 * @throws	IOException		Not expected for in memory streams.
+	 */
+	private static void writeMethod (DataOutputStream out, int name, int type, int codeName,
+			int maxStack, byte [] bytecode)
+		throws IOException
+	{
+		out.writeShort (0x0001);					// public
+		out.writeShort (name);
+		out.writeShort (type);
+		out.writeShort (1);
+		out.writeShort (codeName);
+		out.writeInt (12 + bytecode.length);
+		out.writeShort (maxStack);
+		out.writeShort (1);							// max locals
+		out.writeInt (bytecode.length);
+		out.write (bytecode);
+		out.writeShort (0);							// exception table
+		out.writeShort (0);							// attributes
+	}
+	
+	/**
+	 * Appends a byte to the current method body.
+	 * 
+	 * @param	value			The byte to add.
+	 */
+	private void emit (int value)
+	{
+		code.write (value);
+	}
+	
+	/**
+	 * Appends a big endian 16-bit value to the current method body.
+	 * 
+	 * @param	value			The value to add.
+	 */
+	private void emitShort (int value)
+	{
+		code.write (value >> 8);
+		code.write (value);
+	}
+	
+	/**
+	 * Appends the shortest instruction that pushes an integer constant.
+	 * 
+	 * @param	value			The value to push.
+	 * @throws	IOException		Not expected for in memory streams.
+	 */
+	private void push (int value)
+		throws IOException
+	{
+		if ((value >= -1) && (value <= 5))
+			emit (ICONST_0 + value);
+		else if ((value >= -128) && (value <= 127)) {
+			emit (BIPUSH);
+			emit (value);
+		}
+		else if ((value >= -32768) && (value <= 32767)) {
+			emit (SIPUSH);
+			emitShort (value);
+		}
+		else {
+			emit (LDC_W);
+			emitShort (integerEntry (value));
+		}
+	}
+	
+	/**
+	 * Returns the pool index of a UTF8 entry, adding it if necessary.
+	 * 
+	 * @param	text			The string value.
+	 * @return	The pool index.
+	 * @throws	IOException		Not expected for in memory streams.
+	 */
+	private int utf8Entry (String text)
+		throws IOException
+	{
+		Integer			index = entries.get ("U" + text);
+		
+		if (index == null) {
+			pool.writeByte (UTF8);
+			pool.writeUTF (text);
+			entries.put ("U" + text, index = entries.size () + 1);
+		}
+		return (index);
+	}
+	
+	/**
+	 * Returns the pool index of an integer entry, adding it if necessary.
+	 * 
+	 * @param	value			The integer value.
+	 * @return	The pool index.
+	 * @throws	IOException		Not expected for in memory streams.
+	 */
+	private int integerEntry (int value)
+		throws IOException
+	{
+		Integer			index = entries.get ("I" + value);
+		
+		if (index == null) {
+			pool.writeByte (INTEGER);
+			pool.writeInt (value);
+			entries.put ("I" + value, index = entries.size () + 1);
+		}
+		return (index);
+	}
+	
+	/**
+	 * Returns the pool index of a class entry, adding it if necessary.
+	 * 
+	 * @param	name			The internal name of the class.
+	 * @return	The pool index.
+	 * @throws	IOException		Not expected for in memory streams.
+	 */
+	private int classEntry (String name)
+		throws IOException
+	{
+		Integer			index = entries.get ("C" + name);
+		
+		if (index == null) {
+			int			text = utf8Entry (name);
+			
+			pool.writeByte (CLASS);
+			pool.writeShort (text);
+			entries.put ("C" + name, index = entries.size () + 1);
+		}
+		return (index);
+	}
+	
+	/**
+	 * Returns the pool index of a method reference, adding it and the
+	 * entries it refers to if necessary.
+	 * 
+	 * @param	owner			The internal name of the declaring class.
+	 * @param	name			The method name.
+	 * @param	type			The method descriptor.
+	 * @return	The pool index.
+	 * @throws	IOException		Not expected for in memory streams.
+	 */
+	private int methodEntry (String owner, String name, String type)
+		throws IOException
+	{
+		String			key	  = "M" + owner + "." + name + type;
+		Integer			index = entries.get (key);
+		
+		if (index == null) {
+			int			klass = classEntry (owner);
+			int			text  = utf8Entry (name);
+			int			desc  = utf8Entry (type);
+			Integer		pair  = entries.get ("N" + name + type);
+			
+			if (pair == null) {
+				pool.writeByte (NAMETYPE);
+				pool.writeShort (text);
+				pool.writeShort (desc);
+				entries.put ("N" + name + type, pair = entries.size () + 1);
+			}
+			
+			pool.writeByte (METHODREF);
+			pool.writeShort (klass);
+			pool.writeShort (pair);
+			entries.put (key, index = entries.size () + 1);
+		}
+		return (index);
+	}
+}
\ No newline at end of file
@@ -91,11 +91,11 @@ public final class Lk65 extends Linker
 	 * Option to indicate 65816 memory model.
 	 */
 	private Option			W65C816
-		= new Option ("-65C816", "65C816 memory model");
+		= new Option (this, "-65C816", "65C816 memory model");
 
 	/**
 	 * Option to indicate 65816 memory model.
 	 */
 	private Option			W65832
-		= new Option ("-65832", "65832 memory model");
+		= new Option (this, "-65832", "65832 memory model");
 }
\ No newline at end of file
@@ -0,0 +1,4661 @@
+/*
+ * Copyright (C),2014 Andrew John Jacobs.
+ *
+ * This program is provided free of charge for educational purposes
+ *
+ * Redistribution and use in binary form without modification, is permitted
+ * provided that the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS 'AS IS' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package uk.co.demon.obelisk.w65xx;
+
+import uk.co.demon.obelisk.xemu.AddressMap;
+
+/**
+ * The <CODE>Switch65</CODE> class is an alternative 6502/65C02 interpreter
+ * core for <CODE>Em65</CODE>. Rather than dispatching through the address
+ * mode and instruction tables of the standard cores it decodes each opcode
+ * with a single <CODE>switch</CODE>, keeps the registers in local variables
+ * for the duration of a batch and accesses RAM and ROM pages directly.
+ * <P>
+ * Opcodes that are not documented for the selected processor are passed to
+ * the table driven core so both cores always behave identically.
+ * <P>
+ * When translation is enabled, addresses that are entered frequently have
+ * the run of instructions that follows them translated into a JVM class by
+ * <CODE>Jit65</CODE>. A write to a page holding translated code discards the
+ * blocks that overlap it so self modifying code behaves correctly.
+ * 
+ * @author	Andrew Jacobs
+ * @version	$Id$
+ */
+final class Switch65
+{
+	/**
+	 * Constructs a <CODE>Switch65</CODE> core.
+	 * 
+	 * @param	emulator		The owning <CODE>Em65</CODE> instance.
+	 * @param	table			The table driven core for the same processor.
+	 * @param	cycles			The base cycle count for each opcode.
+	 * @param	cmos			<CODE>true</CODE> for a 65C02.
+	 * @param	jit				<CODE>true</CODE> to translate hot blocks.
+	 */
+	Switch65 (Em65 emulator, Em65.CPU6502 table, int [] cycles, boolean cmos, boolean jit)
+	{
+		this.emulator = emulator;
+		this.table	  = table;
+		this.cycles	  = cycles;
+		this.cmos	  = cmos;
+		
+		readPages  = emulator.readPages;
+		writePages = emulator.writePages;
+		offsets	   = emulator.pageOffsets;
+		
+		for (int opcode = 0; opcode < 256; ++opcode)
+			dispatch [opcode] = -1;
+		for (int opcode : NMOS_OPCODES)
+			dispatch [opcode] = opcode;
+		if (cmos) {
+			for (int opcode : CMOS_OPCODES)
+				dispatch [opcode] = opcode;
+		}
+		
+		if (jit) {
+			blocks = new Block [0x10000];
+			counts = new int [0x10000];
+		}
+		else {
+			blocks = null;
+			counts = null;
+		}
+	}
+	
+	/**
+	 * Executes instructions until at least the given number of cycles have
+	 * elapsed, a device is accessed or the processor halts (i.e. executes
+	 * a jump or branch to itself).
+	 * 
+	 * @param	budget			The number of cycles available.
+	 * @return	The number of cycles executed.
+	 */
+	int run (int budget)
+	{
+		a  = emulator.A;
+		x  = emulator.X;
+		y  = emulator.Y;
+		s  = emulator.S;
+		p  = emulator.P;
+		pc = emulator.PC;
+		
+		spent		= 0;
+		synced		= 0;
+		io			= false;
+		this.budget = budget;
+		
+		while (spent < budget) {
+			if (blocks != null) {
+				Block		block = blocks [pc];
+				
+				if (block != null) {
+					if (block.run () && (pc == block.last)) {
+						halted = true;
+						break;
+					}
+					if (io) break;
+					continue;
+				}
+				
+				if (++counts [pc] == HOT) {
+					translate (pc, MAX_BLOCK);
+					if (blocks [pc] != null) continue;
+				}
+			}
+			
+			int			start = pc;
+			int			op	  = read (pc);
+			int			extra;
+			
+			switch (dispatch [op] >> 6) {
+				case 0:		extra = execute0 (op);	break;
+				case 1:		extra = execute1 (op);	break;
+				case 2:		extra = execute2 (op);	break;
+				case 3:		extra = execute3 (op);	break;
+				default:	extra = delegate (op);	break;
+			}
+			
+			spent += cycles [op] + extra;
+			
+			if (pc == start) {
+				halted = true;
+				break;
+			}
+			if (io) break;
+		}
+		
+		emulator.A	= a;
+		emulator.X	= x;
+		emulator.Y	= y;
+		emulator.S	= s;
+		emulator.P	= p;
+		emulator.PC = pc;
+		
+		sync ();
+		return (spent);
+	}
+	
+	/**
+	 * Passes an opcode that the switch does not handle to the table driven
+	 * core. As the table core accesses memory through the emulator the
+	 * batch is ended afterwards.
+	 * 
+	 * @param	op				The opcode to execute.
+	 * @return	The cycles taken in addition to the base count.
+	 */
+	private int delegate (int op)
+	{
+		emulator.A  = a;
+		emulator.X  = x;
+		emulator.Y  = y;
+		emulator.S  = s;
+		emulator.P  = p;
+		emulator.PC = pc;
+		
+		sync ();
+		int			extra = table.step () - cycles [op];
+		io = true;
+		
+		a  = emulator.A;
+		x  = emulator.X;
+		y  = emulator.Y;
+		s  = emulator.S;
+		p  = emulator.P;
+		pc = emulator.PC;
+		return (extra);
+	}
+	
+	/**
+	 * Executes an opcode in the range $00-$3F. The opcodes are split over
+	 * four methods to keep each within the size the JIT will compile.
+	 * 
+	 * @param	op				The opcode to execute.
+	 * @return	The cycles taken in addition to the base count.
+	 */
+	private int execute0 (int op)
+	{
+		int			extra = 0;
+		int			ea, ma, m, v;
+		
+		switch (op) {
+			case 0x00:	// BRK IMM
+				ea = (pc + 1) & 0xffff;
+				pc = (pc + 2) & 0xffff;
+				write (0x0100 + s, pc >> 8);
+				s = (s - 1) & 0xff;
+				write (0x0100 + s, pc & 0xff);
+				s = (s - 1) & 0xff;
+				write (0x0100 + s, p | F_B);
+				s = (s - 1) & 0xff;
+				p |= F_I;
+				pc = read (0xfffe) | (read (0xffff) << 8);
+				break;
+				
+			case 0x01:	// ORA IZX
+				ma = (read (pc + 1) + x) & 0xff;
+				ea = read (ma) | (read ((ma + 1) & 0xff) << 8);
+				pc = (pc + 2) & 0xffff;
+				a |= read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x04:	// TSB ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				m = read (ea);
+				p = (p & ~F_Z) | (((m & a) == 0) ? F_Z : 0);
+				write (ea, m | a);
+				break;
+				
+			case 0x05:	// ORA ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				a |= read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x06:	// ASL ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				m = read (ea) << 1;
+				p = (p & ~(F_N | F_Z | F_C)) | NZ [m & 0xff] | (m >> 8);
+				write (ea, m & 0xff);
+				break;
+				
+			case 0x07:	// RMB0 ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				write (ea, read (ea) & ~0x01);
+				break;
+				
+			case 0x08:	// PHP
+				pc = (pc + 1) & 0xffff;
+				write (0x0100 + s, p);
+				s = (s - 1) & 0xff;
+				break;
+				
+			case 0x09:	// ORA IMM
+				ea = (pc + 1) & 0xffff;
+				pc = (pc + 2) & 0xffff;
+				a |= read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x0A:	// ASL
+				pc = (pc + 1) & 0xffff;
+				a <<= 1;
+				p = (p & ~(F_N | F_Z | F_C)) | NZ [a & 0xff] | (a >> 8);
+				a &= 0xff;
+				break;
+				
+			case 0x0C:	// TSB ABS
+				ea = read (pc + 1) | (read (pc + 2) << 8);
+				pc = (pc + 3) & 0xffff;
+				m = read (ea);
+				p = (p & ~F_Z) | (((m & a) == 0) ? F_Z : 0);
+				write (ea, m | a);
+				break;
+				
+			case 0x0D:	// ORA ABS
+				ea = read (pc + 1) | (read (pc + 2) << 8);
+				pc = (pc + 3) & 0xffff;
+				a |= read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x0E:	// ASL ABS
+				ea = read (pc + 1) | (read (pc + 2) << 8);
+				pc = (pc + 3) & 0xffff;
+				m = read (ea) << 1;
+				p = (p & ~(F_N | F_Z | F_C)) | NZ [m & 0xff] | (m >> 8);
+				write (ea, m & 0xff);
+				break;
+				
+			case 0x0F:	// BBR0 ZPG,REL
+				ma = read (pc + 1);
+				pc = (pc + 3) & 0xffff;
+				ea = (pc + (byte) read (pc - 1)) & 0xffff;
+				if ((read (ma) & 0x01) == 0) pc = ea;
+				break;
+				
+			case 0x10:	// BPL REL
+				pc = (pc + 2) & 0xffff;
+				ea = (pc + (byte) read (pc - 1)) & 0xffff;
+				if ((p & F_N) == 0) {
+					if (((pc ^ ea) & 0xff00) != 0) ++extra;
+					pc = ea;
+					++extra;
+				}
+				break;
+				
+			case 0x11:	// ORA IZY
+				ma = read (pc + 1);
+				ma = read (ma) | (read ((ma + 1) & 0xff) << 8);
+				ea = (ma + y) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 2) & 0xffff;
+				a |= read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x12:	// ORA IZP
+				ma = read (pc + 1);
+				ea = read (ma) | (read ((ma + 1) & 0xff) << 8);
+				pc = (pc + 2) & 0xffff;
+				a |= read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x14:	// TRB ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				m = read (ea);
+				p = (p & ~F_Z) | (((m & a) == 0) ? F_Z : 0);
+				write (ea, m & ~a);
+				break;
+				
+			case 0x15:	// ORA ZPX
+				ea = (read (pc + 1) + x) & 0xff;
+				pc = (pc + 2) & 0xffff;
+				a |= read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x16:	// ASL ZPX
+				ea = (read (pc + 1) + x) & 0xff;
+				pc = (pc + 2) & 0xffff;
+				m = read (ea) << 1;
+				p = (p & ~(F_N | F_Z | F_C)) | NZ [m & 0xff] | (m >> 8);
+				write (ea, m & 0xff);
+				break;
+				
+			case 0x17:	// RMB1 ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				write (ea, read (ea) & ~0x02);
+				break;
+				
+			case 0x18:	// CLC
+				pc = (pc + 1) & 0xffff;
+				p &= ~F_C;
+				break;
+				
+			case 0x19:	// ORA ABY
+				ma = read (pc + 1) | (read (pc + 2) << 8);
+				ea = (ma + y) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 3) & 0xffff;
+				a |= read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x1A:	// INC
+				pc = (pc + 1) & 0xffff;
+				a = (a + 1) & 0xff;
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x1C:	// TRB ABS
+				ea = read (pc + 1) | (read (pc + 2) << 8);
+				pc = (pc + 3) & 0xffff;
+				m = read (ea);
+				p = (p & ~F_Z) | (((m & a) == 0) ? F_Z : 0);
+				write (ea, m & ~a);
+				break;
+				
+			case 0x1D:	// ORA ABX
+				ma = read (pc + 1) | (read (pc + 2) << 8);
+				ea = (ma + x) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 3) & 0xffff;
+				a |= read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x1E:	// ASL ABX
+				ma = read (pc + 1) | (read (pc + 2) << 8);
+				ea = (ma + x) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 3) & 0xffff;
+				m = read (ea) << 1;
+				p = (p & ~(F_N | F_Z | F_C)) | NZ [m & 0xff] | (m >> 8);
+				write (ea, m & 0xff);
+				break;
+				
+			case 0x1F:	// BBR1 ZPG,REL
+				ma = read (pc + 1);
+				pc = (pc + 3) & 0xffff;
+				ea = (pc + (byte) read (pc - 1)) & 0xffff;
+				if ((read (ma) & 0x02) == 0) pc = ea;
+				break;
+				
+			case 0x20:	// JSR ABS
+				ea = read (pc + 1) | (read (pc + 2) << 8);
+				pc = (pc + 3) & 0xffff;
+				m = (pc - 1) & 0xffff;
+				write (0x0100 + s, m >> 8);
+				s = (s - 1) & 0xff;
+				write (0x0100 + s, m & 0xff);
+				s = (s - 1) & 0xff;
+				pc = ea;
+				break;
+				
+			case 0x21:	// AND IZX
+				ma = (read (pc + 1) + x) & 0xff;
+				ea = read (ma) | (read ((ma + 1) & 0xff) << 8);
+				pc = (pc + 2) & 0xffff;
+				a &= read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x24:	// BIT ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				m = read (ea);
+				p = (p & ~(F_N | F_V | F_Z)) | (m & (F_N | F_V)) | (((m & a) == 0) ? F_Z : 0);
+				break;
+				
+			case 0x25:	// AND ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				a &= read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x26:	// ROL ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				m = (read (ea) << 1) | (p & F_C);
+				p = (p & ~(F_N | F_Z | F_C)) | NZ [m & 0xff] | (m >> 8);
+				write (ea, m & 0xff);
+				break;
+				
+			case 0x27:	// RMB2 ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				write (ea, read (ea) & ~0x04);
+				break;
+				
+			case 0x28:	// PLP
+				pc = (pc + 1) & 0xffff;
+				s = (s + 1) & 0xff;
+				p = read (0x0100 + s) | 0x30;
+				break;
+				
+			case 0x29:	// AND IMM
+				ea = (pc + 1) & 0xffff;
+				pc = (pc + 2) & 0xffff;
+				a &= read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x2A:	// ROL
+				pc = (pc + 1) & 0xffff;
+				a = (a << 1) | (p & F_C);
+				p = (p & ~(F_N | F_Z | F_C)) | NZ [a & 0xff] | (a >> 8);
+				a &= 0xff;
+				break;
+				
+			case 0x2C:	// BIT ABS
+				ea = read (pc + 1) | (read (pc + 2) << 8);
+				pc = (pc + 3) & 0xffff;
+				m = read (ea);
+				p = (p & ~(F_N | F_V | F_Z)) | (m & (F_N | F_V)) | (((m & a) == 0) ? F_Z : 0);
+				break;
+				
+			case 0x2D:	// AND ABS
+				ea = read (pc + 1) | (read (pc + 2) << 8);
+				pc = (pc + 3) & 0xffff;
+				a &= read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x2E:	// ROL ABS
+				ea = read (pc + 1) | (read (pc + 2) << 8);
+				pc = (pc + 3) & 0xffff;
+				m = (read (ea) << 1) | (p & F_C);
+				p = (p & ~(F_N | F_Z | F_C)) | NZ [m & 0xff] | (m >> 8);
+				write (ea, m & 0xff);
+				break;
+				
+			case 0x2F:	// BBR2 ZPG,REL
+				ma = read (pc + 1);
+				pc = (pc + 3) & 0xffff;
+				ea = (pc + (byte) read (pc - 1)) & 0xffff;
+				if ((read (ma) & 0x04) == 0) pc = ea;
+				break;
+				
+			case 0x30:	// BMI REL
+				pc = (pc + 2) & 0xffff;
+				ea = (pc + (byte) read (pc - 1)) & 0xffff;
+				if ((p & F_N) != 0) {
+					if (((pc ^ ea) & 0xff00) != 0) ++extra;
+					pc = ea;
+					++extra;
+				}
+				break;
+				
+			case 0x31:	// AND IZY
+				ma = read (pc + 1);
+				ma = read (ma) | (read ((ma + 1) & 0xff) << 8);
+				ea = (ma + y) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 2) & 0xffff;
+				a &= read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x32:	// AND IZP
+				ma = read (pc + 1);
+				ea = read (ma) | (read ((ma + 1) & 0xff) << 8);
+				pc = (pc + 2) & 0xffff;
+				a &= read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x34:	// BIT ZPX
+				ea = (read (pc + 1) + x) & 0xff;
+				pc = (pc + 2) & 0xffff;
+				m = read (ea);
+				p = (p & ~(F_N | F_V | F_Z)) | (m & (F_N | F_V)) | (((m & a) == 0) ? F_Z : 0);
+				break;
+				
+			case 0x35:	// AND ZPX
+				ea = (read (pc + 1) + x) & 0xff;
+				pc = (pc + 2) & 0xffff;
+				a &= read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x36:	// ROL ZPX
+				ea = (read (pc + 1) + x) & 0xff;
+				pc = (pc + 2) & 0xffff;
+				m = (read (ea) << 1) | (p & F_C);
+				p = (p & ~(F_N | F_Z | F_C)) | NZ [m & 0xff] | (m >> 8);
+				write (ea, m & 0xff);
+				break;
+				
+			case 0x37:	// RMB3 ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				write (ea, read (ea) & ~0x08);
+				break;
+				
+			case 0x38:	// SEC
+				pc = (pc + 1) & 0xffff;
+				p |= F_C;
+				break;
+				
+			case 0x39:	// AND ABY
+				ma = read (pc + 1) | (read (pc + 2) << 8);
+				ea = (ma + y) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 3) & 0xffff;
+				a &= read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x3A:	// DEC
+				pc = (pc + 1) & 0xffff;
+				a = (a - 1) & 0xff;
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x3C:	// BIT ABX
+				ma = read (pc + 1) | (read (pc + 2) << 8);
+				ea = (ma + x) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 3) & 0xffff;
+				m = read (ea);
+				p = (p & ~(F_N | F_V | F_Z)) | (m & (F_N | F_V)) | (((m & a) == 0) ? F_Z : 0);
+				break;
+				
+			case 0x3D:	// AND ABX
+				ma = read (pc + 1) | (read (pc + 2) << 8);
+				ea = (ma + x) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 3) & 0xffff;
+				a &= read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x3E:	// ROL ABX
+				ma = read (pc + 1) | (read (pc + 2) << 8);
+				ea = (ma + x) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 3) & 0xffff;
+				m = (read (ea) << 1) | (p & F_C);
+				p = (p & ~(F_N | F_Z | F_C)) | NZ [m & 0xff] | (m >> 8);
+				write (ea, m & 0xff);
+				break;
+				
+			case 0x3F:	// BBR3 ZPG,REL
+				ma = read (pc + 1);
+				pc = (pc + 3) & 0xffff;
+				ea = (pc + (byte) read (pc - 1)) & 0xffff;
+				if ((read (ma) & 0x08) == 0) pc = ea;
+				break;
+		}
+		return (extra);
+	}
+	
+	/**
+	 * Executes an opcode in the range $40-$7F. The opcodes are split over
+	 * four methods to keep each within the size the JIT will compile.
+	 * 
+	 * @param	op				The opcode to execute.
+	 * @return	The cycles taken in addition to the base count.
+	 */
+	private int execute1 (int op)
+	{
+		int			extra = 0;
+		int			ea, ma, m, v;
+		
+		switch (op) {
+			case 0x40:	// RTI
+				pc = (pc + 1) & 0xffff;
+				s = (s + 1) & 0xff;
+				p = read (0x0100 + s) | 0x30;
+				s = (s + 1) & 0xff;
+				m = read (0x0100 + s);
+				s = (s + 1) & 0xff;
+				pc = (read (0x0100 + s) << 8) | m;
+				break;
+				
+			case 0x41:	// EOR IZX
+				ma = (read (pc + 1) + x) & 0xff;
+				ea = read (ma) | (read ((ma + 1) & 0xff) << 8);
+				pc = (pc + 2) & 0xffff;
+				a ^= read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x45:	// EOR ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				a ^= read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x46:	// LSR ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				m = read (ea);
+				p = (p & ~(F_N | F_Z | F_C)) | NZ [m >> 1] | (m & F_C);
+				write (ea, m >> 1);
+				break;
+				
+			case 0x47:	// RMB4 ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				write (ea, read (ea) & ~0x10);
+				break;
+				
+			case 0x48:	// PHA
+				pc = (pc + 1) & 0xffff;
+				write (0x0100 + s, a);
+				s = (s - 1) & 0xff;
+				break;
+				
+			case 0x49:	// EOR IMM
+				ea = (pc + 1) & 0xffff;
+				pc = (pc + 2) & 0xffff;
+				a ^= read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x4A:	// LSR
+				pc = (pc + 1) & 0xffff;
+				p = (p & ~(F_N | F_Z | F_C)) | NZ [a >> 1] | (a & F_C);
+				a >>= 1;
+				break;
+				
+			case 0x4C:	// JMP ABS
+				ea = read (pc + 1) | (read (pc + 2) << 8);
+				pc = (pc + 3) & 0xffff;
+				pc = ea;
+				break;
+				
+			case 0x4D:	// EOR ABS
+				ea = read (pc + 1) | (read (pc + 2) << 8);
+				pc = (pc + 3) & 0xffff;
+				a ^= read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x4E:	// LSR ABS
+				ea = read (pc + 1) | (read (pc + 2) << 8);
+				pc = (pc + 3) & 0xffff;
+				m = read (ea);
+				p = (p & ~(F_N | F_Z | F_C)) | NZ [m >> 1] | (m & F_C);
+				write (ea, m >> 1);
+				break;
+				
+			case 0x4F:	// BBR4 ZPG,REL
+				ma = read (pc + 1);
+				pc = (pc + 3) & 0xffff;
+				ea = (pc + (byte) read (pc - 1)) & 0xffff;
+				if ((read (ma) & 0x10) == 0) pc = ea;
+				break;
+				
+			case 0x50:	// BVC REL
+				pc = (pc + 2) & 0xffff;
+				ea = (pc + (byte) read (pc - 1)) & 0xffff;
+				if ((p & F_V) == 0) {
+					if (((pc ^ ea) & 0xff00) != 0) ++extra;
+					pc = ea;
+					++extra;
+				}
+				break;
+				
+			case 0x51:	// EOR IZY
+				ma = read (pc + 1);
+				ma = read (ma) | (read ((ma + 1) & 0xff) << 8);
+				ea = (ma + y) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 2) & 0xffff;
+				a ^= read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x52:	// EOR IZP
+				ma = read (pc + 1);
+				ea = read (ma) | (read ((ma + 1) & 0xff) << 8);
+				pc = (pc + 2) & 0xffff;
+				a ^= read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x55:	// EOR ZPX
+				ea = (read (pc + 1) + x) & 0xff;
+				pc = (pc + 2) & 0xffff;
+				a ^= read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x56:	// LSR ZPX
+				ea = (read (pc + 1) + x) & 0xff;
+				pc = (pc + 2) & 0xffff;
+				m = read (ea);
+				p = (p & ~(F_N | F_Z | F_C)) | NZ [m >> 1] | (m & F_C);
+				write (ea, m >> 1);
+				break;
+				
+			case 0x57:	// RMB5 ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				write (ea, read (ea) & ~0x20);
+				break;
+				
+			case 0x58:	// CLI
+				pc = (pc + 1) & 0xffff;
+				p &= ~F_I;
+				break;
+				
+			case 0x59:	// EOR ABY
+				ma = read (pc + 1) | (read (pc + 2) << 8);
+				ea = (ma + y) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 3) & 0xffff;
+				a ^= read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x5A:	// PHY
+				pc = (pc + 1) & 0xffff;
+				write (0x0100 + s, y);
+				s = (s - 1) & 0xff;
+				break;
+				
+			case 0x5D:	// EOR ABX
+				ma = read (pc + 1) | (read (pc + 2) << 8);
+				ea = (ma + x) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 3) & 0xffff;
+				a ^= read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x5E:	// LSR ABX
+				ma = read (pc + 1) | (read (pc + 2) << 8);
+				ea = (ma + x) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 3) & 0xffff;
+				m = read (ea);
+				p = (p & ~(F_N | F_Z | F_C)) | NZ [m >> 1] | (m & F_C);
+				write (ea, m >> 1);
+				break;
+				
+			case 0x5F:	// BBR5 ZPG,REL
+				ma = read (pc + 1);
+				pc = (pc + 3) & 0xffff;
+				ea = (pc + (byte) read (pc - 1)) & 0xffff;
+				if ((read (ma) & 0x20) == 0) pc = ea;
+				break;
+				
+			case 0x60:	// RTS
+				pc = (pc + 1) & 0xffff;
+				s = (s + 1) & 0xff;
+				m = read (0x0100 + s);
+				s = (s + 1) & 0xff;
+				pc = (((read (0x0100 + s) << 8) | m) + 1) & 0xffff;
+				break;
+				
+			case 0x61:	// ADC IZX
+				ma = (read (pc + 1) + x) & 0xff;
+				ea = read (ma) | (read ((ma + 1) & 0xff) << 8);
+				pc = (pc + 2) & 0xffff;
+				m = adc (a, read (ea), p);
+				a = m & 0xff;
+				p = m >> 8;
+				break;
+				
+			case 0x64:	// STZ ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				write (ea, 0);
+				break;
+				
+			case 0x65:	// ADC ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				m = adc (a, read (ea), p);
+				a = m & 0xff;
+				p = m >> 8;
+				break;
+				
+			case 0x66:	// ROR ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				m = read (ea);
+				v = (m >> 1) | ((p & F_C) << 7);
+				p = (p & ~(F_N | F_Z | F_C)) | NZ [v] | (m & F_C);
+				write (ea, v);
+				break;
+				
+			case 0x67:	// RMB6 ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				write (ea, read (ea) & ~0x40);
+				break;
+				
+			case 0x68:	// PLA
+				pc = (pc + 1) & 0xffff;
+				s = (s + 1) & 0xff;
+				a = read (0x0100 + s);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x69:	// ADC IMM
+				ea = (pc + 1) & 0xffff;
+				pc = (pc + 2) & 0xffff;
+				m = adc (a, read (ea), p);
+				a = m & 0xff;
+				p = m >> 8;
+				break;
+				
+			case 0x6A:	// ROR
+				pc = (pc + 1) & 0xffff;
+				v = (a >> 1) | ((p & F_C) << 7);
+				p = (p & ~(F_N | F_Z | F_C)) | NZ [v] | (a & F_C);
+				a = v;
+				break;
+				
+			case 0x6C:	// JMP IND
+				ma = read (pc + 1) | (read (pc + 2) << 8);
+				if (!cmos && ((ma & 0xff) == 0xff))
+					ea = read (ma) | (read (ma & 0xff00) << 8);
+				else
+					ea = read (ma) | (read ((ma + 1) & 0xffff) << 8);
+				pc = (pc + 3) & 0xffff;
+				pc = ea;
+				break;
+				
+			case 0x6D:	// ADC ABS
+				ea = read (pc + 1) | (read (pc + 2) << 8);
+				pc = (pc + 3) & 0xffff;
+				m = adc (a, read (ea), p);
+				a = m & 0xff;
+				p = m >> 8;
+				break;
+				
+			case 0x6E:	// ROR ABS
+				ea = read (pc + 1) | (read (pc + 2) << 8);
+				pc = (pc + 3) & 0xffff;
+				m = read (ea);
+				v = (m >> 1) | ((p & F_C) << 7);
+				p = (p & ~(F_N | F_Z | F_C)) | NZ [v] | (m & F_C);
+				write (ea, v);
+				break;
+				
+			case 0x6F:	// BBR6 ZPG,REL
+				ma = read (pc + 1);
+				pc = (pc + 3) & 0xffff;
+				ea = (pc + (byte) read (pc - 1)) & 0xffff;
+				if ((read (ma) & 0x40) == 0) pc = ea;
+				break;
+				
+			case 0x70:	// BVS REL
+				pc = (pc + 2) & 0xffff;
+				ea = (pc + (byte) read (pc - 1)) & 0xffff;
+				if ((p & F_V) != 0) {
+					if (((pc ^ ea) & 0xff00) != 0) ++extra;
+					pc = ea;
+					++extra;
+				}
+				break;
+				
+			case 0x71:	// ADC IZY
+				ma = read (pc + 1);
+				ma = read (ma) | (read ((ma + 1) & 0xff) << 8);
+				ea = (ma + y) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 2) & 0xffff;
+				m = adc (a, read (ea), p);
+				a = m & 0xff;
+				p = m >> 8;
+				break;
+				
+			case 0x72:	// ADC IZP
+				ma = read (pc + 1);
+				ea = read (ma) | (read ((ma + 1) & 0xff) << 8);
+				pc = (pc + 2) & 0xffff;
+				m = adc (a, read (ea), p);
+				a = m & 0xff;
+				p = m >> 8;
+				break;
+				
+			case 0x74:	// STZ ZPX
+				ea = (read (pc + 1) + x) & 0xff;
+				pc = (pc + 2) & 0xffff;
+				write (ea, 0);
+				break;
+				
+			case 0x75:	// ADC ZPX
+				ea = (read (pc + 1) + x) & 0xff;
+				pc = (pc + 2) & 0xffff;
+				m = adc (a, read (ea), p);
+				a = m & 0xff;
+				p = m >> 8;
+				break;
+				
+			case 0x76:	// ROR ZPX
+				ea = (read (pc + 1) + x) & 0xff;
+				pc = (pc + 2) & 0xffff;
+				m = read (ea);
+				v = (m >> 1) | ((p & F_C) << 7);
+				p = (p & ~(F_N | F_Z | F_C)) | NZ [v] | (m & F_C);
+				write (ea, v);
+				break;
+				
+			case 0x77:	// RMB7 ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				write (ea, read (ea) & ~0x80);
+				break;
+				
+			case 0x78:	// SEI
+				pc = (pc + 1) & 0xffff;
+				p |= F_I;
+				break;
+				
+			case 0x79:	// ADC ABY
+				ma = read (pc + 1) | (read (pc + 2) << 8);
+				ea = (ma + y) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 3) & 0xffff;
+				m = adc (a, read (ea), p);
+				a = m & 0xff;
+				p = m >> 8;
+				break;
+				
+			case 0x7A:	// PLY
+				pc = (pc + 1) & 0xffff;
+				s = (s + 1) & 0xff;
+				y = read (0x0100 + s);
+				p = (p & ~(F_N | F_Z)) | NZ [y];
+				break;
+				
+			case 0x7C:	// JMP IAX
+				ma = ((read (pc + 1) | (read (pc + 2) << 8)) + x) & 0xffff;
+				ea = read (ma) | (read ((ma + 1) & 0xffff) << 8);
+				pc = (pc + 3) & 0xffff;
+				pc = ea;
+				break;
+				
+			case 0x7D:	// ADC ABX
+				ma = read (pc + 1) | (read (pc + 2) << 8);
+				ea = (ma + x) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 3) & 0xffff;
+				m = adc (a, read (ea), p);
+				a = m & 0xff;
+				p = m >> 8;
+				break;
+				
+			case 0x7E:	// ROR ABX
+				ma = read (pc + 1) | (read (pc + 2) << 8);
+				ea = (ma + x) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 3) & 0xffff;
+				m = read (ea);
+				v = (m >> 1) | ((p & F_C) << 7);
+				p = (p & ~(F_N | F_Z | F_C)) | NZ [v] | (m & F_C);
+				write (ea, v);
+				break;
+				
+			case 0x7F:	// BBR7 ZPG,REL
+				ma = read (pc + 1);
+				pc = (pc + 3) & 0xffff;
+				ea = (pc + (byte) read (pc - 1)) & 0xffff;
+				if ((read (ma) & 0x80) == 0) pc = ea;
+				break;
+		}
+		return (extra);
+	}
+	
+	/**
+	 * Executes an opcode in the range $80-$BF. The opcodes are split over
+	 * four methods to keep each within the size the JIT will compile.
+	 * 
+	 * @param	op				The opcode to execute.
+	 * @return	The cycles taken in addition to the base count.
+	 */
+	private int execute2 (int op)
+	{
+		int			extra = 0;
+		int			ea, ma, m, v;
+		
+		switch (op) {
+			case 0x80:	// BRA REL
+				pc = (pc + 2) & 0xffff;
+				ea = (pc + (byte) read (pc - 1)) & 0xffff;
+				pc = ea;
+				++extra;
+				break;
+				
+			case 0x81:	// STA IZX
+				ma = (read (pc + 1) + x) & 0xff;
+				ea = read (ma) | (read ((ma + 1) & 0xff) << 8);
+				pc = (pc + 2) & 0xffff;
+				write (ea, a);
+				break;
+				
+			case 0x84:	// STY ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				write (ea, y);
+				break;
+				
+			case 0x85:	// STA ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				write (ea, a);
+				break;
+				
+			case 0x86:	// STX ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				write (ea, x);
+				break;
+				
+			case 0x87:	// SMB0 ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				write (ea, read (ea) | 0x01);
+				break;
+				
+			case 0x88:	// DEY
+				pc = (pc + 1) & 0xffff;
+				y = (y - 1) & 0xff;
+				p = (p & ~(F_N | F_Z)) | NZ [y];
+				break;
+				
+			case 0x89:	// BITI IMM
+				ea = (pc + 1) & 0xffff;
+				pc = (pc + 2) & 0xffff;
+				p = (p & ~F_Z) | (((read (ea) & a) == 0) ? F_Z : 0);
+				break;
+				
+			case 0x8A:	// TXA
+				pc = (pc + 1) & 0xffff;
+				a = x;
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x8C:	// STY ABS
+				ea = read (pc + 1) | (read (pc + 2) << 8);
+				pc = (pc + 3) & 0xffff;
+				write (ea, y);
+				break;
+				
+			case 0x8D:	// STA ABS
+				ea = read (pc + 1) | (read (pc + 2) << 8);
+				pc = (pc + 3) & 0xffff;
+				write (ea, a);
+				break;
+				
+			case 0x8E:	// STX ABS
+				ea = read (pc + 1) | (read (pc + 2) << 8);
+				pc = (pc + 3) & 0xffff;
+				write (ea, x);
+				break;
+				
+			case 0x8F:	// BBS0 ZPG,REL
+				ma = read (pc + 1);
+				pc = (pc + 3) & 0xffff;
+				ea = (pc + (byte) read (pc - 1)) & 0xffff;
+				if ((read (ma) & 0x01) != 0) pc = ea;
+				break;
+				
+			case 0x90:	// BCC REL
+				pc = (pc + 2) & 0xffff;
+				ea = (pc + (byte) read (pc - 1)) & 0xffff;
+				if ((p & F_C) == 0) {
+					if (((pc ^ ea) & 0xff00) != 0) ++extra;
+					pc = ea;
+					++extra;
+				}
+				break;
+				
+			case 0x91:	// STA IZY
+				ma = read (pc + 1);
+				ma = read (ma) | (read ((ma + 1) & 0xff) << 8);
+				ea = (ma + y) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 2) & 0xffff;
+				write (ea, a);
+				break;
+				
+			case 0x92:	// STA IZP
+				ma = read (pc + 1);
+				ea = read (ma) | (read ((ma + 1) & 0xff) << 8);
+				pc = (pc + 2) & 0xffff;
+				write (ea, a);
+				break;
+				
+			case 0x94:	// STY ZPX
+				ea = (read (pc + 1) + x) & 0xff;
+				pc = (pc + 2) & 0xffff;
+				write (ea, y);
+				break;
+				
+			case 0x95:	// STA ZPX
+				ea = (read (pc + 1) + x) & 0xff;
+				pc = (pc + 2) & 0xffff;
+				write (ea, a);
+				break;
+				
+			case 0x96:	// STX ZPY
+				ea = (read (pc + 1) + y) & 0xff;
+				pc = (pc + 2) & 0xffff;
+				write (ea, x);
+				break;
+				
+			case 0x97:	// SMB1 ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				write (ea, read (ea) | 0x02);
+				break;
+				
+			case 0x98:	// TYA
+				pc = (pc + 1) & 0xffff;
+				a = y;
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0x99:	// STA ABY
+				ma = read (pc + 1) | (read (pc + 2) << 8);
+				ea = (ma + y) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 3) & 0xffff;
+				write (ea, a);
+				break;
+				
+			case 0x9A:	// TXS
+				pc = (pc + 1) & 0xffff;
+				s = x;
+				break;
+				
+			case 0x9C:	// STZ ABS
+				ea = read (pc + 1) | (read (pc + 2) << 8);
+				pc = (pc + 3) & 0xffff;
+				write (ea, 0);
+				break;
+				
+			case 0x9D:	// STA ABX
+				ma = read (pc + 1) | (read (pc + 2) << 8);
+				ea = (ma + x) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 3) & 0xffff;
+				write (ea, a);
+				break;
+				
+			case 0x9E:	// STZ ABX
+				ma = read (pc + 1) | (read (pc + 2) << 8);
+				ea = (ma + x) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 3) & 0xffff;
+				write (ea, 0);
+				break;
+				
+			case 0x9F:	// BBS1 ZPG,REL
+				ma = read (pc + 1);
+				pc = (pc + 3) & 0xffff;
+				ea = (pc + (byte) read (pc - 1)) & 0xffff;
+				if ((read (ma) & 0x02) != 0) pc = ea;
+				break;
+				
+			case 0xA0:	// LDY IMM
+				ea = (pc + 1) & 0xffff;
+				pc = (pc + 2) & 0xffff;
+				y = read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [y];
+				break;
+				
+			case 0xA1:	// LDA IZX
+				ma = (read (pc + 1) + x) & 0xff;
+				ea = read (ma) | (read ((ma + 1) & 0xff) << 8);
+				pc = (pc + 2) & 0xffff;
+				a = read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0xA2:	// LDX IMM
+				ea = (pc + 1) & 0xffff;
+				pc = (pc + 2) & 0xffff;
+				x = read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [x];
+				break;
+				
+			case 0xA4:	// LDY ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				y = read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [y];
+				break;
+				
+			case 0xA5:	// LDA ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				a = read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0xA6:	// LDX ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				x = read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [x];
+				break;
+				
+			case 0xA7:	// SMB2 ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				write (ea, read (ea) | 0x04);
+				break;
+				
+			case 0xA8:	// TAY
+				pc = (pc + 1) & 0xffff;
+				y = a;
+				p = (p & ~(F_N | F_Z)) | NZ [y];
+				break;
+				
+			case 0xA9:	// LDA IMM
+				ea = (pc + 1) & 0xffff;
+				pc = (pc + 2) & 0xffff;
+				a = read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0xAA:	// TAX
+				pc = (pc + 1) & 0xffff;
+				x = a;
+				p = (p & ~(F_N | F_Z)) | NZ [x];
+				break;
+				
+			case 0xAC:	// LDY ABS
+				ea = read (pc + 1) | (read (pc + 2) << 8);
+				pc = (pc + 3) & 0xffff;
+				y = read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [y];
+				break;
+				
+			case 0xAD:	// LDA ABS
+				ea = read (pc + 1) | (read (pc + 2) << 8);
+				pc = (pc + 3) & 0xffff;
+				a = read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0xAE:	// LDX ABS
+				ea = read (pc + 1) | (read (pc + 2) << 8);
+				pc = (pc + 3) & 0xffff;
+				x = read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [x];
+				break;
+				
+			case 0xAF:	// BBS2 ZPG,REL
+				ma = read (pc + 1);
+				pc = (pc + 3) & 0xffff;
+				ea = (pc + (byte) read (pc - 1)) & 0xffff;
+				if ((read (ma) & 0x04) != 0) pc = ea;
+				break;
+				
+			case 0xB0:	// BCS REL
+				pc = (pc + 2) & 0xffff;
+				ea = (pc + (byte) read (pc - 1)) & 0xffff;
+				if ((p & F_C) != 0) {
+					if (((pc ^ ea) & 0xff00) != 0) ++extra;
+					pc = ea;
+					++extra;
+				}
+				break;
+				
+			case 0xB1:	// LDA IZY
+				ma = read (pc + 1);
+				ma = read (ma) | (read ((ma + 1) & 0xff) << 8);
+				ea = (ma + y) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 2) & 0xffff;
+				a = read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0xB2:	// LDA IZP
+				ma = read (pc + 1);
+				ea = read (ma) | (read ((ma + 1) & 0xff) << 8);
+				pc = (pc + 2) & 0xffff;
+				a = read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0xB4:	// LDY ZPX
+				ea = (read (pc + 1) + x) & 0xff;
+				pc = (pc + 2) & 0xffff;
+				y = read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [y];
+				break;
+				
+			case 0xB5:	// LDA ZPX
+				ea = (read (pc + 1) + x) & 0xff;
+				pc = (pc + 2) & 0xffff;
+				a = read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0xB6:	// LDX ZPY
+				ea = (read (pc + 1) + y) & 0xff;
+				pc = (pc + 2) & 0xffff;
+				x = read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [x];
+				break;
+				
+			case 0xB7:	// SMB3 ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				write (ea, read (ea) | 0x08);
+				break;
+				
+			case 0xB8:	// CLV
+				pc = (pc + 1) & 0xffff;
+				p &= ~F_V;
+				break;
+				
+			case 0xB9:	// LDA ABY
+				ma = read (pc + 1) | (read (pc + 2) << 8);
+				ea = (ma + y) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 3) & 0xffff;
+				a = read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0xBA:	// TSX
+				pc = (pc + 1) & 0xffff;
+				x = s;
+				p = (p & ~(F_N | F_Z)) | NZ [x];
+				break;
+				
+			case 0xBC:	// LDY ABX
+				ma = read (pc + 1) | (read (pc + 2) << 8);
+				ea = (ma + x) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 3) & 0xffff;
+				y = read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [y];
+				break;
+				
+			case 0xBD:	// LDA ABX
+				ma = read (pc + 1) | (read (pc + 2) << 8);
+				ea = (ma + x) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 3) & 0xffff;
+				a = read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [a];
+				break;
+				
+			case 0xBE:	// LDX ABY
+				ma = read (pc + 1) | (read (pc + 2) << 8);
+				ea = (ma + y) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 3) & 0xffff;
+				x = read (ea);
+				p = (p & ~(F_N | F_Z)) | NZ [x];
+				break;
+				
+			case 0xBF:	// BBS3 ZPG,REL
+				ma = read (pc + 1);
+				pc = (pc + 3) & 0xffff;
+				ea = (pc + (byte) read (pc - 1)) & 0xffff;
+				if ((read (ma) & 0x08) != 0) pc = ea;
+				break;
+		}
+		return (extra);
+	}
+	
+	/**
+	 * Executes an opcode in the range $C0-$FF. The opcodes are split over
+	 * four methods to keep each within the size the JIT will compile.
+	 * 
+	 * @param	op				The opcode to execute.
+	 * @return	The cycles taken in addition to the base count.
+	 */
+	private int execute3 (int op)
+	{
+		int			extra = 0;
+		int			ea, ma, m, v;
+		
+		switch (op) {
+			case 0xC0:	// CPY IMM
+				ea = (pc + 1) & 0xffff;
+				pc = (pc + 2) & 0xffff;
+				p = compare (y, read (ea), p);
+				break;
+				
+			case 0xC1:	// CMP IZX
+				ma = (read (pc + 1) + x) & 0xff;
+				ea = read (ma) | (read ((ma + 1) & 0xff) << 8);
+				pc = (pc + 2) & 0xffff;
+				p = compare (a, read (ea), p);
+				break;
+				
+			case 0xC4:	// CPY ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				p = compare (y, read (ea), p);
+				break;
+				
+			case 0xC5:	// CMP ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				p = compare (a, read (ea), p);
+				break;
+				
+			case 0xC6:	// DEC ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				m = (read (ea) - 1) & 0xff;
+				p = (p & ~(F_N | F_Z)) | NZ [m];
+				write (ea, m);
+				break;
+				
+			case 0xC7:	// SMB4 ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				write (ea, read (ea) | 0x10);
+				break;
+				
+			case 0xC8:	// INY
+				pc = (pc + 1) & 0xffff;
+				y = (y + 1) & 0xff;
+				p = (p & ~(F_N | F_Z)) | NZ [y];
+				break;
+				
+			case 0xC9:	// CMP IMM
+				ea = (pc + 1) & 0xffff;
+				pc = (pc + 2) & 0xffff;
+				p = compare (a, read (ea), p);
+				break;
+				
+			case 0xCA:	// DEX
+				pc = (pc + 1) & 0xffff;
+				x = (x - 1) & 0xff;
+				p = (p & ~(F_N | F_Z)) | NZ [x];
+				break;
+				
+			case 0xCB:	// WAI
+				pc = (pc + 1) & 0xffff;
+				pc = (pc - 1) & 0xffff;
+				break;
+				
+			case 0xCC:	// CPY ABS
+				ea = read (pc + 1) | (read (pc + 2) << 8);
+				pc = (pc + 3) & 0xffff;
+				p = compare (y, read (ea), p);
+				break;
+				
+			case 0xCD:	// CMP ABS
+				ea = read (pc + 1) | (read (pc + 2) << 8);
+				pc = (pc + 3) & 0xffff;
+				p = compare (a, read (ea), p);
+				break;
+				
+			case 0xCE:	// DEC ABS
+				ea = read (pc + 1) | (read (pc + 2) << 8);
+				pc = (pc + 3) & 0xffff;
+				m = (read (ea) - 1) & 0xff;
+				p = (p & ~(F_N | F_Z)) | NZ [m];
+				write (ea, m);
+				break;
+				
+			case 0xCF:	// BBS4 ZPG,REL
+				ma = read (pc + 1);
+				pc = (pc + 3) & 0xffff;
+				ea = (pc + (byte) read (pc - 1)) & 0xffff;
+				if ((read (ma) & 0x10) != 0) pc = ea;
+				break;
+				
+			case 0xD0:	// BNE REL
+				pc = (pc + 2) & 0xffff;
+				ea = (pc + (byte) read (pc - 1)) & 0xffff;
+				if ((p & F_Z) == 0) {
+					if (((pc ^ ea) & 0xff00) != 0) ++extra;
+					pc = ea;
+					++extra;
+				}
+				break;
+				
+			case 0xD1:	// CMP IZY
+				ma = read (pc + 1);
+				ma = read (ma) | (read ((ma + 1) & 0xff) << 8);
+				ea = (ma + y) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 2) & 0xffff;
+				p = compare (a, read (ea), p);
+				break;
+				
+			case 0xD2:	// CMP IZP
+				ma = read (pc + 1);
+				ea = read (ma) | (read ((ma + 1) & 0xff) << 8);
+				pc = (pc + 2) & 0xffff;
+				p = compare (a, read (ea), p);
+				break;
+				
+			case 0xD5:	// CMP ZPX
+				ea = (read (pc + 1) + x) & 0xff;
+				pc = (pc + 2) & 0xffff;
+				p = compare (a, read (ea), p);
+				break;
+				
+			case 0xD6:	// DEC ZPX
+				ea = (read (pc + 1) + x) & 0xff;
+				pc = (pc + 2) & 0xffff;
+				m = (read (ea) - 1) & 0xff;
+				p = (p & ~(F_N | F_Z)) | NZ [m];
+				write (ea, m);
+				break;
+				
+			case 0xD7:	// SMB5 ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				write (ea, read (ea) | 0x20);
+				break;
+				
+			case 0xD8:	// CLD
+				pc = (pc + 1) & 0xffff;
+				p &= ~F_D;
+				break;
+				
+			case 0xD9:	// CMP ABY
+				ma = read (pc + 1) | (read (pc + 2) << 8);
+				ea = (ma + y) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 3) & 0xffff;
+				p = compare (a, read (ea), p);
+				break;
+				
+			case 0xDA:	// PHX
+				pc = (pc + 1) & 0xffff;
+				write (0x0100 + s, x);
+				s = (s - 1) & 0xff;
+				break;
+				
+			case 0xDB:	// STP
+				pc = (pc + 1) & 0xffff;
+				pc = (pc - 1) & 0xffff;
+				break;
+				
+			case 0xDD:	// CMP ABX
+				ma = read (pc + 1) | (read (pc + 2) << 8);
+				ea = (ma + x) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 3) & 0xffff;
+				p = compare (a, read (ea), p);
+				break;
+				
+			case 0xDE:	// DEC ABX
+				ma = read (pc + 1) | (read (pc + 2) << 8);
+				ea = (ma + x) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 3) & 0xffff;
+				m = (read (ea) - 1) & 0xff;
+				p = (p & ~(F_N | F_Z)) | NZ [m];
+				write (ea, m);
+				break;
+				
+			case 0xDF:	// BBS5 ZPG,REL
+				ma = read (pc + 1);
+				pc = (pc + 3) & 0xffff;
+				ea = (pc + (byte) read (pc - 1)) & 0xffff;
+				if ((read (ma) & 0x20) != 0) pc = ea;
+				break;
+				
+			case 0xE0:	// CPX IMM
+				ea = (pc + 1) & 0xffff;
+				pc = (pc + 2) & 0xffff;
+				p = compare (x, read (ea), p);
+				break;
+				
+			case 0xE1:	// SBC IZX
+				ma = (read (pc + 1) + x) & 0xff;
+				ea = read (ma) | (read ((ma + 1) & 0xff) << 8);
+				pc = (pc + 2) & 0xffff;
+				m = sbc (a, read (ea), p);
+				a = m & 0xff;
+				p = m >> 8;
+				break;
+				
+			case 0xE4:	// CPX ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				p = compare (x, read (ea), p);
+				break;
+				
+			case 0xE5:	// SBC ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				m = sbc (a, read (ea), p);
+				a = m & 0xff;
+				p = m >> 8;
+				break;
+				
+			case 0xE6:	// INC ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				m = (read (ea) + 1) & 0xff;
+				p = (p & ~(F_N | F_Z)) | NZ [m];
+				write (ea, m);
+				break;
+				
+			case 0xE7:	// SMB6 ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				write (ea, read (ea) | 0x40);
+				break;
+				
+			case 0xE8:	// INX
+				pc = (pc + 1) & 0xffff;
+				x = (x + 1) & 0xff;
+				p = (p & ~(F_N | F_Z)) | NZ [x];
+				break;
+				
+			case 0xE9:	// SBC IMM
+				ea = (pc + 1) & 0xffff;
+				pc = (pc + 2) & 0xffff;
+				m = sbc (a, read (ea), p);
+				a = m & 0xff;
+				p = m >> 8;
+				break;
+				
+			case 0xEA:	// NOP
+				pc = (pc + 1) & 0xffff;
+				break;
+				
+			case 0xEC:	// CPX ABS
+				ea = read (pc + 1) | (read (pc + 2) << 8);
+				pc = (pc + 3) & 0xffff;
+				p = compare (x, read (ea), p);
+				break;
+				
+			case 0xED:	// SBC ABS
+				ea = read (pc + 1) | (read (pc + 2) << 8);
+				pc = (pc + 3) & 0xffff;
+				m = sbc (a, read (ea), p);
+				a = m & 0xff;
+				p = m >> 8;
+				break;
+				
+			case 0xEE:	// INC ABS
+				ea = read (pc + 1) | (read (pc + 2) << 8);
+				pc = (pc + 3) & 0xffff;
+				m = (read (ea) + 1) & 0xff;
+				p = (p & ~(F_N | F_Z)) | NZ [m];
+				write (ea, m);
+				break;
+				
+			case 0xEF:	// BBS6 ZPG,REL
+				ma = read (pc + 1);
+				pc = (pc + 3) & 0xffff;
+				ea = (pc + (byte) read (pc - 1)) & 0xffff;
+				if ((read (ma) & 0x40) != 0) pc = ea;
+				break;
+				
+			case 0xF0:	// BEQ REL
+				pc = (pc + 2) & 0xffff;
+				ea = (pc + (byte) read (pc - 1)) & 0xffff;
+				if ((p & F_Z) != 0) {
+					if (((pc ^ ea) & 0xff00) != 0) ++extra;
+					pc = ea;
+					++extra;
+				}
+				break;
+				
+			case 0xF1:	// SBC IZY
+				ma = read (pc + 1);
+				ma = read (ma) | (read ((ma + 1) & 0xff) << 8);
+				ea = (ma + y) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 2) & 0xffff;
+				m = sbc (a, read (ea), p);
+				a = m & 0xff;
+				p = m >> 8;
+				break;
+				
+			case 0xF2:	// SBC IZP
+				ma = read (pc + 1);
+				ea = read (ma) | (read ((ma + 1) & 0xff) << 8);
+				pc = (pc + 2) & 0xffff;
+				m = sbc (a, read (ea), p);
+				a = m & 0xff;
+				p = m >> 8;
+				break;
+				
+			case 0xF5:	// SBC ZPX
+				ea = (read (pc + 1) + x) & 0xff;
+				pc = (pc + 2) & 0xffff;
+				m = sbc (a, read (ea), p);
+				a = m & 0xff;
+				p = m >> 8;
+				break;
+				
+			case 0xF6:	// INC ZPX
+				ea = (read (pc + 1) + x) & 0xff;
+				pc = (pc + 2) & 0xffff;
+				m = (read (ea) + 1) & 0xff;
+				p = (p & ~(F_N | F_Z)) | NZ [m];
+				write (ea, m);
+				break;
+				
+			case 0xF7:	// SMB7 ZPG
+				ea = read (pc + 1);
+				pc = (pc + 2) & 0xffff;
+				write (ea, read (ea) | 0x80);
+				break;
+				
+			case 0xF8:	// SED
+				pc = (pc + 1) & 0xffff;
+				p |= F_D;
+				break;
+				
+			case 0xF9:	// SBC ABY
+				ma = read (pc + 1) | (read (pc + 2) << 8);
+				ea = (ma + y) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 3) & 0xffff;
+				m = sbc (a, read (ea), p);
+				a = m & 0xff;
+				p = m >> 8;
+				break;
+				
+			case 0xFA:	// PLX
+				pc = (pc + 1) & 0xffff;
+				s = (s + 1) & 0xff;
+				x = read (0x0100 + s);
+				p = (p & ~(F_N | F_Z)) | NZ [x];
+				break;
+				
+			case 0xFD:	// SBC ABX
+				ma = read (pc + 1) | (read (pc + 2) << 8);
+				ea = (ma + x) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 3) & 0xffff;
+				m = sbc (a, read (ea), p);
+				a = m & 0xff;
+				p = m >> 8;
+				break;
+				
+			case 0xFE:	// INC ABX
+				ma = read (pc + 1) | (read (pc + 2) << 8);
+				ea = (ma + x) & 0xffff;
+				if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+				pc = (pc + 3) & 0xffff;
+				m = (read (ea) + 1) & 0xff;
+				p = (p & ~(F_N | F_Z)) | NZ [m];
+				write (ea, m);
+				break;
+				
+			case 0xFF:	// BBS7 ZPG,REL
+				ma = read (pc + 1);
+				pc = (pc + 3) & 0xffff;
+				ea = (pc + (byte) read (pc - 1)) & 0xffff;
+				if ((read (ma) & 0x80) != 0) pc = ea;
+				break;
+		}
+		return (extra);
+	}
+	
+	/**
+	 * Translates the run of instructions starting at the given address
+	 * into a block. The run ends after an instruction that sets the program
+	 * counter, at the size limit or before any instruction that is not
+	 * handled by the switch or is not held in RAM or ROM.
+	 * 
+	 * @param	start			The address of the first instruction.
+	 * @param	limit			The maximum number of instructions.
+	 */
+	void translate (int start, int limit)
+	{
+		int []		ops		 = new int [limit];
+		int []		operands = new int [limit];
+		int []		nexts	 = new int [limit];
+		int			count	 = 0;
+		int			addr	 = start;
+		int			last	 = start;
+		boolean		control  = false;
+		
+		while ((count < limit) && !control) {
+			int			op = peek (addr);
+			
+			if ((op < 0) || (dispatch [op] < 0)) break;
+			
+			int			next = addr + LENGTHS [op];
+			
+			if ((next > 0xffff) || (peek (next - 1) < 0)) break;
+			
+			int			operand;
+			
+			switch (LENGTHS [op]) {
+				case 2:		operand = peek (addr + 1);							break;
+				case 3:		operand = peek (addr + 1) | (peek (addr + 2) << 8);	break;
+				default:	operand = 0;										break;
+			}
+			
+			if ((op & 0x0f) == 0x0f)						// BBR/BBS
+				operand = (operand & 0xff) | (((next + (byte)(operand >> 8)) & 0xffff) << 8);
+			else if (((op & 0x1f) == 0x10) || (op == 0x80))	// Bxx/BRA
+				operand = (next + (byte) operand) & 0xffff;
+			
+			ops [count]		 = op;
+			operands [count] = operand;
+			nexts [count++]	 = next;
+			
+			last	= addr;
+			addr	= next;
+			control = CONTROL [op];
+		}
+		
+		if (count == 0) return;
+		
+		Block		block = Jit65.translate (start, ops, operands, nexts, count, control, cycles);
+		
+		if (block != null) {
+			block.core = this;
+			block.last = last;
+			
+			for (int page = start >>> AddressMap.PAGE_BITS; page <= (addr - 1) >>> AddressMap.PAGE_BITS; ++page)
+				code [page] = true;
+			blocks [start] = block;
+		}
+	}
+	
+	/**
+	 * Discards any translated blocks that overlap the page containing the
+	 * given address if it holds translated code. A block being executed is
+	 * ended after the current instruction.
+	 * 
+	 * @param	addr			The address that has been written.
+	 */
+	void modified (int addr)
+	{
+		int			page = (addr & 0xffff) >>> AddressMap.PAGE_BITS;
+		
+		if (code [page]) {
+			int			first = Math.max ((page << AddressMap.PAGE_BITS) - 3 * MAX_BLOCK, 0);
+			int			last  = (page + 1) << AddressMap.PAGE_BITS;
+			
+			for (int index = first; index < last; ++index) {
+				blocks [index] = null;
+				counts [index] = 0;
+			}
+			code [page] = false;
+			io = true;
+		}
+	}
+	
+	/**
+	 * Indicates whether the processor has halted.
+	 * 
+	 * @return	<CODE>true</CODE> if a jump or branch to itself was executed.
+	 */
+	boolean isHalted ()
+	{
+		return (halted);
+	}
+	
+	/**
+	 * The status register flags.
+	 */
+	private static final int	F_N	= 0x80;
+	private static final int	F_V	= 0x40;
+	private static final int	F_B	= 0x10;
+	private static final int	F_D	= 0x08;
+	private static final int	F_I	= 0x04;
+	private static final int	F_Z	= 0x02;
+	private static final int	F_C	= 0x01;
+	
+	private static final int	PAGE_MASK	= AddressMap.PAGE_SIZE - 1;
+	
+	/**
+	 * The N and Z flag values for each possible byte result.
+	 */
+	private static final int []	NZ = new int [256];
+	
+	static {
+		for (int value = 0; value < 256; ++value)
+			NZ [value] = (value & F_N) | ((value == 0) ? F_Z : 0);
+	}
+	
+	/**
+	 * The opcodes documented for all 65xx processors.
+	 */
+	private static final int []	NMOS_OPCODES = {
+		0x00, 0x01, 0x05, 0x06, 0x08, 0x09, 0x0A, 0x0D, 0x0E, 0x10, 0x11, 0x15,
+		0x16, 0x18, 0x19, 0x1D, 0x1E, 0x20, 0x21, 0x24, 0x25, 0x26, 0x28, 0x29,
+		0x2A, 0x2C, 0x2D, 0x2E, 0x30, 0x31, 0x35, 0x36, 0x38, 0x39, 0x3D, 0x3E,
+		0x40, 0x41, 0x45, 0x46, 0x48, 0x49, 0x4A, 0x4C, 0x4D, 0x4E, 0x50, 0x51,
+		0x55, 0x56, 0x58, 0x59, 0x5D, 0x5E, 0x60, 0x61, 0x65, 0x66, 0x68, 0x69,
+		0x6A, 0x6C, 0x6D, 0x6E, 0x70, 0x71, 0x75, 0x76, 0x78, 0x79, 0x7D, 0x7E,
+		0x81, 0x84, 0x85, 0x86, 0x88, 0x8A, 0x8C, 0x8D, 0x8E, 0x90, 0x91, 0x94,
+		0x95, 0x96, 0x98, 0x99, 0x9A, 0x9D, 0xA0, 0xA1, 0xA2, 0xA4, 0xA5, 0xA6,
+		0xA8, 0xA9, 0xAA, 0xAC, 0xAD, 0xAE, 0xB0, 0xB1, 0xB4, 0xB5, 0xB6, 0xB8,
+		0xB9, 0xBA, 0xBC, 0xBD, 0xBE, 0xC0, 0xC1, 0xC4, 0xC5, 0xC6, 0xC8, 0xC9,
+		0xCA, 0xCC, 0xCD, 0xCE, 0xD0, 0xD1, 0xD5, 0xD6, 0xD8, 0xD9, 0xDD, 0xDE,
+		0xE0, 0xE1, 0xE4, 0xE5, 0xE6, 0xE8, 0xE9, 0xEA, 0xEC, 0xED, 0xEE, 0xF0,
+		0xF1, 0xF5, 0xF6, 0xF8, 0xF9, 0xFD, 0xFE
+	};
+	
+	/**
+	 * The additional opcodes documented for the 65C02.
+	 */
+	private static final int []	CMOS_OPCODES = {
+		0x04, 0x07, 0x0C, 0x0F, 0x12, 0x14, 0x17, 0x1A, 0x1C, 0x1F, 0x27, 0x2F,
+		0x32, 0x34, 0x37, 0x3A, 0x3C, 0x3F, 0x47, 0x4F, 0x52, 0x57, 0x5A, 0x5F,
+		0x64, 0x67, 0x6F, 0x72, 0x74, 0x77, 0x7A, 0x7C, 0x7F, 0x80, 0x87, 0x89,
+		0x8F, 0x92, 0x97, 0x9C, 0x9E, 0x9F, 0xA7, 0xAF, 0xB2, 0xB7, 0xBF, 0xC7,
+		0xCB, 0xCF, 0xD2, 0xD7, 0xDA, 0xDB, 0xDF, 0xE7, 0xEF, 0xF2, 0xF7, 0xFA,
+		0xFF
+	};
+	
+	private final Em65			emulator;
+	
+	private final Em65.CPU6502	table;
+	
+	private final int []		cycles;
+	
+	private final boolean		cmos;
+	
+	/**
+	 * Maps each opcode to itself if it is handled by the switch or to -1 if
+	 * it must be passed to the table driven core.
+	 */
+	private final int []		dispatch = new int [256];
+	
+	private final byte [][]		readPages;
+	
+	private final byte [][]		writePages;
+	
+	private final int []		offsets;
+	
+	/**
+	 * The number of cycles executed in the current batch.
+	 */
+	private int					spent;
+	
+	/**
+	 * The number of cycles already passed on to the scheduler.
+	 */
+	private int					synced;
+	
+	/**
+	 * Set when a device has been accessed during the current batch.
+	 */
+	private boolean				io;
+	
+	/**
+	 * The number of cycles available in the current batch.
+	 */
+	private int					budget;
+	
+	/**
+	 * The number of entries after which an address is translated.
+	 */
+	private static final int	HOT			= 64;
+	
+	/**
+	 * The maximum number of instructions in a translated block.
+	 */
+	private static final int	MAX_BLOCK	= 32;
+	
+	/**
+	 * The length in bytes of each opcode handled by the switch.
+	 */
+	private static final int []	LENGTHS = {
+		2, 2, 0, 0, 2, 2, 2, 2, 1, 2, 1, 0, 3, 3, 3, 3,
+		2, 2, 2, 0, 2, 2, 2, 2, 1, 3, 1, 0, 3, 3, 3, 3,
+		3, 2, 0, 0, 2, 2, 2, 2, 1, 2, 1, 0, 3, 3, 3, 3,
+		2, 2, 2, 0, 2, 2, 2, 2, 1, 3, 1, 0, 3, 3, 3, 3,
+		1, 2, 0, 0, 0, 2, 2, 2, 1, 2, 1, 0, 3, 3, 3, 3,
+		2, 2, 2, 0, 0, 2, 2, 2, 1, 3, 1, 0, 0, 3, 3, 3,
+		1, 2, 0, 0, 2, 2, 2, 2, 1, 2, 1, 0, 3, 3, 3, 3,
+		2, 2, 2, 0, 2, 2, 2, 2, 1, 3, 1, 0, 3, 3, 3, 3,
+		2, 2, 0, 0, 2, 2, 2, 2, 1, 2, 1, 0, 3, 3, 3, 3,
+		2, 2, 2, 0, 2, 2, 2, 2, 1, 3, 1, 0, 3, 3, 3, 3,
+		2, 2, 2, 0, 2, 2, 2, 2, 1, 2, 1, 0, 3, 3, 3, 3,
+		2, 2, 2, 0, 2, 2, 2, 2, 1, 3, 1, 0, 3, 3, 3, 3,
+		2, 2, 0, 0, 2, 2, 2, 2, 1, 2, 1, 1, 3, 3, 3, 3,
+		2, 2, 2, 0, 0, 2, 2, 2, 1, 3, 1, 1, 0, 3, 3, 3,
+		2, 2, 0, 0, 2, 2, 2, 2, 1, 2, 1, 0, 3, 3, 3, 3,
+		2, 2, 2, 0, 0, 2, 2, 2, 1, 3, 1, 0, 0, 3, 3, 3
+	};
+	
+	/**
+	 * Marks the opcodes that set the program counter and so end a block.
+	 */
+	private static final boolean []	CONTROL = new boolean [256];
+	
+	static {
+		for (int op : new int [] {
+				0x00, 0x10, 0x20, 0x30, 0x40, 0x4C, 0x50, 0x60, 0x6C, 0x70, 0x7C,
+				0x80, 0x90, 0xB0, 0xCB, 0xD0, 0xDB, 0xF0 })
+			CONTROL [op] = true;
+		for (int op = 0x0F; op < 0x100; op += 0x10)
+			CONTROL [op] = true;
+	}
+	
+	/**
+	 * The translated block (if any) starting at each address or
+	 * <CODE>null</CODE> if translation is disabled.
+	 */
+	private final Block []		blocks;
+	
+	/**
+	 * The number of times each address has been interpreted.
+	 */
+	private final int []		counts;
+	
+	/**
+	 * Marks the pages that hold code for a translated block.
+	 */
+	private final boolean []	code	= new boolean [0x100];
+	
+	private boolean				halted;
+	
+	/**
+	 * The processor registers while a batch is running.
+	 */
+	private int					a, x, y, s, p, pc;
+	
+	/**
+	 * Reads a byte of memory, going directly to the backing array for RAM
+	 * and ROM pages.
+	 * 
+	 * @param	addr			The address to read.
+	 * @return	The byte value.
+	 */
+	private int read (int addr)
+	{
+		int			page = (addr & 0xffff) >>> AddressMap.PAGE_BITS;
+		byte []		data = readPages [page];
+		
+		if (data != null)
+			return (data [offsets [page] + (addr & PAGE_MASK)] & 0xff);
+		
+		sync ();
+		io = true;
+		return (emulator.read (addr));
+	}
+	
+	/**
+	 * Writes a byte of memory, going directly to the backing array for RAM
+	 * pages.
+	 * 
+	 * @param	addr			The address to write.
+	 * @param	value			The byte value.
+	 */
+	private void write (int addr, int value)
+	{
+		int			page = (addr & 0xffff) >>> AddressMap.PAGE_BITS;
+		byte []		data = writePages [page];
+		
+		if (data != null) {
+			data [offsets [page] + (addr & PAGE_MASK)] = (byte) value;
+			if (code [page]) modified (addr);
+		}
+		else {
+			sync ();
+			io = true;
+			emulator.write (addr, value);
+		}
+	}
+	
+	/**
+	 * Reads a byte of RAM or ROM without side effects.
+	 * 
+	 * @param	addr			The address to read.
+	 * @return	The byte value or -1 if the address is not RAM or ROM.
+	 */
+	private int peek (int addr)
+	{
+		int			page = addr >>> AddressMap.PAGE_BITS;
+		byte []		data = readPages [page];
+		
+		return ((data != null) ? data [offsets [page] + (addr & PAGE_MASK)] & 0xff : -1);
+	}
+	
+	/**
+	 * Brings the scheduler up to date before a device is accessed and at
+	 * the end of a batch.
+	 */
+	private void sync ()
+	{
+		emulator.tick (spent - synced);
+		synced = spent;
+	}
+	
+	/**
+	 * Performs an ADC in the same way as the table driven core.
+	 * 
+	 * @param	a				The accumulator.
+	 * @param	m				The operand.
+	 * @param	p				The status register.
+	 * @return	The new status register in bits 8-15 and the result in
+	 * 			bits 0-7.
+	 */
+	private static int adc (int a, int m, int p)
+	{
+		int			val = a + m + (p & F_C);
+		int			ovr = (a ^ val) & (m ^ val);
+		
+		if ((p & F_D) != 0) {
+			int			lo = (a & 0x0f) + (m & 0x0f) + (p & F_C);
+			
+			if (lo > 0x09) lo += 0x06;
+			val = (a & 0xf0) + (m & 0xf0) + (lo & 0x0f) + ((lo > 0x0f) ? 0x10 : 0);
+			ovr = (a ^ val) & (m ^ val);
+			if ((val & 0x1f0) > 0x90) val += 0x60;
+		}
+		
+		p = (p & ~(F_N | F_V | F_Z | F_C)) | NZ [val & 0xff]
+			| ((ovr >> 1) & F_V) | ((val >> 8) & F_C);
+		
+		return ((p << 8) | (val & 0xff));
+	}
+	
+	/**
+	 * Performs an SBC in the same way as the table driven core.
+	 * 
+	 * @param	a				The accumulator.
+	 * @param	m				The operand.
+	 * @param	p				The status register.
+	 * @return	The new status register in bits 8-15 and the result in
+	 * 			bits 0-7.
+	 */
+	private static int sbc (int a, int m, int p)
+	{
+		int			borrow = ~p & F_C;
+		int			val = a - m - borrow;
+		int			ovr = (a ^ m) & (a ^ val);
+		
+		p = (p & ~(F_N | F_V | F_Z | F_C)) | NZ [val & 0xff]
+			| ((ovr >> 1) & F_V) | (((val & 0x100) == 0) ? F_C : 0);
+		
+		if ((p & F_D) != 0) {
+			int			lo = (a & 0x0f) - (m & 0x0f) - borrow;
+			int			hi = (a & 0xf0) - (m & 0xf0);
+			
+			if (lo < 0) { lo -= 0x06; hi -= 0x10; }
+			if (hi < 0) hi -= 0x60;
+			val = (hi & 0xf0) | (lo & 0x0f);
+		}
+		
+		return ((p << 8) | (val & 0xff));
+	}
+	
+	/**
+	 * Performs a CMP, CPX or CPY.
+	 * 
+	 * @param	r				The register value.
+	 * @param	m				The operand.
+	 * @param	p				The status register.
+	 * @return	The new status register.
+	 */
+	private static int compare (int r, int m, int p)
+	{
+		int			val = r - m;
+		
+		return ((p & ~(F_N | F_Z | F_C)) | NZ [val & 0xff] | (((val & 0x100) == 0) ? F_C : 0));
+	}
+	
+	/**
+	 * The base class for blocks translated by <CODE>Jit65</CODE>. Generated
+	 * classes are defined by their own class loader and so can only use the
+	 * public and protected members of this class.
+	 * <P>
+	 * Each <CODE>opXX</CODE> method performs one instruction given its
+	 * operand, decoded when the block was translated, and the address of
+	 * the following instruction. Branch targets are passed already resolved
+	 * and BBR/BBS pass the zero page address in bits 0-7 and the target in
+	 * bits 8-23. The methods return any cycles taken in addition to the base
+	 * count and only set the program counter for control transfers.
+	 */
+	public static abstract class Block
+	{
+		/**
+		 * The core whose registers and memory the block uses.
+		 */
+		Switch65			core;
+		
+		/**
+		 * The address of the final instruction in the block.
+		 */
+		int					last;
+		
+		/**
+		 * Executes the block.
+		 * 
+		 * @return	<CODE>true</CODE> if every instruction was executed.
+		 */
+		public abstract boolean run ();
+		
+		/**
+		 * Accounts for an instruction that is not the last in the block and
+		 * decides whether execution must leave the block early because a
+		 * device was accessed or the cycle budget is exhausted.
+		 * 
+		 * @param	extra			The additional cycles taken.
+		 * @param	next			The address of the next instruction.
+		 * @param	cycles			The base cycle count.
+		 * @return	<CODE>true</CODE> if the block must be left.
+		 */
+		protected final boolean step (int extra, int next, int cycles)
+		{
+			core.spent += cycles + extra;
+			if (core.io || (core.spent >= core.budget)) {
+				core.pc = next;
+				return (true);
+			}
+			return (false);
+		}
+		
+		/**
+		 * Accounts for a final instruction that falls through.
+		 * 
+		 * @param	extra			The additional cycles taken.
+		 * @param	next			The address of the next instruction.
+		 * @param	cycles			The base cycle count.
+		 */
+		protected final void complete (int extra, int next, int cycles)
+		{
+			core.spent += cycles + extra;
+			core.pc		= next;
+		}
+		
+		/**
+		 * Accounts for a final instruction that set the program counter.
+		 * 
+		 * @param	extra			The additional cycles taken.
+		 * @param	cycles			The base cycle count.
+		 */
+		protected final void transfer (int extra, int cycles)
+		{
+			core.spent += cycles + extra;
+		}
+		
+		// BRK IMM
+		protected final int op00 (int operand, int next)
+		{
+			core.pc = next;
+			core.write (0x0100 + core.s, core.pc >> 8);
+			core.s = (core.s - 1) & 0xff;
+			core.write (0x0100 + core.s, core.pc & 0xff);
+			core.s = (core.s - 1) & 0xff;
+			core.write (0x0100 + core.s, core.p | F_B);
+			core.s = (core.s - 1) & 0xff;
+			core.p |= F_I;
+			core.pc = core.read (0xfffe) | (core.read (0xffff) << 8);
+			return (0);
+		}
+		
+		// ORA IZX
+		protected final int op01 (int operand, int next)
+		{
+			int			ea, ma;
+			
+			ma = (operand + core.x) & 0xff;
+			ea = core.read (ma) | (core.read ((ma + 1) & 0xff) << 8);
+			core.a |= core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// TSB ZPG
+		protected final int op04 (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = operand;
+			m = core.read (ea);
+			core.p = (core.p & ~F_Z) | (((m & core.a) == 0) ? F_Z : 0);
+			core.write (ea, m | core.a);
+			return (0);
+		}
+		
+		// ORA ZPG
+		protected final int op05 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.a |= core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// ASL ZPG
+		protected final int op06 (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = operand;
+			m = core.read (ea) << 1;
+			core.p = (core.p & ~(F_N | F_Z | F_C)) | NZ [m & 0xff] | (m >> 8);
+			core.write (ea, m & 0xff);
+			return (0);
+		}
+		
+		// RMB0 ZPG
+		protected final int op07 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.write (ea, core.read (ea) & ~0x01);
+			return (0);
+		}
+		
+		// PHP
+		protected final int op08 (int operand, int next)
+		{
+			core.write (0x0100 + core.s, core.p);
+			core.s = (core.s - 1) & 0xff;
+			return (0);
+		}
+		
+		// ORA IMM
+		protected final int op09 (int operand, int next)
+		{
+			core.a |= operand;
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// ASL
+		protected final int op0A (int operand, int next)
+		{
+			core.a <<= 1;
+			core.p = (core.p & ~(F_N | F_Z | F_C)) | NZ [core.a & 0xff] | (core.a >> 8);
+			core.a &= 0xff;
+			return (0);
+		}
+		
+		// TSB ABS
+		protected final int op0C (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = operand;
+			m = core.read (ea);
+			core.p = (core.p & ~F_Z) | (((m & core.a) == 0) ? F_Z : 0);
+			core.write (ea, m | core.a);
+			return (0);
+		}
+		
+		// ORA ABS
+		protected final int op0D (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.a |= core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// ASL ABS
+		protected final int op0E (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = operand;
+			m = core.read (ea) << 1;
+			core.p = (core.p & ~(F_N | F_Z | F_C)) | NZ [m & 0xff] | (m >> 8);
+			core.write (ea, m & 0xff);
+			return (0);
+		}
+		
+		// BBR0 ZPG,REL
+		protected final int op0F (int operand, int next)
+		{
+			int			ea, ma;
+			
+			core.pc = next;
+			ma = operand & 0xff;
+			ea = operand >> 8;
+			if ((core.read (ma) & 0x01) == 0) core.pc = ea;
+			return (0);
+		}
+		
+		// BPL REL
+		protected final int op10 (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea;
+			
+			core.pc = next;
+			ea = operand;
+			if ((core.p & F_N) == 0) {
+				if (((core.pc ^ ea) & 0xff00) != 0) ++extra;
+				core.pc = ea;
+				++extra;
+			}
+			return (extra);
+		}
+		
+		// ORA IZY
+		protected final int op11 (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea, ma;
+			
+			ma = core.read (operand) | (core.read ((operand + 1) & 0xff) << 8);
+			ea = (ma + core.y) & 0xffff;
+			if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+			core.a |= core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (extra);
+		}
+		
+		// ORA IZP
+		protected final int op12 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = core.read (operand) | (core.read ((operand + 1) & 0xff) << 8);
+			core.a |= core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// TRB ZPG
+		protected final int op14 (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = operand;
+			m = core.read (ea);
+			core.p = (core.p & ~F_Z) | (((m & core.a) == 0) ? F_Z : 0);
+			core.write (ea, m & ~core.a);
+			return (0);
+		}
+		
+		// ORA ZPX
+		protected final int op15 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = (operand + core.x) & 0xff;
+			core.a |= core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// ASL ZPX
+		protected final int op16 (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = (operand + core.x) & 0xff;
+			m = core.read (ea) << 1;
+			core.p = (core.p & ~(F_N | F_Z | F_C)) | NZ [m & 0xff] | (m >> 8);
+			core.write (ea, m & 0xff);
+			return (0);
+		}
+		
+		// RMB1 ZPG
+		protected final int op17 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.write (ea, core.read (ea) & ~0x02);
+			return (0);
+		}
+		
+		// CLC
+		protected final int op18 (int operand, int next)
+		{
+			core.p &= ~F_C;
+			return (0);
+		}
+		
+		// ORA ABY
+		protected final int op19 (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea;
+			
+			ea = (operand + core.y) & 0xffff;
+			if (((ea ^ operand) & 0xff00) != 0) extra = 1;
+			core.a |= core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (extra);
+		}
+		
+		// INC
+		protected final int op1A (int operand, int next)
+		{
+			core.a = (core.a + 1) & 0xff;
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// TRB ABS
+		protected final int op1C (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = operand;
+			m = core.read (ea);
+			core.p = (core.p & ~F_Z) | (((m & core.a) == 0) ? F_Z : 0);
+			core.write (ea, m & ~core.a);
+			return (0);
+		}
+		
+		// ORA ABX
+		protected final int op1D (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea;
+			
+			ea = (operand + core.x) & 0xffff;
+			if (((ea ^ operand) & 0xff00) != 0) extra = 1;
+			core.a |= core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (extra);
+		}
+		
+		// ASL ABX
+		protected final int op1E (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea, m;
+			
+			ea = (operand + core.x) & 0xffff;
+			if (((ea ^ operand) & 0xff00) != 0) extra = 1;
+			m = core.read (ea) << 1;
+			core.p = (core.p & ~(F_N | F_Z | F_C)) | NZ [m & 0xff] | (m >> 8);
+			core.write (ea, m & 0xff);
+			return (extra);
+		}
+		
+		// BBR1 ZPG,REL
+		protected final int op1F (int operand, int next)
+		{
+			int			ea, ma;
+			
+			core.pc = next;
+			ma = operand & 0xff;
+			ea = operand >> 8;
+			if ((core.read (ma) & 0x02) == 0) core.pc = ea;
+			return (0);
+		}
+		
+		// JSR ABS
+		protected final int op20 (int operand, int next)
+		{
+			int			ea, m;
+			
+			core.pc = next;
+			ea = operand;
+			m = (core.pc - 1) & 0xffff;
+			core.write (0x0100 + core.s, m >> 8);
+			core.s = (core.s - 1) & 0xff;
+			core.write (0x0100 + core.s, m & 0xff);
+			core.s = (core.s - 1) & 0xff;
+			core.pc = ea;
+			return (0);
+		}
+		
+		// AND IZX
+		protected final int op21 (int operand, int next)
+		{
+			int			ea, ma;
+			
+			ma = (operand + core.x) & 0xff;
+			ea = core.read (ma) | (core.read ((ma + 1) & 0xff) << 8);
+			core.a &= core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// BIT ZPG
+		protected final int op24 (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = operand;
+			m = core.read (ea);
+			core.p = (core.p & ~(F_N | F_V | F_Z)) | (m & (F_N | F_V)) | (((m & core.a) == 0) ? F_Z : 0);
+			return (0);
+		}
+		
+		// AND ZPG
+		protected final int op25 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.a &= core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// ROL ZPG
+		protected final int op26 (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = operand;
+			m = (core.read (ea) << 1) | (core.p & F_C);
+			core.p = (core.p & ~(F_N | F_Z | F_C)) | NZ [m & 0xff] | (m >> 8);
+			core.write (ea, m & 0xff);
+			return (0);
+		}
+		
+		// RMB2 ZPG
+		protected final int op27 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.write (ea, core.read (ea) & ~0x04);
+			return (0);
+		}
+		
+		// PLP
+		protected final int op28 (int operand, int next)
+		{
+			core.s = (core.s + 1) & 0xff;
+			core.p = core.read (0x0100 + core.s) | 0x30;
+			return (0);
+		}
+		
+		// AND IMM
+		protected final int op29 (int operand, int next)
+		{
+			core.a &= operand;
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// ROL
+		protected final int op2A (int operand, int next)
+		{
+			core.a = (core.a << 1) | (core.p & F_C);
+			core.p = (core.p & ~(F_N | F_Z | F_C)) | NZ [core.a & 0xff] | (core.a >> 8);
+			core.a &= 0xff;
+			return (0);
+		}
+		
+		// BIT ABS
+		protected final int op2C (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = operand;
+			m = core.read (ea);
+			core.p = (core.p & ~(F_N | F_V | F_Z)) | (m & (F_N | F_V)) | (((m & core.a) == 0) ? F_Z : 0);
+			return (0);
+		}
+		
+		// AND ABS
+		protected final int op2D (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.a &= core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// ROL ABS
+		protected final int op2E (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = operand;
+			m = (core.read (ea) << 1) | (core.p & F_C);
+			core.p = (core.p & ~(F_N | F_Z | F_C)) | NZ [m & 0xff] | (m >> 8);
+			core.write (ea, m & 0xff);
+			return (0);
+		}
+		
+		// BBR2 ZPG,REL
+		protected final int op2F (int operand, int next)
+		{
+			int			ea, ma;
+			
+			core.pc = next;
+			ma = operand & 0xff;
+			ea = operand >> 8;
+			if ((core.read (ma) & 0x04) == 0) core.pc = ea;
+			return (0);
+		}
+		
+		// BMI REL
+		protected final int op30 (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea;
+			
+			core.pc = next;
+			ea = operand;
+			if ((core.p & F_N) != 0) {
+				if (((core.pc ^ ea) & 0xff00) != 0) ++extra;
+				core.pc = ea;
+				++extra;
+			}
+			return (extra);
+		}
+		
+		// AND IZY
+		protected final int op31 (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea, ma;
+			
+			ma = core.read (operand) | (core.read ((operand + 1) & 0xff) << 8);
+			ea = (ma + core.y) & 0xffff;
+			if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+			core.a &= core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (extra);
+		}
+		
+		// AND IZP
+		protected final int op32 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = core.read (operand) | (core.read ((operand + 1) & 0xff) << 8);
+			core.a &= core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// BIT ZPX
+		protected final int op34 (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = (operand + core.x) & 0xff;
+			m = core.read (ea);
+			core.p = (core.p & ~(F_N | F_V | F_Z)) | (m & (F_N | F_V)) | (((m & core.a) == 0) ? F_Z : 0);
+			return (0);
+		}
+		
+		// AND ZPX
+		protected final int op35 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = (operand + core.x) & 0xff;
+			core.a &= core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// ROL ZPX
+		protected final int op36 (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = (operand + core.x) & 0xff;
+			m = (core.read (ea) << 1) | (core.p & F_C);
+			core.p = (core.p & ~(F_N | F_Z | F_C)) | NZ [m & 0xff] | (m >> 8);
+			core.write (ea, m & 0xff);
+			return (0);
+		}
+		
+		// RMB3 ZPG
+		protected final int op37 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.write (ea, core.read (ea) & ~0x08);
+			return (0);
+		}
+		
+		// SEC
+		protected final int op38 (int operand, int next)
+		{
+			core.p |= F_C;
+			return (0);
+		}
+		
+		// AND ABY
+		protected final int op39 (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea;
+			
+			ea = (operand + core.y) & 0xffff;
+			if (((ea ^ operand) & 0xff00) != 0) extra = 1;
+			core.a &= core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (extra);
+		}
+		
+		// DEC
+		protected final int op3A (int operand, int next)
+		{
+			core.a = (core.a - 1) & 0xff;
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// BIT ABX
+		protected final int op3C (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea, m;
+			
+			ea = (operand + core.x) & 0xffff;
+			if (((ea ^ operand) & 0xff00) != 0) extra = 1;
+			m = core.read (ea);
+			core.p = (core.p & ~(F_N | F_V | F_Z)) | (m & (F_N | F_V)) | (((m & core.a) == 0) ? F_Z : 0);
+			return (extra);
+		}
+		
+		// AND ABX
+		protected final int op3D (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea;
+			
+			ea = (operand + core.x) & 0xffff;
+			if (((ea ^ operand) & 0xff00) != 0) extra = 1;
+			core.a &= core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (extra);
+		}
+		
+		// ROL ABX
+		protected final int op3E (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea, m;
+			
+			ea = (operand + core.x) & 0xffff;
+			if (((ea ^ operand) & 0xff00) != 0) extra = 1;
+			m = (core.read (ea) << 1) | (core.p & F_C);
+			core.p = (core.p & ~(F_N | F_Z | F_C)) | NZ [m & 0xff] | (m >> 8);
+			core.write (ea, m & 0xff);
+			return (extra);
+		}
+		
+		// BBR3 ZPG,REL
+		protected final int op3F (int operand, int next)
+		{
+			int			ea, ma;
+			
+			core.pc = next;
+			ma = operand & 0xff;
+			ea = operand >> 8;
+			if ((core.read (ma) & 0x08) == 0) core.pc = ea;
+			return (0);
+		}
+		
+		// RTI
+		protected final int op40 (int operand, int next)
+		{
+			int			m;
+			
+			core.pc = next;
+			core.s = (core.s + 1) & 0xff;
+			core.p = core.read (0x0100 + core.s) | 0x30;
+			core.s = (core.s + 1) & 0xff;
+			m = core.read (0x0100 + core.s);
+			core.s = (core.s + 1) & 0xff;
+			core.pc = (core.read (0x0100 + core.s) << 8) | m;
+			return (0);
+		}
+		
+		// EOR IZX
+		protected final int op41 (int operand, int next)
+		{
+			int			ea, ma;
+			
+			ma = (operand + core.x) & 0xff;
+			ea = core.read (ma) | (core.read ((ma + 1) & 0xff) << 8);
+			core.a ^= core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// EOR ZPG
+		protected final int op45 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.a ^= core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// LSR ZPG
+		protected final int op46 (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = operand;
+			m = core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z | F_C)) | NZ [m >> 1] | (m & F_C);
+			core.write (ea, m >> 1);
+			return (0);
+		}
+		
+		// RMB4 ZPG
+		protected final int op47 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.write (ea, core.read (ea) & ~0x10);
+			return (0);
+		}
+		
+		// PHA
+		protected final int op48 (int operand, int next)
+		{
+			core.write (0x0100 + core.s, core.a);
+			core.s = (core.s - 1) & 0xff;
+			return (0);
+		}
+		
+		// EOR IMM
+		protected final int op49 (int operand, int next)
+		{
+			core.a ^= operand;
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// LSR
+		protected final int op4A (int operand, int next)
+		{
+			core.p = (core.p & ~(F_N | F_Z | F_C)) | NZ [core.a >> 1] | (core.a & F_C);
+			core.a >>= 1;
+			return (0);
+		}
+		
+		// JMP ABS
+		protected final int op4C (int operand, int next)
+		{
+			int			ea;
+			
+			core.pc = next;
+			ea = operand;
+			core.pc = ea;
+			return (0);
+		}
+		
+		// EOR ABS
+		protected final int op4D (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.a ^= core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// LSR ABS
+		protected final int op4E (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = operand;
+			m = core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z | F_C)) | NZ [m >> 1] | (m & F_C);
+			core.write (ea, m >> 1);
+			return (0);
+		}
+		
+		// BBR4 ZPG,REL
+		protected final int op4F (int operand, int next)
+		{
+			int			ea, ma;
+			
+			core.pc = next;
+			ma = operand & 0xff;
+			ea = operand >> 8;
+			if ((core.read (ma) & 0x10) == 0) core.pc = ea;
+			return (0);
+		}
+		
+		// BVC REL
+		protected final int op50 (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea;
+			
+			core.pc = next;
+			ea = operand;
+			if ((core.p & F_V) == 0) {
+				if (((core.pc ^ ea) & 0xff00) != 0) ++extra;
+				core.pc = ea;
+				++extra;
+			}
+			return (extra);
+		}
+		
+		// EOR IZY
+		protected final int op51 (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea, ma;
+			
+			ma = core.read (operand) | (core.read ((operand + 1) & 0xff) << 8);
+			ea = (ma + core.y) & 0xffff;
+			if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+			core.a ^= core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (extra);
+		}
+		
+		// EOR IZP
+		protected final int op52 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = core.read (operand) | (core.read ((operand + 1) & 0xff) << 8);
+			core.a ^= core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// EOR ZPX
+		protected final int op55 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = (operand + core.x) & 0xff;
+			core.a ^= core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// LSR ZPX
+		protected final int op56 (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = (operand + core.x) & 0xff;
+			m = core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z | F_C)) | NZ [m >> 1] | (m & F_C);
+			core.write (ea, m >> 1);
+			return (0);
+		}
+		
+		// RMB5 ZPG
+		protected final int op57 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.write (ea, core.read (ea) & ~0x20);
+			return (0);
+		}
+		
+		// CLI
+		protected final int op58 (int operand, int next)
+		{
+			core.p &= ~F_I;
+			return (0);
+		}
+		
+		// EOR ABY
+		protected final int op59 (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea;
+			
+			ea = (operand + core.y) & 0xffff;
+			if (((ea ^ operand) & 0xff00) != 0) extra = 1;
+			core.a ^= core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (extra);
+		}
+		
+		// PHY
+		protected final int op5A (int operand, int next)
+		{
+			core.write (0x0100 + core.s, core.y);
+			core.s = (core.s - 1) & 0xff;
+			return (0);
+		}
+		
+		// EOR ABX
+		protected final int op5D (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea;
+			
+			ea = (operand + core.x) & 0xffff;
+			if (((ea ^ operand) & 0xff00) != 0) extra = 1;
+			core.a ^= core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (extra);
+		}
+		
+		// LSR ABX
+		protected final int op5E (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea, m;
+			
+			ea = (operand + core.x) & 0xffff;
+			if (((ea ^ operand) & 0xff00) != 0) extra = 1;
+			m = core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z | F_C)) | NZ [m >> 1] | (m & F_C);
+			core.write (ea, m >> 1);
+			return (extra);
+		}
+		
+		// BBR5 ZPG,REL
+		protected final int op5F (int operand, int next)
+		{
+			int			ea, ma;
+			
+			core.pc = next;
+			ma = operand & 0xff;
+			ea = operand >> 8;
+			if ((core.read (ma) & 0x20) == 0) core.pc = ea;
+			return (0);
+		}
+		
+		// RTS
+		protected final int op60 (int operand, int next)
+		{
+			int			m;
+			
+			core.pc = next;
+			core.s = (core.s + 1) & 0xff;
+			m = core.read (0x0100 + core.s);
+			core.s = (core.s + 1) & 0xff;
+			core.pc = (((core.read (0x0100 + core.s) << 8) | m) + 1) & 0xffff;
+			return (0);
+		}
+		
+		// ADC IZX
+		protected final int op61 (int operand, int next)
+		{
+			int			ea, ma, m;
+			
+			ma = (operand + core.x) & 0xff;
+			ea = core.read (ma) | (core.read ((ma + 1) & 0xff) << 8);
+			m = adc (core.a, core.read (ea), core.p);
+			core.a = m & 0xff;
+			core.p = m >> 8;
+			return (0);
+		}
+		
+		// STZ ZPG
+		protected final int op64 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.write (ea, 0);
+			return (0);
+		}
+		
+		// ADC ZPG
+		protected final int op65 (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = operand;
+			m = adc (core.a, core.read (ea), core.p);
+			core.a = m & 0xff;
+			core.p = m >> 8;
+			return (0);
+		}
+		
+		// ROR ZPG
+		protected final int op66 (int operand, int next)
+		{
+			int			ea, m, v;
+			
+			ea = operand;
+			m = core.read (ea);
+			v = (m >> 1) | ((core.p & F_C) << 7);
+			core.p = (core.p & ~(F_N | F_Z | F_C)) | NZ [v] | (m & F_C);
+			core.write (ea, v);
+			return (0);
+		}
+		
+		// RMB6 ZPG
+		protected final int op67 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.write (ea, core.read (ea) & ~0x40);
+			return (0);
+		}
+		
+		// PLA
+		protected final int op68 (int operand, int next)
+		{
+			core.s = (core.s + 1) & 0xff;
+			core.a = core.read (0x0100 + core.s);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// ADC IMM
+		protected final int op69 (int operand, int next)
+		{
+			int			m;
+			
+			m = adc (core.a, operand, core.p);
+			core.a = m & 0xff;
+			core.p = m >> 8;
+			return (0);
+		}
+		
+		// ROR
+		protected final int op6A (int operand, int next)
+		{
+			int			v;
+			
+			v = (core.a >> 1) | ((core.p & F_C) << 7);
+			core.p = (core.p & ~(F_N | F_Z | F_C)) | NZ [v] | (core.a & F_C);
+			core.a = v;
+			return (0);
+		}
+		
+		// JMP IND
+		protected final int op6C (int operand, int next)
+		{
+			int			ea;
+			
+			core.pc = next;
+			if (!core.cmos && ((operand & 0xff) == 0xff))
+				ea = core.read (operand) | (core.read (operand & 0xff00) << 8);
+			else
+				ea = core.read (operand) | (core.read ((operand + 1) & 0xffff) << 8);
+			core.pc = ea;
+			return (0);
+		}
+		
+		// ADC ABS
+		protected final int op6D (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = operand;
+			m = adc (core.a, core.read (ea), core.p);
+			core.a = m & 0xff;
+			core.p = m >> 8;
+			return (0);
+		}
+		
+		// ROR ABS
+		protected final int op6E (int operand, int next)
+		{
+			int			ea, m, v;
+			
+			ea = operand;
+			m = core.read (ea);
+			v = (m >> 1) | ((core.p & F_C) << 7);
+			core.p = (core.p & ~(F_N | F_Z | F_C)) | NZ [v] | (m & F_C);
+			core.write (ea, v);
+			return (0);
+		}
+		
+		// BBR6 ZPG,REL
+		protected final int op6F (int operand, int next)
+		{
+			int			ea, ma;
+			
+			core.pc = next;
+			ma = operand & 0xff;
+			ea = operand >> 8;
+			if ((core.read (ma) & 0x40) == 0) core.pc = ea;
+			return (0);
+		}
+		
+		// BVS REL
+		protected final int op70 (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea;
+			
+			core.pc = next;
+			ea = operand;
+			if ((core.p & F_V) != 0) {
+				if (((core.pc ^ ea) & 0xff00) != 0) ++extra;
+				core.pc = ea;
+				++extra;
+			}
+			return (extra);
+		}
+		
+		// ADC IZY
+		protected final int op71 (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea, ma, m;
+			
+			ma = core.read (operand) | (core.read ((operand + 1) & 0xff) << 8);
+			ea = (ma + core.y) & 0xffff;
+			if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+			m = adc (core.a, core.read (ea), core.p);
+			core.a = m & 0xff;
+			core.p = m >> 8;
+			return (extra);
+		}
+		
+		// ADC IZP
+		protected final int op72 (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = core.read (operand) | (core.read ((operand + 1) & 0xff) << 8);
+			m = adc (core.a, core.read (ea), core.p);
+			core.a = m & 0xff;
+			core.p = m >> 8;
+			return (0);
+		}
+		
+		// STZ ZPX
+		protected final int op74 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = (operand + core.x) & 0xff;
+			core.write (ea, 0);
+			return (0);
+		}
+		
+		// ADC ZPX
+		protected final int op75 (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = (operand + core.x) & 0xff;
+			m = adc (core.a, core.read (ea), core.p);
+			core.a = m & 0xff;
+			core.p = m >> 8;
+			return (0);
+		}
+		
+		// ROR ZPX
+		protected final int op76 (int operand, int next)
+		{
+			int			ea, m, v;
+			
+			ea = (operand + core.x) & 0xff;
+			m = core.read (ea);
+			v = (m >> 1) | ((core.p & F_C) << 7);
+			core.p = (core.p & ~(F_N | F_Z | F_C)) | NZ [v] | (m & F_C);
+			core.write (ea, v);
+			return (0);
+		}
+		
+		// RMB7 ZPG
+		protected final int op77 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.write (ea, core.read (ea) & ~0x80);
+			return (0);
+		}
+		
+		// SEI
+		protected final int op78 (int operand, int next)
+		{
+			core.p |= F_I;
+			return (0);
+		}
+		
+		// ADC ABY
+		protected final int op79 (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea, m;
+			
+			ea = (operand + core.y) & 0xffff;
+			if (((ea ^ operand) & 0xff00) != 0) extra = 1;
+			m = adc (core.a, core.read (ea), core.p);
+			core.a = m & 0xff;
+			core.p = m >> 8;
+			return (extra);
+		}
+		
+		// PLY
+		protected final int op7A (int operand, int next)
+		{
+			core.s = (core.s + 1) & 0xff;
+			core.y = core.read (0x0100 + core.s);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.y];
+			return (0);
+		}
+		
+		// JMP IAX
+		protected final int op7C (int operand, int next)
+		{
+			int			ea, ma;
+			
+			core.pc = next;
+			ma = (operand + core.x) & 0xffff;
+			ea = core.read (ma) | (core.read ((ma + 1) & 0xffff) << 8);
+			core.pc = ea;
+			return (0);
+		}
+		
+		// ADC ABX
+		protected final int op7D (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea, m;
+			
+			ea = (operand + core.x) & 0xffff;
+			if (((ea ^ operand) & 0xff00) != 0) extra = 1;
+			m = adc (core.a, core.read (ea), core.p);
+			core.a = m & 0xff;
+			core.p = m >> 8;
+			return (extra);
+		}
+		
+		// ROR ABX
+		protected final int op7E (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea, m, v;
+			
+			ea = (operand + core.x) & 0xffff;
+			if (((ea ^ operand) & 0xff00) != 0) extra = 1;
+			m = core.read (ea);
+			v = (m >> 1) | ((core.p & F_C) << 7);
+			core.p = (core.p & ~(F_N | F_Z | F_C)) | NZ [v] | (m & F_C);
+			core.write (ea, v);
+			return (extra);
+		}
+		
+		// BBR7 ZPG,REL
+		protected final int op7F (int operand, int next)
+		{
+			int			ea, ma;
+			
+			core.pc = next;
+			ma = operand & 0xff;
+			ea = operand >> 8;
+			if ((core.read (ma) & 0x80) == 0) core.pc = ea;
+			return (0);
+		}
+		
+		// BRA REL
+		protected final int op80 (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea;
+			
+			core.pc = next;
+			ea = operand;
+			core.pc = ea;
+			++extra;
+			return (extra);
+		}
+		
+		// STA IZX
+		protected final int op81 (int operand, int next)
+		{
+			int			ea, ma;
+			
+			ma = (operand + core.x) & 0xff;
+			ea = core.read (ma) | (core.read ((ma + 1) & 0xff) << 8);
+			core.write (ea, core.a);
+			return (0);
+		}
+		
+		// STY ZPG
+		protected final int op84 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.write (ea, core.y);
+			return (0);
+		}
+		
+		// STA ZPG
+		protected final int op85 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.write (ea, core.a);
+			return (0);
+		}
+		
+		// STX ZPG
+		protected final int op86 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.write (ea, core.x);
+			return (0);
+		}
+		
+		// SMB0 ZPG
+		protected final int op87 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.write (ea, core.read (ea) | 0x01);
+			return (0);
+		}
+		
+		// DEY
+		protected final int op88 (int operand, int next)
+		{
+			core.y = (core.y - 1) & 0xff;
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.y];
+			return (0);
+		}
+		
+		// BITI IMM
+		protected final int op89 (int operand, int next)
+		{
+			core.p = (core.p & ~F_Z) | (((operand & core.a) == 0) ? F_Z : 0);
+			return (0);
+		}
+		
+		// TXA
+		protected final int op8A (int operand, int next)
+		{
+			core.a = core.x;
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// STY ABS
+		protected final int op8C (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.write (ea, core.y);
+			return (0);
+		}
+		
+		// STA ABS
+		protected final int op8D (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.write (ea, core.a);
+			return (0);
+		}
+		
+		// STX ABS
+		protected final int op8E (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.write (ea, core.x);
+			return (0);
+		}
+		
+		// BBS0 ZPG,REL
+		protected final int op8F (int operand, int next)
+		{
+			int			ea, ma;
+			
+			core.pc = next;
+			ma = operand & 0xff;
+			ea = operand >> 8;
+			if ((core.read (ma) & 0x01) != 0) core.pc = ea;
+			return (0);
+		}
+		
+		// BCC REL
+		protected final int op90 (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea;
+			
+			core.pc = next;
+			ea = operand;
+			if ((core.p & F_C) == 0) {
+				if (((core.pc ^ ea) & 0xff00) != 0) ++extra;
+				core.pc = ea;
+				++extra;
+			}
+			return (extra);
+		}
+		
+		// STA IZY
+		protected final int op91 (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea, ma;
+			
+			ma = core.read (operand) | (core.read ((operand + 1) & 0xff) << 8);
+			ea = (ma + core.y) & 0xffff;
+			if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+			core.write (ea, core.a);
+			return (extra);
+		}
+		
+		// STA IZP
+		protected final int op92 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = core.read (operand) | (core.read ((operand + 1) & 0xff) << 8);
+			core.write (ea, core.a);
+			return (0);
+		}
+		
+		// STY ZPX
+		protected final int op94 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = (operand + core.x) & 0xff;
+			core.write (ea, core.y);
+			return (0);
+		}
+		
+		// STA ZPX
+		protected final int op95 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = (operand + core.x) & 0xff;
+			core.write (ea, core.a);
+			return (0);
+		}
+		
+		// STX ZPY
+		protected final int op96 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = (operand + core.y) & 0xff;
+			core.write (ea, core.x);
+			return (0);
+		}
+		
+		// SMB1 ZPG
+		protected final int op97 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.write (ea, core.read (ea) | 0x02);
+			return (0);
+		}
+		
+		// TYA
+		protected final int op98 (int operand, int next)
+		{
+			core.a = core.y;
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// STA ABY
+		protected final int op99 (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea;
+			
+			ea = (operand + core.y) & 0xffff;
+			if (((ea ^ operand) & 0xff00) != 0) extra = 1;
+			core.write (ea, core.a);
+			return (extra);
+		}
+		
+		// TXS
+		protected final int op9A (int operand, int next)
+		{
+			core.s = core.x;
+			return (0);
+		}
+		
+		// STZ ABS
+		protected final int op9C (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.write (ea, 0);
+			return (0);
+		}
+		
+		// STA ABX
+		protected final int op9D (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea;
+			
+			ea = (operand + core.x) & 0xffff;
+			if (((ea ^ operand) & 0xff00) != 0) extra = 1;
+			core.write (ea, core.a);
+			return (extra);
+		}
+		
+		// STZ ABX
+		protected final int op9E (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea;
+			
+			ea = (operand + core.x) & 0xffff;
+			if (((ea ^ operand) & 0xff00) != 0) extra = 1;
+			core.write (ea, 0);
+			return (extra);
+		}
+		
+		// BBS1 ZPG,REL
+		protected final int op9F (int operand, int next)
+		{
+			int			ea, ma;
+			
+			core.pc = next;
+			ma = operand & 0xff;
+			ea = operand >> 8;
+			if ((core.read (ma) & 0x02) != 0) core.pc = ea;
+			return (0);
+		}
+		
+		// LDY IMM
+		protected final int opA0 (int operand, int next)
+		{
+			core.y = operand;
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.y];
+			return (0);
+		}
+		
+		// LDA IZX
+		protected final int opA1 (int operand, int next)
+		{
+			int			ea, ma;
+			
+			ma = (operand + core.x) & 0xff;
+			ea = core.read (ma) | (core.read ((ma + 1) & 0xff) << 8);
+			core.a = core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// LDX IMM
+		protected final int opA2 (int operand, int next)
+		{
+			core.x = operand;
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.x];
+			return (0);
+		}
+		
+		// LDY ZPG
+		protected final int opA4 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.y = core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.y];
+			return (0);
+		}
+		
+		// LDA ZPG
+		protected final int opA5 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.a = core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// LDX ZPG
+		protected final int opA6 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.x = core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.x];
+			return (0);
+		}
+		
+		// SMB2 ZPG
+		protected final int opA7 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.write (ea, core.read (ea) | 0x04);
+			return (0);
+		}
+		
+		// TAY
+		protected final int opA8 (int operand, int next)
+		{
+			core.y = core.a;
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.y];
+			return (0);
+		}
+		
+		// LDA IMM
+		protected final int opA9 (int operand, int next)
+		{
+			core.a = operand;
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// TAX
+		protected final int opAA (int operand, int next)
+		{
+			core.x = core.a;
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.x];
+			return (0);
+		}
+		
+		// LDY ABS
+		protected final int opAC (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.y = core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.y];
+			return (0);
+		}
+		
+		// LDA ABS
+		protected final int opAD (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.a = core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// LDX ABS
+		protected final int opAE (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.x = core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.x];
+			return (0);
+		}
+		
+		// BBS2 ZPG,REL
+		protected final int opAF (int operand, int next)
+		{
+			int			ea, ma;
+			
+			core.pc = next;
+			ma = operand & 0xff;
+			ea = operand >> 8;
+			if ((core.read (ma) & 0x04) != 0) core.pc = ea;
+			return (0);
+		}
+		
+		// BCS REL
+		protected final int opB0 (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea;
+			
+			core.pc = next;
+			ea = operand;
+			if ((core.p & F_C) != 0) {
+				if (((core.pc ^ ea) & 0xff00) != 0) ++extra;
+				core.pc = ea;
+				++extra;
+			}
+			return (extra);
+		}
+		
+		// LDA IZY
+		protected final int opB1 (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea, ma;
+			
+			ma = core.read (operand) | (core.read ((operand + 1) & 0xff) << 8);
+			ea = (ma + core.y) & 0xffff;
+			if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+			core.a = core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (extra);
+		}
+		
+		// LDA IZP
+		protected final int opB2 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = core.read (operand) | (core.read ((operand + 1) & 0xff) << 8);
+			core.a = core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// LDY ZPX
+		protected final int opB4 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = (operand + core.x) & 0xff;
+			core.y = core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.y];
+			return (0);
+		}
+		
+		// LDA ZPX
+		protected final int opB5 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = (operand + core.x) & 0xff;
+			core.a = core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (0);
+		}
+		
+		// LDX ZPY
+		protected final int opB6 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = (operand + core.y) & 0xff;
+			core.x = core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.x];
+			return (0);
+		}
+		
+		// SMB3 ZPG
+		protected final int opB7 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.write (ea, core.read (ea) | 0x08);
+			return (0);
+		}
+		
+		// CLV
+		protected final int opB8 (int operand, int next)
+		{
+			core.p &= ~F_V;
+			return (0);
+		}
+		
+		// LDA ABY
+		protected final int opB9 (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea;
+			
+			ea = (operand + core.y) & 0xffff;
+			if (((ea ^ operand) & 0xff00) != 0) extra = 1;
+			core.a = core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (extra);
+		}
+		
+		// TSX
+		protected final int opBA (int operand, int next)
+		{
+			core.x = core.s;
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.x];
+			return (0);
+		}
+		
+		// LDY ABX
+		protected final int opBC (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea;
+			
+			ea = (operand + core.x) & 0xffff;
+			if (((ea ^ operand) & 0xff00) != 0) extra = 1;
+			core.y = core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.y];
+			return (extra);
+		}
+		
+		// LDA ABX
+		protected final int opBD (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea;
+			
+			ea = (operand + core.x) & 0xffff;
+			if (((ea ^ operand) & 0xff00) != 0) extra = 1;
+			core.a = core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.a];
+			return (extra);
+		}
+		
+		// LDX ABY
+		protected final int opBE (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea;
+			
+			ea = (operand + core.y) & 0xffff;
+			if (((ea ^ operand) & 0xff00) != 0) extra = 1;
+			core.x = core.read (ea);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.x];
+			return (extra);
+		}
+		
+		// BBS3 ZPG,REL
+		protected final int opBF (int operand, int next)
+		{
+			int			ea, ma;
+			
+			core.pc = next;
+			ma = operand & 0xff;
+			ea = operand >> 8;
+			if ((core.read (ma) & 0x08) != 0) core.pc = ea;
+			return (0);
+		}
+		
+		// CPY IMM
+		protected final int opC0 (int operand, int next)
+		{
+			core.p = compare (core.y, operand, core.p);
+			return (0);
+		}
+		
+		// CMP IZX
+		protected final int opC1 (int operand, int next)
+		{
+			int			ea, ma;
+			
+			ma = (operand + core.x) & 0xff;
+			ea = core.read (ma) | (core.read ((ma + 1) & 0xff) << 8);
+			core.p = compare (core.a, core.read (ea), core.p);
+			return (0);
+		}
+		
+		// CPY ZPG
+		protected final int opC4 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.p = compare (core.y, core.read (ea), core.p);
+			return (0);
+		}
+		
+		// CMP ZPG
+		protected final int opC5 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.p = compare (core.a, core.read (ea), core.p);
+			return (0);
+		}
+		
+		// DEC ZPG
+		protected final int opC6 (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = operand;
+			m = (core.read (ea) - 1) & 0xff;
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [m];
+			core.write (ea, m);
+			return (0);
+		}
+		
+		// SMB4 ZPG
+		protected final int opC7 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.write (ea, core.read (ea) | 0x10);
+			return (0);
+		}
+		
+		// INY
+		protected final int opC8 (int operand, int next)
+		{
+			core.y = (core.y + 1) & 0xff;
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.y];
+			return (0);
+		}
+		
+		// CMP IMM
+		protected final int opC9 (int operand, int next)
+		{
+			core.p = compare (core.a, operand, core.p);
+			return (0);
+		}
+		
+		// DEX
+		protected final int opCA (int operand, int next)
+		{
+			core.x = (core.x - 1) & 0xff;
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.x];
+			return (0);
+		}
+		
+		// WAI
+		protected final int opCB (int operand, int next)
+		{
+			core.pc = (next - 1) & 0xffff;
+			return (0);
+		}
+		
+		// CPY ABS
+		protected final int opCC (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.p = compare (core.y, core.read (ea), core.p);
+			return (0);
+		}
+		
+		// CMP ABS
+		protected final int opCD (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.p = compare (core.a, core.read (ea), core.p);
+			return (0);
+		}
+		
+		// DEC ABS
+		protected final int opCE (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = operand;
+			m = (core.read (ea) - 1) & 0xff;
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [m];
+			core.write (ea, m);
+			return (0);
+		}
+		
+		// BBS4 ZPG,REL
+		protected final int opCF (int operand, int next)
+		{
+			int			ea, ma;
+			
+			core.pc = next;
+			ma = operand & 0xff;
+			ea = operand >> 8;
+			if ((core.read (ma) & 0x10) != 0) core.pc = ea;
+			return (0);
+		}
+		
+		// BNE REL
+		protected final int opD0 (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea;
+			
+			core.pc = next;
+			ea = operand;
+			if ((core.p & F_Z) == 0) {
+				if (((core.pc ^ ea) & 0xff00) != 0) ++extra;
+				core.pc = ea;
+				++extra;
+			}
+			return (extra);
+		}
+		
+		// CMP IZY
+		protected final int opD1 (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea, ma;
+			
+			ma = core.read (operand) | (core.read ((operand + 1) & 0xff) << 8);
+			ea = (ma + core.y) & 0xffff;
+			if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+			core.p = compare (core.a, core.read (ea), core.p);
+			return (extra);
+		}
+		
+		// CMP IZP
+		protected final int opD2 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = core.read (operand) | (core.read ((operand + 1) & 0xff) << 8);
+			core.p = compare (core.a, core.read (ea), core.p);
+			return (0);
+		}
+		
+		// CMP ZPX
+		protected final int opD5 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = (operand + core.x) & 0xff;
+			core.p = compare (core.a, core.read (ea), core.p);
+			return (0);
+		}
+		
+		// DEC ZPX
+		protected final int opD6 (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = (operand + core.x) & 0xff;
+			m = (core.read (ea) - 1) & 0xff;
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [m];
+			core.write (ea, m);
+			return (0);
+		}
+		
+		// SMB5 ZPG
+		protected final int opD7 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.write (ea, core.read (ea) | 0x20);
+			return (0);
+		}
+		
+		// CLD
+		protected final int opD8 (int operand, int next)
+		{
+			core.p &= ~F_D;
+			return (0);
+		}
+		
+		// CMP ABY
+		protected final int opD9 (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea;
+			
+			ea = (operand + core.y) & 0xffff;
+			if (((ea ^ operand) & 0xff00) != 0) extra = 1;
+			core.p = compare (core.a, core.read (ea), core.p);
+			return (extra);
+		}
+		
+		// PHX
+		protected final int opDA (int operand, int next)
+		{
+			core.write (0x0100 + core.s, core.x);
+			core.s = (core.s - 1) & 0xff;
+			return (0);
+		}
+		
+		// STP
+		protected final int opDB (int operand, int next)
+		{
+			core.pc = (next - 1) & 0xffff;
+			return (0);
+		}
+		
+		// CMP ABX
+		protected final int opDD (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea;
+			
+			ea = (operand + core.x) & 0xffff;
+			if (((ea ^ operand) & 0xff00) != 0) extra = 1;
+			core.p = compare (core.a, core.read (ea), core.p);
+			return (extra);
+		}
+		
+		// DEC ABX
+		protected final int opDE (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea, m;
+			
+			ea = (operand + core.x) & 0xffff;
+			if (((ea ^ operand) & 0xff00) != 0) extra = 1;
+			m = (core.read (ea) - 1) & 0xff;
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [m];
+			core.write (ea, m);
+			return (extra);
+		}
+		
+		// BBS5 ZPG,REL
+		protected final int opDF (int operand, int next)
+		{
+			int			ea, ma;
+			
+			core.pc = next;
+			ma = operand & 0xff;
+			ea = operand >> 8;
+			if ((core.read (ma) & 0x20) != 0) core.pc = ea;
+			return (0);
+		}
+		
+		// CPX IMM
+		protected final int opE0 (int operand, int next)
+		{
+			core.p = compare (core.x, operand, core.p);
+			return (0);
+		}
+		
+		// SBC IZX
+		protected final int opE1 (int operand, int next)
+		{
+			int			ea, ma, m;
+			
+			ma = (operand + core.x) & 0xff;
+			ea = core.read (ma) | (core.read ((ma + 1) & 0xff) << 8);
+			m = sbc (core.a, core.read (ea), core.p);
+			core.a = m & 0xff;
+			core.p = m >> 8;
+			return (0);
+		}
+		
+		// CPX ZPG
+		protected final int opE4 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.p = compare (core.x, core.read (ea), core.p);
+			return (0);
+		}
+		
+		// SBC ZPG
+		protected final int opE5 (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = operand;
+			m = sbc (core.a, core.read (ea), core.p);
+			core.a = m & 0xff;
+			core.p = m >> 8;
+			return (0);
+		}
+		
+		// INC ZPG
+		protected final int opE6 (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = operand;
+			m = (core.read (ea) + 1) & 0xff;
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [m];
+			core.write (ea, m);
+			return (0);
+		}
+		
+		// SMB6 ZPG
+		protected final int opE7 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.write (ea, core.read (ea) | 0x40);
+			return (0);
+		}
+		
+		// INX
+		protected final int opE8 (int operand, int next)
+		{
+			core.x = (core.x + 1) & 0xff;
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.x];
+			return (0);
+		}
+		
+		// SBC IMM
+		protected final int opE9 (int operand, int next)
+		{
+			int			m;
+			
+			m = sbc (core.a, operand, core.p);
+			core.a = m & 0xff;
+			core.p = m >> 8;
+			return (0);
+		}
+		
+		// NOP
+		protected final int opEA (int operand, int next)
+		{
+			return (0);
+		}
+		
+		// CPX ABS
+		protected final int opEC (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.p = compare (core.x, core.read (ea), core.p);
+			return (0);
+		}
+		
+		// SBC ABS
+		protected final int opED (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = operand;
+			m = sbc (core.a, core.read (ea), core.p);
+			core.a = m & 0xff;
+			core.p = m >> 8;
+			return (0);
+		}
+		
+		// INC ABS
+		protected final int opEE (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = operand;
+			m = (core.read (ea) + 1) & 0xff;
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [m];
+			core.write (ea, m);
+			return (0);
+		}
+		
+		// BBS6 ZPG,REL
+		protected final int opEF (int operand, int next)
+		{
+			int			ea, ma;
+			
+			core.pc = next;
+			ma = operand & 0xff;
+			ea = operand >> 8;
+			if ((core.read (ma) & 0x40) != 0) core.pc = ea;
+			return (0);
+		}
+		
+		// BEQ REL
+		protected final int opF0 (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea;
+			
+			core.pc = next;
+			ea = operand;
+			if ((core.p & F_Z) != 0) {
+				if (((core.pc ^ ea) & 0xff00) != 0) ++extra;
+				core.pc = ea;
+				++extra;
+			}
+			return (extra);
+		}
+		
+		// SBC IZY
+		protected final int opF1 (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea, ma, m;
+			
+			ma = core.read (operand) | (core.read ((operand + 1) & 0xff) << 8);
+			ea = (ma + core.y) & 0xffff;
+			if (((ea ^ ma) & 0xff00) != 0) extra = 1;
+			m = sbc (core.a, core.read (ea), core.p);
+			core.a = m & 0xff;
+			core.p = m >> 8;
+			return (extra);
+		}
+		
+		// SBC IZP
+		protected final int opF2 (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = core.read (operand) | (core.read ((operand + 1) & 0xff) << 8);
+			m = sbc (core.a, core.read (ea), core.p);
+			core.a = m & 0xff;
+			core.p = m >> 8;
+			return (0);
+		}
+		
+		// SBC ZPX
+		protected final int opF5 (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = (operand + core.x) & 0xff;
+			m = sbc (core.a, core.read (ea), core.p);
+			core.a = m & 0xff;
+			core.p = m >> 8;
+			return (0);
+		}
+		
+		// INC ZPX
+		protected final int opF6 (int operand, int next)
+		{
+			int			ea, m;
+			
+			ea = (operand + core.x) & 0xff;
+			m = (core.read (ea) + 1) & 0xff;
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [m];
+			core.write (ea, m);
+			return (0);
+		}
+		
+		// SMB7 ZPG
+		protected final int opF7 (int operand, int next)
+		{
+			int			ea;
+			
+			ea = operand;
+			core.write (ea, core.read (ea) | 0x80);
+			return (0);
+		}
+		
+		// SED
+		protected final int opF8 (int operand, int next)
+		{
+			core.p |= F_D;
+			return (0);
+		}
+		
+		// SBC ABY
+		protected final int opF9 (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea, m;
+			
+			ea = (operand + core.y) & 0xffff;
+			if (((ea ^ operand) & 0xff00) != 0) extra = 1;
+			m = sbc (core.a, core.read (ea), core.p);
+			core.a = m & 0xff;
+			core.p = m >> 8;
+			return (extra);
+		}
+		
+		// PLX
+		protected final int opFA (int operand, int next)
+		{
+			core.s = (core.s + 1) & 0xff;
+			core.x = core.read (0x0100 + core.s);
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [core.x];
+			return (0);
+		}
+		
+		// SBC ABX
+		protected final int opFD (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea, m;
+			
+			ea = (operand + core.x) & 0xffff;
+			if (((ea ^ operand) & 0xff00) != 0) extra = 1;
+			m = sbc (core.a, core.read (ea), core.p);
+			core.a = m & 0xff;
+			core.p = m >> 8;
+			return (extra);
+		}
+		
+		// INC ABX
+		protected final int opFE (int operand, int next)
+		{
+			int			extra = 0;
+			int			ea, m;
+			
+			ea = (operand + core.x) & 0xffff;
+			if (((ea ^ operand) & 0xff00) != 0) extra = 1;
+			m = (core.read (ea) + 1) & 0xff;
+			core.p = (core.p & ~(F_N | F_Z)) | NZ [m];
+			core.write (ea, m);
+			return (extra);
+		}
+		
+		// BBS7 ZPG,REL
+		protected final int opFF (int operand, int next)
+		{
+			int			ea, ma;
+			
+			core.pc = next;
+			ma = operand & 0xff;
+			ea = operand >> 8;
+			if ((core.read (ma) & 0x80) != 0) core.pc = ea;
+			return (0);
+		}
+	}
+}
@@ -21,6 +21,9 @@
  */
 package uk.co.demon.obelisk.xapp;
 
+import java.io.PrintStream;
+import java.util.Vector;
+
 /**
  * The <CODE>Application</CODE> class provides a basic application framework
  * suitable for any program. Derived classes extend its functionality and
@@ -32,13 +35,14 @@ package uk.co.demon.obelisk.xapp;
 public abstract class Application
 {
 	/**
-	 * Returns the current <CODE>Application</CODE> instance.
+	 * Returns the <CODE>Application</CODE> instance most recently created or
+	 * run by the calling thread.
 	 *
 	 * @return	The <CODE>Application</CODE> instance.
 	 */
 	public static Application getApplication ()
 	{
-		return (application);
+		return (application.get ());
 	}
 
 	/**
@@ -50,7 +54,8 @@ public abstract class Application
 	public void run (
 	String			arguments [])
 	{
-		this.arguments = Option.processOptions (arguments);
+		application.set (this);
+		this.arguments = Option.processOptions (options, arguments);
 		
 		startUp ();
 		while (!finished)
@@ -96,7 +101,7 @@ public abstract class Application
 	 */
 	protected Application ()
 	{
-		application = this;
+		application.set (this);
 	}
 
 	/**
@@ -107,12 +112,16 @@ public abstract class Application
 	protected void startUp ()
 	{
 		if (helpOption.isPresent ()) {
-			System.err.println ("Usage:\n    java " + this.getClass ().getName ()
-					+ Option.listOptions () + describeArguments ());
-			System.err.println ();
-			System.err.println ("Options:");
-			Option.describeOptions ();
-			System.exit (1);
+			PrintStream		stream = getMessageStream ();
+			
+			stream.println ("Usage:\n    java " + this.getClass ().getName ()
+					+ Option.listOptions (options) + describeArguments ());
+			stream.println ();
+			stream.println ("Options:");
+			Option.describeOptions (options, stream);
+			
+			if (isExitOnError ()) System.exit (1);
+			setFinished (true);
 		}
 	}
 
@@ -130,6 +139,17 @@ public abstract class Application
 	protected void cleanUp ()
 	{ }
 	
+	/**
+	 * Records an <CODE>Option</CODE> belonging to this <CODE>Application</CODE>
+	 * so that it will be matched against the command line.
+	 * 
+	 * @param	option			The <CODE>Option</CODE> to be added.
+	 */
+	final void addOption (final Option option)
+	{
+		options.add (option);
+	}
+	
 	/**
 	 * Provides a text description of the arguments expected after the options
 	 * (if any), for example "file ...". This method should be overridden in a
@@ -142,6 +162,30 @@ public abstract class Application
 		return ("");
 	}
 
+	/**
+	 * Returns the <CODE>PrintStream</CODE> to which usage information and
+	 * errors are written. The default implementation returns
+	 * <CODE>System.err</CODE>.
+	 * 
+	 * @return	The message <CODE>PrintStream</CODE>.
+	 */
+	protected PrintStream getMessageStream ()
+	{
+		return (System.err);
+	}
+	
+	/**
+	 * Determines whether a usage error terminates the JVM. Applications
+	 * that can be run within another process override this so that they
+	 * finish instead. The default implementation returns <CODE>true</CODE>.
+	 * 
+	 * @return	<CODE>true</CODE> if the JVM should exit on a usage error.
+	 */
+	protected boolean isExitOnError ()
+	{
+		return (true);
+	}
+	
 	/**
 	 * Provides access to the command line arguments after any processing
 	 * has been applied.
@@ -212,15 +256,21 @@ public abstract class Application
 	}
 
 	/**
-	 * The one and only <CODE>Application</CODE> instance.
+	 * The current <CODE>Application</CODE> instance for each thread.
+	 */
+	private static ThreadLocal<Application>	application
+		= new ThreadLocal<Application> ();
+	
+	/**
+	 * The set of <CODE>Option</CODE> instances defined by this application.
 	 */
-	private static Application	application 		= null;
+	private Vector<Option>		options				= new Vector<Option> ();
 
 	/**
 	 * The <CODE>Option</CODE> instance use to detect <CODE>-help</CODE>
 	 */
 	private Option				helpOption
-		= new Option ("-help",	"Displays help information");
+		= new Option (this, "-help",	"Displays help information");
 
 	/**
 	 * The command line arguments after processing.
@@ -22,6 +22,7 @@
 
 package uk.co.demon.obelisk.xapp;
 
+import java.io.PrintStream;
 import java.util.Enumeration;
 import java.util.Vector;
 
@@ -42,30 +43,33 @@ public final class Option
 	 * Constructs a <CODE>Option</CODE> instance for an option that has an
 	 * associated parameter value (e.g. -output &lt;file&gt;).
 	 *
+	 * @param	owner			The <CODE>Application</CODE> it belongs to.
 	 * @param	name			The name of the option (e.g. -output).
 	 * @param	description		A description of the options purpose.
 	 * @param	parameter		A description of the required parameter or
 	 *							<CODE>null</CODE> if none allowed.
 	 */
-	public Option (final String	name, final String description, final String parameter)
+	public Option (final Application owner, final String name, final String description,
+			final String parameter)
 	{
 		this.name		 = name;
 		this.description = description;
 		this.parameter   = parameter;
 		
-		options.addElement (this);	
+		owner.addOption (this);
 	}
 	
 	/**
 	 * Constructs a <CODE>Option</CODE> instance for an option that does not
 	 * have a parameter.
 	 *
+	 * @param	owner			The <CODE>Application</CODE> it belongs to.
 	 * @param	name			The name of the option (e.g. -output).
 	 * @param	description		A description of the options purpose.
 	 */
-	public Option (final String	name, final String description)
+	public Option (final Application owner, final String name, final String description)
 	{
-		this (name, description, null);
+		this (owner, name, description, null);
 	}
 	
 	/**
@@ -106,15 +110,22 @@ public final class Option
 	 * values. A -help option is automatically added to allow the user to
 	 * print out all the available options.
 	 *
+	 * @param	options			The <CODE>Option</CODE> instances to match.
 	 * @param	arguments		The command line arguments passed to <CODE>main</CODE>.
 	 * @return	The remaining command line arguments after options have been
 	 *			removed.
 	 */
-	public static String [] processOptions (final String arguments [])
+	public static String [] processOptions (final Vector<Option> options, final String arguments [])
 	{
 		int				index;
 		String			remainder [];
 		
+		// Forget the options from any earlier run of the same application
+		for (Option option : options) {
+			option.present = false;
+			option.value   = null;
+		}
+		
 		// Attempt to match options with command line
 		for (index = 0; index < arguments.length; ++index) {
 			Enumeration<Option> cursor = options.elements ();
@@ -146,9 +157,10 @@ public final class Option
 	/**
 	 * Returns a string describing the available command line options.
 	 * 
+	 * @param	options			The <CODE>Option</CODE> instances to describe.
 	 * @return	A string describing the command line options.
 	 */
-	public static String listOptions ()
+	public static String listOptions (final Vector<Option> options)
 	{
 		StringBuffer	buffer = new StringBuffer ();
 		Enumeration<Option>	cursor = options.elements ();
@@ -172,8 +184,22 @@ public final class Option
 	
 	/**
 	 * Prints out a description of the options and their parameters.
+	 * 
+	 * @param	options			The <CODE>Option</CODE> instances to describe.
+	 */
+	public static void describeOptions (final Vector<Option> options)
+	{
+		describeOptions (options, System.err);
+	}
+	
+	/**
+	 * Prints out a description of the options and their parameters to the
+	 * given stream.
+	 * 
+	 * @param	options			The <CODE>Option</CODE> instances to describe.
+	 * @param	stream			The <CODE>PrintStream</CODE> to write to.
 	 */
-	public static void describeOptions ()
+	public static void describeOptions (final Vector<Option> options, final PrintStream stream)
 	{
 		String 		spaces = "                                            ";
 		Enumeration<Option> cursor = options.elements ();
@@ -182,11 +208,11 @@ public final class Option
 			Option option = cursor.nextElement ();
 		
 			if (option.parameter != null)
-				System.err.println ("    "
+				stream.println ("    "
 					+ (option.name + " " + option.parameter + spaces).substring (0, 16)
 					+ " " + option.description);
 			else
-				System.err.println ("    "
+				stream.println ("    "
 					+ (option.name + spaces).substring (0, 16)
 					+ " " + option.description);
 		}
@@ -214,11 +240,6 @@ public final class Option
 		return (buffer.toString ());
 	}
 	
-	/**
-	 * The set of all defined <CODE>Option</CODE> instances.
-	 */
-	private static Vector<Option> options	= new Vector<Option> ();
-	
 	/**
 	 * The name of the option (including any leading dash).
 	 */
@@ -22,14 +22,16 @@
 
 package uk.co.demon.obelisk.xasm;
 
-import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Constructor;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashSet;
@@ -41,7 +43,9 @@ import java.util.Vector;
 
 import uk.co.demon.obelisk.xapp.Application;
 import uk.co.demon.obelisk.xapp.Option;
+import uk.co.demon.obelisk.xobj.BinaryFormat;
 import uk.co.demon.obelisk.xobj.Expr;
+import uk.co.demon.obelisk.xobj.Jump;
 import uk.co.demon.obelisk.xobj.Extern;
 import uk.co.demon.obelisk.xobj.Hex;
 import uk.co.demon.obelisk.xobj.Module;
@@ -301,10 +305,10 @@ public abstract class Assembler extends Application
 			token = nextRealToken ();
 			if (token.getKind () == STRING) {
 				String		filename = token.getText();
-				FileInputStream	stream = findFile (filename, true);
+				Line []		lines = findSource (filename, true);
 				
-				if (stream != null)
-					sources.push (new FileSource (filename, stream));
+				if (lines != null)
+					sources.push (new FileSource (lines));
 				else
 					error (Error.ERR_FAILED_TO_FIND_FILE + "(" + filename +")");
 			}
@@ -327,11 +331,11 @@ public abstract class Assembler extends Application
 		{
 			if (token.getKind () == STRING) {
 				String		filename = token.getText();
-				FileInputStream stream = findFile (filename, false);
+				Line []		lines = findSource (filename, false);
 				
-				if (stream != null) {
+				if (lines != null) {
 					sources.pop ();
-					sources.push (new FileSource (filename, stream));
+					sources.push (new FileSource (lines));
 				}
 				else
 					error (Error.ERR_FAILED_TO_FIND_FILE + "(" + filename +")");
@@ -355,16 +359,12 @@ public abstract class Assembler extends Application
 		{
 			if (token.getKind () == STRING) {
 				String		filename = token.getText();
-				FileInputStream	stream = findFile (filename, false);
+				File		file = findFile (filename, false);
 				
-				if (stream != null) {
-					BufferedInputStream	buffer = new BufferedInputStream (stream);
-					
+				if (file != null) {
 					try {
-						for (int ch; (ch = buffer.read ()) != -1;)
-							addByte (ch);
-			
-						buffer.close ();
+						for (byte ch : cache.getBytes (file))
+							addByte (ch & 0xff);
 					}
 					catch (IOException error) {
 						error (Error.ERR_INSERT_IO_ERROR );
@@ -515,6 +515,9 @@ public abstract class Assembler extends Application
 				long	value = expr.resolve (null, null);
 				long	count = origin.resolve () % value;
 				
+				// The padding is only right if nothing before it can move
+				if (section != null) section.fixJumps ();
+				
 				while ((count > 0) && (count++ != value))
 					addByte (0);
 			}
@@ -1193,6 +1196,23 @@ public abstract class Assembler extends Application
 		}
 	};
 
+	/**
+	 * An <CODE>Opcode</CODE> that handles .KEEP directives. The current
+	 * section is marked so that the linker will not discard it during
+	 * dead section elimination.
+	 */
+	protected final Opcode		KEEP		= new Opcode (KEYWORD, ".KEEP")
+	{
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean compile ()
+		{
+			section.setKeep (true);
+			return (false);
+		}
+	};
+	
 	/**
 	 * An <CODE>Opcode</CODE> that handles .GLOBAL directives
 	 */
@@ -1344,6 +1364,7 @@ public abstract class Assembler extends Application
 	protected void startUp ()
 	{
 		super.startUp ();
+		if (isFinished ()) return;
 		
 		if (defineOption.isPresent ()) {
 			String[] defines = defineOption.getValue().split(",");
@@ -1369,20 +1390,31 @@ public abstract class Assembler extends Application
 				}
 						
 				default:
-					System.err.println ("Error: Invalid define (" + defines [index] + ")");
+					messages.println ("Error: Invalid define (" + defines [index] + ")");
 					setFinished (true);
 				}
 			}
 		}
 		
+		if (passesOption.isPresent ()) {
+			try {
+				if ((maxPasses = Integer.parseInt (passesOption.getValue ())) < 3)
+					throw new NumberFormatException ();
+			}
+			catch (NumberFormatException error) {
+				messages.println ("Error: Invalid pass count (" + passesOption.getValue () + ")");
+				setFinished (true);
+			}
+		}
+		
 		switch (getArguments ().length) {
-		case 0:		System.err.println ("Error: No source file name provided");
+		case 0:		messages.println ("Error: No source file name provided");
 					setFinished (true);
 					break;
 					
 		case 1:		break;
 		
-		default:	System.err.println ("Error: Only one source file may be given");
+		default:	messages.println ("Error: Only one source file may be given");
 					setFinished (true);
 					break;
 		}
@@ -1410,7 +1442,189 @@ public abstract class Assembler extends Application
 	 */
 	protected void cleanUp ()
 	{
-		if (errors > 0) System.exit (1);
+		if ((errors > 0) && exitOnError) System.exit (1);
+	}
+	
+	/**
+	 * Returns the number of errors reported by the last pass.
+	 * 
+	 * @return	The error count.
+	 */
+	public int getErrorCount ()
+	{
+		return (errors);
+	}
+	
+	/**
+	 * Returns the number of warnings reported by the last pass.
+	 * 
+	 * @return	The warning count.
+	 */
+	public int getWarningCount ()
+	{
+		return (warnings);
+	}
+	
+	/**
+	 * Sets the <CODE>PrintStream</CODE> to which error and warning messages
+	 * are written. By default this is <CODE>System.err</CODE>.
+	 * 
+	 * @param	messages		The message <CODE>PrintStream</CODE>.
+	 */
+	public void setMessageStream (final PrintStream messages)
+	{
+		this.messages = messages;
+	}
+	
+	/**
+	 * Controls whether a failed assembly terminates the JVM. This must be
+	 * disabled when several assemblies are run within one process.
+	 * 
+	 * @param	exitOnError		<CODE>true</CODE> to exit on failure.
+	 */
+	public void setExitOnError (boolean exitOnError)
+	{
+		this.exitOnError = exitOnError;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	protected PrintStream getMessageStream ()
+	{
+		return (messages);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	protected boolean isExitOnError ()
+	{
+		return (exitOnError);
+	}
+	
+	/**
+	 * Performs an assembly within the current process as described by an
+	 * <CODE>AssemblyRequest</CODE>. This method never terminates the JVM
+	 * and all the messages are captured in the result.
+	 * 
+	 * @param 	request			The <CODE>AssemblyRequest</CODE>.
+	 * @return	An <CODE>AssemblyResult</CODE> describing the outcome.
+	 */
+	public static AssemblyResult assemble (final AssemblyRequest request)
+	{
+		Assembler			assembler = create (request.getAssembler ());
+		
+		if (assembler == null) {
+			Vector<String> messages = new Vector<String> ();
+			
+			messages.add ("Error: Could not create assembler (" + request.getAssembler ().getName () + ")");
+			return (new AssemblyResult (null, null, messages, 1, 0, 0, 0));
+		}
+		return (assembler.run (request));
+	}
+	
+	/**
+	 * Creates an instance of an <CODE>Assembler</CODE> class that can be
+	 * used for any number of in process assemblies.
+	 * 
+	 * @param 	type			The <CODE>Assembler</CODE> class.
+	 * @return	The new instance or <CODE>null</CODE> if it could not be
+	 * 			created.
+	 */
+	public static Assembler create (final Class<? extends Assembler> type)
+	{
+		// Assembler constructors are protected so allow access to them
+		try {
+			Constructor<? extends Assembler> constructor
+				= type.getDeclaredConstructor ();
+			
+			constructor.setAccessible (true);
+			return (constructor.newInstance ());
+		}
+		catch (Exception error) {
+			return (null);
+		}
+	}
+	
+	/**
+	 * Performs an assembly within the current process as described by an
+	 * <CODE>AssemblyRequest</CODE>, reusing this instance and the keyword
+	 * tables built by its first run. The request's assembler class is
+	 * ignored. This method never terminates the JVM and all the messages are
+	 * captured in the result.
+	 * 
+	 * @param 	request			The <CODE>AssemblyRequest</CODE>.
+	 * @return	An <CODE>AssemblyResult</CODE> describing the outcome.
+	 */
+	public AssemblyResult run (final AssemblyRequest request)
+	{
+		ByteArrayOutputStream	buffer	= new ByteArrayOutputStream ();
+		PrintStream				stream	= new PrintStream (buffer, true);
+		long					start	= System.nanoTime ();
+		
+		reset ();
+		
+		setMessageStream (stream);
+		setExitOnError (false);
+		writeFiles = request.isWriteFiles ();
+		directory  = request.getDirectory ();
+		
+		for (String name : request.getTexts ().keySet ())
+			cache.addText (resolve (name), request.getTexts ().get (name));
+		
+		try {
+			run (request.getArguments ());
+		}
+		catch (RuntimeException error) {
+			stream.println ("Error: " + request.getFileName () + " " + error);
+			++errors;
+		}
+		stream.close ();
+		
+		// Invalid options stop the assembly before the first pass
+		int failures = errors;
+		if (passCount == 0) failures = Math.max (failures, 1);
+		
+		Vector<String> messages = new Vector<String> (
+				Arrays.asList (buffer.toString ().split ("\\r?\\n")));
+		messages.remove ("");
+		
+		return (new AssemblyResult (module,
+				(listingText != null) ? listingText.toString () : null,
+				messages, failures, warnings, passCount,
+				System.nanoTime () - start));
+	}
+	
+	/**
+	 * Discards the state left by an earlier run so that the instance can
+	 * assemble another source file. Subclasses that hold state across
+	 * passes reset it in <CODE>startUp</CODE>.
+	 */
+	private void reset ()
+	{
+		setFinished (false);
+		
+		module = new Module (module.getTarget (), module.isBigEndian (), module.getByteSize ());
+		cache  = new SourceCache ();
+		
+		symbols.clear ();
+		variable.clear ();
+		globals.clear ();
+		notLocal.clear ();
+		externs.clear ();
+		macros.clear ();
+		sources.clear ();
+		tokens.clear ();
+		status.clear ();
+		
+		macroName	= null;
+		listFile	= null;
+		listingText	= null;
+		maxPasses	= MAX_PASSES;
+		passCount	= 0;
+		errors		= 0;
+		warnings	= 0;
 	}
 	
 	/**
@@ -1504,6 +1718,30 @@ public abstract class Assembler extends Application
 		memory.addLong (module, section, expr);
 	}
 	
+	/**
+	 * Adds a relaxable jump to the output memory area.
+	 * 
+	 * @param	jump		The <CODE>Jump</CODE> to add.
+	 */
+	protected void addJump (final Jump jump)
+	{
+		memory.addJump (module, section, jump);
+	}
+	
+	/**
+	 * Calculates the difference between two expressions. A processor that
+	 * lets the linker move code within a section overrides this to leave
+	 * the distance between two locations in the same section relocatable.
+	 * 
+	 * @param	lhs			The left hand side.
+	 * @param	rhs			The right hand side.
+	 * @return	The resulting value as an <CODE>Expr</CODE>.
+	 */
+	protected Expr distance (final Expr lhs, final Expr rhs)
+	{
+		return (Expr.sub (lhs, rhs));
+	}
+	
 	/**
 	 * Adds a literal byte value to the output memory area.
 	 * 
@@ -1629,12 +1867,44 @@ public abstract class Assembler extends Application
 	 */
 	protected boolean assemble (final String fileName)
 	{
+		Vector<String>	unstable = null;
+
+		// Each file is read once and replayed from memory on later passes
+		cache.clear ();
+		streams.clear ();
+
 		if (!assemble (Pass.FIRST, fileName)) return (false);
-		if (!assemble (Pass.INTERMEDIATE, fileName)) return (false);
-		if (!assemble (Pass.INTERMEDIATE, fileName)) return (false);
-		if (!assemble (Pass.INTERMEDIATE, fileName)) return (false);
+
+		// Repeat intermediate passes until the symbols and sections settle
+		if (isSupportedPass (Pass.INTERMEDIATE)) {
+			Snapshot	last = new Snapshot ();
+
+			for (int passes = 2;; ++passes) {
+				if (passes >= maxPasses) {
+					unstable = last.getUnstable ();
+					break;
+				}
+
+				if (!assemble (Pass.INTERMEDIATE, fileName)) return (false);
+
+				Snapshot	next = new Snapshot (last);
+
+				if (next.equals (last)) break;
+				last = next;
+			}
+		}
+
 		if (!assemble (Pass.FINAL, fileName)) return (false);
-	
+
+		if (unstable != null) {
+			String msg = "Error: Symbols failed to converge after "
+					+ maxPasses + " passes: " + unstable;
+
+			messages.println (msg);
+			paginate (msg);
+			++errors;
+		}
+
 		// Add globally define symbols to the object module. 
 		for (Iterator<String> cursor = globals.iterator (); cursor.hasNext();) {
 			String name = cursor.next ();
@@ -1648,20 +1918,30 @@ public abstract class Assembler extends Application
 		
 		// Write the object module
 		if (errors == 0) {
-			try {
-				String objectName = getObjectFile (fileName);
-				
-				module.setName (new File (objectName).getName ());
-				
-				PrintStream		stream
-					= new PrintStream (new FileOutputStream (objectName));
-				
-				stream.println ("<?xml version='1.0'?>" + module);
-				stream.close ();
-			}
-			catch (Exception error) {
-				System.err.println ("Error: Could not write object module");
-				System.exit (1);
+			String objectName = getObjectFile (fileName);
+			
+			module.setName (new File (objectName).getName ());
+			
+			if (writeFiles) {
+				try {
+					if (binaryOption.isPresent ()) {
+						BufferedOutputStream	stream
+							= new BufferedOutputStream (new FileOutputStream (resolve (objectName)));
+						
+						BinaryFormat.write (module, stream);
+						stream.close ();
+					}
+					else {
+						PrintStream		stream
+							= new PrintStream (new FileOutputStream (resolve (objectName)));
+						
+						stream.println ("<?xml version='1.0'?>" + module);
+						stream.close ();
+					}
+				}
+				catch (Exception error) {
+					fatal ("Error: Could not write object module", 1);
+				}
 			}
 		}
 		
@@ -1752,8 +2032,14 @@ public abstract class Assembler extends Application
 		memory.clear ();
 		label		= null;
 		this.line   = line;
-		this.text   = line.getText ().toCharArray ();
+		
+		// Replay the tokens recorded for identical text in an earlier pass
+		if ((stream = streams.get (line.getText ())) == null)
+			streams.put (line.getText (), stream = new TokenStream (line.getText ()));
+
+		this.text   = stream.getText ();
 		this.offset = 0;
+		this.tokenIndex = 0;
 		
 		addr = origin = (section != null) ? section.getOrigin () : null;
 	
@@ -2043,7 +2329,30 @@ public abstract class Assembler extends Application
 		if (!(tokens.empty ()))
 			return ((Token) tokens.pop ());
 		
-		return (readToken ());
+		if (stream == null)
+			return (readToken ());
+		
+		if (tokenIndex < stream.size ()) {
+			offset = stream.getEnd (tokenIndex);
+			return (stream.getToken (tokenIndex++));
+		}
+		
+		if ((tokenIndex > 0) && (stream.getToken (tokenIndex - 1) == EOL))
+			return (EOL);
+		
+		// Scan and record the next token unless it causes a message
+		int				count = errors + warnings;
+		Token			token = readToken ();
+		
+		if (count == errors + warnings) {
+			stream.addToken (token, offset);
+			++tokenIndex;
+		}
+		else {
+			streams.remove (line.getText ());
+			stream = null;
+		}
+		return (token);
 	}
 	
 	/**
@@ -2096,7 +2405,7 @@ public abstract class Assembler extends Application
 	{
 		String		msg = "Error: " + line.getFileName() + " (" + line.getLineNumber() + ") " + text;
 		
-		System.err.println (msg);
+		messages.println (msg);
 		if (pass == Pass.FINAL)
 			paginate (msg);
 		
@@ -2112,12 +2421,27 @@ public abstract class Assembler extends Application
 	{
 		String		msg = "Warning: " + line.getFileName() + " (" + line.getLineNumber() + ") " + text;
 
-		System.err.println (msg);
+		messages.println (msg);
 		if (pass == Pass.FINAL)
 			paginate (msg);
 		
 		++warnings;
 	}
+	
+	/**
+	 * Print an error message for a problem that stops the assembly. When
+	 * run from the command line the JVM exits with the given status.
+	 * 
+	 * @param 	text			Then text for message.
+	 * @param	status			The exit status.
+	 */
+	private void fatal (final String text, int status)
+	{
+		messages.println (text);
+		if (exitOnError) System.exit (status);
+		
+		++errors;
+	}
 
 	/**
 	 * Returns the current section origin,
@@ -2266,19 +2590,74 @@ public abstract class Assembler extends Application
 	/**
 	 * General string buffer area.
 	 */
-	private static StringBuffer	buffer	= new StringBuffer ();
+	private StringBuffer		buffer	= new StringBuffer ();
+	
+	/**
+	 * The <CODE>PrintStream</CODE> used to report errors and warnings.
+	 */
+	private PrintStream			messages	= System.err;
+	
+	/**
+	 * Determines whether a failed assembly terminates the JVM.
+	 */
+	private boolean				exitOnError	= true;
+	
+	/**
+	 * Determines whether the listing and object files are written to disk.
+	 * If not the listing is captured in memory.
+	 */
+	private boolean				writeFiles	= true;
+	
+	/**
+	 * The captured listing text when files are not being written.
+	 */
+	private StringWriter		listingText	= null;
+	
+	/**
+	 * The number of passes made over the source.
+	 */
+	private int					passCount	= 0;
+	
+	/**
+	 * The directory against which relative file names are resolved or
+	 * <CODE>null</CODE> for the current directory.
+	 */
+	private File				directory	= null;
 	
 	/**
 	 * The <CODE>Option</CODE> instance used to detect <CODE>-define</CODE>
 	 */
 	private Option				defineOption
-		= new Option ("-define", "Define symbols", "(symbol|symbol=value)(,..)*");
+		= new Option (this, "-define", "Define symbols", "(symbol|symbol=value)(,..)*");
 	
 	/**
 	 * The <CODE>Option</CODE> instance used to detect <CODE>-include</CODE>
 	 */
 	private Option 				includeOption
-		= new Option ("-include", "Define include path", "path[,path]*");
+		= new Option (this, "-include", "Define include path", "path[,path]*");
+
+	/**
+	 * The <CODE>Option</CODE> instance used to detect <CODE>-passes</CODE>
+	 */
+	private Option				passesOption
+		= new Option (this, "-passes", "Maximum number of passes", "<count>");
+
+	/**
+	 * The <CODE>Option</CODE> instance used to detect <CODE>-binary</CODE>
+	 */
+	private Option				binaryOption
+		= new Option (this, "-binary", "Write a binary object module");
+
+	/**
+	 * The default limit on the total number of passes.
+	 */
+	private static final int	MAX_PASSES	= 16;
+
+	/**
+	 * The limit on the total number of passes (including the first and
+	 * final passes) that may be made over the source.
+	 */
+	private int					maxPasses	= MAX_PASSES;
 
 	/**
 	 * Tab expansion size.
@@ -2347,6 +2726,11 @@ public abstract class Assembler extends Application
 	 */
 	private Stack<Source>		sources		= new Stack<Source> ();
 	
+	/**
+	 * The <CODE>SourceCache</CODE> holding the files read during this run.
+	 */
+	private SourceCache			cache		= new SourceCache ();
+	
 	/**
 	 * A <CODE>Stack</CODE> used to store previously processed tokens
 	 */
@@ -2371,6 +2755,23 @@ public abstract class Assembler extends Application
 	 */
 	private int					offset;
 	
+	/**
+	 * The <CODE>TokenStream</CODE> recorded for the current line or
+	 * <CODE>null</CODE> if it must be scanned directly.
+	 */
+	private TokenStream			stream;
+	
+	/**
+	 * The index of the next token to replay from the current stream.
+	 */
+	private int					tokenIndex;
+	
+	/**
+	 * The <CODE>TokenStream</CODE> instances indexed by line text.
+	 */
+	private HashMap<String, TokenStream>	streams
+		= new HashMap<String, TokenStream> ();
+	
 	/**
 	 * The number of errors seen during the current pass.
 	 */
@@ -2379,7 +2780,6 @@ public abstract class Assembler extends Application
 	/**
 	 * The number of warnings seen during the current pass.
 	 */
-	@SuppressWarnings("unused")
 	private int					warnings;
 	
 	/**
@@ -2444,6 +2844,7 @@ public abstract class Assembler extends Application
 	{
 		if (!isSupportedPass (this.pass = pass)) return (true);
 		
+		++passCount;
 		startPass ();
 		
 		module.clear ();
@@ -2461,19 +2862,22 @@ public abstract class Assembler extends Application
 		
 		try {
 			if (pass == Pass.FINAL) {
-				listFile = new PrintWriter (getListingFile (fileName), "ISO-8859-1");
+				if (writeFiles)
+					listFile = new PrintWriter (resolve (getListingFile (fileName)), "ISO-8859-1");
+				else
+					listFile = new PrintWriter (listingText = new StringWriter ());
 			}
 			
-			sources.push (new FileSource (fileName, new FileInputStream (fileName)));
+			sources.push (new FileSource (cache.getLines (fileName, resolve (fileName))));
 			process ();
 		}
 		catch (FileNotFoundException error) {
-			System.err.println ("Source file not found: " + fileName);
-			System.exit (2);
+			fatal ("Source file not found: " + fileName, 2);
+			return (false);
 		}
 		catch (IOException error) {
-			System.err.println ("Could not create listing file");
-			System.exit (2);
+			fatal ("Could not create listing file", 2);
+			return (false);
 		}
 		
 		endPass ();
@@ -2481,6 +2885,105 @@ public abstract class Assembler extends Application
 		return (errors == 0);
 	}
 
+	/**
+	 * The <CODE>Snapshot</CODE> class captures the value of every symbol and
+	 * the size of every section at the end of a pass so that the assembler
+	 * can tell when further passes will not change the generated code.
+	 */
+	private final class Snapshot
+	{
+		/**
+		 * Constructs a <CODE>Snapshot</CODE> of the current assembler state.
+		 */
+		public Snapshot ()
+		{
+			for (String name : symbols.keySet ())
+				values.put (name, symbols.get (name).toString ());
+
+			Vector<Section> list = module.getSections ();
+			for (int index = 0; index < list.size (); ++index) {
+				Section section = list.elementAt (index);
+
+				sizes.add (section.getName () + "@" + (section.isRelative () ? "*" : Hex.toHex (section.getStart (), 8))
+						+ "=" + section.getSize ());
+			}
+		}
+
+		/**
+		 * Constructs a <CODE>Snapshot</CODE> of the current assembler state
+		 * and records the symbols whose values differ from an earlier one.
+		 *
+		 * @param	previous		The <CODE>Snapshot</CODE> from the prior pass.
+		 */
+		public Snapshot (final Snapshot previous)
+		{
+			this ();
+
+			for (String name : values.keySet ())
+				if (!values.get (name).equals (previous.values.get (name)))
+					changed.add (name);
+			for (String name : previous.values.keySet ())
+				if (!values.containsKey (name))
+					changed.add (name);
+
+			if (!sizes.equals (previous.sizes))
+				for (String size : sizes)
+					if (!previous.sizes.contains (size))
+						changed.add (size);
+		}
+
+		/**
+		 * Returns the sorted names of the symbols (and sections) that
+		 * changed in the pass that produced this <CODE>Snapshot</CODE>.
+		 *
+		 * @return	The unstable symbol names.
+		 */
+		public Vector<String> getUnstable ()
+		{
+			String [] names = changed.toArray (new String [0]);
+			Arrays.sort (names);
+
+			return (new Vector<String> (Arrays.asList (names)));
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean equals (Object other)
+		{
+			if (other instanceof Snapshot)
+				return (values.equals (((Snapshot) other).values)
+						&& sizes.equals (((Snapshot) other).sizes));
+
+			return (false);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int hashCode ()
+		{
+			return (values.hashCode () ^ sizes.hashCode ());
+		}
+
+		/**
+		 * The symbol values as XML expression strings.
+		 */
+		private HashMap<String, String>	values	= new HashMap<String, String> ();
+
+		/**
+		 * The section names, positions and sizes.
+		 */
+		private Vector<String>			sizes	= new Vector<String> ();
+
+		/**
+		 * The symbols that changed since the previous <CODE>Snapshot</CODE>.
+		 */
+		private HashSet<String>			changed	= new HashSet<String> ();
+	}
+
 	private void setLabel (final String name, Value value)
 	{
 		if ((pass == Pass.FIRST) && symbols.containsKey (name))
@@ -2633,7 +3136,7 @@ public abstract class Assembler extends Application
 			}
 			else {
 				token = nextRealToken ();
-				expr = Expr.sub (expr, parseMulDiv ());
+				expr = distance (expr, parseMulDiv ());
 			}
 		}
 		return (expr);
@@ -2804,27 +3307,64 @@ public abstract class Assembler extends Application
 	 * 
 	 * @param 	filename		The required filename.
 	 * @param 	search			The search indicator.
-	 * @return	A <CODE>FileInputStream</CODE> attached to the file or <CODE>null</CODE>.
+	 * @return	A <CODE>File</CODE> describing the file or <CODE>null</CODE>.
 	 */
-	private FileInputStream findFile (final String filename, boolean search)
+	private File findFile (final String filename, boolean search)
 	{
-		try {
-			return (new FileInputStream (filename));
+		File		file = resolve (filename);
+		
+		if (file.isFile () || cache.contains (file))
+			return (file);
+		
+		if (search && includeOption.isPresent()) {
+			String [] paths = includeOption.getValue ().split(",");
+			
+			for (String path : paths) {
+				file = resolve (path + "/" + filename);
+				if (file.isFile () || cache.contains (file))
+					return (file);
+			}
 		}
-		catch (FileNotFoundException error) {
-			if (search && includeOption.isPresent()) {
-				String [] paths = includeOption.getValue ().split(",");
-				
-				for (String path : paths) {
-					try {
-						return (new FileInputStream (path + "/" + filename)); 
-					}
-					catch (Exception err) {
-						/* Ignore */
-					}
-				}
+		error ("Could not find the specified file");
+		return (null);
+	}
+	
+	/**
+	 * Converts a file name into a <CODE>File</CODE> resolving relative names
+	 * against the working directory of the assembly.
+	 * 
+	 * @param 	filename		The file name.
+	 * @return	The corresponding <CODE>File</CODE>.
+	 */
+	private File resolve (final String filename)
+	{
+		File		file = new File (filename);
+		
+		if (file.isAbsolute () || (directory == null))
+			return (file);
+		
+		return (new File (directory, filename));
+	}
+	
+	/**
+	 * Locates a source file and fetches its lines from the cache, reading
+	 * it if this is the first time it has been used in this run.
+	 * 
+	 * @param 	filename		The required filename.
+	 * @param 	search			The search indicator.
+	 * @return	The lines of the file or <CODE>null</CODE>.
+	 */
+	private Line [] findSource (final String filename, boolean search)
+	{
+		File		file = findFile (filename, search);
+		
+		if (file != null) {
+			try {
+				return (cache.getLines (filename, file));
+			}
+			catch (IOException error) {
+				error ("Could not read the specified file");
 			}
-			error ("Could not find the specified file");
 		}
 		return (null);
 	}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C),2005-2026 Andrew John Jacobs.
+ *
+ * This program is provided free of charge for educational purposes
+ *
+ * Redistribution and use in binary form without modification, is permitted
+ * provided that the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS 'AS IS' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package uk.co.demon.obelisk.xasm;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+
+import uk.co.demon.obelisk.xapp.Application;
+import uk.co.demon.obelisk.xapp.Option;
+
+/**
+ * The <CODE>AssemblerClient</CODE> application passes an assembly job to a
+ * running <CODE>AssemblerDaemon</CODE> and reports its results as if the
+ * assembler had been run directly. The arguments are the assembler name
+ * (e.g. As65) followed by the usual assembler command line.
+ * 
+ * @author 	Andrew Jacobs
+ * @version	$Id$
+ */
+public final class AssemblerClient extends Application
+{
+	/**
+	 * Main program entry point.
+	 * 
+	 * @param arguments		Command line arguments.
+	 */
+	public static void main (String arguments [])
+	{
+		new AssemblerClient ().run (arguments);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	protected void startUp ()
+	{
+		super.startUp ();
+		
+		if (portOption.isPresent ()) {
+			try {
+				port = Integer.parseInt (portOption.getValue ());
+			}
+			catch (NumberFormatException error) {
+				System.err.println ("Error: Invalid port number (" + portOption.getValue () + ")");
+				status = 2;
+				setFinished (true);
+				return;
+			}
+		}
+		
+		if (getArguments ().length < 2) {
+			System.err.println ("Error: No assembler and source file provided");
+			status = 2;
+			setFinished (true);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	protected void execute ()
+	{
+		StringBuffer	job = new StringBuffer (new File ("").getAbsolutePath ());
+		
+		for (String argument : getArguments ())
+			job.append ('\t').append (argument);
+		
+		try {
+			Socket			socket = new Socket (InetAddress.getLoopbackAddress (), port);
+			BufferedReader	reader = new BufferedReader (
+								new InputStreamReader (socket.getInputStream (), "ISO-8859-1"));
+			PrintWriter		writer = new PrintWriter (
+								new OutputStreamWriter (socket.getOutputStream (), "ISO-8859-1"));
+			
+			writer.println (job);
+			writer.println ("QUIT");
+			writer.flush ();
+			
+			status = 2;
+			for (String line; (line = reader.readLine ()) != null;) {
+				if (line.startsWith ("MSG "))
+					System.err.println (line.substring (4));
+				else if (line.startsWith ("EXIT "))
+					status = Integer.parseInt (line.substring (5));
+			}
+			socket.close ();
+		}
+		catch (IOException error) {
+			System.err.println ("Error: Could not contact the assembler daemon on port " + port);
+			status = 2;
+		}
+		
+		setFinished (true);
+	}
+	
+	/**
+	 * {@inheritDoc} 
+	 */
+	protected void cleanUp ()
+	{
+		if (status != 0) System.exit (status);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	protected String describeArguments ()
+	{
+		return (" <assembler> [options] <source file>");
+	}
+	
+	/**
+	 * The <CODE>Option</CODE> instance used to detect <CODE>-port</CODE>
+	 */
+	private Option				portOption
+		= new Option (this, "-port", "The port the daemon is listening on", "<port>");
+	
+	/**
+	 * The TCP port the daemon is listening on.
+	 */
+	private int					port		= AssemblerDaemon.DEFAULT_PORT;
+	
+	/**
+	 * The exit status for the client.
+	 */
+	private int					status		= 0;
+}
\ No newline at end of file
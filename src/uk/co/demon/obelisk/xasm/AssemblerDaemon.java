@@ -0,0 +1,354 @@
+/*
+ * Copyright (C),2005-2026 Andrew John Jacobs.
+ *
+ * This program is provided free of charge for educational purposes
+ *
+ * Redistribution and use in binary form without modification, is permitted
+ * provided that the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS 'AS IS' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package uk.co.demon.obelisk.xasm;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Hashtable;
+import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import uk.co.demon.obelisk.xapp.Application;
+import uk.co.demon.obelisk.xapp.Option;
+
+/**
+ * The <CODE>AssemblerDaemon</CODE> application is a long running server
+ * that performs assemblies on behalf of clients so that the cost of
+ * starting a JVM and warming up the assembler classes is only paid once.
+ * <P>
+ * Jobs are read either from a loopback TCP port (<CODE>-port</CODE>, the
+ * client uses 6502 by default) or from standard input. Each job is a single line of tab separated fields:
+ * the working directory, the assembler name and then the command line
+ * arguments exactly as they would be passed to the assembler. The daemon
+ * replies with a <CODE>MSG</CODE> line for each error or warning followed
+ * by an <CODE>EXIT</CODE> line giving the exit status. A <CODE>QUIT</CODE>
+ * line ends the session and <CODE>STOP</CODE> shuts down the server.
+ * 
+ * @author 	Andrew Jacobs
+ * @version	$Id$
+ */
+public final class AssemblerDaemon extends Application
+{
+	/**
+	 * The TCP port used when none is specified.
+	 */
+	public static final int		DEFAULT_PORT	= 6502;
+	
+	/**
+	 * Main program entry point.
+	 * 
+	 * @param arguments		Command line arguments.
+	 */
+	public static void main (String arguments [])
+	{
+		new AssemblerDaemon ().run (arguments);
+	}
+	
+	/**
+	 * Converts an assembler name into its class. The short names of the
+	 * assemblers in this package family (e.g. As65) are accepted as well
+	 * as fully qualified class names.
+	 * 
+	 * @param 	name			The assembler name.
+	 * @return	The <CODE>Assembler</CODE> class.
+	 * @throws	ClassNotFoundException If the name is not an assembler.
+	 */
+	public static Class<? extends Assembler> findAssembler (final String name)
+		throws ClassNotFoundException
+	{
+		for (String assembler : ASSEMBLERS)
+			if (assembler.endsWith ("." + name))
+				return (Class.forName (assembler).asSubclass (Assembler.class));
+		
+		try {
+			return (Class.forName (name).asSubclass (Assembler.class));
+		}
+		catch (ClassCastException error) {
+			throw new ClassNotFoundException (name);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	protected void startUp ()
+	{
+		super.startUp ();
+		
+		if (portOption.isPresent ()) {
+			try {
+				port = Integer.parseInt (portOption.getValue ());
+				// An ephemeral port is never reported so clients could not find it
+				if ((port < 1) || (port > 65535))
+					throw new NumberFormatException ();
+			}
+			catch (NumberFormatException error) {
+				System.err.println ("Error: Invalid port number (" + portOption.getValue () + ")");
+				if (isExitOnError ()) System.exit (1);
+				setFinished (true);
+				return;
+			}
+		}
+		
+		// Create each assembler and run it once to build its tables and
+		// warm up the JVM
+		for (String name : ASSEMBLERS) {
+			try {
+				Class<? extends Assembler>	type = findAssembler (name);
+				Assembler					assembler = getInstance (type);
+				
+				if (assembler != null)
+					assembler.run (new AssemblyRequest (type, "warmup.asm", "\t.END\n"));
+			}
+			catch (ClassNotFoundException error) {
+				System.err.println ("Warning: Assembler not available (" + name + ")");
+			}
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	protected void execute ()
+	{
+		if (portOption.isPresent ()) {
+			ExecutorService		pool = Executors.newCachedThreadPool ();
+			
+			try {
+				server = new ServerSocket (port, 50, InetAddress.getLoopbackAddress ());
+				
+				System.err.println ("Listening on port " + server.getLocalPort ());
+				
+				while (!server.isClosed ()) {
+					final Socket	socket = server.accept ();
+					
+					pool.execute (new Runnable ()
+					{
+						public void run ()
+						{
+							try {
+								serve (socket.getInputStream (), socket.getOutputStream ());
+								socket.close ();
+							}
+							catch (IOException error) {
+								/* Ignore */
+							}
+						}
+					});
+				}
+			}
+			catch (IOException error) {
+				if ((server == null) || !server.isClosed ())
+					System.err.println ("Error: " + error.getMessage ());
+			}
+			pool.shutdown ();
+		}
+		else {
+			try {
+				serve (System.in, System.out);
+			}
+			catch (IOException error) {
+				System.err.println ("Error: " + error.getMessage ());
+			}
+		}
+		
+		setFinished (true);
+	}
+	
+	/**
+	 * Reads jobs from a client and writes back the results until the client
+	 * ends the session.
+	 * 
+	 * @param 	input			The stream to read jobs from.
+	 * @param 	output			The stream to write the results to.
+	 * @throws	IOException		If the client connection fails.
+	 */
+	private void serve (final InputStream input, final OutputStream output)
+		throws IOException
+	{
+		BufferedReader	reader = new BufferedReader (new InputStreamReader (input, CHARSET));
+		PrintWriter		writer = new PrintWriter (new OutputStreamWriter (output, CHARSET));
+		
+		for (String line; (line = reader.readLine ()) != null;) {
+			if (line.length () == 0) continue;
+			
+			if (line.equals ("QUIT")) break;
+			
+			if (line.equals ("STOP")) {
+				if (server != null) server.close ();
+				break;
+			}
+			
+			String [] fields = line.split ("\t", -1);
+			
+			if (fields.length < 3) {
+				writer.println ("MSG Error: Invalid job (" + line + ")");
+				writer.println ("EXIT 2");
+			}
+			else {
+				AssemblyResult	result = assemble (fields);
+				
+				for (String message : result.getMessages ())
+					writer.println ("MSG " + message);
+				writer.println ("EXIT " + (result.isSuccessful () ? 0 : 1));
+			}
+			writer.flush ();
+		}
+		writer.flush ();
+	}
+	
+	/**
+	 * Performs a single assembly job using the shared instance of the
+	 * requested assembler. Any failure, including a usage request such as
+	 * <CODE>-help</CODE>, is reported in the result so that no job can end
+	 * the server loop.
+	 * 
+	 * @param 	fields			The working directory, assembler name and
+	 * 							arguments.
+	 * @return	The <CODE>AssemblyResult</CODE> for the job.
+	 */
+	private AssemblyResult assemble (final String [] fields)
+	{
+		String []		arguments = Arrays.copyOfRange (fields, 2, fields.length);
+		
+		try {
+			// The source file is always the last argument
+			Class<? extends Assembler>	type = findAssembler (fields [1]);
+			AssemblyRequest	request = new AssemblyRequest (type,
+					(arguments.length > 0) ? arguments [arguments.length - 1] : "");
+			Assembler		assembler = getInstance (type);
+			
+			request.addOption (Arrays.copyOf (arguments, Math.max (arguments.length - 1, 0)));
+			request.setDirectory (new File (fields [0]));
+			request.setWriteFiles (true);
+			
+			if (assembler == null)
+				return (failure ("Error: Could not create assembler (" + type.getName () + ")"));
+			
+			// Jobs for the same family from different clients take turns
+			synchronized (assembler) {
+				return (assembler.run (request));
+			}
+		}
+		catch (ClassNotFoundException error) {
+			return (failure ("Error: Unknown assembler (" + fields [1] + ")"));
+		}
+		catch (Exception error) {
+			return (failure ("Error: Job failed (" + error + ")"));
+		}
+		catch (java.lang.Error error) {
+			return (failure ("Error: Job failed (" + error + ")"));
+		}
+	}
+	
+	/**
+	 * Returns the shared instance of an assembler class, creating it the
+	 * first time it is needed.
+	 * 
+	 * @param 	type			The <CODE>Assembler</CODE> class.
+	 * @return	The shared instance or <CODE>null</CODE> if it could not be
+	 * 			created.
+	 */
+	private synchronized Assembler getInstance (final Class<? extends Assembler> type)
+	{
+		Assembler		assembler = instances.get (type);
+		
+		if ((assembler == null) && ((assembler = Assembler.create (type)) != null))
+			instances.put (type, assembler);
+		
+		return (assembler);
+	}
+	
+	/**
+	 * Creates the <CODE>AssemblyResult</CODE> for a job that could not be
+	 * run.
+	 * 
+	 * @param 	message			The error message.
+	 * @return	A failed <CODE>AssemblyResult</CODE>.
+	 */
+	private static AssemblyResult failure (final String message)
+	{
+		Vector<String>	messages = new Vector<String> ();
+		
+		messages.add (message);
+		return (new AssemblyResult (null, null, messages, 1, 0, 0, 0));
+	}
+	
+	/**
+	 * The classes of the assemblers that are warmed up at start up.
+	 */
+	private static final String []	ASSEMBLERS	= {
+		"uk.co.demon.obelisk.cdp1802.As1802",
+		"uk.co.demon.obelisk.i4004.As4004",
+		"uk.co.demon.obelisk.i4040.As4040",
+		"uk.co.demon.obelisk.i8008.As8008",
+		"uk.co.demon.obelisk.i8080.As8080",
+		"uk.co.demon.obelisk.icl430.AsIcl430",
+		"uk.co.demon.obelisk.kenbak.AsKb1",
+		"uk.co.demon.obelisk.m6800.As6800",
+		"uk.co.demon.obelisk.m6809.As6809",
+		"uk.co.demon.obelisk.m740.As740",
+		"uk.co.demon.obelisk.scmp.AsScmp",
+		"uk.co.demon.obelisk.w65xx.As65"
+	};
+	
+	/**
+	 * The character set used for the job protocol.
+	 */
+	private static final Charset	CHARSET		= Charset.forName ("ISO-8859-1");
+	
+	/**
+	 * The <CODE>Option</CODE> instance used to detect <CODE>-port</CODE>
+	 */
+	private Option				portOption
+		= new Option (this, "-port", "Accept jobs on a loopback TCP port", "<port>");
+	
+	/**
+	 * The TCP port to listen on.
+	 */
+	private int					port;
+	
+	/**
+	 * The <CODE>ServerSocket</CODE> accepting connections (if any).
+	 */
+	private ServerSocket		server		= null;
+	
+	/**
+	 * The assembler instance kept for each family, reused for every job so
+	 * that its keyword tables are only built once.
+	 */
+	private Hashtable<Class<? extends Assembler>, Assembler>	instances
+		= new Hashtable<Class<? extends Assembler>, Assembler> ();
+}
\ No newline at end of file
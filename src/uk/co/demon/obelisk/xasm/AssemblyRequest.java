@@ -0,0 +1,206 @@
+/*
+ * Copyright (C),2005-2026 Andrew John Jacobs.
+ *
+ * This program is provided free of charge for educational purposes
+ *
+ * Redistribution and use in binary form without modification, is permitted
+ * provided that the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS 'AS IS' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package uk.co.demon.obelisk.xasm;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Vector;
+
+/**
+ * An <CODE>AssemblyRequest</CODE> describes a single assembly to be run in
+ * the current process by <CODE>Assembler.assemble</CODE>. The source and any
+ * of the files it includes may be taken from the file system or supplied as
+ * text.
+ * 
+ * @author 	Andrew Jacobs
+ * @version	$Id$
+ */
+public final class AssemblyRequest
+{
+	/**
+	 * Constructs an <CODE>AssemblyRequest</CODE> for a source file on disk.
+	 * 
+	 * @param 	assembler		The <CODE>Assembler</CODE> class to use.
+	 * @param 	fileName		The name of the source file.
+	 */
+	public AssemblyRequest (final Class<? extends Assembler> assembler, final String fileName)
+	{
+		this.assembler = assembler;
+		this.fileName  = fileName;
+	}
+	
+	/**
+	 * Constructs an <CODE>AssemblyRequest</CODE> for source text held in
+	 * memory. The file name is used in messages and to derive the names of
+	 * the listing and object files.
+	 * 
+	 * @param 	assembler		The <CODE>Assembler</CODE> class to use.
+	 * @param 	fileName		The name of the source file.
+	 * @param 	text			The source text.
+	 */
+	public AssemblyRequest (final Class<? extends Assembler> assembler, final String fileName,
+			final String text)
+	{
+		this (assembler, fileName);
+		
+		addText (fileName, text);
+	}
+	
+	/**
+	 * Supplies the text of a file that may be included by the source.
+	 * 
+	 * @param 	fileName		The name used to include the file.
+	 * @param 	text			The text of the file.
+	 */
+	public void addText (final String fileName, final String text)
+	{
+		texts.put (fileName, text);
+	}
+	
+	/**
+	 * Adds command line options (e.g. "-define", "DEBUG") to be processed by
+	 * the <CODE>Assembler</CODE>.
+	 * 
+	 * @param 	values			The option strings.
+	 */
+	public void addOption (final String ... values)
+	{
+		for (String value : values)
+			options.add (value);
+	}
+	
+	/**
+	 * Controls whether the listing and object files are written to disk.
+	 * By default they are only returned in the <CODE>AssemblyResult</CODE>.
+	 * 
+	 * @param 	writeFiles		<CODE>true</CODE> to write the output files.
+	 */
+	public void setWriteFiles (boolean writeFiles)
+	{
+		this.writeFiles = writeFiles;
+	}
+	
+	/**
+	 * Sets the directory against which relative file names are resolved.
+	 * By default the current directory of the process is used.
+	 * 
+	 * @param 	directory		The working directory for the assembly.
+	 */
+	public void setDirectory (final File directory)
+	{
+		this.directory = directory;
+	}
+	
+	/**
+	 * Provides access to the working directory for the assembly.
+	 * 
+	 * @return	The directory or <CODE>null</CODE> if not set.
+	 */
+	public File getDirectory ()
+	{
+		return (directory);
+	}
+	
+	/**
+	 * Provides access to the <CODE>Assembler</CODE> class.
+	 * 
+	 * @return	The <CODE>Assembler</CODE> class.
+	 */
+	public Class<? extends Assembler> getAssembler ()
+	{
+		return (assembler);
+	}
+	
+	/**
+	 * Provides access to the source file name.
+	 * 
+	 * @return	The source file name.
+	 */
+	public String getFileName ()
+	{
+		return (fileName);
+	}
+	
+	/**
+	 * Provides access to the files supplied as text.
+	 * 
+	 * @return	The file texts indexed by name.
+	 */
+	public HashMap<String, String> getTexts ()
+	{
+		return (texts);
+	}
+	
+	/**
+	 * Builds the argument list for the <CODE>Assembler</CODE>.
+	 * 
+	 * @return	The options followed by the source file name.
+	 */
+	public String [] getArguments ()
+	{
+		String []	arguments = options.toArray (new String [options.size () + 1]);
+		
+		arguments [options.size ()] = fileName;
+		return (arguments);
+	}
+	
+	/**
+	 * Indicates whether the output files will be written to disk.
+	 * 
+	 * @return	<CODE>true</CODE> if the output files will be written.
+	 */
+	public boolean isWriteFiles ()
+	{
+		return (writeFiles);
+	}
+	
+	/**
+	 * The <CODE>Assembler</CODE> class to use.
+	 */
+	private final Class<? extends Assembler>	assembler;
+	
+	/**
+	 * The name of the source file.
+	 */
+	private final String		fileName;
+	
+	/**
+	 * The files supplied as text indexed by name.
+	 */
+	private HashMap<String, String>	texts	= new HashMap<String, String> ();
+	
+	/**
+	 * The command line options.
+	 */
+	private Vector<String>		options	= new Vector<String> ();
+	
+	/**
+	 * Indicates whether the output files are written to disk.
+	 */
+	private boolean				writeFiles	= false;
+	
+	/**
+	 * The working directory for the assembly.
+	 */
+	private File				directory	= null;
+}
\ No newline at end of file
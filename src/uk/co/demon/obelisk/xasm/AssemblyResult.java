@@ -0,0 +1,178 @@
+/*
+ * Copyright (C),2005-2026 Andrew John Jacobs.
+ *
+ * This program is provided free of charge for educational purposes
+ *
+ * Redistribution and use in binary form without modification, is permitted
+ * provided that the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS 'AS IS' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package uk.co.demon.obelisk.xasm;
+
+import java.util.Vector;
+
+import uk.co.demon.obelisk.xobj.Module;
+
+/**
+ * An <CODE>AssemblyResult</CODE> holds the outcome of an in-process
+ * assembly: the object module, the listing, the messages that were reported
+ * and how long it took.
+ * 
+ * @author 	Andrew Jacobs
+ * @version	$Id$
+ */
+public final class AssemblyResult
+{
+	/**
+	 * Constructs an <CODE>AssemblyResult</CODE> instance.
+	 * 
+	 * @param 	module			The object module (or <CODE>null</CODE>).
+	 * @param 	listing			The listing text (or <CODE>null</CODE>).
+	 * @param 	messages		The error and warning messages.
+	 * @param 	errors			The number of errors.
+	 * @param 	warnings		The number of warnings.
+	 * @param 	passes			The number of passes made over the source.
+	 * @param 	time			The elapsed time in nanoseconds.
+	 */
+	public AssemblyResult (final Module module, final String listing,
+			final Vector<String> messages, int errors, int warnings, int passes, long time)
+	{
+		this.module   = module;
+		this.listing  = listing;
+		this.messages = messages;
+		this.errors   = errors;
+		this.warnings = warnings;
+		this.passes   = passes;
+		this.time     = time;
+	}
+	
+	/**
+	 * Indicates whether the assembly completed without errors.
+	 * 
+	 * @return	<CODE>true</CODE> if there were no errors.
+	 */
+	public boolean isSuccessful ()
+	{
+		return (errors == 0);
+	}
+	
+	/**
+	 * Provides access to the object module. The module is only complete if
+	 * the assembly was successful.
+	 * 
+	 * @return	The object <CODE>Module</CODE>.
+	 */
+	public Module getModule ()
+	{
+		return (module);
+	}
+	
+	/**
+	 * Provides access to the listing text. This is <CODE>null</CODE> if the
+	 * listing was written to disk or the final pass was not reached.
+	 * 
+	 * @return	The listing text.
+	 */
+	public String getListing ()
+	{
+		return (listing);
+	}
+	
+	/**
+	 * Provides access to the error and warning messages.
+	 * 
+	 * @return	The messages in the order they were reported.
+	 */
+	public Vector<String> getMessages ()
+	{
+		return (messages);
+	}
+	
+	/**
+	 * Provides access to the error count.
+	 * 
+	 * @return	The number of errors.
+	 */
+	public int getErrors ()
+	{
+		return (errors);
+	}
+	
+	/**
+	 * Provides access to the warning count.
+	 * 
+	 * @return	The number of warnings.
+	 */
+	public int getWarnings ()
+	{
+		return (warnings);
+	}
+	
+	/**
+	 * Provides access to the number of passes made over the source.
+	 * 
+	 * @return	The pass count.
+	 */
+	public int getPasses ()
+	{
+		return (passes);
+	}
+	
+	/**
+	 * Provides access to the elapsed time of the assembly.
+	 * 
+	 * @return	The elapsed time in nanoseconds.
+	 */
+	public long getTime ()
+	{
+		return (time);
+	}
+	
+	/**
+	 * The object module.
+	 */
+	private final Module			module;
+	
+	/**
+	 * The listing text.
+	 */
+	private final String			listing;
+	
+	/**
+	 * The error and warning messages.
+	 */
+	private final Vector<String>	messages;
+	
+	/**
+	 * The number of errors.
+	 */
+	private final int				errors;
+	
+	/**
+	 * The number of warnings.
+	 */
+	private final int				warnings;
+	
+	/**
+	 * The number of passes made.
+	 */
+	private final int				passes;
+	
+	/**
+	 * The elapsed time in nanoseconds.
+	 */
+	private final long				time;
+}
\ No newline at end of file
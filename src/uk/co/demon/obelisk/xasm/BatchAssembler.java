@@ -0,0 +1,225 @@
+/*
+ * Copyright (C),2005-2026 Andrew John Jacobs.
+ *
+ * This program is provided free of charge for educational purposes
+ *
+ * Redistribution and use in binary form without modification, is permitted
+ * provided that the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS 'AS IS' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package uk.co.demon.obelisk.xasm;
+
+import java.util.Arrays;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import uk.co.demon.obelisk.xapp.Application;
+import uk.co.demon.obelisk.xapp.Option;
+
+/**
+ * The <CODE>BatchAssembler</CODE> application assembles many source files
+ * concurrently within a single JVM. Each file is processed by its own
+ * instance of the selected <CODE>Assembler</CODE> class on a fixed size pool
+ * of threads and the messages for each file are reported together once all
+ * the files have been processed.
+ * <P>
+ * The arguments are the name of the <CODE>Assembler</CODE> class, any
+ * options to pass to it, and then the source files. If options are given
+ * they must be separated from the source files by <CODE>--</CODE>, for
+ * example:
+ * <PRE>
+ *     BatchAssembler -threads 8 uk.co.demon.obelisk.w65xx.As65 -define DEBUG -- a.asm b.asm
+ * </PRE>
+ * 
+ * @author 	Andrew Jacobs
+ * @version	$Id$
+ */
+public final class BatchAssembler extends Application
+{
+	/**
+	 * Main program entry point.
+	 * 
+	 * @param arguments		Command line arguments.
+	 */
+	public static void main (String arguments [])
+	{
+		new BatchAssembler ().run (arguments);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	protected void startUp ()
+	{
+		super.startUp ();
+		
+		if (threadsOption.isPresent ()) {
+			try {
+				if ((threads = Integer.parseInt (threadsOption.getValue ())) < 1)
+					throw new NumberFormatException ();
+			}
+			catch (NumberFormatException error) {
+				System.err.println ("Error: Invalid thread count (" + threadsOption.getValue () + ")");
+				setFinished (true);
+				return;
+			}
+		}
+		
+		String [] arguments = getArguments ();
+		
+		if (arguments.length < 1) {
+			System.err.println ("Error: No assembler class provided");
+			setFinished (true);
+			return;
+		}
+		
+		try {
+			assembler = Class.forName (arguments [0]).asSubclass (Assembler.class);
+		}
+		catch (Exception error) {
+			System.err.println ("Error: Invalid assembler class (" + arguments [0] + ")");
+			setFinished (true);
+			return;
+		}
+		
+		// Split the remaining arguments into options and source files
+		int split = Arrays.asList (arguments).indexOf ("--");
+		
+		if (split != -1) {
+			options = Arrays.copyOfRange (arguments, 1, split);
+			files   = Arrays.copyOfRange (arguments, split + 1, arguments.length);
+		}
+		else {
+			options = new String [0];
+			files   = Arrays.copyOfRange (arguments, 1, arguments.length);
+		}
+		
+		if (files.length == 0) {
+			System.err.println ("Error: No source file names provided");
+			setFinished (true);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	protected void execute ()
+	{
+		ExecutorService					pool 	= Executors.newFixedThreadPool (threads);
+		Vector<Future<AssemblyResult>>	results = new Vector<Future<AssemblyResult>> ();
+		
+		for (final String file : files) {
+			results.add (pool.submit (new Callable<AssemblyResult> ()
+			{
+				public AssemblyResult call ()
+				{
+					return (assemble (file));
+				}
+			}));
+		}
+		pool.shutdown ();
+		
+		// Report the outcome in the order the files were given
+		for (int index = 0; index < files.length; ++index) {
+			try {
+				AssemblyResult	result = results.elementAt (index).get ();
+				
+				for (String message : result.getMessages ())
+					System.err.println (message);
+				
+				if (!result.isSuccessful ()) ++failures;
+			}
+			catch (Exception error) {
+				System.err.println ("Error: " + files [index] + " " + error);
+				++failures;
+			}
+		}
+		
+		if (failures > 0)
+			System.err.println ("Error: " + failures + " of " + files.length
+					+ " files failed to assemble");
+		
+		setFinished (true);
+	}
+	
+	/**
+	 * {@inheritDoc} 
+	 */
+	protected void cleanUp ()
+	{
+		if (failures > 0) System.exit (1);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	protected String describeArguments ()
+	{
+		return (" <assembler class> [options --] <source file> ...");
+	}
+	
+	/**
+	 * Assembles a single file with a new <CODE>Assembler</CODE> instance
+	 * writing its listing and object module to disk.
+	 * 
+	 * @param 	file			The source file name.
+	 * @return	The <CODE>AssemblyResult</CODE> of the assembly.
+	 */
+	private AssemblyResult assemble (final String file)
+	{
+		AssemblyRequest		request = new AssemblyRequest (assembler, file);
+		
+		request.addOption (options);
+		request.setWriteFiles (true);
+		
+		return (Assembler.assemble (request));
+	}
+	
+	/**
+	 * The <CODE>Option</CODE> instance used to detect <CODE>-threads</CODE>
+	 */
+	private Option				threadsOption
+		= new Option (this, "-threads", "Number of concurrent assemblies", "<count>");
+	
+	/**
+	 * The number of threads in the pool.
+	 */
+	private int					threads
+		= Runtime.getRuntime ().availableProcessors ();
+	
+	/**
+	 * The <CODE>Assembler</CODE> class to instantiate for each file.
+	 */
+	private Class<? extends Assembler>	assembler;
+	
+	/**
+	 * The options passed to each <CODE>Assembler</CODE> instance.
+	 */
+	private String []			options;
+	
+	/**
+	 * The source files to be assembled.
+	 */
+	private String []			files;
+	
+	/**
+	 * The number of files that failed to assemble.
+	 */
+	private int					failures	= 0;
+}
\ No newline at end of file
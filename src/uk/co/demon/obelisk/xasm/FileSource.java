@@ -22,15 +22,10 @@
 
 package uk.co.demon.obelisk.xasm;
 
-import java.io.BufferedReader;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.Charset;
-
 /**
  * The <CODE>FileSource</CODE> class implements a <CODE>Source</CODE> that
- * reads from a file.
+ * reads from a file whose lines have been loaded into a
+ * <CODE>SourceCache</CODE>.
  * 
  * @author 	Andrew Jacobs
  * @version	$Id$
@@ -40,16 +35,12 @@ public final class FileSource implements Source
 	/**
 	 * Constructs a <CODE>FileSource</CODE> instance.
 	 * 
-	 * @param 	fileName		The name of the source file.
-	 * @param 	stream			The <CODE>FileInputStream</CODE> attached to it.
+	 * @param 	lines			The cached lines of the source file.
 	 */
-	public FileSource (final String fileName, FileInputStream stream)
+	public FileSource (final Line [] lines)
 	{
-		this.reader 	= new BufferedReader (
-							new InputStreamReader (stream,
-								Charset.forName ("ISO-8859-1")));
-		this.fileName 	= fileName;
-		this.lineNumber = 0;
+		this.lines		= lines;
+		this.nextLine	= 0;
 	}
 	
 	/**
@@ -57,30 +48,19 @@ public final class FileSource implements Source
 	 */
 	public Line nextLine ()
 	{
-		try {
-			String			text = reader.readLine();
+		if (nextLine < lines.length)
+			return (lines [nextLine++]);
 		
-			if (text != null)
-				return (new Line (fileName, ++lineNumber, text));
-		}
-		catch (IOException error) {
-			;
-		}
 		return (null);
 	}
 
 	/**
-	 * The <CODE>BufferedReader</CODE> to get source lines from.
-	 */
-	private BufferedReader		reader;
-	
-	/**
-	 * The name of the file being read.
+	 * The lines of the file being read.
 	 */
-	private final String		fileName;
+	private final Line []		lines;
 	
 	/**
-	 * The current line number in the file.
+	 * The index of the next line to be read.
 	 */
-	private int					lineNumber;
+	private int					nextLine;
 }
\ No newline at end of file
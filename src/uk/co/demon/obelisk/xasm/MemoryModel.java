@@ -23,6 +23,7 @@
 package uk.co.demon.obelisk.xasm;
 
 import uk.co.demon.obelisk.xobj.Expr;
+import uk.co.demon.obelisk.xobj.Jump;
 import uk.co.demon.obelisk.xobj.Module;
 import uk.co.demon.obelisk.xobj.Section;
 
@@ -63,6 +64,15 @@ public abstract class MemoryModel
 	 */
 	public abstract void addLong (final Module module, Section section, final Expr expr);
 	
+	/**
+	 * Adds a relaxable jump to the output memory area.
+	 * 
+	 * @param	module		The <CODE>Module</CODE> containing the output.
+	 * @param	section		The <CODE>Section</CODE> containing the output.
+	 * @param	jump		The <CODE>Jump</CODE> to add.
+	 */
+	public abstract void addJump (final Module module, Section section, final Jump jump);
+	
 	/**
 	 * Adds a literal byte value to the output memory area.
 	 * 
@@ -23,6 +23,7 @@
 package uk.co.demon.obelisk.xasm;
 
 import uk.co.demon.obelisk.xobj.Expr;
+import uk.co.demon.obelisk.xobj.Jump;
 import uk.co.demon.obelisk.xobj.Module;
 import uk.co.demon.obelisk.xobj.Section;
 
@@ -128,6 +129,21 @@ public class MemoryModelByte extends MemoryModel
 			error (Error.ERR_INVALID_EXPRESSION);
 	}
 	
+	/**
+	 * {@inheritDoc} 
+	 */
+	public void addJump (final Module module, Section section, final Jump jump)
+	{
+		if (section != null) {
+			section.addJump (jump);
+			for (int index = 0; index < jump.getSize (); ++index)
+				if (byteCount < bytes.length)
+					bytes [byteCount++] = -1;
+		}
+		else
+			error (Error.ERR_NO_SECTION);
+	}
+	
 	/**
 	 * {@inheritDoc} 
 	 */
@@ -23,6 +23,7 @@
 package uk.co.demon.obelisk.xasm;
 
 import uk.co.demon.obelisk.xobj.Expr;
+import uk.co.demon.obelisk.xobj.Jump;
 import uk.co.demon.obelisk.xobj.Module;
 import uk.co.demon.obelisk.xobj.Section;
 
@@ -114,6 +115,21 @@ public class MemoryModelShort extends MemoryModel
 			addLong (module, section, expr.resolve (null, null));
 	}
 	
+	/**
+	 * {@inheritDoc} 
+	 */
+	public void addJump (final Module module, Section section, final Jump jump)
+	{
+		if (section != null) {
+			section.addJump (jump);
+			for (int index = 0; index < jump.getSize (); ++index)
+				if (byteCount < bytes.length)
+					bytes [byteCount++] = 0;
+		}
+		else
+			error (Error.ERR_NO_SECTION);
+	}
+	
 	/**
 	 * {@inheritDoc} 
 	 */
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C),2005-2026 Andrew John Jacobs.
+ *
+ * This program is provided free of charge for educational purposes
+ *
+ * Redistribution and use in binary form without modification, is permitted
+ * provided that the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS 'AS IS' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package uk.co.demon.obelisk.xasm;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Vector;
+
+/**
+ * The <CODE>SourceCache</CODE> class holds the contents of every file read
+ * during an assembly so that later passes can replay it from memory rather
+ * than going back to the file system.
+ * 
+ * @author 	Andrew Jacobs
+ * @version	$Id$
+ */
+public final class SourceCache
+{
+	/**
+	 * Constructs an empty <CODE>SourceCache</CODE> instance.
+	 */
+	public SourceCache ()
+	{ }
+	
+	/**
+	 * Discards all the cached file contents. Text added with <CODE>addText
+	 * </CODE> is retained.
+	 */
+	public void clear ()
+	{
+		contents.clear ();
+		lines.clear ();
+	}
+	
+	/**
+	 * Supplies the contents of a file from memory rather than the file
+	 * system. The file need not exist.
+	 * 
+	 * @param 	file			The file.
+	 * @param 	text			Its text.
+	 */
+	public void addText (final File file, final String text)
+	{
+		memory.put (getPath (file),
+				text.getBytes (Charset.forName ("ISO-8859-1")));
+	}
+	
+	/**
+	 * Determines if the indicated file has been supplied from memory or has
+	 * already been read.
+	 * 
+	 * @param 	file			The file to be checked.
+	 * @return	<CODE>true</CODE> if the contents of the file are held.
+	 */
+	public boolean contains (final File file)
+	{
+		String	path = getPath (file);
+		
+		return (memory.containsKey (path) || contents.containsKey (path));
+	}
+	
+	/**
+	 * Returns the raw contents of the indicated file, reading it on the
+	 * first request.
+	 * 
+	 * @param 	file			The file to be read.
+	 * @return	The bytes held in the file.
+	 * @throws	IOException		If the file can not be read.
+	 */
+	public byte [] getBytes (final File file)
+		throws IOException
+	{
+		String	path  = getPath (file);
+		byte []	bytes = memory.get (path);
+		
+		if (bytes == null)
+			bytes = contents.get (path);
+		
+		if (bytes == null) {
+			FileInputStream			stream = new FileInputStream (file);
+			ByteArrayOutputStream	buffer = new ByteArrayOutputStream ((int) file.length ());
+			byte []					chunk  = new byte [8192];
+			
+			try {
+				for (int length; (length = stream.read (chunk)) != -1;)
+					buffer.write (chunk, 0, length);
+			}
+			finally {
+				stream.close ();
+			}
+			contents.put (path, bytes = buffer.toByteArray ());
+		}
+		return (bytes);
+	}
+	
+	/**
+	 * Returns the source lines of the indicated file, decoding them as
+	 * ISO-8859-1 text on the first request.
+	 * 
+	 * @param 	fileName		The file name to report in each <CODE>Line</CODE>.
+	 * @param 	file			The file to be read.
+	 * @return	The lines of the file.
+	 * @throws	IOException		If the file can not be read.
+	 */
+	public Line [] getLines (final String fileName, final File file)
+		throws IOException
+	{
+		String	key	   = fileName + "\n" + getPath (file);
+		Line []	result = lines.get (key);
+		
+		if (result == null) {
+			BufferedReader	reader = new BufferedReader (
+								new InputStreamReader (
+									new ByteArrayInputStream (getBytes (file)),
+									Charset.forName ("ISO-8859-1")));
+			Vector<Line>	buffer = new Vector<Line> ();
+			
+			for (String text; (text = reader.readLine ()) != null;)
+				buffer.add (new Line (fileName, buffer.size () + 1, text));
+			
+			lines.put (key, result = buffer.toArray (new Line [buffer.size ()]));
+		}
+		return (result);
+	}
+	
+	/**
+	 * Works out the key used to cache a file's contents so that different
+	 * names for the same file share a single entry.
+	 * 
+	 * @param 	file			The file.
+	 * @return	Its canonical path (or absolute path if that fails).
+	 */
+	private static String getPath (final File file)
+	{
+		try {
+			return (file.getCanonicalPath ());
+		}
+		catch (IOException error) {
+			return (file.getAbsolutePath ());
+		}
+	}
+	
+	/**
+	 * The raw file contents indexed by canonical path.
+	 */
+	private HashMap<String, byte []>	contents	= new HashMap<String, byte []> ();
+	
+	/**
+	 * The contents of files supplied from memory indexed by canonical path.
+	 */
+	private HashMap<String, byte []>	memory		= new HashMap<String, byte []> ();
+	
+	/**
+	 * The decoded source lines indexed by file name and canonical path.
+	 */
+	private HashMap<String, Line []>	lines		= new HashMap<String, Line []> ();
+}
\ No newline at end of file
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C),2005-2026 Andrew John Jacobs.
+ *
+ * This program is provided free of charge for educational purposes
+ *
+ * Redistribution and use in binary form without modification, is permitted
+ * provided that the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS 'AS IS' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package uk.co.demon.obelisk.xasm;
+
+/**
+ * The <CODE>TokenStream</CODE> class records the <CODE>Token</CODE> instances
+ * scanned from a line of source text, together with the offset at which each
+ * one ends, so that later passes can replay them without scanning the text
+ * again.
+ * <P>
+ * A line is only tokenized as far as the assembler reads it, so the stream
+ * may be extended on a later pass if more of the line is consumed.
+ * 
+ * @author 	Andrew Jacobs
+ * @version	$Id$
+ */
+public final class TokenStream
+{
+	/**
+	 * Constructs an empty <CODE>TokenStream</CODE> for the given text.
+	 * 
+	 * @param 	text			The source text being tokenized.
+	 */
+	public TokenStream (final String text)
+	{
+		this.text = text.toCharArray ();
+	}
+	
+	/**
+	 * Provides access to the characters of the source text.
+	 * 
+	 * @return	The source text.
+	 */
+	public char [] getText ()
+	{
+		return (text);
+	}
+	
+	/**
+	 * Returns the number of <CODE>Token</CODE> instances recorded so far.
+	 * 
+	 * @return	The recorded token count.
+	 */
+	public int size ()
+	{
+		return (count);
+	}
+	
+	/**
+	 * Returns the recorded <CODE>Token</CODE> at the given index.
+	 * 
+	 * @param 	index			The token index.
+	 * @return	The <CODE>Token</CODE> instance.
+	 */
+	public Token getToken (int index)
+	{
+		return (tokens [index]);
+	}
+	
+	/**
+	 * Returns the offset in the text just after the <CODE>Token</CODE> at
+	 * the given index.
+	 * 
+	 * @param 	index			The token index.
+	 * @return	The offset following the token.
+	 */
+	public int getEnd (int index)
+	{
+		return (ends [index]);
+	}
+	
+	/**
+	 * Appends a newly scanned <CODE>Token</CODE> to the stream.
+	 * 
+	 * @param 	token			The <CODE>Token</CODE> instance.
+	 * @param 	end				The offset following the token.
+	 */
+	public void addToken (final Token token, int end)
+	{
+		if (count == tokens.length) {
+			Token []	newTokens = new Token [count * 2];
+			int []		newEnds	  = new int [count * 2];
+			
+			System.arraycopy (tokens, 0, newTokens, 0, count);
+			System.arraycopy (ends, 0, newEnds, 0, count);
+			tokens = newTokens;
+			ends   = newEnds;
+		}
+		
+		tokens [count] = token;
+		ends [count++] = end;
+	}
+	
+	/**
+	 * The characters of the source text.
+	 */
+	private final char []		text;
+	
+	/**
+	 * The recorded <CODE>Token</CODE> instances.
+	 */
+	private Token []			tokens		= new Token [8];
+	
+	/**
+	 * The offset following each recorded <CODE>Token</CODE>.
+	 */
+	private int []				ends		= new int [8];
+	
+	/**
+	 * The number of recorded tokens.
+	 */
+	private int					count		= 0;
+}
\ No newline at end of file
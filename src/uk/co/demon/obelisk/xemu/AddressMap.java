@@ -23,6 +23,16 @@
 package uk.co.demon.obelisk.xemu;
 
 /**
+ * An <CODE>AddressMap</CODE> routes accesses to the <CODE>AddressRange</CODE>
+ * instances that have been added to it using a two level table of 256 byte
+ * pages. Pages wholly covered by RAM or ROM hold a reference to the backing
+ * array so that most accesses never leave this class. Pages shared by
+ * several ranges (e.g. small I/O devices) fall back to a table of handlers
+ * indexed by the low byte of the address.
+ * <P>
+ * Addresses not covered by any range read as <CODE>OPEN_BUS</CODE> and
+ * ignore writes, so firmware probing for absent hardware does not stop the
+ * emulation.
  * 
  * @author 	Andrew Jacobs
  * @version	$Id$
@@ -31,25 +41,104 @@ public class AddressMap implements Addressable
 {
 	public AddressMap (int mask)
 	{
-		map = new Addressable [(this.mask = mask) + 1];
+		this.mask = mask;
+		
+		pages = new Page [(mask >>> TABLE_SHIFT) + 1][];
+		for (int index = 0; index < pages.length; ++index)
+			pages [index] = UNMAPPED_TABLE;
 	}
 	
 	public void add (AddressRange range)
 	{
-		int		base = range.getBase ();
-		int		size = range.getSize ();
+		byte []		bytes = range.getBytes ();
+		long		base  = range.getBase () & 0xffffffffL;
+		long		end	  = base + range.getSize ();
 		
-		for (int offset = 0; offset < size; ++offset)
-			map [base + offset] = range;
+		for (long address = base; address < end;) {
+			int		offset = (int)(address & PAGE_MASK);
+			int		count  = (int) Math.min (end - address, PAGE_SIZE - offset);
+			
+			if (count == PAGE_SIZE)
+				setPage ((int) address, new Page (range, bytes,
+						range.isWritable (), (int)(address - base)));
+			else {
+				Page		page = getPage ((int) address);
+				
+				if (page.slots == null) {
+					page = new Page (page);
+					setPage ((int) address, page);
+				}
+				for (int index = 0; index < count; ++index)
+					page.slots [offset + index] = range;
+			}
+			address += count;
+		}
+	}
+	
+	/**
+	 * Returns the array backing the page containing the given address if
+	 * reads from the page may be satisfied directly from it.
+	 * 
+	 * @param	address		The address of interest.
+	 * @return	The backing array or <CODE>null</CODE>.
+	 */
+	public byte [] getReadable (int address)
+	{
+		return (getPage (address).readable);
+	}
+	
+	/**
+	 * Returns the array backing the page containing the given address if
+	 * writes to the page may be applied directly to it.
+	 * 
+	 * @param	address		The address of interest.
+	 * @return	The backing array or <CODE>null</CODE>.
+	 */
+	public byte [] getWritable (int address)
+	{
+		return (getPage (address).writable);
 	}
 	
+	/**
+	 * Returns the index within the backing array of the first byte of the
+	 * page containing the given address.
+	 * 
+	 * @param	address		The address of interest.
+	 * @return	The array index of the start of the page.
+	 */
+	public int getOffset (int address)
+	{
+		return (getPage (address).offset);
+	}
+	
+	/**
+	 * The number of address bits decoded within a page.
+	 */
+	public static final int		PAGE_BITS	= 8;
+	
+	/**
+	 * The number of bytes in a page.
+	 */
+	public static final int		PAGE_SIZE	= 1 << PAGE_BITS;
+	
+	/**
+	 * The value read from an address that is not mapped to any range.
+	 */
+	public static final int		OPEN_BUS	= 0xff;
+	
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public int read (int address)
 	{
-		return (map [address & mask].read (address));
+		int			where = address & mask;
+		Page		page = pages [where >>> TABLE_SHIFT][(where >>> PAGE_BITS) & TABLE_MASK];
+		
+		if (page.readable != null)
+			return (page.readable [page.offset + (address & PAGE_MASK)] & 0xff);
+		
+		return (page.handlerFor (address).read (address));
 	}
 
 	/**
@@ -58,7 +147,13 @@ public class AddressMap implements Addressable
 	@Override
 	public void write (int address, int value)
 	{
-		map [address & mask].write (address, value);
+		int			where = address & mask;
+		Page		page = pages [where >>> TABLE_SHIFT][(where >>> PAGE_BITS) & TABLE_MASK];
+		
+		if (page.writable != null)
+			page.writable [page.offset + (address & PAGE_MASK)] = (byte) value;
+		else
+			page.handlerFor (address).write (address, value);
 	}
 
 	/**
@@ -67,10 +162,177 @@ public class AddressMap implements Addressable
 	@Override
 	public void load (int address, int value)
 	{
-		map [address & mask].load (address, value);
+		int			where = address & mask;
+		Page		page = pages [where >>> TABLE_SHIFT][(where >>> PAGE_BITS) & TABLE_MASK];
+		
+		// The open bus array is shared so it must never be loaded
+		if ((page.readable != null) && (page != UNMAPPED))
+			page.readable [page.offset + (address & PAGE_MASK)] = (byte) value;
+		else
+			page.handlerFor (address).load (address, value);
+	}
+	
+	/**
+	 * Describes how accesses to one page of the address space are handled.
+	 * Pages belonging to a single range refer to it directly (together with
+	 * its backing array when it has one) while shared pages hold a handler
+	 * for each byte.
+	 */
+	private static final class Page
+	{
+		/**
+		 * Constructs a <CODE>Page</CODE> wholly owned by one range.
+		 * 
+		 * @param	handler		The owning range.
+		 * @param	bytes		The range's backing array or <CODE>null</CODE>.
+		 * @param	writable	Indicates if writes may go to the array.
+		 * @param	offset		The index in the array of the first byte.
+		 */
+		Page (Addressable handler, byte [] bytes, boolean writable, int offset)
+		{
+			this.handler  = handler;
+			this.readable = bytes;
+			this.writable = writable ? bytes : null;
+			this.offset   = offset;
+			this.slots	  = null;
+		}
+		
+		/**
+		 * Constructs a shared <CODE>Page</CODE> initially routing every
+		 * byte to the handlers of an existing page.
+		 * 
+		 * @param	page		The page being split.
+		 */
+		Page (Page page)
+		{
+			this.handler  = null;
+			this.readable = null;
+			this.writable = null;
+			this.offset   = 0;
+			this.slots    = new Addressable [PAGE_SIZE];
+			
+			for (int index = 0; index < PAGE_SIZE; ++index)
+				slots [index] = page.handlerFor (index);
+		}
+		
+		/**
+		 * Returns the <CODE>Addressable</CODE> responsible for the given
+		 * address within this page.
+		 * 
+		 * @param	address		The address being accessed.
+		 * @return	The handler for the address.
+		 */
+		Addressable handlerFor (int address)
+		{
+			return ((slots != null) ? slots [address & PAGE_MASK] : handler);
+		}
+		
+		final Addressable	handler;
+		
+		final byte []		readable;
+		
+		final byte []		writable;
+		
+		final int			offset;
+		
+		final Addressable [] slots;
+	}
+	
+	private static final int	PAGE_MASK	= PAGE_SIZE - 1;
+	
+	/**
+	 * The number of address bits used to select a page within a table.
+	 */
+	private static final int	TABLE_BITS	= 8;
+	
+	private static final int	TABLE_MASK	= (1 << TABLE_BITS) - 1;
+	
+	private static final int	TABLE_SHIFT = PAGE_BITS + TABLE_BITS;
+	
+	/**
+	 * The handler for unmapped addresses. Reads return the open bus value
+	 * while writes and loads are ignored.
+	 */
+	private static final Addressable	FLOATING	= new Addressable ()
+	{
+		public int read (int address)
+		{
+			return (OPEN_BUS);
+		}
+		
+		public void write (int address, int value)
+		{ }
+		
+		public void load (int address, int value)
+		{ }
+	};
+	
+	/**
+	 * The page shared by every unmapped part of the address space. Its
+	 * array holds the open bus value so that direct reads need no check.
+	 */
+	private static final Page			UNMAPPED	= new Page (FLOATING, openBus (), false, 0);
+	
+	/**
+	 * The page table shared by every part of the address space with no
+	 * mapped pages.
+	 */
+	private static final Page []		UNMAPPED_TABLE = new Page [TABLE_MASK + 1];
+	
+	static {
+		java.util.Arrays.fill (UNMAPPED_TABLE, UNMAPPED);
 	}
 	
 	private final int mask;
 	
-	private Addressable []	map;
+	/**
+	 * The page tables indexed by the high and middle address bits. Tables
+	 * are only allocated for parts of the address space that are mapped,
+	 * the others share <CODE>UNMAPPED_TABLE</CODE>.
+	 */
+	private Page [][]	pages;
+	
+	/**
+	 * Returns the <CODE>Page</CODE> currently covering an address.
+	 * 
+	 * @param	address		The address of interest.
+	 * @return	The page, which is <CODE>UNMAPPED</CODE> if nothing is there.
+	 */
+	private Page getPage (int address)
+	{
+		int			where = address & mask;
+		
+		return (pages [where >>> TABLE_SHIFT][(where >>> PAGE_BITS) & TABLE_MASK]);
+	}
+	
+	/**
+	 * Installs a <CODE>Page</CODE> for the page containing an address,
+	 * allocating its table if necessary.
+	 * 
+	 * @param	address		The address of interest.
+	 * @param	page		The new page.
+	 */
+	private void setPage (int address, Page page)
+	{
+		int			where = address & mask;
+		int			index = where >>> TABLE_SHIFT;
+		
+		if (pages [index] == UNMAPPED_TABLE)
+			pages [index] = UNMAPPED_TABLE.clone ();
+		
+		pages [index][(where >>> PAGE_BITS) & TABLE_MASK] = page;
+	}
+	
+	/**
+	 * Creates the backing array of the <CODE>UNMAPPED</CODE> page.
+	 * 
+	 * @return	A page of open bus values.
+	 */
+	private static byte [] openBus ()
+	{
+		byte []		bytes = new byte [PAGE_SIZE];
+		
+		java.util.Arrays.fill (bytes, (byte) OPEN_BUS);
+		return (bytes);
+	}
 }
\ No newline at end of file
@@ -39,6 +39,30 @@ public abstract class AddressRange implements Addressable
 		return (size);
 	}
 	
+	/**
+	 * Returns the array holding the contents of a range that behaves as
+	 * plain memory so that an <CODE>AddressMap</CODE> may access it without
+	 * calling the range. Byte N of the array holds the value at base + N.
+	 * 
+	 * @return	The backing array or <CODE>null</CODE> if accesses must
+	 * 			always be passed to the range.
+	 */
+	public byte [] getBytes ()
+	{
+		return (null);
+	}
+	
+	/**
+	 * Indicates whether writes may be applied directly to the array
+	 * returned by <CODE>getBytes</CODE>.
+	 * 
+	 * @return	<CODE>true</CODE> if the backing array is writable.
+	 */
+	public boolean isWritable ()
+	{
+		return (false);
+	}
+	
 	protected AddressRange (int base, int size)
 	{
 		this.base = base;
@@ -38,7 +38,7 @@ public final class ByteArray
 	 */
 	public int get (int offset)
 	{
-		return (data [offset]);
+		return (data [offset] & 0xff);
 	}
 
 	/**
@@ -48,6 +48,16 @@ public final class ByteArray
 		data [offset] = (byte) value;
 	}
 
+	/**
+	 * Returns the underlying storage.
+	 * 
+	 * @return	The byte array holding the data.
+	 */
+	public byte [] getData ()
+	{
+		return (data);
+	}
+
 	/**
 	 * The underlying storage.
 	 */
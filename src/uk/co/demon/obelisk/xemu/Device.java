@@ -29,7 +29,21 @@ package uk.co.demon.obelisk.xemu;
  */
 public interface Device
 {
+	/**
+	 * Connects the <CODE>Device</CODE> to the <CODE>Scheduler</CODE> it
+	 * should use to request execution.
+	 * 
+	 * @param	scheduler	The emulator's <CODE>Scheduler</CODE>.
+	 */
+	public void attach (Scheduler scheduler);
+	
 	public void reset ();
 	
+	/**
+	 * Called by the <CODE>Scheduler</CODE> when an event requested by the
+	 * <CODE>Device</CODE> falls due.
+	 * 
+	 * @param	cycles		The number of cycles since the last execution.
+	 */
 	public void execute (int cycles);
 }
\ No newline at end of file
@@ -22,19 +22,278 @@
 
 package uk.co.demon.obelisk.xemu;
 
-import uk.co.demon.obelisk.xapp.Application;
-
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Vector;
 
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import uk.co.demon.obelisk.xapp.Application;
+import uk.co.demon.obelisk.xemu.memory.ByteRAM;
+import uk.co.demon.obelisk.xemu.memory.ByteROM;
+
+/**
+ * The <CODE>Emulator</CODE> class provides the machine independent parts of
+ * an emulator, namely the memory map, attached devices, the event scheduler
+ * and the loading of machine configurations and memory images.
+ * <P>
+ * A configuration is an XML document such as:
+ * <PRE>
+ * &lt;emulator processor="65C02"&gt;
+ *   &lt;ram base="0000" size="8000"/&gt;
+ *   &lt;device class="uk.co.demon.obelisk.xemu.device.W6551" base="8000"/&gt;
+ *   &lt;rom base="C000" size="4000" image="firmware.hex"/&gt;
+ * &lt;/emulator&gt;
+ * </PRE>
+ * Addresses and sizes are in hex and image paths are relative to the
+ * configuration file.
+ * 
+ * @author 	Andrew Jacobs
+ * @version	$Id$
+ */
 public abstract class Emulator extends Application
 {
 	protected abstract int step ();
 	
-	protected abstract void trace ();
+	protected abstract int trace ();
+	
+	/**
+	 * Returns the mask applied to addresses by the memory map.
+	 * 
+	 * @return	The address mask for the emulated processor.
+	 */
+	protected int getAddressMask ()
+	{
+		return (0xffff);
+	}
+	
+	/**
+	 * Builds the memory map and devices described by a configuration file
+	 * and loads any ROM images it refers to.
+	 * 
+	 * @param	fileName		The configuration file.
+	 * @return	<CODE>true</CODE> if the configuration was loaded.
+	 */
+	protected boolean loadConfiguration (String fileName)
+	{
+		final File		config = new File (fileName);
+		
+		memoryMap = new AddressMap (getAddressMask ());
+		devices.clear ();
+		
+		try {
+			SAXParserFactory.newInstance ().newSAXParser ().parse (config,
+				new DefaultHandler ()
+				{
+					public void startElement (String uri, String localName, String qName, Attributes attrs)
+						throws SAXException
+					{
+						try {
+							configure (config, qName, attrs);
+						}
+						catch (Exception error) {
+							throw new SAXException (error.getMessage (), error);
+						}
+					}
+				});
+		}
+		catch (Exception error) {
+			System.err.println ("Error: Failed to load configuration " + fileName + ": " + error.getMessage ());
+			return (false);
+		}
+		return (true);
+	}
+	
+	/**
+	 * Loads a memory image into the memory map. Intel HEX addresses are
+	 * relative to the given base while Motorola S-record addresses are
+	 * absolute. Files with a <CODE>.bin</CODE> extension are loaded as raw
+	 * bytes and any other text file as a stream of hex digits, both starting
+	 * at the base address.
+	 * 
+	 * @param	file			The image file.
+	 * @param	base			The load address.
+	 * @throws	IOException		If the file could not be read.
+	 */
+	protected void loadImage (File file, int base)
+		throws IOException
+	{
+		if (file.getName ().toLowerCase ().endsWith (".bin")) {
+			InputStream		stream = new FileInputStream (file);
+			
+			try {
+				int		value;
+				
+				for (int address = base; (value = stream.read ()) >= 0; ++address)
+					memoryMap.load (address, value);
+			}
+			finally {
+				stream.close ();
+			}
+			return;
+		}
+		
+		BufferedReader	reader = new BufferedReader (new FileReader (file));
+		
+		try {
+			String		line;
+			int			address = base;
+			int			segment = 0;
+			
+			while ((line = reader.readLine ()) != null) {
+				line = line.trim ();
+				if (line.length () == 0) continue;
+				
+				switch (line.charAt (0)) {
+				case ':':
+					{
+						int		count = hexValue (line, 1, 2);
+						int		where = hexValue (line, 3, 4);
+						int		type  = hexValue (line, 7, 2);
+						
+						if (type == 0x00) {
+							for (int index = 0; index < count; ++index)
+								memoryMap.load (base + segment + where + index, hexValue (line, 9 + 2 * index, 2));
+						}
+						else if (type == 0x04)
+							segment = hexValue (line, 9, 4) << 16;
+						break;
+					}
+					
+				case 'S':
+					{
+						int		type  = line.charAt (1) - '0';
+						int		count = hexValue (line, 2, 2);
+						int		width;
+						
+						switch (type) {
+						case 1:		width = 2; break;
+						case 2:		width = 3; break;
+						case 3:		width = 4; break;
+						default:	continue;
+						}
+						
+						int		where = hexValue (line, 4, 2 * width);
+						
+						for (int index = 0; index < count - width - 1; ++index)
+							memoryMap.load (where + index, hexValue (line, 4 + 2 * (width + index), 2));
+						break;
+					}
+					
+				default:
+					for (int index = 0; index + 1 < line.length (); index += 2)
+						memoryMap.load (address++, hexValue (line, index, 2));
+				}
+			}
+		}
+		finally {
+			reader.close ();
+		}
+	}
+	
+	/**
+	 * Processes one element of a configuration file.
+	 * 
+	 * @param	config			The configuration file.
+	 * @param	name			The element name.
+	 * @param	attrs			The element attributes.
+	 * @throws	Exception		If the element is invalid.
+	 */
+	protected void configure (File config, String name, Attributes attrs)
+		throws Exception
+	{
+		if (name.equals ("emulator")) {
+			processor = attrs.getValue ("processor");
+		}
+		else if (name.equals ("ram")) {
+			memoryMap.add (new ByteRAM (hexAttr (attrs, "base"), hexAttr (attrs, "size")));
+		}
+		else if (name.equals ("rom")) {
+			int			base  = hexAttr (attrs, "base");
+			String		image = attrs.getValue ("image");
+			
+			memoryMap.add (new ByteROM (base, hexAttr (attrs, "size")));
+			if (image != null)
+				loadImage (new File (config.getAbsoluteFile ().getParentFile (), image), base);
+		}
+		else if (name.equals ("device")) {
+			Object		device = Class.forName (attrs.getValue ("class"))
+					.getConstructor (int.class).newInstance (hexAttr (attrs, "base"));
+			
+			if (device instanceof AddressRange)
+				memoryMap.add ((AddressRange) device);
+			if (device instanceof Device) {
+				((Device) device).attach (scheduler);
+				devices.add ((Device) device);
+			}
+		}
+		else
+			throw new Exception ("Unknown element <" + name + ">");
+	}
+	
+	/**
+	 * Resets the scheduler and all the attached devices.
+	 */
+	protected void resetDevices ()
+	{
+		scheduler.reset ();
+		for (Device device : devices)
+			device.reset ();
+	}
 	
 	protected AddressMap	memoryMap	= null;
 	
 	protected AddressMap	portMap		= null;
 	
 	protected Vector<Device> devices	= new Vector<Device> ();
+	
+	/**
+	 * The <CODE>Scheduler</CODE> that tracks time and device events.
+	 */
+	protected Scheduler		scheduler	= new Scheduler ();
+	
+	/**
+	 * The processor type named in the configuration (if any).
+	 */
+	protected String		processor	= null;
+	
+	/**
+	 * Parses a hexadecimal attribute value.
+	 * 
+	 * @param	attrs			The element attributes.
+	 * @param	name			The attribute name.
+	 * @return	The attribute value.
+	 * @throws	Exception		If the attribute is missing.
+	 */
+	private static int hexAttr (Attributes attrs, String name)
+		throws Exception
+	{
+		String		value = attrs.getValue (name);
+		
+		if (value == null)
+			throw new Exception ("Missing attribute '" + name + "'");
+		
+		return ((int) Long.parseLong (value, 16));
+	}
+	
+	/**
+	 * Parses a field of hex digits within a line of an image file.
+	 * 
+	 * @param	line			The line of text.
+	 * @param	start			The index of the first digit.
+	 * @param	length			The number of digits.
+	 * @return	The value of the field.
+	 */
+	private static int hexValue (String line, int start, int length)
+	{
+		return (Integer.parseInt (line.substring (start, start + length), 16));
+	}
 }
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C),2014 Andrew John Jacobs.
+ *
+ * This program is provided free of charge for educational purposes
+ *
+ * Redistribution and use in binary form without modification, is permitted
+ * provided that the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS 'AS IS' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package uk.co.demon.obelisk.xemu;
+
+import java.util.Hashtable;
+import java.util.PriorityQueue;
+
+/**
+ * The <CODE>Scheduler</CODE> keeps track of emulated time (in processor
+ * cycles) and of the next time at which each <CODE>Device</CODE> needs to
+ * be run. Devices with nothing to do have no pending event and cost nothing
+ * until they schedule one, typically in response to a register access.
+ * 
+ * @author 	Andrew Jacobs
+ * @version	$Id$
+ */
+public final class Scheduler
+{
+	/**
+	 * Returns the current emulated time.
+	 * 
+	 * @return	The number of cycles executed so far.
+	 */
+	public long getTime ()
+	{
+		return (time);
+	}
+	
+	/**
+	 * Returns the time of the earliest pending event. The value may be
+	 * earlier than necessary if events have been cancelled.
+	 * 
+	 * @return	The time of the next event or <CODE>Long.MAX_VALUE</CODE>
+	 * 			if no events are pending.
+	 */
+	public long getDeadline ()
+	{
+		return (deadline);
+	}
+	
+	/**
+	 * Moves emulated time forward after the processor has executed an
+	 * instruction.
+	 * 
+	 * @param	cycles		The number of cycles taken.
+	 */
+	public void tick (int cycles)
+	{
+		time += cycles;
+	}
+	
+	/**
+	 * Indicates whether an event may have fallen due.
+	 * 
+	 * @return	<CODE>true</CODE> if <CODE>runDue</CODE> should be called.
+	 */
+	public boolean isDue ()
+	{
+		return (time >= deadline);
+	}
+	
+	/**
+	 * Arranges for a <CODE>Device</CODE> to be executed after the given
+	 * number of cycles. Any event already pending for the device is
+	 * replaced.
+	 * 
+	 * @param	device		The <CODE>Device</CODE> to be run.
+	 * @param	delay		The number of cycles from now.
+	 */
+	public void schedule (Device device, int delay)
+	{
+		cancel (device);
+		
+		Event		event = new Event (device, time + Math.max (delay, 0));
+		
+		pending.put (device, event);
+		queue.add (event);
+		
+		if (event.when < deadline) deadline = event.when;
+	}
+	
+	/**
+	 * Removes any event pending for a <CODE>Device</CODE>.
+	 * 
+	 * @param	device		The <CODE>Device</CODE> to be cancelled.
+	 */
+	public void cancel (Device device)
+	{
+		Event		event = pending.remove (device);
+		
+		if (event != null) event.cancelled = true;
+	}
+	
+	/**
+	 * Executes each <CODE>Device</CODE> whose event has fallen due in time
+	 * order. A device is passed the number of cycles since it was last
+	 * executed and may schedule its next event (relative to the time its
+	 * current event fell due) before returning.
+	 */
+	public void runDue ()
+	{
+		long		now = time;
+		Event		event;
+		
+		while (((event = queue.peek ()) != null) && (event.when <= now)) {
+			queue.poll ();
+			if (event.cancelled) continue;
+			
+			pending.remove (event.device);
+			time = event.when;
+			
+			Long		last = lastRun.put (event.device, time);
+			
+			event.device.execute ((int)(time - ((last != null) ? last : 0)));
+		}
+		time = now;
+		
+		while (((event = queue.peek ()) != null) && event.cancelled)
+			queue.poll ();
+		
+		deadline = (event != null) ? event.when : Long.MAX_VALUE;
+	}
+	
+	/**
+	 * Discards all pending events and resets emulated time to zero.
+	 */
+	public void reset ()
+	{
+		queue.clear ();
+		pending.clear ();
+		lastRun.clear ();
+		time	 = 0;
+		deadline = Long.MAX_VALUE;
+	}
+	
+	/**
+	 * An <CODE>Event</CODE> records the time at which a <CODE>Device</CODE>
+	 * is next to be run.
+	 */
+	private static final class Event implements Comparable<Event>
+	{
+		Event (Device device, long when)
+		{
+			this.device = device;
+			this.when   = when;
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int compareTo (Event other)
+		{
+			return (Long.compare (when, other.when));
+		}
+		
+		final Device		device;
+		
+		final long			when;
+		
+		boolean				cancelled;
+	}
+	
+	/**
+	 * The pending events ordered by time.
+	 */
+	private PriorityQueue<Event>	queue	= new PriorityQueue<Event> ();
+	
+	/**
+	 * The event pending for each device (if any).
+	 */
+	private Hashtable<Device, Event> pending = new Hashtable<Device, Event> ();
+	
+	/**
+	 * The time at which each device was last executed.
+	 */
+	private Hashtable<Device, Long>	lastRun	= new Hashtable<Device, Long> ();
+	
+	/**
+	 * The current emulated time.
+	 */
+	private long					time	= 0;
+	
+	/**
+	 * The time of the earliest pending event.
+	 */
+	private long					deadline = Long.MAX_VALUE;
+}
\ No newline at end of file
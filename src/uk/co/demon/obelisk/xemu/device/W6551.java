@@ -22,32 +22,52 @@
 
 package uk.co.demon.obelisk.xemu.device;
 
+import java.io.IOException;
+
 import uk.co.demon.obelisk.xemu.AddressRange;
 import uk.co.demon.obelisk.xemu.Device;
+import uk.co.demon.obelisk.xemu.Scheduler;
 
 /**
+ * The <CODE>W6551</CODE> emulates an ACIA connected to the console. Bytes
+ * written to the data register appear on the standard output and, while the
+ * receiver is enabled, bytes from the standard input can be read back.
  * 
  * @author 	Andrew Jacobs
  * @version	$Id$
  */
 public class W6551 extends AddressRange implements Device
 {
-	protected W6551 (int base)
+	public W6551 (int base)
 	{
 		super (base, 4);
 		
 		reset ();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void attach (Scheduler scheduler)
+	{
+		this.scheduler = scheduler;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public void reset ()
 	{
-		status  = 0x10;
+		status  = TDRE;
 		command = 0x00;
 		control = 0x00;
+		
+		txEmpty = true;
+		rxFull  = false;
+		
+		if (scheduler != null) scheduler.cancel (this);
 	}
 
 	/**
@@ -57,10 +77,10 @@ public class W6551 extends AddressRange implements Device
 	public int read (int address)
 	{
 		switch ((address - base) & 0x03) {
-		case 0: return (dataIn);
-		case 1:	return (status);
-		case 2: return (command);
-		case 3: return (control);
+		case 0:	status &= ~RDRF; rxFull = false; return (dataIn & 0xff);
+		case 1:	return (status & 0xff);
+		case 2: return (command & 0xff);
+		case 3: return (control & 0xff);
 		}
 		return (-1);
 	}
@@ -72,9 +92,28 @@ public class W6551 extends AddressRange implements Device
 	public void write (int address, int value)
 	{
 		switch ((address - base) & 0x03) {
-		case 0: dataOut = (byte) value; break;
+		case 0:
+			dataOut = (byte) value;
+			System.out.write (dataOut);
+			System.out.flush ();
+			
+			txEmpty = false;
+			status &= ~TDRE;
+			scheduler.schedule (this, CHAR_CYCLES);
+			break;
+			
 		case 1:	status &= 0xfb; command &= 0xe0; break;
-		case 2: command = (byte) value; break;
+		
+		case 2:
+			command = (byte) value;
+			if (txEmpty) {
+				if (isReceiving ())
+					scheduler.schedule (this, POLL_CYCLES);
+				else
+					scheduler.cancel (this);
+			}
+			break;
+			
 		case 3:	control = (byte) value;	break;
 		}
 	}
@@ -94,18 +133,71 @@ public class W6551 extends AddressRange implements Device
 	@Override
 	public void execute (int cycles)
 	{
-		// TODO: emulate behaviour
+		if (!txEmpty) {
+			txEmpty = true;
+			status |= TDRE;
+		}
+		
+		if (isReceiving ()) {
+			if (!rxFull) {
+				try {
+					if (System.in.available () > 0) {
+						int		ch = System.in.read ();
+						
+						if (ch >= 0) {
+							dataIn = (byte) ch;
+							rxFull = true;
+							status |= RDRF;
+						}
+					}
+				}
+				catch (IOException error) {
+					// Treat as no data available
+				}
+			}
+			scheduler.schedule (this, POLL_CYCLES);
+		}
 	}
 	
+	/**
+	 * Status bit set when the receive data register is full.
+	 */
+	private static final int	RDRF		= 0x08;
+	
+	/**
+	 * Status bit set when the transmit data register is empty.
+	 */
+	private static final int	TDRE		= 0x10;
+	
+	/**
+	 * The number of cycles taken to send one character (10 bits at
+	 * 19200 baud with a 1MHz clock).
+	 */
+	private static final int	CHAR_CYCLES	= 520;
+	
+	/**
+	 * The number of cycles between checks for console input.
+	 */
+	private static final int	POLL_CYCLES = 10000;
+	
+	private Scheduler	scheduler;
+	
 	private byte		dataIn;
-	@SuppressWarnings("unused")
 	private byte		dataOut;
 	private byte		status;
 	private byte		command;
 	private byte		control;
 	
-	@SuppressWarnings("unused")
 	private boolean		txEmpty;
-	@SuppressWarnings("unused")
 	private boolean		rxFull;
+	
+	/**
+	 * Determines if the receiver is enabled (i.e. DTR is active).
+	 * 
+	 * @return	<CODE>true</CODE> if the receiver is enabled.
+	 */
+	private boolean isReceiving ()
+	{
+		return ((command & 0x01) != 0);
+	}
 }
\ No newline at end of file
@@ -57,5 +57,17 @@ public class ByteRAM extends AddressRange
 		array.set (address - base, value);		
 	}
 
+	@Override
+	public byte [] getBytes ()
+	{
+		return (array.getData ());
+	}
+
+	@Override
+	public boolean isWritable ()
+	{
+		return (true);
+	}
+
 	private ByteArray array;
 }
\ No newline at end of file
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C),2005-2007 Andrew John Jacobs.
+ *
+ * This program is provided free of charge for educational purposes
+ *
+ * Redistribution and use in binary form without modification, is permitted
+ * provided that the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS 'AS IS' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package uk.co.demon.obelisk.xlib;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+
+import uk.co.demon.obelisk.xapp.Application;
+import uk.co.demon.obelisk.xapp.Option;
+import uk.co.demon.obelisk.xobj.BinaryFormat;
+import uk.co.demon.obelisk.xobj.Library;
+import uk.co.demon.obelisk.xobj.Module;
+import uk.co.demon.obelisk.xobj.Parser;
+
+/**
+ * The <CODE>Converter</CODE> application translates object modules and
+ * libraries between the XML and binary formats. Unless a format is selected
+ * with an option the output is written in the opposite format to the input.
+ * 
+ * @author 	Andrew Jacobs
+ * @version	$Id$
+ */
+public final class Converter extends Application
+{
+	/**
+	 * Main program entry point.
+	 * 
+	 * @param arguments		Command line arguments.
+	 */
+	public static void main (String arguments [])
+	{
+		new Converter ().run (arguments);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	protected void startUp ()
+	{
+		super.startUp ();
+		
+		if (xmlOption.isPresent () && binaryOption.isPresent ()) {
+			System.err.println ("Error: Only one output format (xml/binary) can be selected");
+			setFinished (true);
+			return;
+		}
+		
+		if (getArguments ().length != 2) {
+			System.err.println ("Error: An input and an output file must be specified");
+			setFinished (true);
+			return;
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	protected void execute ()
+	{
+		String []	arguments = getArguments ();
+		Object		object	  = Parser.parse (arguments [0]);
+		
+		if (object == null) {
+			System.err.println ("Error: Could not read '" + arguments [0] + "'");
+			setFinished (true);
+			return;
+		}
+		
+		boolean		binary;
+		
+		if (xmlOption.isPresent ())
+			binary = false;
+		else if (binaryOption.isPresent ())
+			binary = true;
+		else
+			binary = !Parser.isBinary (arguments [0]);
+		
+		try {
+			if (binary) {
+				BufferedOutputStream	stream
+					= new BufferedOutputStream (new FileOutputStream (arguments [1]));
+				
+				if (object instanceof Library)
+					BinaryFormat.write ((Library) object, stream);
+				else
+					BinaryFormat.write ((Module) object, stream);
+				stream.close ();
+			}
+			else {
+				PrintStream		stream
+					= new PrintStream (new FileOutputStream (arguments [1]));
+				
+				stream.println ("<?xml version='1.0'?>" + object);
+				stream.close ();
+			}
+		}
+		catch (Exception error) {
+			System.err.println ("Error: Could not write '" + arguments [1] + "'");
+		}
+		
+		setFinished (true);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	protected String describeArguments ()
+	{
+		return ("input output");
+	}
+	
+	/**
+	 * The <CODE>Option</CODE> instance used to detect <CODE>-xml</CODE>
+	 */
+	private Option			xmlOption
+		= new Option (this, "-xml", "Write the output in XML format");
+	
+	/**
+	 * The <CODE>Option</CODE> instance used to detect <CODE>-binary</CODE>
+	 */
+	private Option			binaryOption
+		= new Option (this, "-binary", "Write the output in binary format");
+}
\ No newline at end of file
@@ -22,11 +22,13 @@
 
 package uk.co.demon.obelisk.xlib;
 
+import java.io.BufferedOutputStream;
 import java.io.FileOutputStream;
 import java.io.PrintStream;
 
 import uk.co.demon.obelisk.xapp.Application;
 import uk.co.demon.obelisk.xapp.Option;
+import uk.co.demon.obelisk.xobj.BinaryFormat;
 import uk.co.demon.obelisk.xobj.Library;
 import uk.co.demon.obelisk.xobj.Module;
 import uk.co.demon.obelisk.xobj.Parser;
@@ -81,9 +83,13 @@ public abstract class Librarian extends Application
 			return;
 		}
 		
+		binary = binaryOption.isPresent ();
+		
 		if (createOption.isPresent ())
 			library = new Library ();
 		else {
+			binary |= Parser.isBinary (libraryName);
+			
 			try {
 				library = (Library) Parser.parse (libraryName);
 			}
@@ -110,11 +116,20 @@ public abstract class Librarian extends Application
 		else if (removeOption.isPresent()) remove ();
 		
 		try {
-			PrintStream		stream
-				= new PrintStream (new FileOutputStream (libraryName));
+			if (binary) {
+				BufferedOutputStream	stream
+					= new BufferedOutputStream (new FileOutputStream (libraryName));
+				
+				BinaryFormat.write (library, stream);
+				stream.close ();
+			}
+			else {
+				PrintStream		stream
+					= new PrintStream (new FileOutputStream (libraryName));
 			
-			stream.println ("<?xml version='1.0'?>" + library);
-			stream.close ();
+				stream.println ("<?xml version='1.0'?>" + library);
+				stream.close ();
+			}
 		}
 		catch (Exception error) {
 			System.err.println ("Error: Could not write library");
@@ -134,21 +149,26 @@ public abstract class Librarian extends Application
 	}
 	
 	private Option			createOption
-		= new Option ("-create", "Create a library");
+		= new Option (this, "-create", "Create a library");
 	
 	private Option			updateOption
-		= new Option ("-update", "Update objects in a library");
+		= new Option (this, "-update", "Update objects in a library");
 	
 	private Option			removeOption
-		= new Option ("-remove", "Removed objects from a library");
+		= new Option (this, "-remove", "Removed objects from a library");
 
 	private Option			listOption
-		= new Option ("-list", "Lists objects in a library");
+		= new Option (this, "-list", "Lists objects in a library");
+
+	private Option			binaryOption
+		= new Option (this, "-binary", "Write the library in binary format");
 
 	private String			libraryName;
 	
 	private Library			library;
 	
+	private boolean			binary;
+	
 	private void create ()
 	{
 		String [] arguments = getArguments ();
@@ -19,9 +19,10 @@
  * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
  * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
-
 package uk.co.demon.obelisk.xlnk;
 
+import java.util.Comparator;
+import java.util.TreeSet;
 import java.util.Vector;
 
 import uk.co.demon.obelisk.xobj.Section;
@@ -31,18 +32,35 @@ import uk.co.demon.obelisk.xobj.Section;
  * a type of section can be placed. As objects are assigned to absolute
  * locations the memory area list is updated to keep track of the remaining
  * space.
+ * <P>
+ * Relocatable sections are placed using either a first fit policy, which
+ * uses the lowest free address that is large enough, or a best fit policy,
+ * which uses the smallest free region that is large enough. The free regions
+ * are indexed (by a tree of maximum sizes for first fit or a size ordered
+ * set for best fit) so that each placement takes logarithmic time.
  * 
  * @author 	Andrew Jacobs
  * @version	$Id$
  */
 final class Area
 {
+	/**
+	 * Placement policy that uses the lowest suitable address.
+	 */
+	public static final int		FIRST_FIT	= 0;
+	
+	/**
+	 * Placement policy that uses the smallest suitable free region.
+	 */
+	public static final int		BEST_FIT	= 1;
+	
 	/**
 	 * Constructs an <CODE>Area</CODE> given
 	 * a character string containing a list of memory address pairs in
 	 * hexadecimal (e.g. 'FF00-FDFF,FF00-FFFF').
 	 * 
 	 * @param 	location		The memory address pairs.
+	 * @throws	IllegalArgumentException If the location is invalid.
 	 */
 	public Area (final String location)
 	{
@@ -50,10 +68,9 @@ final class Area
 		for (int index = 0; index < pairs.length; ++index) {
 			String [] addrs = pairs [index].split ("-");
 			
-			if (addrs.length != 2) {
-				System.err.println ("Invalid address pair (" + pairs [index] + ")");
-				System.exit (1);
-			}
+			if (addrs.length != 2)
+				throw new IllegalArgumentException ("Invalid address pair (" + pairs [index] + ")");
+
 			Region region = new Region (addrs [0], addrs [1]);
 		
 			boolean handled = false;
@@ -67,9 +84,25 @@ final class Area
 				}
 			}
 			if (!handled) regions.add (region);
+			
+			capacity += region.getSize ();
 		}
 	}
 	
+	/**
+	 * Sets the policy used to place relocatable sections.
+	 * 
+	 * @param	policy			Either <CODE>FIRST_FIT</CODE> or
+	 * 							<CODE>BEST_FIT</CODE>.
+	 */
+	public void setPolicy (int policy)
+	{
+		this.policy = policy;
+		
+		tree	= null;
+		bySize	= null;
+	}
+	
 	/**
 	 * Provides access to a <CODE>Vector</CODE> of the current free regions.
 	 * 
@@ -101,50 +134,166 @@ final class Area
 	}
 	
 	/**
-	 * Attempts to fit the given <CODE>Section</CODE> into the first
-	 * suitable <CODE>Region<CODE> controlled by this <CODE>Area</CODE>.
+	 * Returns the total number of bytes originally available in this
+	 * <CODE>Area</CODE>.
+	 * 
+	 * @return	The capacity of the area.
+	 */
+	public long getCapacity ()
+	{
+		return (capacity);
+	}
+	
+	/**
+	 * Returns the number of bytes that have not yet been allocated.
+	 * 
+	 * @return	The free space in the area.
+	 */
+	public long getFree ()
+	{
+		long		free = 0;
+		
+		for (int index = 0; index < regions.size (); ++index)
+			free += regions.elementAt (index).getSize ();
+		
+		return (free);
+	}
+	
+	/**
+	 * Returns the size of the largest unallocated block.
+	 * 
+	 * @return	The largest free block size.
+	 */
+	public long getLargestFree ()
+	{
+		long		largest = 0;
+		
+		for (int index = 0; index < regions.size (); ++index)
+			largest = Math.max (largest, regions.elementAt (index).getSize ());
+		
+		return (largest);
+	}
+	
+	/**
+	 * Returns the number of non-empty free blocks.
+	 * 
+	 * @return	The free block count.
+	 */
+	public int getFreeBlocks ()
+	{
+		int			count = 0;
+		
+		for (int index = 0; index < regions.size (); ++index)
+			if (regions.elementAt (index).getSize () > 0) ++count;
+		
+		return (count);
+	}
+	
+	/**
+	 * Attempts to fit the given <CODE>Section</CODE> into a suitable
+	 * <CODE>Region<CODE> controlled by this <CODE>Area</CODE>.
 	 * 
 	 * @param 	section			The <CODE>Section</CODE> to be fitted.
 	 * @return	The address where the <CODE>Section</CODE> was placed.
 	 */
 	public long fitSection (Section section)
+	{
+		return (fitSection (section, section.getSize ()));
+	}
+	
+	/**
+	 * Attempts to fit the given <CODE>Section</CODE> into a suitable
+	 * <CODE>Region<CODE> assuming it has been reduced to the given size.
+	 * 
+	 * @param 	section			The <CODE>Section</CODE> to be fitted.
+	 * @param	size			The number of bytes it occupies.
+	 * @return	The address where the <CODE>Section</CODE> was placed.
+	 */
+	public long fitSection (Section section, int size)
 	{
 		long			addr = -1;
-		int				size = section.getSize ();
 				
 		if (section.isAbsolute()) {
 			addr = section.getStart ();
+			reserve (addr, size);
+		}
+		else if (policy == BEST_FIT) {
+			if (bySize == null) {
+				bySize = new TreeSet<Region> (SIZE_ORDER);
+				bySize.addAll (regions);
+			}
 			
-			// Find the region that contains the section
-			for (int index = 0; index < regions.size (); ++index) {
-				Region region = (Region) regions.elementAt (index);
-				
-				if ((region.getStart () <= addr) &&	((addr + size - 1) <= region.getEnd ())) {
-					if (region.getStart () == addr) {
-						region.reserve (size);
-					}
-					else {
-						region = region.split (addr);
-						regions.insertElementAt (region, index + 1);
-						region.reserve (size);
-					}
-					break;
-				}
+			Region region = bySize.ceiling (new Region (Long.MIN_VALUE + 1, Long.MIN_VALUE + size));
+			
+			if (region != null) {
+				bySize.remove (region);
+				addr = region.getStart ();
+				region.reserve (size);
+				bySize.add (region);
 			}
 		}
 		else {
-			for (int index = 0; index < regions.size (); ++index) {
-				Region region = (Region) regions.elementAt (index);
+			if (tree == null) buildTree ();
+			
+			if (tree [1] >= size) {
+				int		node = 1;
 				
-				// Find first region large enough to hold section
-				if (region.getSize () >= size) {
-					addr = region.getStart ();
+				// Descend to the leftmost region large enough
+				while (node < leaves)
+					node = (tree [2 * node] >= size) ? 2 * node : 2 * node + 1;
+				
+				Region region = (Region) regions.elementAt (node - leaves);
+				
+				addr = region.getStart ();
+				region.reserve (size);
+				
+				for (tree [node] = region.getSize (); (node >>= 1) > 0;)
+					tree [node] = Math.max (tree [2 * node], tree [2 * node + 1]);
+			}
+		}
+		return (addr);
+	}
+	
+	/**
+	 * Attempts to reserve memory at a specific address.
+	 * 
+	 * @param	addr			The start address of the block.
+	 * @param	size			The number of bytes required.
+	 * @return	<CODE>true</CODE> if the block was free and has been reserved.
+	 */
+	public boolean reserve (long addr, int size)
+	{
+		// Find the last region starting at or before the block
+		int		lo = 0;
+		int		hi = regions.size () - 1;
+		
+		while (lo <= hi) {
+			int		mid = (lo + hi) >>> 1;
+			
+			if (regions.elementAt (mid).getStart () <= addr)
+				lo = mid + 1;
+			else
+				hi = mid - 1;
+		}
+		
+		if (hi >= 0) {
+			Region region = (Region) regions.elementAt (hi);
+			
+			if ((addr + size - 1) <= region.getEnd ()) {
+				if (region.getStart () == addr) {
 					region.reserve (size);
-					break;
 				}
+				else {
+					region = region.split (addr);
+					regions.insertElementAt (region, hi + 1);
+					region.reserve (size);
+				}
+				tree   = null;
+				bySize = null;
+				return (true);
 			}
 		}
-		return (addr);
+		return (false);
 	}
 	
 	/**
@@ -165,9 +314,66 @@ final class Area
 		return (buffer.toString ());
 	}
 	
+	/**
+	 * Orders regions by size and then by address.
+	 */
+	private static final Comparator<Region> SIZE_ORDER = new Comparator<Region> ()
+	{
+		public int compare (Region lhs, Region rhs)
+		{
+			if (lhs.getSize () != rhs.getSize ())
+				return ((lhs.getSize () < rhs.getSize ()) ? -1 : 1);
+			
+			return (Long.compare (lhs.getStart (), rhs.getStart ()));
+		}
+	};
+	
 	/**
 	 * Contains the free <CODE>Region</CODE> list in increase address
 	 * order.
 	 */
 	private Vector<Region>		regions		= new Vector<Region> ();
+	
+	/**
+	 * The total number of bytes in the area.
+	 */
+	private long				capacity	= 0;
+	
+	/**
+	 * The placement policy for relocatable sections.
+	 */
+	private int					policy		= FIRST_FIT;
+	
+	/**
+	 * A binary tree holding the largest free size beneath each node. The
+	 * leaves correspond to the regions in address order. Rebuilt when
+	 * <CODE>null</CODE>.
+	 */
+	private int []				tree		= null;
+	
+	/**
+	 * The index of the first leaf in <CODE>tree</CODE>.
+	 */
+	private int					leaves;
+	
+	/**
+	 * The free regions ordered by size for best fit placement. Rebuilt when
+	 * <CODE>null</CODE>.
+	 */
+	private TreeSet<Region>		bySize		= null;
+	
+	/**
+	 * Builds the maximum size tree from the current regions.
+	 */
+	private void buildTree ()
+	{
+		for (leaves = 1; leaves < regions.size (); leaves <<= 1)
+			;
+		
+		tree = new int [2 * leaves];
+		for (int index = 0; index < leaves; ++index)
+			tree [leaves + index] = (index < regions.size ()) ? regions.elementAt (index).getSize () : -1;
+		for (int node = leaves - 1; node > 0; --node)
+			tree [node] = Math.max (tree [2 * node], tree [2 * node + 1]);
+	}
 }
\ No newline at end of file
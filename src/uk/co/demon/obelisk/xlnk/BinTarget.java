@@ -22,8 +22,10 @@
 
 package uk.co.demon.obelisk.xlnk;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 
 /**
  * The <CODE>BinTarget</CODE> class performs the final output of a linked
@@ -62,35 +64,33 @@ class BinTarget extends CachedTarget
 	 * {@inheritDoc}
 	 */
 	public void writeTo (File file)
+		throws IOException
 	{
 		try {
-			FileOutputStream	stream = new FileOutputStream (file);
-			
-			byte [] bytes = new byte [code.length * (getByteSize () / 8)];
-			int offset = 0;
+			BufferedOutputStream	stream
+				= new BufferedOutputStream (new FileOutputStream (file));
 			
 			switch (getByteSize ()) {
 			case 8:
-					for (int index = 0; index < code.length; ++index) {
-						bytes [offset++] = (byte) code [index];
+					for (long addr = start; addr <= end; ++addr) {
+						stream.write (get (addr));
 					}
 					break;
 					
 			case 16:
-				for (int index = 0; index < code.length; ++index) {
-					bytes [offset++] = (byte) ((code [index] >> 8) & 0xff);
-					bytes [offset++] = (byte) ((code [index] >> 0) & 0xff);
+				for (long addr = start; addr <= end; ++addr) {
+					stream.write ((get (addr) >> 8) & 0xff);
+					stream.write ((get (addr) >> 0) & 0xff);
 				}
 				break;
 					
 			// TODO More sizes	
 			}
 			
-			stream.write (bytes);
 			stream.close ();
 		}
-		catch (Exception error) {
-			System.err.println ("Error: A serious error occurred while writing the object file.");
+		catch (RuntimeException error) {
+			throw new IOException ("A serious error occurred writing " + file.getPath (), error);
 		}
 	}
 }
@@ -23,6 +23,7 @@
 package uk.co.demon.obelisk.xlnk;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
 
 import uk.co.demon.obelisk.xobj.Hex;
@@ -57,17 +58,18 @@ public class CTarget extends CachedTarget
 	 * {@inheritDoc}
 	 */
 	public void writeTo (File file)
+		throws IOException
 	{
 		try {
 			PrintWriter		writer = new PrintWriter (file);
 			int				span  = getByteSize () / 4;
 			
-			for (int index = 0; index < size; index += 16) {
+			for (long index = 0; index < size; index += 16) {
 				for (int offset = 0; offset < 16; ++offset) {
 					if ((index + offset) < size) {
 						if (offset == 0) writer.print ("\t");
 						
-						writer.print ("0x" + Hex.toHex (code [index + offset], span) + ", ");
+						writer.print ("0x" + Hex.toHex (get (start + index + offset), span) + ", ");
 					}
 					else
 						break;
@@ -75,9 +77,11 @@ public class CTarget extends CachedTarget
 				writer.println ();
 			}
 			writer.close ();
+			if (writer.checkError ())
+				throw new IOException ("Write error on " + file.getPath ());
 		}
-		catch (Exception error) {
-			System.err.println ("Error: A serious error occurred writing the object module.");
+		catch (RuntimeException error) {
+			throw new IOException ("A serious error occurred writing " + file.getPath (), error);
 		}
 	}
 }
\ No newline at end of file
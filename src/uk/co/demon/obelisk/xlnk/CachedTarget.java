@@ -19,16 +19,23 @@
  * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
  * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
-
 package uk.co.demon.obelisk.xlnk;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * The linker performs the final relocation and code fix up. It emits the
  * sections in a random order so the <CODE>CachedTarget</CODE> class stores
- * bytes as they are generated in an array so that the final output can be
- * written in order and in one piece.
+ * bytes as they are generated so that the final output can be written in
+ * order and in one piece.
+ * <P>
+ * The image is held sparsely in pages of <CODE>PAGE_SIZE</CODE> bytes that
+ * are only allocated when an address within them is written. Each page
+ * records which of its bytes have been written so that formats that carry
+ * addresses can skip over the gaps between populated extents.
  * 
  * @author	Andrew Jacobs
  * @version	$Id$
@@ -43,14 +50,220 @@ abstract class CachedTarget extends Target
 		if ((start <= addr) && (addr <= end)) {
 			if (addr < min) min = addr;
 			if (addr > max) max = addr;
-			code [(int)(addr - start)] = (int) value;
+			
+			Page	page  = findPage (addr >> PAGE_BITS, true);
+			int		index = (int)(addr & PAGE_MASK);
+			
+			page.data [index] = (int) value;
+			page.used [index >> 6] |= 1L << index;
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	public void store (long addr, byte [] src, int off, int len)
+	{
+		// Clip the block to the memory area
+		if (addr < start) {
+			off += (int)(start - addr);
+			len -= (int)(start - addr);
+			addr = start;
+		}
+		if (addr + len - 1 > end)
+			len = (int)(end - addr + 1);
+		if (len <= 0) return;
+		
+		if (addr < min) min = addr;
+		if (addr + len - 1 > max) max = addr + len - 1;
+		
+		while (len > 0) {
+			Page	page  = findPage (addr >> PAGE_BITS, true);
+			int		index = (int)(addr & PAGE_MASK);
+			int		count = Math.min (len, PAGE_SIZE - index);
+			
+			for (int offset = 0; offset < count; ++offset)
+				page.data [index + offset] = src [off + offset] & 0xff;
+			
+			for (int first = index; first < index + count;) {
+				int		last = Math.min (index + count, (first | 63) + 1);
+				long	bits = (last - first == 64) ? -1L : ((1L << (last - first)) - 1) << first;
+				
+				page.used [first >> 6] |= bits;
+				first = last;
+			}
+			
+			addr += count;
+			off	 += count;
+			len	 -= count;
+		}
+	}
+	
+	/**
+	 * Stores a block of values starting at the indicated address and checks
+	 * whether any of the addresses had already been written.
+	 * 
+	 * @param	addr			Where to store the first value.
+	 * @param	src				The values to store.
+	 * @param	off				The index of the first value in <CODE>src</CODE>.
+	 * @param	len				The number of values to store.
+	 * @return	The first address that was written before or -1 if none were.
+	 */
+	long store (long addr, int [] src, int off, int len)
+	{
+		long		clash = -1;
+		
+		// Clip the block to the memory area
+		if (addr < start) {
+			off += (int)(start - addr);
+			len -= (int)(start - addr);
+			addr = start;
+		}
+		if (addr + len - 1 > end)
+			len = (int)(end - addr + 1);
+		if (len <= 0) return (clash);
+		
+		if (addr < min) min = addr;
+		if (addr + len - 1 > max) max = addr + len - 1;
+		
+		while (len > 0) {
+			Page	page  = findPage (addr >> PAGE_BITS, true);
+			int		index = (int)(addr & PAGE_MASK);
+			int		count = Math.min (len, PAGE_SIZE - index);
+			
+			System.arraycopy (src, off, page.data, index, count);
+			
+			for (int first = index; first < index + count;) {
+				int		last = Math.min (index + count, (first | 63) + 1);
+				long	bits = (last - first == 64) ? -1L : ((1L << (last - first)) - 1) << first;
+				long	seen = page.used [first >> 6] & bits;
+				
+				if ((seen != 0) && (clash == -1))
+					clash = (addr & ~PAGE_MASK) + (first & ~63) + Long.numberOfTrailingZeros (seen);
+				
+				page.used [first >> 6] |= bits;
+				first = last;
+			}
+			
+			addr += count;
+			off	 += count;
+			len	 -= count;
 		}
+		return (clash);
 	}
 	
 	/**
 	 * {@inheritDoc}
 	 */
-	public abstract void writeTo (File file);
+	public abstract void writeTo (File file)
+		throws IOException;
+	
+	/**
+	 * Returns the value stored at the given address or zero if nothing has
+	 * been written there.
+	 * 
+	 * @param	addr			The address to read.
+	 * @return	The stored value.
+	 */
+	protected int get (long addr)
+	{
+		Page	page = findPage (addr >> PAGE_BITS, false);
+		
+		return ((page != null) ? page.data [(int)(addr & PAGE_MASK)] : 0);
+	}
+	
+	/**
+	 * Makes this target format the memory image already built by another
+	 * so that one link can write several output files. The pages are
+	 * shared and must not be stored to once this has been called.
+	 * 
+	 * @param	image			The <CODE>CachedTarget</CODE> holding the image.
+	 */
+	void shareImage (CachedTarget image)
+	{
+		pages 		= image.pages;
+		min			= image.min;
+		max			= image.max;
+		lastNumber	= -1;
+		lastPage	= null;
+	}
+	
+	/**
+	 * Finds the first written address at or after the given one.
+	 * 
+	 * @param	addr			The address to start searching from.
+	 * @return	The first written address or -1 if there are none.
+	 */
+	protected long nextUsed (long addr)
+	{
+		if (addr < min) addr = min;
+		
+		while (addr <= max) {
+			Map.Entry<Long, Page> entry = pages.ceilingEntry (addr >> PAGE_BITS);
+			
+			if (entry == null) break;
+			
+			long	base = entry.getKey () << PAGE_BITS;
+			Page	page = entry.getValue ();
+			
+			if (addr < base) addr = base;
+			
+			for (int word = (int)(addr & PAGE_MASK) >> 6; word < page.used.length; ++word) {
+				long	bits = page.used [word];
+				
+				if (word == ((int)(addr & PAGE_MASK) >> 6))
+					bits &= -1L << (addr & 63);
+				if (bits != 0)
+					return (base + (word << 6) + Long.numberOfTrailingZeros (bits));
+			}
+			addr = base + PAGE_SIZE;
+		}
+		return (-1);
+	}
+	
+	/**
+	 * Finds the first address at or after the given one that has not been
+	 * written.
+	 * 
+	 * @param	addr			The address to start searching from.
+	 * @return	The first unwritten address.
+	 */
+	protected long nextUnused (long addr)
+	{
+		while (addr <= max) {
+			Page	page = findPage (addr >> PAGE_BITS, false);
+			
+			if (page == null) return (addr);
+			
+			long	base = addr & ~PAGE_MASK;
+			
+			for (int word = (int)(addr & PAGE_MASK) >> 6; word < page.used.length; ++word) {
+				long	bits = ~page.used [word];
+				
+				if (word == ((int)(addr & PAGE_MASK) >> 6))
+					bits &= -1L << (addr & 63);
+				if (bits != 0)
+					return (base + (word << 6) + Long.numberOfTrailingZeros (bits));
+			}
+			addr = base + PAGE_SIZE;
+		}
+		return (max + 1);
+	}
+	
+	/**
+	 * The number of address bits covered by a page.
+	 */
+	private static final int	PAGE_BITS	= 12;
+	
+	/**
+	 * The number of bytes in a page.
+	 */
+	private static final int	PAGE_SIZE	= 1 << PAGE_BITS;
+	
+	/**
+	 * Mask that extracts the offset within a page from an address.
+	 */
+	private static final long	PAGE_MASK	= PAGE_SIZE - 1;
 	
 	/**
 	 * The start address of the memory area.
@@ -65,12 +278,7 @@ abstract class CachedTarget extends Target
 	/**
 	 * The size of the memory area.
 	 */
-	protected int			size;
-	
-	/**
-	 * The data comprising the linked code.
-	 */
-	protected int [] 		code;
+	protected long			size;
 	
 	/**
 	 * The lowest address written.
@@ -96,8 +304,62 @@ abstract class CachedTarget extends Target
 		
 		this.start = start;
 		this.end   = end;
-		size = (int)(end - start + 1);
+		size = end - start + 1;
+	}
+	
+	/**
+	 * A <CODE>Page</CODE> holds the values for one block of addresses and
+	 * a bit map showing which of them have been written.
+	 */
+	private static final class Page
+	{
+		/**
+		 * The stored values.
+		 */
+		final int []		data	= new int [PAGE_SIZE];
 		
-		code = new int [size];
+		/**
+		 * One bit for each written value.
+		 */
+		final long []		used	= new long [PAGE_SIZE / 64];
+	}
+	
+	/**
+	 * The allocated pages indexed by page number.
+	 */
+	private TreeMap<Long, Page>	pages
+		= new TreeMap<Long, Page> ();
+	
+	/**
+	 * The number of the most recently accessed page.
+	 */
+	private long			lastNumber	= -1;
+	
+	/**
+	 * The most recently accessed page.
+	 */
+	private Page			lastPage	= null;
+	
+	/**
+	 * Finds the page with the given number, optionally creating it.
+	 * 
+	 * @param	number			The page number.
+	 * @param	create			<CODE>true</CODE> if a missing page should
+	 * 							be allocated.
+	 * @return	The <CODE>Page</CODE> or <CODE>null</CODE>.
+	 */
+	private Page findPage (long number, boolean create)
+	{
+		if (number == lastNumber) return (lastPage);
+		
+		Page	page = pages.get (number);
+		
+		if (page == null) {
+			if (!create) return (null);
+			pages.put (number, page = new Page ());
+		}
+		lastNumber = number;
+		lastPage   = page;
+		return (page);
 	}
 }
\ No newline at end of file
@@ -23,6 +23,7 @@
 package uk.co.demon.obelisk.xlnk;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
 
 import uk.co.demon.obelisk.xobj.Hex;
@@ -63,19 +64,20 @@ class DumpTarget extends CachedTarget
 	 * {@inheritDoc}
 	 */
 	public void writeTo (File file)
+		throws IOException
 	{
 		try {
 			PrintWriter		writer = new PrintWriter (file);
 			int				span  = getByteSize () / 4;
 			
-			for (int index = 0; index < size; index += 16) {
+			for (long index = 0; index < size; index += 16) {
 				writer.print (':');
 				writer.print (Hex.toHex(index,  4));
 				
 				for (int offset = 0; offset < 16; ++offset) {
 					if ((index + offset) < size) {
 						writer.print (' ');
-						writer.print (Hex.toHex (code [index + offset], span));
+						writer.print (Hex.toHex (get (start + index + offset), span));
 					}
 					else
 						break;
@@ -83,9 +85,11 @@ class DumpTarget extends CachedTarget
 				writer.println ();
 			}
 			writer.close ();
+			if (writer.checkError ())
+				throw new IOException ("Write error on " + file.getPath ());
 		}
-		catch (Exception error) {
-			System.err.println ("Error: A serious error occurred writing the object module.");
+		catch (RuntimeException error) {
+			throw new IOException ("A serious error occurred writing " + file.getPath (), error);
 		}
 	}
 }
\ No newline at end of file
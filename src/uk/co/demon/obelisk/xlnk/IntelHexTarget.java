@@ -23,12 +23,16 @@
 package uk.co.demon.obelisk.xlnk;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
 
 import uk.co.demon.obelisk.xobj.Hex;
 
 /**
- * A linker target format that creates Intel HEX files.
+ * A linker target format that creates Intel HEX files. Record addresses are
+ * offsets from the start of the output area and only the populated extents
+ * of the image are written. Extended linear address records are emitted
+ * when an offset does not fit in 16 bits.
  * 
  * @author	Andrew Jacobs
  */
@@ -62,35 +66,59 @@ class IntelHexTarget extends CachedTarget
 	 * {@inheritDoc}
 	 */
 	public void writeTo (File file)
+		throws IOException
 	{
 		try {
 			PrintWriter		writer = new PrintWriter (file);
 			int				span  = getByteSize () / 4;
 			
-			for (int index = 0; index < size; index += 32) {
-				int				count = size - index;
-				int				sum = 0;
-				
-				if (count > 32) count = 32;
-				
-				writer.print (':');
-				writer.print (Hex.toHex(count, 2));
-				writer.print (Hex.toHex(index, 4));
-				writer.print ("00");
-				
-				sum = count + (index >> 8) + index;
+			long			segment = 0;
+			long			lo;
+			long			hi;
+			
+			for (lo = nextUsed (start); lo != -1; lo = nextUsed (hi)) {
+				hi = nextUnused (lo);
 				
-				for (int offset = 0; offset < count; ++offset) {
-					writer.print (Hex.toHex (code [index + offset], span));
-					sum += code [index + offset];
+				for (long index = lo - start; index < hi - start;) {
+					int				count = (int) Math.min (32, hi - start - index);
+					int				sum = 0;
+					
+					// Records must not cross a 64K boundary
+					if ((index & 0xffff) + count > 0x10000)
+						count = (int)(0x10000 - (index & 0xffff));
+					
+					if ((index >> 16) != segment) {
+						segment = index >> 16;
+						
+						writer.print (":02000004");
+						writer.print (Hex.toHex (segment, 4));
+						writer.println (Hex.toHex (-(6 + (segment >> 8) + segment), 2));
+					}
+					
+					writer.print (':');
+					writer.print (Hex.toHex(count, 2));
+					writer.print (Hex.toHex(index, 4));
+					writer.print ("00");
+					
+					sum = count + (int)((index >> 8) & 0xff) + (int)(index & 0xff);
+					
+					for (int offset = 0; offset < count; ++offset) {
+						int			value = get (start + index + offset);
+						
+						writer.print (Hex.toHex (value, span));
+						sum += value;
+					}
+					writer.println (Hex.toHex(-sum, 2));
+					index += count;
 				}
-				writer.println (Hex.toHex(-sum, 2));
 			}
 			writer.println (":00000001FF");
 			writer.close ();
+			if (writer.checkError ())
+				throw new IOException ("Write error on " + file.getPath ());
 		}
-		catch (Exception error) {
-			System.err.println ("Error: A serious error occurred writing the object module.");
+		catch (RuntimeException error) {
+			throw new IOException ("A serious error occurred writing " + file.getPath (), error);
 		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,296 @@
+/*
+ * Copyright (C),2006-2016 Andrew John Jacobs.
+ *
+ * This program is provided free of charge for educational purposes
+ *
+ * Redistribution and use in binary form without modification, is permitted
+ * provided that the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS 'AS IS' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package uk.co.demon.obelisk.xlnk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Vector;
+
+/**
+ * The <CODE>LinkState</CODE> class records the outcome of a link so that a
+ * later link of the same files can reuse it. It holds a digest of every
+ * input file and, for each linked module, where its sections were placed,
+ * their final contents and the addresses of its global symbols.
+ * 
+ * @author	Andrew Jacobs
+ * @version	$Id$
+ */
+final class LinkState
+{
+	/**
+	 * The state of one module in the link.
+	 */
+	static final class Unit
+	{
+		/**
+		 * The index of the command line argument the module came from.
+		 */
+		int					file;
+		
+		/**
+		 * The index of the module within a library or -1 for an object file.
+		 */
+		int					member;
+		
+		String				name;
+		
+		String				target;
+		
+		boolean				bigEndian;
+		
+		int					byteSize;
+		
+		/**
+		 * The module's sections in order.
+		 */
+		Vector<Slot>		slots		= new Vector<Slot> ();
+		
+		/**
+		 * The global symbols defined by the module.
+		 */
+		Vector<String>		globals		= new Vector<String> ();
+		
+		/**
+		 * The address of each global symbol.
+		 */
+		Vector<java.lang.Long> addresses	= new Vector<java.lang.Long> ();
+		
+		/**
+		 * The external symbols referred to by the module.
+		 */
+		Vector<String>		externs		= new Vector<String> ();
+	}
+	
+	/**
+	 * The placement and final contents of one section.
+	 */
+	static final class Slot
+	{
+		String				name;
+		
+		boolean				relative;
+		
+		/**
+		 * The start address given to an absolute section.
+		 */
+		long				start;
+		
+		/**
+		 * The address the section was placed at.
+		 */
+		long				base;
+		
+		/**
+		 * The fixed up values of each byte in the section.
+		 */
+		int []				data;
+	}
+	
+	/**
+	 * The command line the state was created by.
+	 */
+	String					commandLine;
+	
+	/**
+	 * A digest of each command line argument's file.
+	 */
+	String []				digests;
+	
+	/**
+	 * The linked modules in link order.
+	 */
+	Vector<Unit>			units		= new Vector<Unit> ();
+	
+	/**
+	 * Calculates a digest of the contents of a file.
+	 * 
+	 * @param	fileName		The name of the file.
+	 * @return	The digest as a hex string or <CODE>null</CODE> if the file
+	 * 			could not be read.
+	 */
+	static String digest (final String fileName)
+	{
+		try {
+			byte []			hash = MessageDigest.getInstance ("SHA-256")
+										.digest (Files.readAllBytes (new File (fileName).toPath ()));
+			StringBuffer	buffer = new StringBuffer ();
+			
+			for (int index = 0; index < hash.length; ++index)
+				buffer.append (String.format ("%02x", hash [index] & 0xff));
+			
+			return (buffer.toString ());
+		}
+		catch (Exception error) {
+			return (null);
+		}
+	}
+	
+	/**
+	 * Reads the state saved by an earlier link.
+	 * 
+	 * @param	file			The state file.
+	 * @return	The <CODE>LinkState</CODE> or <CODE>null</CODE> if the file
+	 * 			does not exist or is not valid.
+	 */
+	static LinkState read (final File file)
+	{
+		if (!file.exists ()) return (null);
+		
+		try {
+			DataInputStream		stream = new DataInputStream (
+					new BufferedInputStream (new FileInputStream (file)));
+			LinkState			state = new LinkState ();
+			
+			try {
+				if ((stream.readInt () != MAGIC) || (stream.readInt () != VERSION))
+					return (null);
+				
+				state.commandLine = stream.readUTF ();
+				state.digests = new String [stream.readInt ()];
+				for (int index = 0; index < state.digests.length; ++index)
+					state.digests [index] = stream.readUTF ();
+				
+				for (int units = stream.readInt (); units > 0; --units) {
+					Unit		unit = new Unit ();
+					
+					unit.file	   = stream.readInt ();
+					unit.member	   = stream.readInt ();
+					unit.name	   = stream.readUTF ();
+					unit.target	   = stream.readUTF ();
+					unit.bigEndian = stream.readBoolean ();
+					unit.byteSize  = stream.readInt ();
+					
+					for (int slots = stream.readInt (); slots > 0; --slots) {
+						Slot		slot = new Slot ();
+						
+						slot.name	  = stream.readUTF ();
+						slot.relative = stream.readBoolean ();
+						slot.start	  = stream.readLong ();
+						slot.base	  = stream.readLong ();
+						slot.data	  = new int [stream.readInt ()];
+						for (int index = 0; index < slot.data.length; ++index)
+							slot.data [index] = (unit.byteSize > 8)
+									? stream.readUnsignedShort () : stream.readUnsignedByte ();
+						unit.slots.add (slot);
+					}
+					for (int globals = stream.readInt (); globals > 0; --globals) {
+						unit.globals.add (stream.readUTF ());
+						unit.addresses.add (stream.readLong ());
+					}
+					for (int externs = stream.readInt (); externs > 0; --externs)
+						unit.externs.add (stream.readUTF ());
+					
+					state.units.add (unit);
+				}
+				return (state);
+			}
+			finally {
+				stream.close ();
+			}
+		}
+		catch (Exception error) {
+			return (null);
+		}
+	}
+	
+	/**
+	 * Writes this state to a file.
+	 * 
+	 * @param	file			The state file.
+	 * @throws	IOException		If the file could not be written.
+	 */
+	void write (final File file)
+		throws IOException
+	{
+		DataOutputStream	stream = new DataOutputStream (
+				new BufferedOutputStream (new FileOutputStream (file)));
+		
+		try {
+			stream.writeInt (MAGIC);
+			stream.writeInt (VERSION);
+			stream.writeUTF (commandLine);
+			stream.writeInt (digests.length);
+			for (int index = 0; index < digests.length; ++index)
+				stream.writeUTF (digests [index]);
+			
+			stream.writeInt (units.size ());
+			for (int count = 0; count < units.size (); ++count) {
+				Unit		unit = units.elementAt (count);
+				
+				stream.writeInt (unit.file);
+				stream.writeInt (unit.member);
+				stream.writeUTF (unit.name);
+				stream.writeUTF (unit.target);
+				stream.writeBoolean (unit.bigEndian);
+				stream.writeInt (unit.byteSize);
+				
+				stream.writeInt (unit.slots.size ());
+				for (int index = 0; index < unit.slots.size (); ++index) {
+					Slot		slot = unit.slots.elementAt (index);
+					
+					stream.writeUTF (slot.name);
+					stream.writeBoolean (slot.relative);
+					stream.writeLong (slot.start);
+					stream.writeLong (slot.base);
+					stream.writeInt (slot.data.length);
+					for (int offset = 0; offset < slot.data.length; ++offset) {
+						if (unit.byteSize > 8)
+							stream.writeShort (slot.data [offset]);
+						else
+							stream.writeByte (slot.data [offset]);
+					}
+				}
+				
+				stream.writeInt (unit.globals.size ());
+				for (int index = 0; index < unit.globals.size (); ++index) {
+					stream.writeUTF (unit.globals.elementAt (index));
+					stream.writeLong (unit.addresses.elementAt (index));
+				}
+				
+				stream.writeInt (unit.externs.size ());
+				for (int index = 0; index < unit.externs.size (); ++index)
+					stream.writeUTF (unit.externs.elementAt (index));
+			}
+		}
+		finally {
+			stream.close ();
+		}
+	}
+	
+	/**
+	 * Identifies a link state file ("XLNK").
+	 */
+	private static final int	MAGIC	= 0x584C4E4B;
+	
+	/**
+	 * The version of the state file layout.
+	 */
+	private static final int	VERSION	= 1;
+}
\ No newline at end of file
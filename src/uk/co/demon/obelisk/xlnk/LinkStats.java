@@ -0,0 +1,334 @@
+/*
+ * Copyright (C),2006-2016 Andrew John Jacobs.
+ *
+ * This program is provided free of charge for educational purposes
+ *
+ * Redistribution and use in binary form without modification, is permitted
+ * provided that the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS 'AS IS' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package uk.co.demon.obelisk.xlnk;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Vector;
+
+/**
+ * The <CODE>LinkStats</CODE> class measures the stages of a link. Each
+ * stage is reported to Java Flight Recorder, when it is available, and
+ * its elapsed time and the memory allocated while it ran by the linker
+ * thread and the fork-join workers that ran its tasks can be printed and saved as JSON along with counts of the objects that
+ * were linked.
+ * 
+ * @author	Andrew Jacobs
+ * @version	$Id$
+ */
+final class LinkStats
+{
+	/**
+	 * The number of modules linked.
+	 */
+	int						modules;
+	
+	/**
+	 * The number of those modules that were library members.
+	 */
+	int						members;
+	
+	/**
+	 * The number of sections placed.
+	 */
+	int						sections;
+	
+	/**
+	 * The number of expressions fixed up.
+	 */
+	int						relocations;
+	
+	/**
+	 * The number of global symbols defined.
+	 */
+	int						symbols;
+	
+	/**
+	 * The number of library index lookups made for undefined symbols. Each
+	 * search of one library for one symbol counts once. It is printed as
+	 * "library lookups" and saved under the JSON key "lookups".
+	 */
+	int						lookups;
+	
+	/**
+	 * Constructs a <CODE>LinkStats</CODE> instance.
+	 * 
+	 * @param	measure			<CODE>true</CODE> if times and allocations
+	 * 							should be measured.
+	 */
+	LinkStats (boolean measure)
+	{
+		this.measure = measure;
+		
+		if (measure) {
+			ThreadMXBean	bean = ManagementFactory.getThreadMXBean ();
+			
+			if ((bean instanceof com.sun.management.ThreadMXBean)
+					&& ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported ())
+				threads = (com.sun.management.ThreadMXBean) bean;
+		}
+	}
+	
+	/**
+	 * Ends the current stage, if any, and starts a new one.
+	 * 
+	 * @param	name			The name of the new stage.
+	 */
+	void begin (final String name)
+	{
+		end ();
+		
+		stage = name;
+		if (recording) event = startEvent (name);
+		if (measure) {
+			startTime = System.nanoTime ();
+			rebase ();
+		}
+	}
+	
+	/**
+	 * Ends the current stage.
+	 */
+	void end ()
+	{
+		if (stage == null) return;
+		
+		if (recording) ((LinkStageEvent) event).commit ();
+		if (measure) {
+			names.add (stage);
+			times.add (System.nanoTime () - startTime);
+			bytes.add (allocated ());
+		}
+		stage = null;
+		event = null;
+	}
+	
+	/**
+	 * Prints a report of the measurements.
+	 * 
+	 * @param	out				The <CODE>PrintStream</CODE> to write to.
+	 */
+	void print (PrintStream out)
+	{
+		long		totalTime  = 0;
+		long		totalBytes = 0;
+		
+		out.println ("Link statistics:");
+		for (int index = 0; index < names.size (); ++index) {
+			out.println (String.format ("  %-24s %10.3f ms %12d bytes", names.elementAt (index),
+					times.elementAt (index) / 1e6, bytes.elementAt (index)));
+			totalTime  += times.elementAt (index);
+			totalBytes += bytes.elementAt (index);
+		}
+		out.println (String.format ("  %-24s %10.3f ms %12d bytes", "Total", totalTime / 1e6, totalBytes));
+		out.println ("  Modules " + modules + " (" + members + " from libraries), sections " + sections
+				+ ", relocations " + relocations + ", symbols " + symbols + ", library lookups " + lookups);
+	}
+	
+	/**
+	 * Writes the measurements to a file as a JSON object.
+	 * 
+	 * @param	file			The <CODE>File</CODE> to write to.
+	 * @throws	IOException		If the file could not be written.
+	 */
+	void write (final File file)
+		throws IOException
+	{
+		PrintWriter		writer = new PrintWriter (file);
+		
+		try {
+			writer.println ("{");
+			writer.println ("  \"stages\": [");
+			for (int index = 0; index < names.size (); ++index) {
+				writer.print ("    { \"name\": \"" + names.elementAt (index) + "\", \"nanos\": "
+						+ times.elementAt (index) + ", \"bytes\": " + bytes.elementAt (index) + " }");
+				writer.println ((index < names.size () - 1) ? "," : "");
+			}
+			writer.println ("  ],");
+			writer.println ("  \"modules\": " + modules + ",");
+			writer.println ("  \"members\": " + members + ",");
+			writer.println ("  \"sections\": " + sections + ",");
+			writer.println ("  \"relocations\": " + relocations + ",");
+			writer.println ("  \"symbols\": " + symbols + ",");
+			writer.println ("  \"lookups\": " + lookups);
+			writer.println ("}");
+		}
+		finally {
+			writer.close ();
+		}
+		if (writer.checkError ()) throw new IOException ("Failed to write " + file);
+	}
+	
+	/**
+	 * Indicates whether the Java Flight Recorder API is available.
+	 */
+	private static final boolean	recording = isRecordingAvailable ();
+	
+	/**
+	 * Whether times and allocations are being measured.
+	 */
+	private final boolean	measure;
+	
+	/**
+	 * The bean used to measure allocations or <CODE>null</CODE> if the JVM
+	 * does not support it.
+	 */
+	private com.sun.management.ThreadMXBean threads = null;
+	
+	/**
+	 * The name of the current stage or <CODE>null</CODE>.
+	 */
+	private String			stage		= null;
+	
+	/**
+	 * The flight recorder event for the current stage.
+	 */
+	private Object			event		= null;
+	
+	/**
+	 * The time the current stage started.
+	 */
+	private long			startTime;
+	
+	/**
+	 * The allocation total of each thread taking part in the link when the
+	 * current stage started or when it first ran a task, indexed by thread
+	 * identifier.
+	 */
+	private Hashtable<java.lang.Long, java.lang.Long> baselines
+		= new Hashtable<java.lang.Long, java.lang.Long> ();
+	
+	/**
+	 * The names of the completed stages.
+	 */
+	private Vector<String>	names		= new Vector<String> ();
+	
+	/**
+	 * The elapsed time of each stage in nanoseconds.
+	 */
+	private Vector<java.lang.Long> times = new Vector<java.lang.Long> ();
+	
+	/**
+	 * The bytes allocated during each stage.
+	 */
+	private Vector<java.lang.Long> bytes = new Vector<java.lang.Long> ();
+	
+	/**
+	 * Determines whether the Java Flight Recorder classes can be loaded.
+	 * 
+	 * @return	<CODE>true</CODE> if stage events can be recorded.
+	 */
+	private static boolean isRecordingAvailable ()
+	{
+		try {
+			Class.forName ("jdk.jfr.Event");
+			return (true);
+		}
+		catch (Throwable error) {
+			return (false);
+		}
+	}
+	
+	/**
+	 * Creates and starts the flight recorder event for a stage.
+	 * 
+	 * @param	name			The name of the stage.
+	 * @return	The started event.
+	 */
+	private static Object startEvent (final String name)
+	{
+		LinkStageEvent	event = new LinkStageEvent ();
+		
+		event.stage = name;
+		event.begin ();
+		return (event);
+	}
+	
+	/**
+	 * Records the calling thread as taking part in the current stage so
+	 * that its allocations are measured. Fork-join tasks call this as they
+	 * start; threads already known are unaffected.
+	 */
+	void enlist ()
+	{
+		if (threads == null) return;
+		
+		java.lang.Long	id = Thread.currentThread ().getId ();
+		
+		synchronized (baselines) {
+			if (!baselines.containsKey (id))
+				baselines.put (id, threads.getThreadAllocatedBytes (id));
+		}
+	}
+	
+	/**
+	 * Resets the baseline of every known thread at the start of a stage and
+	 * enlists the linker thread.
+	 */
+	private void rebase ()
+	{
+		if (threads == null) return;
+		
+		synchronized (baselines) {
+			Enumeration<java.lang.Long>	cursor = baselines.keys ();
+			
+			while (cursor.hasMoreElements ()) {
+				java.lang.Long	id = cursor.nextElement ();
+				
+				baselines.put (id, threads.getThreadAllocatedBytes (id));
+			}
+		}
+		enlist ();
+	}
+	
+	/**
+	 * Returns the number of bytes allocated since their baselines by the
+	 * linker thread and the fork-join workers enlisted in the stage.
+	 * 
+	 * @return	The number of bytes allocated.
+	 */
+	private long allocated ()
+	{
+		if (threads == null) return (0);
+		
+		long			total = 0;
+		
+		synchronized (baselines) {
+			Enumeration<java.lang.Long>	cursor = baselines.keys ();
+			
+			while (cursor.hasMoreElements ()) {
+				java.lang.Long	id	 = cursor.nextElement ();
+				long			size = threads.getThreadAllocatedBytes (id);
+				
+				if (size > baselines.get (id)) total += size - baselines.get (id);
+			}
+		}
+		return (total);
+	}
+}
\ No newline at end of file
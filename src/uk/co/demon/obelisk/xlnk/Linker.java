@@ -23,11 +23,19 @@
 package uk.co.demon.obelisk.xlnk;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import uk.co.demon.obelisk.xapp.Application;
 import uk.co.demon.obelisk.xapp.Option;
@@ -38,15 +46,18 @@ import uk.co.demon.obelisk.xobj.Evaluatable;
 import uk.co.demon.obelisk.xobj.Expr;
 import uk.co.demon.obelisk.xobj.Extern;
 import uk.co.demon.obelisk.xobj.Hex;
+import uk.co.demon.obelisk.xobj.Jump;
 import uk.co.demon.obelisk.xobj.Library;
 import uk.co.demon.obelisk.xobj.Long;
 import uk.co.demon.obelisk.xobj.Module;
 import uk.co.demon.obelisk.xobj.Parser;
 import uk.co.demon.obelisk.xobj.Part;
+import uk.co.demon.obelisk.xobj.Relocations;
 import uk.co.demon.obelisk.xobj.Section;
 import uk.co.demon.obelisk.xobj.SectionMap;
 import uk.co.demon.obelisk.xobj.SymbolMap;
 import uk.co.demon.obelisk.xobj.UnaryExpr;
+import uk.co.demon.obelisk.xobj.Value;
 import uk.co.demon.obelisk.xobj.Word;
 
 /**
@@ -64,71 +75,100 @@ public abstract class Linker extends Application
 		byteMask = (1L << byteSize) - 1;
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	public void run (String arguments [])
+	{
+		commandLine = String.join ("\n", arguments);
+		
+		super.run (arguments);
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
 	protected void startUp ()
 	{
 		super.startUp ();
+		if (isFinished ()) return;
 		
+		profile = new LinkStats (stats.isPresent ());
 		createAreas ();
 		
-		int 	count = 0;
-		if (hex.isPresent ()) ++count;
-		if (ihx.isPresent ()) ++count;
-		if (bin.isPresent ()) ++count;
-		if (wdc.isPresent ()) ++count;
-		if (s19.isPresent ()) ++count;
-		if (s28.isPresent ()) ++count;
-		if (s37.isPresent ()) ++count;
-		if (dmp.isPresent ()) ++count;
-		if (cdo.isPresent ()) ++count;
-		
-		if (count == 0) {
+		if (alloc.isPresent ()) {
+			String		policy = alloc.getValue ();
+			
+			if ((policy != null) && policy.equals ("best"))
+				bestFit = true;
+			else if ((policy != null) && policy.equals ("ordered"))
+				ordered = true;
+			else if ((policy == null) || !policy.equals ("first")) {
+				error ("Invalid allocation policy (first, best or ordered)");
+				setFinished (true);
+				return;
+			}
+		}
+		
+		applyPolicy ();
+		
+		Area		area;
+		long		hi	= 0x00000000L;
+		long		lo	= 0xffffffffL;
+		
+		if ((area = (Area) areas.get (".code")) != null) {
+			if (area.getHiAddr() > hi) hi = area.getHiAddr ();
+			if (area.getLoAddr() < lo) lo = area.getLoAddr ();
+		}
+		if ((area = (Area) areas.get (".data")) != null) {
+			if (area.getHiAddr() > hi) hi = area.getHiAddr ();
+			if (area.getLoAddr() < lo) lo = area.getLoAddr ();
+		}
+		
+		if (hex.isPresent ()) addTarget ("hex", new HexTarget (lo, hi, byteSize));
+		if (ihx.isPresent ()) addTarget ("ihx", new IntelHexTarget (lo, hi, byteSize));
+		if (bin.isPresent ()) addTarget ("bin", new BinTarget (lo, hi, byteSize));
+		if (wdc.isPresent ()) addTarget ("wdc", new WDCTarget (lo, hi, byteSize));
+		if (s19.isPresent ()) addTarget ("s19", new S19Target (lo, hi, byteSize));
+		if (s28.isPresent ()) addTarget ("s28", new S28Target (lo, hi, byteSize));
+		if (s37.isPresent ()) addTarget ("s37", new S37Target (lo, hi, byteSize));
+		if (dmp.isPresent ()) addTarget ("dmp", new DumpTarget (lo, hi, byteSize));
+		if (cdo.isPresent ()) addTarget ("c",   new CTarget (lo, hi, byteSize));
+		
+		if (targets.isEmpty ()) {
 			error ("No output format selected (-bin, -hex, -ihx, -s19, -dmp, -c, -wdc, -s28 or -s37).");
 			setFinished (true);
 			return;
 		}
-		else if (count > 1) {
-			error ("Only one output format can be selected at a time.");
-			setFinished (true);
-		}
-		else {
-			Area		area;
-			long		hi	= 0x00000000L;
-			long		lo	= 0xffffffffL;
-			
-			if ((area = (Area) areas.get (".code")) != null) {
-				if (area.getHiAddr() > hi) hi = area.getHiAddr ();
-				if (area.getLoAddr() < lo) lo = area.getLoAddr ();
-			}
-			if ((area = (Area) areas.get (".data")) != null) {
-				if (area.getHiAddr() > hi) hi = area.getHiAddr ();
-				if (area.getLoAddr() < lo) lo = area.getLoAddr ();
-			}
-			
-			if (hex.isPresent ())
-				target = new HexTarget (lo, hi, byteSize);
-			else if (ihx.isPresent ())
-				target = new IntelHexTarget (lo, hi, byteSize);
-			else if (bin.isPresent ())
-				target = new BinTarget (lo, hi, byteSize);
-			else if (wdc.isPresent ())
-				target = new WDCTarget (lo, hi, byteSize);
-			else if (s19.isPresent ())
-				target = new S19Target (lo, hi, byteSize);
-			else if (s28.isPresent ())
-				target = new S28Target (lo, hi, byteSize);
-			else if (s37.isPresent ())
-				target = new S37Target (lo, hi, byteSize);
-			else if (dmp.isPresent ())
-				target = new DumpTarget (lo, hi, byteSize);
-			else if (cdo.isPresent ())
-				target = new CTarget (lo, hi, byteSize);
+		
+		if (files.isPresent () && (files.getValue () != null)) {
+			String [] entries = files.getValue ().split (",");
+			
+			for (int index = 0; index < entries.length; ++index) {
+				int		split = entries [index].indexOf ('=');
+				String	name  = (split > 0) ? entries [index].substring (0, split).trim () : "";
+				
+				if ((split <= 0) || (split == entries [index].length () - 1)) {
+					error ("Invalid output file '" + entries [index] + "' (format=file)");
+					setFinished (true);
+					return;
+				}
+				if (!formats.contains (name)) {
+					error ("Output file given for unselected format '" + name + "'");
+					setFinished (true);
+					return;
+				}
+				paths.put (name, entries [index].substring (split + 1).trim ());
+			}
 		}
 		
+		if (root.isPresent () && !gc.isPresent ())
+			warning ("-root has no effect without -gc");
+		if (incremental.isPresent () && gc.isPresent ())
+			warning ("-incremental has no effect with -gc");
+		
 		if (getArguments ().length == 0) {
-			System.err.println ("Error: No object or library files specified");
+			messages.println ("Error: No object or library files specified");
 			setFinished (true);
 		}
 	}
@@ -140,14 +180,27 @@ public abstract class Linker extends Application
 	{
 		String []		arguments = getArguments();
 		
+		// Try to repeat the previous link reusing its unchanged modules
+		if (incremental.isPresent () && !gc.isPresent ()) {
+			profile.begin ("Incremental relink");
+			if (relink ()) return;
+			reset ();
+		}
+		
 		// Stage I - Load all the modules and libraries
+		profile.begin ("Stage I - Load");
+		
+		Object []		objects	  = loadFiles (arguments);
+		
 		for (int index = 0; index < arguments.length; ++index) {
 			if (arguments [index].endsWith (".obj")) {
-				Object object = Parser.parse (arguments [index]);
+				Object object = objects [index];
 	
 				if ((object != null) && (object instanceof Module)) {
-					if (!modules.contains (object))
+					if (!modules.contains (object)) {
 						modules.add ((Module) object);
+						origins.put ((Module) object, new int [] { index, -1 });
+					}
 					else
 						warning ("Module '" + arguments [index] + "' specified more than once");
 				}
@@ -157,11 +210,13 @@ public abstract class Linker extends Application
 				}
 			}
 			else if (arguments [index].endsWith (".lib")) {
-				Object object = Parser.parse (arguments [index]);
+				Object object = objects [index];
 				
 				if ((object != null) && (object instanceof Library)) {
-					if (!libraries.contains (object))
+					if (!libraries.contains (object)) {
 						libraries.add ((Library) object);
+						libraryFiles.put ((Library) object, index);
+					}
 					else
 						warning ("Library '" + arguments [index] + "' specified more than once");
 				}
@@ -179,16 +234,16 @@ public abstract class Linker extends Application
 		if (this.isFinished ()) return;
 		
 		// Stage II - process all the modules that must be linked
+		profile.begin ("Stage II - Modules");
 		for (int index = 0; index < modules.size (); ++index)
 			processModule (modules.elementAt (index));
 				
 		// Stage III - process libraries for any required modules
-		int		moduleCount;
-		do {
-			moduleCount = modules.size ();
-			for (int index = 0; index < libraries.size(); ++index)
-				processLibrary (libraries.elementAt (index)); 
-		} while (modules.size() != moduleCount);
+		profile.begin ("Stage III - Libraries");
+		
+		for (int index = 0; index < unresolved.size (); ++index)
+			resolve (unresolved.elementAt (index));
+		unresolved.clear ();
 		
 		if (refs.size() > 0) {
 			Enumeration<String> cursor = refs.keys();
@@ -202,90 +257,63 @@ public abstract class Linker extends Application
 			return;
 		}
 
-		// Stage IV - Sort sections by type and size
+		// Stage IIIa - Optionally find the sections reachable from the roots
+		if (gc.isPresent ()) {
+			profile.begin ("Stage IIIa - Reachability");
+			if (!markLive ()) return;
+		}
+
+		// Stage IV - Sort sections by type and size (unless they are to be
+		// placed in link order)
+		profile.begin ("Stage IV - Sort");
 		for (int index = 0; index < modules.size (); ++index) {
 			Vector<Section> sections = modules.elementAt (index).getSections();
 			
 			for (int count = 0; count < sections.size (); ++count) {
 				Section section = sections.elementAt (count);
 				
-				Vector<Section> vec = section.isAbsolute () ? abs : rel;
-	
-				boolean handled = false;
-				for (int position = 0; position < vec.size (); ++position) {
-					Section	other = vec.elementAt (position);
-					
-					if (other.getSize () < section.getSize()) {
-						vec.insertElementAt(section, position);
-						handled = true;
-						break;
-					}
+				if ((live != null) && !live.contains (section)) {
+					removed.add (section);
+					continue;
 				}
-				if (!handled) vec.add (section);
+				(section.isAbsolute () ? abs : rel).add (section);
 			}
 		}
 		
-		// Stage V - Fit sections into available memory
-		for (int index = 0; index < abs.size (); ++index) {
-			Section		section = abs.elementAt (index);
-			long 		base 	= fitSection (section);
-		
-			if (base == -1) return;
-			sectionMap.setBaseAddress (section, base);
+		if (!ordered) {
+			Comparator<Section> bySize = new Comparator<Section> ()
+			{
+				public int compare (Section lhs, Section rhs)
+				{
+					return (Integer.compare (rhs.getSize (), lhs.getSize ()));
+				}
+			};
+			
+			// A stable sort keeps sections of equal size in link order
+			Collections.sort (abs, bySize);
+			Collections.sort (rel, bySize);
 		}
-
-		for (int index = 0; index < rel.size (); ++index) {
-			Section		section = rel.elementAt (index);
-			long 		base 	= fitSection (section);
 		
-			if (base == -1) {
-				error ("Failed to fit section '" + section.getName() + "' in module '" + section.getModule().getName () + "'");
-				setFinished (true);
-				return;
-			}
-			sectionMap.setBaseAddress (section, base);
-		}
+		// Stage V - Fit sections into available memory
+		profile.begin ("Stage V - Placement");
+		if (!placeSections (true)) return;
 		
 		// Stage VI - Calculate all the global symbol addresses
-		for (int index = 0; index < modules.size (); ++index) {
-			Module 		module = modules.elementAt (index);
-			Vector<String> globals = module.getGlobals ();
-			
-			for (int count = 0; count < globals.size (); ++count) {
-				String 	symbol 	= globals.elementAt (count);
-				Expr	expr	= module.getGlobal (symbol);
-				
-				symbolMap.addAddress (symbol, expr.resolve (sectionMap, symbolMap));
-			}
-		}
-		
-		// Stage VII - Copy code to target fixing cross references
-		for (int index = 0; index < modules.size (); ++index)
-			fixUp (modules.elementAt (index));	
+		profile.begin ("Stage VI - Globals");
+		resolveGlobals ();
 		
-		// Figure out output filenames
-		File		objectFile;
-		File		mapFile;
+		// Stage VIa - Shorten any relaxable jumps that are in range
+		profile.begin ("Stage VIa - Relaxation");
+		relaxJumps ();
 		
-		if (output.isPresent ()) {
-			String		filename = output.getValue ();
-			
-			objectFile = new File (filename);
-			mapFile = new File (filename.substring (0, filename.lastIndexOf ('.')) + ".map");
-		}
-		else {
-			String		filename = getArguments ()[0];
-
-			if (hex.isPresent ())
-				objectFile = new File (filename.substring (0, filename.lastIndexOf ('.')) + ".hex");
-			else
-				objectFile = new File (filename.substring (0, filename.lastIndexOf ('.')) + ".bin");
-
-			mapFile = new File (filename.substring (0, filename.lastIndexOf ('.')) + ".map");
-		}
+		// Stage VII - Copy code to target fixing cross references
+		profile.begin ("Stage VII - Fix up");
+		fixUpModules ();
 		
-		writeMap (mapFile);
-		target.writeTo (objectFile);
+		profile.begin ("Output");
+		writeOutputs ();
+		if (incremental.isPresent () && !gc.isPresent ()) saveState ();
+		reportStats ();
 		
 		setFinished (true);
 	}
@@ -295,7 +323,55 @@ public abstract class Linker extends Application
 	 */
 	protected void cleanUp ()
 	{
-		if (errors > 0) System.exit (1);
+		if ((errors > 0) && exitOnError) System.exit (1);
+	}
+	
+	/**
+	 * Returns the number of errors reported.
+	 * 
+	 * @return	The error count.
+	 */
+	public int getErrorCount ()
+	{
+		return (errors);
+	}
+	
+	/**
+	 * Sets the <CODE>PrintStream</CODE> to which error and warning messages
+	 * are written. By default this is <CODE>System.err</CODE>.
+	 * 
+	 * @param	messages		The message <CODE>PrintStream</CODE>.
+	 */
+	public void setMessageStream (final PrintStream messages)
+	{
+		this.messages = messages;
+	}
+	
+	/**
+	 * Controls whether a failed link terminates the JVM. This must be
+	 * disabled when the linker is used within another application.
+	 * 
+	 * @param	exitOnError		<CODE>true</CODE> to exit on failure.
+	 */
+	public void setExitOnError (boolean exitOnError)
+	{
+		this.exitOnError = exitOnError;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	protected PrintStream getMessageStream ()
+	{
+		return (messages);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	protected boolean isExitOnError ()
+	{
+		return (exitOnError);
 	}
 	
 	/**
@@ -313,8 +389,8 @@ public abstract class Linker extends Application
 	 */
 	protected void error (final String message)
 	{
-		System.err.print ("Error: ");
-		System.err.println (message);
+		messages.print ("Error: ");
+		messages.println (message);
 		
 		++errors;
 	}
@@ -326,8 +402,8 @@ public abstract class Linker extends Application
 	 */
 	protected void warning (final String message)
 	{
-		System.err.print ("Warn: ");
-		System.err.println (message);
+		messages.print ("Warn: ");
+		messages.println (message);
 	}
 	
 	/**
@@ -350,7 +426,7 @@ public abstract class Linker extends Application
 		}
 
 		// If no data area defined alias it to the code.
-		if (!areas.containsKey(".data"))
+		if (!areas.containsKey(".data") && areas.containsKey(".code"))
 			areas.put (".data", areas.get(".code"));
 	}
 	
@@ -362,9 +438,13 @@ public abstract class Linker extends Application
 	 */
 	protected final void addArea (final String name, final String location)
 	{
-		Area			area = new Area (location);
-		
-		areas.put (name, area);
+		try {
+			areas.put (name, new Area (location));
+		}
+		catch (IllegalArgumentException error) {
+			error (error.getMessage ());
+			setFinished (true);
+		}
 	}
 	
 	/**
@@ -389,79 +469,186 @@ public abstract class Linker extends Application
 	 * Option for specifying target code areas.
 	 */
 	private Option			code
-		= new Option ("-code", "Code region(s)", "<regions>");
+		= new Option (this, "-code", "Code region(s)", "<regions>");
 	
 	/**
 	 * Option for specifying target data areas.
 	 */
 	private Option			data
-		= new Option ("-data", "Data region(s)", "<regions>");
+		= new Option (this, "-data", "Data region(s)", "<regions>");
 
 	/**
 	 * Option for specifying target bss areas.
 	 */
 	private Option			bss
-		= new Option ("-bss", "BSS region(s)", "<regions>");
+		= new Option (this, "-bss", "BSS region(s)", "<regions>");
 	
 	/**
 	 * Option for specifying hex output format.
 	 */
 	private Option			hex
-		= new Option ("-hex", "Generate HEX output");
+		= new Option (this, "-hex", "Generate HEX output");
 
 	/**
 	 * Option for specifying Intel hex output format.
 	 */
 	private Option			ihx
-		= new Option ("-ihx", "Generate Intel HEX output");
+		= new Option (this, "-ihx", "Generate Intel HEX output");
 
 	/**
 	 * Option for specifying binary output format.
 	 */
 	private Option			bin
-		= new Option ("-bin", "Generate binary output");
+		= new Option (this, "-bin", "Generate binary output");
 
 	/**
 	 * Option for specifying WDC binary output format.
 	 */
 	private Option			wdc
-		= new Option ("-wdc", "Generate WDC binary output");
+		= new Option (this, "-wdc", "Generate WDC binary output");
 
 	/**
 	 * Option for specifying Motorola S19 output format.
 	 */
 	private Option			s19
-		= new Option ("-s19", "Generate Motorola S19 output");
+		= new Option (this, "-s19", "Generate Motorola S19 output");
 
 	/**
 	 * Option for specifying Motorola S28 output format.
 	 */
 	private Option			s28
-		= new Option ("-s28", "Generate Motorola S28 output");
+		= new Option (this, "-s28", "Generate Motorola S28 output");
 
 	/**
 	 * Option for specifying Motorola S37 output format.
 	 */
 	private Option			s37
-		= new Option ("-s37", "Generate Motorola S37 output");
+		= new Option (this, "-s37", "Generate Motorola S37 output");
 
 	/**
 	 * Option for specifying Dump HEX output format.
 	 */
 	private Option			dmp
-		= new Option ("-dmp", "Generate Dump HEX output");
+		= new Option (this, "-dmp", "Generate Dump HEX output");
 
 	/**
 	 * Option for specifying C data output format.
 	 */
 	private Option			cdo
-		= new Option ("-c", "Generate C data output");
+		= new Option (this, "-c", "Generate C data output");
 
 	/**
 	 * Option for specifying output file.
 	 */
 	private Option			output
-		= new Option ("-output", "Output file", "<file>");
+		= new Option (this, "-output", "Output file", "<file>");
+	
+	/**
+	 * Option for specifying the output file for individual formats.
+	 */
+	private Option			files
+		= new Option (this, "-files", "Output file(s) by format", "<fmt=file[,fmt=file]*>");
+
+	/**
+	 * Option for specifying the section allocation policy.
+	 */
+	private Option			alloc
+		= new Option (this, "-alloc", "Section placement policy", "first|best|ordered");
+	
+	/**
+	 * Set when relocatable sections are placed in the smallest free region.
+	 */
+	private boolean			bestFit		= false;
+	
+	/**
+	 * Set when sections are placed in link order rather than size order.
+	 */
+	private boolean			ordered		= false;
+	
+	/**
+	 * Option for enabling the removal of unreferenced sections.
+	 */
+	private Option			gc
+		= new Option (this, "-gc", "Remove unreferenced sections");
+	
+	/**
+	 * Option for specifying the root symbols used by <CODE>-gc</CODE>.
+	 */
+	private Option			root
+		= new Option (this, "-root", "Root symbol(s) for -gc", "<sym[,sym]*>");
+	
+	/**
+	 * Option for reporting the time taken by each stage of the link.
+	 */
+	private Option			stats
+		= new Option (this, "-stats", "Report link timings and counts");
+	
+	/**
+	 * The measurements of the stages of the link.
+	 */
+	private LinkStats		profile;
+	
+	/**
+	 * Option for enabling incremental linking.
+	 */
+	private Option			incremental
+		= new Option (this, "-incremental", "Reuse the previous link where possible");
+	
+	/**
+	 * The complete command line used to check a saved link state applies.
+	 */
+	private String			commandLine	= "";
+	
+	/**
+	 * The digests of the command line files or <CODE>null</CODE> if they
+	 * have not been calculated.
+	 */
+	private String []		digests		= null;
+	
+	/**
+	 * The command line index and library member index of each module.
+	 */
+	private Hashtable<Module, int []> origins
+		= new Hashtable<Module, int []> ();
+	
+	/**
+	 * The command line index of each library.
+	 */
+	private Hashtable<Library, Integer> libraryFiles
+		= new Hashtable<Library, Integer> ();
+	
+	/**
+	 * The saved state of each module restored from the previous link.
+	 */
+	private Hashtable<Module, LinkState.Unit> restored
+		= new Hashtable<Module, LinkState.Unit> ();
+	
+	/**
+	 * The set of sections reachable from the roots, or <CODE>null</CODE> if
+	 * all sections are to be linked.
+	 */
+	private HashSet<Section>	live		= null;
+	
+	/**
+	 * The relaxable jumps that have been reduced to their short form.
+	 */
+	private HashSet<Jump>		shortJumps	= new HashSet<Jump> ();
+	
+	/**
+	 * The total number of relaxable jumps in the linked sections.
+	 */
+	private int					jumps		= 0;
+	
+	/**
+	 * Global symbols whose definitions have been marked as reachable.
+	 */
+	private HashSet<String>		marked		= new HashSet<String> ();
+	
+	/**
+	 * The sections discarded as unreachable in link order.
+	 */
+	private Vector<Section>		removed
+		= new Vector<Section> ();
 
 	/**
 	 * The set of modules to be linked.
@@ -481,6 +668,13 @@ public abstract class Linker extends Application
 	private Hashtable<String, Module> refs
 		= new Hashtable<String, Module> ();
 	
+	/**
+	 * Symbols that have become undefined references and are waiting to be
+	 * looked up in the libraries, in the order they were found.
+	 */
+	private Vector<String>		unresolved
+		= new Vector<String> ();
+	
 	/**
 	 * Defined symbols and the module that defines them.
 	 */
@@ -516,15 +710,88 @@ public abstract class Linker extends Application
 	private SymbolMap		symbolMap	= new SymbolMap ();
 	
 	/**
-	 * The <CODE>Target</CODE> class instance used to create the output file.
+	 * The compiled expressions of each section.
+	 */
+	private Hashtable<Section, Relocations> relocations
+		= new Hashtable<Section, Relocations> ();
+	
+	/**
+	 * The <CODE>Target</CODE> instances for every selected output format.
+	 * The first holds the image and the others share it.
 	 */
-	private Target			target;
+	private Vector<CachedTarget>	targets
+		= new Vector<CachedTarget> ();
+	
+	/**
+	 * The format names of the selected targets (e.g. "bin").
+	 */
+	private Vector<String>		formats
+		= new Vector<String> ();
+	
+	/**
+	 * Output file names given for specific formats.
+	 */
+	private Hashtable<String, String> paths
+		= new Hashtable<String, String> ();
 	
 	/**
 	 * The number of error encountered during linking.
 	 */
 	private int				errors		= 0;
 	
+	/**
+	 * The <CODE>PrintStream</CODE> used to report errors and warnings.
+	 */
+	private PrintStream		messages	= System.err;
+	
+	/**
+	 * Determines whether a failed link terminates the JVM.
+	 */
+	private boolean			exitOnError	= true;
+	
+	/**
+	 * Parses all the object modules and libraries named on the command line.
+	 * The files are processed in parallel on the common fork-join pool but
+	 * the results are returned in command line order.
+	 * 
+	 * @param arguments		The command line arguments.
+	 * @return	The parsed objects with <CODE>null</CODE> for any argument
+	 * 			that was not a readable object or library file.
+	 */
+	private Object [] loadFiles (final String [] arguments)
+	{
+		Object []		objects = new Object [arguments.length];
+		Vector<ForkJoinTask<Object>> tasks
+			= new Vector<ForkJoinTask<Object>> ();
+		
+		for (int index = 0; index < arguments.length; ++index) {
+			final String	fileName = arguments [index];
+			
+			if (fileName.endsWith (".obj") || fileName.endsWith (".lib"))
+				tasks.add (ForkJoinTask.adapt (new Callable<Object> ()
+				{
+					public Object call ()
+					{
+						profile.enlist ();
+						return (Parser.parse (fileName, messages));
+					}
+				}));
+			else
+				tasks.add (null);
+		}
+		
+		ForkJoinPool	pool = ForkJoinPool.commonPool ();
+		
+		for (int index = 0; index < tasks.size (); ++index)
+			if (tasks.elementAt (index) != null) pool.execute (tasks.elementAt (index));
+		
+		for (int index = 0; index < tasks.size (); ++index)
+			if (tasks.elementAt (index) != null)
+				objects [index] = tasks.elementAt (index).join ();
+		
+		return (objects);
+	}
+	
 	/**
 	 * Process a code module looking for symbol references and definitions.
 	 * 
@@ -564,136 +831,1136 @@ public abstract class Linker extends Application
 	}
 	
 	/**
-	 * Process a library looking for modules that define symbols referenced
-	 * else where.
+	 * Resolves a symbol taken from the queue of undefined references by
+	 * looking it up in the index of each library in command line order.
+	 * The first member that defines it is linked, which may in turn add
+	 * new references to the end of the queue.
 	 * 
-	 * @param library		The <CODE>Library</CODE> to be processed.	
+	 * @param symbol		The referenced symbol name.
 	 */
-	private void processLibrary (Library library)
+	private void resolve (String symbol)
 	{
-		Module []		modules	= library.getModules();
+		// Ignore symbols defined by a member linked since they were queued
+		if (!refs.containsKey (symbol)) return;
 		
-		// Process each module in the library
-		for (int count = 0; count < modules.length; ++count) {
-			Module			module 	= modules [count];
-			Vector<String>	globals = module.getGlobals();
+		for (int index = 0; index < libraries.size (); ++index) {
+			Library			library = libraries.elementAt (index);
+			int				member	= library.findModule (symbol);
 			
-			// Ignore modules that have already been tagged
-			if (!this.modules.contains (module)) {
-				// Looking for globals that match referenced symbols
-				for (int index = 0; index < globals.size (); ++index) {
-					String			symbol = globals.elementAt (index);
-	
-					if (refs.containsKey (symbol)) {
-						this.modules.add (module);
-						processModule (module);
-						break;
-					}
+			++profile.lookups;
+			if (member >= 0) {
+				Module			module = library.getModule (member);
+				
+				// Ignore modules that have already been tagged
+				if (!modules.contains (module)) {
+					modules.add (module);
+					origins.put (module, new int [] { libraryFiles.get (library), member });
+					processModule (module);
 				}
+				return;
 			}
 		}
 	}
 	
 	/**
-	 * Process an expression looking for external symbol references.
+	 * Attempts to repeat the previous link reusing the placement and final
+	 * contents of every module that is unaffected by the changed files.
+	 * <P>
+	 * Only object files may have changed. A changed module must have the
+	 * same sections, each no larger than before, and define the same global
+	 * symbols. Its globals are recalculated and any module that refers to
+	 * one that has moved is relinked as well. All the other modules are
+	 * restored from the saved state without being parsed.
+	 * <P>
+	 * If any section can no longer be reserved at its previous address the
+	 * state is not reusable and the caller must perform a full link, which
+	 * reports any section that genuinely fails to fit.
 	 * 
-	 * @param expr			The <CODE>Expr</CODE> to process.
-	 * @param module		The containing <CODE>Module</CODE>.
+	 * @return	<CODE>true</CODE> if the link was completed.
 	 */
-	private void processExpression (Expr expr, Module module)
+	private boolean relink ()
 	{
-		if (expr instanceof Extern) {
-			String		name = ((Extern) expr).getName ();
-
-			if (!refs.containsKey (name) && !defs.containsKey (name))
-				refs.put (name, module);
-		}
-		else if (expr instanceof UnaryExpr)
-			processExpression (((UnaryExpr) expr).getExp (), module);
-		else if (expr instanceof BinaryExpr) {
-			processExpression (((BinaryExpr) expr).getLhs (), module);
-			processExpression (((BinaryExpr) expr).getRhs (), module);
+		String []		arguments = getArguments ();
+		LinkState		state	  = LinkState.read (getStateFile ());
+		
+		if ((state == null) || !state.commandLine.equals (commandLine)
+				|| (state.digests.length != arguments.length))
+			return (false);
+		
+		// Find the object files that have changed since the last link
+		String []		changed	= new String [arguments.length];
+		
+		digests = new String [arguments.length];
+		for (int index = 0; index < arguments.length; ++index) {
+			digests [index] = LinkState.digest (arguments [index]);
+			
+			if (digests [index] == null) return (false);
+			if (digests [index].equals (state.digests [index]))
+				changed [index] = "";
+			else if (arguments [index].endsWith (".obj"))
+				changed [index] = arguments [index];
+			else
+				return (false);
 		}
-	}
-	
-	/**
-	 * Attempts to fit a <CODE>Section</CODE> within an appropriate memory
-	 * <CODE>Area</CODE>.
-	 * 
-	 * @param section		The <CODE>Section</CODE> to be fitted.
-	 * @return The address where the <CODE>Section</CODE> was placed.
-	 */
-	private long fitSection (Section section)
-	{
-		Area		area = (Area) areas.get (section.getName());
 		
-		if (area == null) {
-			error ("No memory area has been allocated for " + section.getName());
-			setFinished (true);
-			return (-1);
+		Object []		objects	= loadFiles (changed);
+		int				count	= state.units.size ();
+		Module []		linked	= new Module [count];
+		Hashtable<String, java.lang.Long> previous
+			= new Hashtable<String, java.lang.Long> ();
+		
+		for (int index = 0; index < count; ++index) {
+			LinkState.Unit	unit = state.units.elementAt (index);
+			
+			for (int symbol = 0; symbol < unit.globals.size (); ++symbol) {
+				previous.put (unit.globals.elementAt (symbol), unit.addresses.elementAt (symbol));
+				symbolMap.addAddress (unit.globals.elementAt (symbol), unit.addresses.elementAt (symbol));
+			}
 		}
 		
-		return (area.fitSection (section));
-	}
+		for (int index = 0; index < count; ++index) {
+			LinkState.Unit	unit = state.units.elementAt (index);
+			
+			if (changed [unit.file].length () > 0) {
+				if (!(objects [unit.file] instanceof Module)) return (false);
+				
+				linked [index] = (Module) objects [unit.file];
+				if (!reuse (linked [index], unit, previous)) return (false);
+			}
+		}
+		
+		// Recalculate the globals of the relinked modules and add any module
+		// that refers to one that has moved until nothing else changes
+		for (boolean again = true; again;) {
+			for (int pass = 0;; ++pass) {
+				boolean			moved = false;
+				
+				for (int index = 0; index < count; ++index) {
+					if (linked [index] == null) continue;
+					
+					Vector<String>	globals = linked [index].getGlobals ();
+					
+					for (int symbol = 0; symbol < globals.size (); ++symbol) {
+						String	name = globals.elementAt (symbol);
+						long	addr = linked [index].getGlobal (name).resolve (sectionMap, symbolMap);
+						
+						if (addr != symbolMap.addressOf (name)) {
+							symbolMap.addAddress (name, addr);
+							moved = true;
+						}
+					}
+				}
+				if (!moved) break;
+				if (pass > previous.size ()) return (false);
+			}
+			
+			HashSet<String>	moved = new HashSet<String> ();
+			
+			for (Enumeration<String> cursor = previous.keys (); cursor.hasMoreElements ();) {
+				String		name = cursor.nextElement ();
+				
+				if (symbolMap.addressOf (name) != previous.get (name))
+					moved.add (name);
+			}
+			
+			again = false;
+			for (int index = 0; index < count; ++index) {
+				LinkState.Unit	unit = state.units.elementAt (index);
+				
+				if ((linked [index] != null) || Collections.disjoint (unit.externs, moved))
+					continue;
+				
+				if (objects [unit.file] == null)
+					objects [unit.file] = Parser.parse (arguments [unit.file], messages);
+				
+				Object		object = objects [unit.file];
+				
+				if ((unit.member >= 0) && (object instanceof Library))
+					object = ((Library) object).getModule (unit.member);
+				if (!(object instanceof Module)) return (false);
+				
+				linked [index] = (Module) object;
+				if (!reuse (linked [index], unit, previous)) return (false);
+				again = true;
+			}
+		}
+		
+		// Restore the other modules and put every section back in place
+		resetAreas ();
+		for (int index = 0; index < count; ++index) {
+			LinkState.Unit	unit	= state.units.elementAt (index);
+			Module			module	= linked [index];
+			
+			if (module == null) {
+				if ((module = restore (unit)) == null) return (false);
+				restored.put (module, unit);
+			}
+			modules.add (module);
+			origins.put (module, new int [] { unit.file, unit.member });
+			
+			Vector<String>	globals = module.getGlobals ();
+			
+			for (int symbol = 0; symbol < globals.size (); ++symbol)
+				defs.put (globals.elementAt (symbol), module);
+			
+			Vector<Section>	sections = module.getSections ();
+			
+			for (int slot = 0; slot < sections.size (); ++slot) {
+				Section		section = sections.elementAt (slot);
+				long		base	= unit.slots.elementAt (slot).base;
+				Area		area	= areas.get (section.getName ());
+				
+				// A clash means the saved placement is stale, even for a
+				// relative section, so let stage II allocate everything
+				if ((area == null) || !area.reserve (base, section.getSize ()))
+					return (false);
+				sectionMap.setBaseAddress (section, base);
+			}
+		}
+		
+		fixUpModules ();
+		
+		profile.begin ("Output");
+		writeOutputs ();
+		saveState ();
+		reportStats ();
+		
+		setFinished (true);
+		return (true);
+	}
+	
+	/**
+	 * Determines whether a newly parsed module can take the place of its
+	 * previous version and if so places its sections where they were.
+	 * 
+	 * @param module		The parsed <CODE>Module</CODE>.
+	 * @param unit			The module's state in the previous link.
+	 * @param previous		The global symbols of the previous link.
+	 * @return	<CODE>true</CODE> if the module can be reused.
+	 */
+	private boolean reuse (Module module, LinkState.Unit unit, Hashtable<String, java.lang.Long> previous)
+	{
+		Vector<Section>	sections = module.getSections ();
+		
+		if (!String.valueOf (module.getTarget ()).equals (unit.target)
+				|| (module.isBigEndian () != unit.bigEndian)
+				|| (module.getByteSize () != unit.byteSize)
+				|| (sections.size () != unit.slots.size ())
+				|| !new HashSet<String> (module.getGlobals ()).equals (new HashSet<String> (unit.globals)))
+			return (false);
+		
+		for (int index = 0; index < sections.size (); ++index) {
+			Section			section = sections.elementAt (index);
+			LinkState.Slot	slot	= unit.slots.elementAt (index);
+			
+			if (!section.getName ().equals (slot.name)
+					|| (section.isRelative () != slot.relative)
+					|| (section.isAbsolute () && (section.getStart () != slot.start))
+					|| (section.getSize () > slot.data.length))
+				return (false);
+		}
+		
+		HashSet<String>	externs = new HashSet<String> ();
+		
+		collectExterns (module, externs);
+		if (!previous.keySet ().containsAll (externs)) return (false);
+		
+		for (int index = 0; index < sections.size (); ++index)
+			sectionMap.setBaseAddress (sections.elementAt (index), unit.slots.elementAt (index).base);
+		
+		return (true);
+	}
+	
+	/**
+	 * Recreates a module from its saved state. Each section becomes an
+	 * absolute one at its previous address holding its final contents.
+	 * 
+	 * @param unit			The module's saved state.
+	 * @return	The restored <CODE>Module</CODE> or <CODE>null</CODE> if its
+	 * 			sections could not be recreated.
+	 */
+	private Module restore (LinkState.Unit unit)
+	{
+		Module		module = new Module (unit.target, unit.bigEndian, unit.byteSize);
+		
+		module.setName ((unit.name.length () > 0) ? unit.name : null);
+		
+		for (int index = 0; index < unit.slots.size (); ++index) {
+			LinkState.Slot	slot	= unit.slots.elementAt (index);
+			Section			section = module.findSection (slot.name, slot.base);
+			
+			for (int offset = 0; offset < slot.data.length; ++offset)
+				section.addByte (slot.data [offset]);
+		}
+		if (module.getSections ().size () != unit.slots.size ()) return (null);
+		
+		for (int index = 0; index < unit.globals.size (); ++index)
+			module.addGlobal (unit.globals.elementAt (index),
+					new Value (null, unit.addresses.elementAt (index)));
+		
+		return (module);
+	}
+	
+	/**
+	 * Discards everything done by a failed attempt to relink so that a full
+	 * link can be performed.
+	 */
+	private void reset ()
+	{
+		sectionMap	= new SectionMap ();
+		symbolMap	= new SymbolMap ();
+		digests		= null;
+		
+		relocations.clear ();
+		
+		modules.clear ();
+		defs.clear ();
+		origins.clear ();
+		restored.clear ();
+		resetAreas ();
+	}
+	
+	/**
+	 * Saves the state of the completed link for a later incremental link.
+	 */
+	private void saveState ()
+	{
+		String []		arguments = getArguments ();
+		LinkState		state	  = new LinkState ();
+		
+		if (digests == null) {
+			digests = new String [arguments.length];
+			
+			for (int index = 0; index < arguments.length; ++index)
+				if ((digests [index] = LinkState.digest (arguments [index])) == null) return;
+		}
+		
+		state.commandLine = commandLine;
+		state.digests	  = digests;
+		
+		for (int index = 0; index < modules.size (); ++index) {
+			Module			module	= modules.elementAt (index);
+			LinkState.Unit	unit	= restored.get (module);
+			
+			state.units.add ((unit != null) ? unit : describe (module));
+		}
+		
+		try {
+			state.write (getStateFile ());
+		}
+		catch (IOException error) {
+			warning ("Failed to write the link state file");
+		}
+	}
+	
+	/**
+	 * Captures the placement and final contents of a linked module.
+	 * 
+	 * @param module		The linked <CODE>Module</CODE>.
+	 * @return	The module's state.
+	 */
+	private LinkState.Unit describe (Module module)
+	{
+		LinkState.Unit	unit	= new LinkState.Unit ();
+		int []			origin	= origins.get (module);
+		
+		unit.file	   = origin [0];
+		unit.member	   = origin [1];
+		unit.name	   = (module.getName () != null) ? module.getName () : "";
+		unit.target	   = String.valueOf (module.getTarget ());
+		unit.bigEndian = module.isBigEndian ();
+		unit.byteSize  = module.getByteSize ();
+		
+		Vector<Section>	sections = module.getSections ();
+		
+		for (int index = 0; index < sections.size (); ++index) {
+			Section			section = sections.elementAt (index);
+			LinkState.Slot	slot	= new LinkState.Slot ();
+			
+			slot.name	  = section.getName ();
+			slot.relative = section.isRelative ();
+			slot.start	  = section.getStart ();
+			slot.base	  = sectionMap.baseAddressOf (section);
+			slot.data	  = new int [section.getSize () - sectionMap.getRemoved (section)];
+			
+			for (int offset = 0; offset < slot.data.length; ++offset)
+				slot.data [offset] = targets.elementAt (0).get (slot.base + offset);
+			
+			unit.slots.add (slot);
+		}
+		
+		Vector<String>	globals = module.getGlobals ();
+		
+		for (int index = 0; index < globals.size (); ++index) {
+			unit.globals.add (globals.elementAt (index));
+			unit.addresses.add (symbolMap.addressOf (globals.elementAt (index)));
+		}
+		
+		HashSet<String>	externs = new HashSet<String> ();
+		
+		collectExterns (module, externs);
+		unit.externs.addAll (externs);
+		
+		return (unit);
+	}
+	
+	/**
+	 * Collects the names of the external symbols a module refers to.
+	 * 
+	 * @param module		The <CODE>Module</CODE> to be scanned.
+	 * @param externs		The set of names to add to.
+	 */
+	private void collectExterns (Module module, HashSet<String> externs)
+	{
+		Vector<Section>	sections = module.getSections ();
+		
+		for (int index = 0; index < sections.size (); ++index) {
+			Vector<Part>	parts = sections.elementAt (index).getParts ();
+			
+			for (int count = 0; count < parts.size (); ++count)
+				if (parts.elementAt (count) instanceof Evaluatable)
+					collectExterns (((Evaluatable) parts.elementAt (count)).getExpr (), externs);
+		}
+		
+		Vector<String>	globals = module.getGlobals ();
+		
+		for (int index = 0; index < globals.size (); ++index)
+			collectExterns (module.getGlobal (globals.elementAt (index)), externs);
+	}
+	
+	/**
+	 * Collects the names of the external symbols used in an expression.
+	 * 
+	 * @param expr			The <CODE>Expr</CODE> to be scanned.
+	 * @param externs		The set of names to add to.
+	 */
+	private void collectExterns (Expr expr, HashSet<String> externs)
+	{
+		if (expr instanceof Extern)
+			externs.add (((Extern) expr).getName ());
+		else if (expr instanceof UnaryExpr)
+			collectExterns (((UnaryExpr) expr).getExp (), externs);
+		else if (expr instanceof BinaryExpr) {
+			collectExterns (((BinaryExpr) expr).getLhs (), externs);
+			collectExterns (((BinaryExpr) expr).getRhs (), externs);
+		}
+	}
+	
+	/**
+	 * Process an expression looking for external symbol references.
+	 * 
+	 * @param expr			The <CODE>Expr</CODE> to process.
+	 * @param module		The containing <CODE>Module</CODE>.
+	 */
+	private void processExpression (Expr expr, Module module)
+	{
+		if (expr instanceof Extern) {
+			String		name = ((Extern) expr).getName ();
+
+			if (!refs.containsKey (name) && !defs.containsKey (name)) {
+				refs.put (name, module);
+				unresolved.add (name);
+			}
+		}
+		else if (expr instanceof UnaryExpr)
+			processExpression (((UnaryExpr) expr).getExp (), module);
+		else if (expr instanceof BinaryExpr) {
+			processExpression (((BinaryExpr) expr).getLhs (), module);
+			processExpression (((BinaryExpr) expr).getRhs (), module);
+		}
+	}
+	
+	/**
+	 * Determines which sections are reachable from the roots. Absolute
+	 * sections, sections marked with <CODE>.KEEP</CODE> and the sections
+	 * containing the <CODE>-root</CODE> symbols are live, as is any section
+	 * referred to by an expression within a live section, either directly
+	 * or through a global symbol.
+	 * 
+	 * @return <CODE>true</CODE> if the link can continue.
+	 */
+	private boolean markLive ()
+	{
+		Vector<Section>	pending = new Vector<Section> ();
+		int				roots	= 0;
+		
+		live = new HashSet<Section> ();
+		
+		for (int index = 0; index < modules.size (); ++index) {
+			Vector<Section> sections = modules.elementAt (index).getSections ();
+			
+			for (int count = 0; count < sections.size (); ++count) {
+				Section section = sections.elementAt (count);
+				
+				if (section.isAbsolute () || section.isKeep ()) {
+					markSection (section, pending);
+					++roots;
+				}
+			}
+		}
+		
+		if (root.isPresent () && (root.getValue () != null)) {
+			String [] symbols = root.getValue ().split (",");
+			
+			for (int index = 0; index < symbols.length; ++index) {
+				String	symbol = symbols [index].trim ();
+				
+				if (symbol.length () == 0) continue;
+				if (!defs.containsKey (symbol)) {
+					error ("Undefined root symbol: " + symbol);
+					setFinished (true);
+					return (false);
+				}
+				markSymbol (symbol, pending);
+				++roots;
+			}
+		}
+		
+		if (roots == 0) {
+			warning ("No root symbols or sections, -gc ignored");
+			live = null;
+			return (true);
+		}
+		
+		while (!pending.isEmpty ()) {
+			Section	section = pending.remove (pending.size () - 1);
+			Vector<Part> parts = section.getParts ();
+			
+			for (int count = 0; count < parts.size (); ++count) {
+				Part	part = parts.elementAt (count);
+				
+				if (part instanceof Evaluatable)
+					markExpression (((Evaluatable) part).getExpr (), pending);
+			}
+		}
+		return (true);
+	}
+	
+	/**
+	 * Marks a <CODE>Section</CODE> as live and queues it for scanning if it
+	 * has not been seen before.
+	 * 
+	 * @param section		The <CODE>Section</CODE> to mark.
+	 * @param pending		Sections waiting to be scanned.
+	 */
+	private void markSection (Section section, Vector<Section> pending)
+	{
+		if (live.add (section)) pending.add (section);
+	}
+	
+	/**
+	 * Marks the sections referred to by a global symbol's definition.
+	 * 
+	 * @param symbol		The global symbol name.
+	 * @param pending		Sections waiting to be scanned.
+	 */
+	private void markSymbol (String symbol, Vector<Section> pending)
+	{
+		if (marked.add (symbol))
+			markExpression (defs.get (symbol).getGlobal (symbol), pending);
+	}
+	
+	/**
+	 * Marks the sections referred to by an expression.
+	 * 
+	 * @param expr			The <CODE>Expr</CODE> to process.
+	 * @param pending		Sections waiting to be scanned.
+	 */
+	private void markExpression (Expr expr, Vector<Section> pending)
+	{
+		if (expr instanceof Value) {
+			Section		section = ((Value) expr).getSection ();
+			
+			if (section != null) markSection (section, pending);
+		}
+		else if (expr instanceof Extern)
+			markSymbol (((Extern) expr).getName (), pending);
+		else if (expr instanceof UnaryExpr)
+			markExpression (((UnaryExpr) expr).getExp (), pending);
+		else if (expr instanceof BinaryExpr) {
+			markExpression (((BinaryExpr) expr).getLhs (), pending);
+			markExpression (((BinaryExpr) expr).getRhs (), pending);
+		}
+	}
+	
+	/**
+	 * Determines whether an expression can be resolved after unreachable
+	 * sections have been discarded.
+	 * 
+	 * @param expr			The <CODE>Expr</CODE> to test.
+	 * @return <CODE>true</CODE> if every section it refers to is live.
+	 */
+	private boolean isLive (Expr expr)
+	{
+		if (expr instanceof Value) {
+			Section		section = ((Value) expr).getSection ();
+			
+			return ((section == null) || live.contains (section));
+		}
+		else if (expr instanceof Extern) {
+			String		name = ((Extern) expr).getName ();
+			
+			return (isLive (defs.get (name).getGlobal (name)));
+		}
+		else if (expr instanceof UnaryExpr)
+			return (isLive (((UnaryExpr) expr).getExp ()));
+		else if (expr instanceof BinaryExpr)
+			return (isLive (((BinaryExpr) expr).getLhs ())
+					&& isLive (((BinaryExpr) expr).getRhs ()));
+		
+		return (true);
+	}
+	
+	/**
+	 * Sets the allocation policy of every memory area.
+	 */
+	private void applyPolicy ()
+	{
+		for (Enumeration<Area> cursor = areas.elements (); cursor.hasMoreElements ();)
+			cursor.nextElement ().setPolicy (bestFit ? Area.BEST_FIT : Area.FIRST_FIT);
+	}
+	
+	/**
+	 * Fits the absolute and then the relative sections into memory.
+	 * 
+	 * @param	report		<CODE>true</CODE> if a failure should be reported.
+	 * @return	<CODE>true</CODE> if every section was placed.
+	 */
+	private boolean placeSections (boolean report)
+	{
+		for (int index = 0; index < abs.size (); ++index) {
+			Section		section = abs.elementAt (index);
+			long 		base 	= fitSection (section);
+		
+			if (base == -1) return (false);
+			sectionMap.setBaseAddress (section, base);
+		}
+
+		for (int index = 0; index < rel.size (); ++index) {
+			Section		section = rel.elementAt (index);
+			long 		base 	= fitSection (section);
+		
+			if (base == -1) {
+				if (report) {
+					error ("Failed to fit section '" + section.getName() + "' in module '" + section.getModule().getName () + "'");
+					setFinished (true);
+				}
+				return (false);
+			}
+			sectionMap.setBaseAddress (section, base);
+		}
+		return (true);
+	}
+	
+	/**
+	 * Calculates the addresses of all the global symbols.
+	 */
+	private void resolveGlobals ()
+	{
+		for (int index = 0; index < modules.size (); ++index) {
+			Module 		module = modules.elementAt (index);
+			Vector<String> globals = module.getGlobals ();
+			
+			for (int count = 0; count < globals.size (); ++count) {
+				String 	symbol 	= globals.elementAt (count);
+				Expr	expr	= module.getGlobal (symbol);
+				
+				// Skip symbols that lie in discarded sections
+				if ((live != null) && !isLive (expr)) continue;
+				
+				symbolMap.addAddress (symbol, expr.resolve (sectionMap, symbolMap));
+			}
+		}
+	}
+	
+	/**
+	 * Shortens the relaxable jumps whose targets are within reach of their
+	 * short form and then places the sections again at their reduced sizes,
+	 * repeating until nothing changes. A short jump pushed out of range by
+	 * the sections moving is restored to its long form and kept there, so
+	 * each jump changes at most twice and the process always terminates.
+	 */
+	private void relaxJumps ()
+	{
+		Vector<Section>	sections = new Vector<Section> ();
+		
+		for (int index = 0; index < abs.size () + rel.size (); ++index) {
+			Section		section = (index < abs.size ()) ? abs.elementAt (index)
+										: rel.elementAt (index - abs.size ());
+			Vector<Part> parts	= section.getParts ();
+			int			count	= 0;
+			
+			for (int part = 0; part < parts.size (); ++part)
+				if (parts.elementAt (part) instanceof Jump) ++count;
+			
+			if (count > 0) {
+				sections.add (section);
+				jumps += count;
+			}
+		}
+		if (jumps == 0) return;
+		
+		HashSet<Jump>	pinned = new HashSet<Jump> ();
+		
+		while (updateJumps (sections, pinned)) {
+			for (int index = 0; index < sections.size (); ++index)
+				recordRemovals (sections.elementAt (index));
+			
+			resetAreas ();
+			if (!placeSections (false)) {
+				warning ("Relaxed sections no longer fit, jumps left in long form");
+				
+				shortJumps.clear ();
+				for (int index = 0; index < sections.size (); ++index)
+					recordRemovals (sections.elementAt (index));
+				
+				resetAreas ();
+				placeSections (true);
+				resolveGlobals ();
+				return;
+			}
+			resolveGlobals ();
+		}
+	}
+	
+	/**
+	 * Checks every relaxable jump against the current section placement,
+	 * shortening those that are in range and restoring short ones that are
+	 * no longer in range.
+	 * 
+	 * @param	sections	The sections containing relaxable jumps.
+	 * @param	pinned		Jumps that must stay in their long form.
+	 * @return	<CODE>true</CODE> if any jump changed form.
+	 */
+	private boolean updateJumps (Vector<Section> sections, HashSet<Jump> pinned)
+	{
+		boolean		changed = false;
+		
+		for (int index = 0; index < sections.size (); ++index) {
+			Section		section = sections.elementAt (index);
+			Vector<Part> parts	= section.getParts ();
+			Relocations	exprs	= relocationsOf (section);
+			long []		stack	= new long [exprs.getDepth ()];
+			int			expr	= 0;
+			long		offset	= 0;
+			
+			for (int count = 0; count < parts.size (); ++count) {
+				Part		part = parts.elementAt (count);
+				
+				if (part instanceof Jump) {
+					Jump		jump = (Jump) part;
+					long		addr = sectionMap.addressOf (section, offset);
+					long		dist = exprs.resolve (expr, sectionMap, symbolMap, stack) - (addr + jump.getShortSize ());
+					boolean		fits = (dist >= -128) && (dist <= 127);
+					
+					if (shortJumps.contains (jump)) {
+						if (!fits) {
+							shortJumps.remove (jump);
+							pinned.add (jump);
+							changed = true;
+						}
+					}
+					else if (fits && !pinned.contains (jump)) {
+						shortJumps.add (jump);
+						changed = true;
+					}
+				}
+				if (part instanceof Evaluatable) ++expr;
+				offset += sizeOf (part);
+			}
+		}
+		return (changed);
+	}
+	
+	/**
+	 * Records the positions of the shortened jumps in a <CODE>Section</CODE>
+	 * so that the offsets after them can be adjusted.
+	 * 
+	 * @param	section		The <CODE>Section</CODE> to be processed.
+	 */
+	private void recordRemovals (Section section)
+	{
+		Vector<Part>	parts 	= section.getParts ();
+		int []			offsets	= new int [parts.size ()];
+		int []			removed = new int [parts.size ()];
+		int				count	= 0;
+		int				offset	= 0;
+		int				total	= 0;
+		
+		for (int index = 0; index < parts.size (); ++index) {
+			Part		part = parts.elementAt (index);
+			
+			if (shortJumps.contains (part)) {
+				Jump		jump = (Jump) part;
+				
+				total += jump.getSize () - jump.getShortSize ();
+				offsets [count] = offset;
+				removed [count] = total;
+				++count;
+			}
+			offset += sizeOf (part);
+		}
+		sectionMap.setRemoved (section, Arrays.copyOf (offsets, count), Arrays.copyOf (removed, count));
+	}
+	
+	/**
+	 * Determines the number of bytes a <CODE>Part</CODE> occupies as
+	 * assembled.
+	 * 
+	 * @param	part		The <CODE>Part</CODE> to be measured.
+	 * @return	The size of the part.
+	 */
+	private int sizeOf (Part part)
+	{
+		if (part instanceof Code)	return (((Code) part).size ());
+		if (part instanceof Jump)	return (((Jump) part).getSize ());
+		if (part instanceof Byte)	return (1);
+		if (part instanceof Word)	return (2);
+		
+		return (4);
+	}
+	
+	/**
+	 * Discards all the current section placements and recreates the
+	 * memory areas ready for the sections to be placed again.
+	 */
+	private void resetAreas ()
+	{
+		areas.clear ();
+		createAreas ();
+		applyPolicy ();
+	}
+	
+	/**
+	 * Attempts to fit a <CODE>Section</CODE> within an appropriate memory
+	 * <CODE>Area</CODE>.
+	 * 
+	 * @param section		The <CODE>Section</CODE> to be fitted.
+	 * @return The address where the <CODE>Section</CODE> was placed.
+	 */
+	private long fitSection (Section section)
+	{
+		Area		area = (Area) areas.get (section.getName());
+		
+		if (area == null) {
+			error ("No memory area has been allocated for " + section.getName());
+			setFinished (true);
+			return (-1);
+		}
+		
+		return (area.fitSection (section, section.getSize () - sectionMap.getRemoved (section)));
+	}
+	
+	/**
+	 * Fixes up all the modules in parallel on the common fork-join pool.
+	 * Each section is built in its own image and the images are copied to
+	 * the target in link order, so the result does not depend on the order
+	 * the tasks complete in. Any section that overwrites memory already
+	 * written by another is reported.
+	 */
+	private void fixUpModules ()
+	{
+		Vector<ForkJoinTask<Vector<SectionImage>>> tasks
+			= new Vector<ForkJoinTask<Vector<SectionImage>>> ();
+		
+		for (int index = 0; index < modules.size (); ++index) {
+			final Module	module	 = modules.elementAt (index);
+			Vector<Section>	sections = module.getSections ();
+			
+			// Compiling numbers the symbols and sections so do it here
+			for (int count = 0; count < sections.size (); ++count)
+				if ((live == null) || live.contains (sections.elementAt (count)))
+					relocationsOf (sections.elementAt (count));
+			
+			tasks.add (ForkJoinTask.adapt (new Callable<Vector<SectionImage>> ()
+			{
+				public Vector<SectionImage> call ()
+				{
+					profile.enlist ();
+					return (fixUp (module));
+				}
+			}));
+		}
+		
+		ForkJoinPool	pool = ForkJoinPool.commonPool ();
+		
+		for (int index = 0; index < tasks.size (); ++index)
+			pool.execute (tasks.elementAt (index));
+		
+		CachedTarget	image = targets.elementAt (0);
+		
+		for (int index = 0; index < tasks.size (); ++index) {
+			Vector<SectionImage> sections = tasks.elementAt (index).join ();
+			
+			for (int count = 0; count < sections.size (); ++count) {
+				SectionImage	section = sections.elementAt (count);
+				long			clash	= image.store (section.getBase (), section.getData (), 0, section.getLength ());
+				
+				if (clash != -1)
+					warning ("Section '" + section.getSection ().getName () + "' in module '"
+							+ section.getSection ().getModule ().getName () + "' overwrites memory at "
+							+ Hex.toHex (clash, 8));
+			}
+		}
+	}
 	
 	/**
 	 * Re-processes a <CODE>Module</CODE> to fix up any expressions that depend
-	 * on external symbols.
+	 * on external symbols. Each section is written to a separate image so
+	 * that modules can be processed concurrently.
 	 * 
 	 * @param module		The <CODE>Module</CODE> to be processed.
+	 * @return	The images of the module's sections in order.
 	 */
-	private void fixUp (Module module)
+	private Vector<SectionImage> fixUp (Module module)
 	{
 		Vector<Section>	sections = module.getSections();
+		Vector<SectionImage> images = new Vector<SectionImage> ();
 		
 		for (int index = 0; index < sections.size (); ++index) {
 			Section		section = sections.elementAt (index);
+			
+			if ((live != null) && !live.contains (section)) continue;
+			
 			Vector<Part> parts	= section.getParts();
+			Relocations	exprs	= relocationsOf (section);
+			long []		stack	= new long [exprs.getDepth ()];
+			int			expr	= 0;
 			long		addr 	= sectionMap.baseAddressOf (section);
+			SectionImage target = new SectionImage (section, addr,
+					section.getSize () - sectionMap.getRemoved (section));
+			
+			images.add (target);
 			
 			for (int count = 0; count < parts.size (); ++count) {
 				Part 		part = parts.elementAt(count);
 				
 				if (part instanceof Code) {
-					String		value = part.toString();
-					int			span  = module.getByteSize () / 4;
+					Code		code = (Code) part;
+					byte []		data = code.getData ();
+					int			size = code.size ();
 			
-					for (int digit = 0; digit < value.length (); digit += span) {						
-						target.store (addr,
-								Integer.parseInt (value.substring (digit, digit + span), 16));
-						++addr;
+					if (data != null)
+						target.store (addr, data, 0, size);
+					else {
+						for (int offset = 0; offset < size; ++offset)
+							target.store (addr + offset, code.getByte (offset));
+					}
+					addr += size;
+				}
+				else if (part instanceof Jump) {
+					Jump		jump  = (Jump) part;
+					long		value = exprs.resolve (expr++, sectionMap, symbolMap, stack);
+					
+					if (shortJumps.contains (jump)) {
+						target.store (addr + 0, jump.getShortOp ());
+						target.store (addr + 1, (value - (addr + 2)) & byteMask);
+						addr += 2;
+					}
+					else {
+						if (jump.getSkipOp () != -1) {
+							target.store (addr + 0, jump.getSkipOp ());
+							target.store (addr + 1, 3);
+							addr += 2;
+						}
+						if (jump.isRelative ())
+							value -= addr + 3;
+						
+						target.store (addr, jump.getLongOp ());
+						storeWord (target, addr + 1, value, module.isBigEndian ());
+						addr += 3;
 					}
 				}
 				else if (part instanceof Evaluatable) {
-					Expr expr = ((Evaluatable) part).getExpr ();
-					long value = expr.resolve (sectionMap, symbolMap);
+					long value = exprs.resolve (expr++, sectionMap, symbolMap, stack);
 					
 					if (part instanceof Byte) {
 						target.store (addr, value);
 						addr += 1;
 					}
 					else if (part instanceof Word) {
-						storeWord (addr, value, module.isBigEndian ());
+						storeWord (target, addr, value, module.isBigEndian ());
 						addr += 2;
 					}
 					else if (part instanceof Long) {
-						storeLong (addr, value, module.isBigEndian ());
+						storeLong (target, addr, value, module.isBigEndian ());
 						addr += 3;
 					}
 				}
 			}
 		}
+		return (images);
+	}
+	
+	/**
+	 * Returns the name the output files are derived from without its
+	 * extension.
+	 * 
+	 * @return	The base name for the output files.
+	 */
+	private String getBaseName ()
+	{
+		String		filename = output.isPresent () ? output.getValue () : getArguments ()[0];
+		
+		return (filename.substring (0, filename.lastIndexOf ('.')));
+	}
+	
+	/**
+	 * Returns the file that the link state is saved in.
+	 * 
+	 * @return	The link state <CODE>File</CODE>.
+	 */
+	private File getStateFile ()
+	{
+		return (new File (getBaseName () + ".lnk"));
+	}
+	
+	/**
+	 * Ends the last stage of the link and, if requested, prints the link
+	 * statistics and saves them beside the map file.
+	 */
+	private void reportStats ()
+	{
+		profile.end ();
+		if (!stats.isPresent ()) return;
+		
+		profile.modules		= modules.size ();
+		profile.members		= 0;
+		profile.sections	= sectionMap.getSections ().size ();
+		profile.relocations	= 0;
+		profile.symbols		= symbolMap.getSymbols ().size ();
+		
+		for (Enumeration<int []> cursor = origins.elements (); cursor.hasMoreElements ();)
+			if (cursor.nextElement () [1] >= 0) ++profile.members;
+		for (Enumeration<Relocations> cursor = relocations.elements (); cursor.hasMoreElements ();)
+			profile.relocations += cursor.nextElement ().size ();
+		
+		profile.print (messages);
+		try {
+			profile.write (new File (getBaseName () + ".stats.json"));
+		}
+		catch (IOException error) {
+			warning ("Failed to write the statistics file");
+		}
+	}
+	
+	/**
+	 * Works out the output file names and writes the map and every selected
+	 * output format.
+	 */
+	private void writeOutputs ()
+	{
+		String		basename = getBaseName ();
+		File []		objectFiles = new File [targets.size ()];
+		File		mapFile = new File (basename + ".map");
+		
+		for (int index = 0; index < targets.size (); ++index) {
+			String		format = formats.elementAt (index);
+			
+			if (paths.containsKey (format))
+				objectFiles [index] = new File (paths.get (format));
+			else if (targets.size () > 1)
+				objectFiles [index] = new File (basename + "." + format);
+			else if (output.isPresent ())
+				objectFiles [index] = new File (output.getValue ());
+			else
+				objectFiles [index] = new File (basename + (hex.isPresent () ? ".hex" : ".bin"));
+		}
+		
+		writeMap (mapFile);
+		writeTargets (objectFiles);
+	}
+	
+	/**
+	 * Returns the compiled expressions of a <CODE>Section</CODE>, compiling
+	 * them the first time they are needed.
+	 * 
+	 * @param section		The <CODE>Section</CODE> to be compiled.
+	 * @return	Its <CODE>Relocations</CODE>.
+	 */
+	private Relocations relocationsOf (Section section)
+	{
+		Relocations		exprs = relocations.get (section);
+		
+		if (exprs == null)
+			relocations.put (section, exprs = new Relocations (section, sectionMap, symbolMap));
+		
+		return (exprs);
+	}
+	
+	/**
+	 * Adds an output format to be generated.
+	 * 
+	 * @param format		The format name.
+	 * @param target		The <CODE>CachedTarget</CODE> that writes it.
+	 */
+	private void addTarget (final String format, final CachedTarget target)
+	{
+		formats.add (format);
+		targets.add (target);
+	}
+	
+	/**
+	 * Writes the linked image in every selected format. Each file is
+	 * formatted as a separate task on the common fork-join pool with all
+	 * the targets sharing the image built by the first one. Any file that
+	 * could not be written is reported as an error once all the tasks have
+	 * finished.
+	 * 
+	 * @param objectFiles	The output file for each target.
+	 */
+	private void writeTargets (final File [] objectFiles)
+	{
+		Vector<ForkJoinTask<?>> tasks
+			= new Vector<ForkJoinTask<?>> ();
+		final IOException []	failures
+			= new IOException [targets.size ()];
+		
+		for (int index = 0; index < targets.size (); ++index) {
+			final CachedTarget	output = targets.elementAt (index);
+			final File			file   = objectFiles [index];
+			final int			slot   = index;
+			
+			if (index > 0) output.shareImage (targets.elementAt (0));
+			
+			tasks.add (ForkJoinTask.adapt (new Runnable ()
+			{
+				public void run ()
+				{
+					profile.enlist ();
+					try {
+						output.writeTo (file);
+					}
+					catch (IOException error) {
+						failures [slot] = error;
+					}
+				}
+			}));
+		}
+		
+		ForkJoinPool	pool = ForkJoinPool.commonPool ();
+		
+		for (int index = 0; index < tasks.size (); ++index)
+			pool.execute (tasks.elementAt (index));
+		
+		for (int index = 0; index < tasks.size (); ++index)
+			tasks.elementAt (index).join ();
+		
+		for (int index = 0; index < failures.length; ++index)
+			if (failures [index] != null)
+				error ("Could not write output file: " + failures [index].getMessage ());
 	}
 	
 	/**
-	 * Stores a word value in the <CODE>Target</CODE> in an appropriate
+	 * Stores a word value in the <CODE>Store</CODE> in an appropriate
 	 * byte order.
 	 * 
+	 * @param target		The <CODE>Store</CODE> to store in.
 	 * @param addr			The memory address to store at.
 	 * @param value			The value to be written.
 	 * @param bigEndian		The endianess of the code.
 	 */
-	private void storeWord (long addr, long value, boolean bigEndian)
+	private void storeWord (Store target, long addr, long value, boolean bigEndian)
 	{
 		if (bigEndian) {
 			target.store (addr + 0, (value >> (1 * byteSize)) & byteMask);
@@ -706,14 +1973,15 @@ public abstract class Linker extends Application
 	}
 
 	/**
-	 * Stores a long value in the <CODE>Target</CODE> in an appropriate
+	 * Stores a long value in the <CODE>Store</CODE> in an appropriate
 	 * byte order.
 	 * 
+	 * @param target		The <CODE>Store</CODE> to store in.
 	 * @param addr			The memory address to store at.
 	 * @param value			The value to be written.
 	 * @param bigEndian		The endianess of the code.
 	 */
-	private void storeLong (long addr, long value, boolean bigEndian)
+	private void storeLong (Store target, long addr, long value, boolean bigEndian)
 	{
 		if (bigEndian) {
 			target.store (addr + 0, (value >> (3 * byteSize)) & byteMask);
@@ -754,21 +2022,15 @@ public abstract class Linker extends Application
 			
 			Object [] sections = sectionMap.getSections ().toArray ();
 
-			boolean		swapped;
-			do {
-				swapped = false;
-				
-				for (int index = 0; index < sections.length - 1; ++index) {
-					if (sectionMap.baseAddressOf ((Section) sections [index]) >
-						sectionMap.baseAddressOf ((Section) sections [index+1])) {
-							Object temp = sections [index];
-							sections [index] = sections [index+1];
-							sections [index+1] = temp;
-							
-							swapped = true;
-						}
+			Arrays.sort (sections, new Comparator<Object> ()
+			{
+				public int compare (Object lhs, Object rhs)
+				{
+					return (java.lang.Long.compare (
+							sectionMap.baseAddressOf ((Section) lhs),
+							sectionMap.baseAddressOf ((Section) rhs)));
 				}
-			} while (swapped);
+			});
 			
 			String	lastName	= "";
 			
@@ -784,7 +2046,7 @@ public abstract class Linker extends Application
 					writer.print (pad ("", 19));
 				
 				long	addr = sectionMap.baseAddressOf (section);
-				int		size = section.getSize ();
+				int		size = section.getSize () - sectionMap.getRemoved (section);
 				
 				writer.print (Hex.toHex (addr, 8));
 				writer.print (" - ");
@@ -795,10 +2057,85 @@ public abstract class Linker extends Application
 				writer.println ();
 			}
 			
+			if (jumps > 0) {
+				int		saved = 0;
+				
+				for (int index = 0; index < sections.length; ++index)
+					saved += sectionMap.getRemoved ((Section) sections [index]);
+				
+				writer.println ("\n" + shortJumps.size () + " of " + jumps + " relaxable jump(s) shortened, "
+						+ saved + " bytes saved");
+			}
+			if (live != null) writeRemoved (writer);
+			writeUsage (writer);
 			writer.close ();
 		}
 		catch (Exception error) {
-			System.err.println ("Error: A serious error occurred while writing the map file");
+			messages.println ("Error: A serious error occurred while writing the map file");
+		}
+	}
+	
+	/**
+	 * Writes the list of sections discarded by <CODE>-gc</CODE> and the
+	 * total space saved to the map file.
+	 * 
+	 * @param writer		The <CODE>PrintWriter</CODE> for the map file.
+	 */
+	private void writeRemoved (PrintWriter writer)
+	{
+		long		total = 0;
+		
+		writer.println ("\n\nRemoved Sections:\n");
+		
+		for (int index = 0; index < removed.size (); ++index) {
+			Section section = removed.elementAt (index);
+			
+			writer.println (pad (section.getName (), 16) + " : "
+					+ pad (Integer.toString (section.getSize ()), 8) + " in "
+					+ section.getModule ().getName ());
+			total += section.getSize ();
+		}
+		
+		writer.println ("\n" + total + " bytes removed from " + removed.size () + " section(s)");
+	}
+	
+	/**
+	 * Writes a report of the utilization and fragmentation of each memory
+	 * area to the map file.
+	 * 
+	 * @param writer		The <CODE>PrintWriter</CODE> for the map file.
+	 */
+	private void writeUsage (PrintWriter writer)
+	{
+		writer.println ("\n\nMemory Usage (" + (ordered ? "ordered" : (bestFit ? "best" : "first")) + " fit):\n");
+		
+		Object [] names = areas.keySet ().toArray ();
+		Arrays.sort (names);
+		
+		Hashtable<Area, String>	reported = new Hashtable<Area, String> ();
+		
+		for (int index = 0; index < names.length; ++index) {
+			String	name = (String) names [index];
+			Area	area = areas.get (name);
+			
+			writer.print (pad (name, 16) + " : ");
+			if (reported.containsKey (area)) {
+				writer.println ("shared with " + reported.get (area));
+				continue;
+			}
+			reported.put (area, name);
+			
+			long	total	= area.getCapacity ();
+			long	free	= area.getFree ();
+			long	used	= total - free;
+			long	largest	= area.getLargestFree ();
+			
+			writer.print (used + " of " + total + " bytes used");
+			writer.print (" (" + ((total > 0) ? (100 * used / total) : 0) + "%), ");
+			writer.print (free + " free in " + area.getFreeBlocks () + " block(s)");
+			writer.print (", largest " + largest);
+			writer.print (", fragmentation " + ((free > 0) ? (100 * (free - largest) / free) : 0) + "%");
+			writer.println ();
 		}
 	}
 	
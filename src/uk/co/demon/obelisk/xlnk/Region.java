@@ -22,7 +22,6 @@
 
 package uk.co.demon.obelisk.xlnk;
 
-import uk.co.demon.obelisk.xapp.Application;
 import uk.co.demon.obelisk.xobj.Hex;
 
 /**
@@ -41,6 +40,7 @@ final class Region
 	 * 
 	 * @param start			The start address of the memory block.
 	 * @param end			The end address of the memory block.
+	 * @throws	IllegalArgumentException If either address is invalid.
 	 */
 	public Region (final String start, final String end)
 	{
@@ -138,6 +138,7 @@ final class Region
 	 * 
 	 * @param 	addr		The address string
 	 * @return	The parsed address.
+	 * @throws	IllegalArgumentException If the address is invalid.
 	 */
 	private static long parseAddr (final String addr)
 	{
@@ -145,9 +146,7 @@ final class Region
 			return (Long.parseLong (addr.toUpperCase (), 16));
 		}
 		catch (Exception error) {
-			System.err.println ("Error: Invalid hex address (" + addr + ")");
-			Application.getApplication().setFinished (true);
+			throw new IllegalArgumentException ("Invalid hex address (" + addr + ")");
 		}
-		return (0);
 	}
 }
\ No newline at end of file
@@ -23,12 +23,14 @@
 package uk.co.demon.obelisk.xlnk;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
 
 import uk.co.demon.obelisk.xobj.Hex;
 
 /**
- * A linker target format that creates Motorola S19 files.
+ * A linker target format that creates Motorola S19 files. Only the populated
+ * extents of the image are written.
  * 
  * @author	Andrew Jacobs
  * @version	$Id$
@@ -39,6 +41,7 @@ abstract class SRecordTarget extends CachedTarget
 	 * {@inheritDoc}
 	 */
 	public void writeTo (File file)
+		throws IOException
 	{
 		int			bytes;
 		int			total;
@@ -47,55 +50,62 @@ abstract class SRecordTarget extends CachedTarget
 		try {
 			PrintWriter		writer = new PrintWriter (file);
 			
-			// Generate code records
-			for (long addr = min; addr <= max; addr += 32) {
-				writer.print ('S');
-				total = 0;
+			// Generate code records for each populated extent
+			long		lo;
+			long		hi;
+			
+			for (lo = nextUsed (min); lo != -1; lo = nextUsed (hi)) {
+				hi = nextUnused (lo);
+			
+				for (long addr = lo; addr < hi; addr += 32) {
+					writer.print ('S');
+					total = 0;
 
-				bytes = (int) (max - addr + 1);
-				if (bytes > 32) bytes = 32;
+					bytes = (int) (hi - addr);
+					if (bytes > 32) bytes = 32;
 					
-				switch (addrSize) {
-				case 16:
-					writer.print('1');
-					writer.print(Hex.toHex (bytes + 3, 2));				
-					total += (bytes + 3);
-					writer.print(Hex.toHex(addr, 4));
-					total += (addr >>  8) & 0xff;
-					total += (addr >>  0) & 0xff;
-					break;
+					switch (addrSize) {
+					case 16:
+						writer.print('1');
+						writer.print(Hex.toHex (bytes + 3, 2));				
+						total += (bytes + 3);
+						writer.print(Hex.toHex(addr, 4));
+						total += (addr >>  8) & 0xff;
+						total += (addr >>  0) & 0xff;
+						break;
 					
-				case 24:
-					writer.print('2');
-					writer.print(Hex.toHex (bytes + 4, 2));				
-					total += (bytes + 4);
-					writer.print(Hex.toHex(addr, 6));
-					total += (addr >> 16) & 0xff;
-					total += (addr >>  8) & 0xff;
-					total += (addr >>  0) & 0xff;
-					break;
+					case 24:
+						writer.print('2');
+						writer.print(Hex.toHex (bytes + 4, 2));				
+						total += (bytes + 4);
+						writer.print(Hex.toHex(addr, 6));
+						total += (addr >> 16) & 0xff;
+						total += (addr >>  8) & 0xff;
+						total += (addr >>  0) & 0xff;
+						break;
 					
-				case 32:
-					writer.print('3');
-					writer.print(Hex.toHex (bytes + 5, 2));				
-					total += (bytes + 5);
-					writer.print(Hex.toHex(addr, 8));
-					total += (addr >> 24) & 0xff;
-					total += (addr >> 16) & 0xff;
-					total += (addr >>  8) & 0xff;
-					total += (addr >>  0) & 0xff;
-					break;
-				}
+					case 32:
+						writer.print('3');
+						writer.print(Hex.toHex (bytes + 5, 2));				
+						total += (bytes + 5);
+						writer.print(Hex.toHex(addr, 8));
+						total += (addr >> 24) & 0xff;
+						total += (addr >> 16) & 0xff;
+						total += (addr >>  8) & 0xff;
+						total += (addr >>  0) & 0xff;
+						break;
+					}
 								
-				for (int offset = 0; offset < bytes; ++offset) {
-					int value = code [(int)(addr - start + offset)];
-					writer.print (Hex.toHex (value, 2));
-					total += value;
-				}
-				writer.print(Hex.toHex (~total & 0xff, 2));
+					for (int offset = 0; offset < bytes; ++offset) {
+						int value = get (addr + offset);
+						writer.print (Hex.toHex (value, 2));
+						total += value;
+					}
+					writer.print(Hex.toHex (~total & 0xff, 2));
 				
-				writer.println ();
-				++count;
+					writer.println ();
+					++count;
+				}
 			}
 			
 			// Generate record count
@@ -154,9 +164,11 @@ abstract class SRecordTarget extends CachedTarget
 			writer.println ();
 
 			writer.close ();
+			if (writer.checkError ())
+				throw new IOException ("Write error on " + file.getPath ());
 		}
-		catch (Exception error) {
-			System.err.println ("Error: A serious error occurred writing the object module.");
+		catch (RuntimeException error) {
+			throw new IOException ("A serious error occurred writing " + file.getPath (), error);
 		}
 	}
 	
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C),2006-2016 Andrew John Jacobs.
+ *
+ * This program is provided free of charge for educational purposes
+ *
+ * Redistribution and use in binary form without modification, is permitted
+ * provided that the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS 'AS IS' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package uk.co.demon.obelisk.xlnk;
+
+import uk.co.demon.obelisk.xobj.Section;
+
+/**
+ * A <CODE>SectionImage</CODE> captures the fixed up contents of a single
+ * <CODE>Section</CODE>. Sections are fixed up into their own images in
+ * parallel and then copied into the output target in link order.
+ * 
+ * @author	Andrew Jacobs
+ * @version	$Id$
+ */
+final class SectionImage implements Store
+{
+	/**
+	 * Constructs a <CODE>SectionImage</CODE> for a placed section.
+	 * 
+	 * @param	section			The <CODE>Section</CODE> being fixed up.
+	 * @param	base			Its base address.
+	 * @param	size			Its size after any relaxation.
+	 */
+	SectionImage (final Section section, long base, int size)
+	{
+		this.section = section;
+		this.base	 = base;
+		
+		data = new int [size];
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	public void store (long addr, long value)
+	{
+		long		index = addr - base;
+		
+		if ((0 <= index) && (index < data.length)) {
+			data [(int) index] = (int) value;
+			if (index >= length) length = (int) index + 1;
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	public void store (long addr, byte [] src, int off, int len)
+	{
+		long		index = addr - base;
+		
+		if ((0 <= index) && (index + len <= data.length)) {
+			for (int offset = 0; offset < len; ++offset)
+				data [(int) index + offset] = src [off + offset] & 0xff;
+			if (index + len > length) length = (int)(index + len);
+		}
+		else {
+			for (int offset = 0; offset < len; ++offset)
+				store (addr + offset, src [off + offset] & 0xff);
+		}
+	}
+	
+	/**
+	 * Returns the <CODE>Section</CODE> this image holds.
+	 * 
+	 * @return	The <CODE>Section</CODE>.
+	 */
+	Section getSection ()
+	{
+		return (section);
+	}
+	
+	/**
+	 * Returns the address of the first value.
+	 * 
+	 * @return	The base address.
+	 */
+	long getBase ()
+	{
+		return (base);
+	}
+	
+	/**
+	 * Returns the stored values.
+	 * 
+	 * @return	The values indexed by offset from the base address.
+	 */
+	int [] getData ()
+	{
+		return (data);
+	}
+	
+	/**
+	 * Returns the number of values from the base address up to and
+	 * including the last one written.
+	 * 
+	 * @return	The length of the written data.
+	 */
+	int getLength ()
+	{
+		return (length);
+	}
+	
+	/**
+	 * The <CODE>Section</CODE> this image holds.
+	 */
+	private final Section		section;
+	
+	/**
+	 * The address of the first value.
+	 */
+	private final long			base;
+	
+	/**
+	 * The values indexed by offset from the base address.
+	 */
+	private final int []		data;
+	
+	/**
+	 * The number of values up to the last one written.
+	 */
+	private int					length	= 0;
+}
\ No newline at end of file
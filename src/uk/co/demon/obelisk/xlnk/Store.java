@@ -0,0 +1,53 @@
+/*
+ * Copyright (C),2014 Andrew John Jacobs.
+ *
+ * This program is provided free of charge for educational purposes
+ *
+ * Redistribution and use in binary form without modification, is permitted
+ * provided that the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS 'AS IS' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package uk.co.demon.obelisk.xlnk;
+
+/**
+ * The <CODE>Store</CODE> interface is implemented by anything the linker
+ * can write fixed up values into, such as an output <CODE>Target</CODE> or
+ * the image of a single section.
+ * 
+ * @author	Andrew Jacobs
+ * @version	$Id$
+ */
+interface Store
+{
+	/**
+	 * Stores the given byte value at the indicated address.
+	 * 
+	 * @param	addr		Where to store.
+	 * @param 	value		What to store.
+	 */
+	public void store (long addr, long value);
+	
+	/**
+	 * Stores a block of unsigned byte values starting at the indicated
+	 * address.
+	 * 
+	 * @param	addr		Where to store the first value.
+	 * @param	src			The values to store.
+	 * @param	off			The index of the first value in <CODE>src</CODE>.
+	 * @param	len			The number of values to store.
+	 */
+	public void store (long addr, byte [] src, int off, int len);
+}
\ No newline at end of file
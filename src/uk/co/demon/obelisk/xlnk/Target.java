@@ -23,6 +23,7 @@
 package uk.co.demon.obelisk.xlnk;
 
 import java.io.File;
+import java.io.IOException;
 
 /**
  * Interface implemented by all output formats.
@@ -30,22 +31,30 @@ import java.io.File;
  * @author	Andrew Jacobs
  * @version	$Id$
  */
-abstract class Target
+abstract class Target implements Store
 {
 	/**
-	 * Stores the given byte value at the indicated address.
-	 * 
-	 * @param	addr		Where to store.
-	 * @param 	value		What to store.
+	 * {@inheritDoc}
 	 */
 	public abstract void store (long addr, long value);
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	public void store (long addr, byte [] src, int off, int len)
+	{
+		for (int index = 0; index < len; ++index)
+			store (addr + index, src [off + index] & 0xff);
+	}
+	
 	/**
 	 * Write the store data content to the indicated file.
 	 * 
 	 * @param 	file		File to write output to.
+	 * @throws	IOException		If the file could not be written.
 	 */
-	public abstract void writeTo (File file);
+	public abstract void writeTo (File file)
+		throws IOException;
 	
 	/**
 	 * Constructs a <CODE>Target</CODE> with a given byte size.
@@ -22,8 +22,10 @@
 
 package uk.co.demon.obelisk.xlnk;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 
 /**
  * The <CODE>WDCTarget</CODE> class performs the final output of a linked
@@ -61,37 +63,36 @@ class WDCTarget extends CachedTarget
 	 * {@inheritDoc}
 	 */
 	public void writeTo (File file)
+		throws IOException
 	{
 		try {
-			FileOutputStream	stream = new FileOutputStream (file);
+			BufferedOutputStream	stream
+				= new BufferedOutputStream (new FileOutputStream (file));
 			
-			byte [] bytes = new byte [code.length * (getByteSize () / 8) + 7];
-			int offset = 0;
-			
-			bytes [offset++] = 'Z';
-			bytes [offset++] = (byte)(start >>  0);
-			bytes [offset++] = (byte)(start >>  8);
-			bytes [offset++] = (byte)(start >> 16);
-			bytes [offset++] = (byte)(code.length >>  0);
-			bytes [offset++] = (byte)(code.length >>  8);
-			bytes [offset++] = (byte)(code.length >> 16);
+			stream.write ('Z');
+			stream.write ((int)(start >>  0) & 0xff);
+			stream.write ((int)(start >>  8) & 0xff);
+			stream.write ((int)(start >> 16) & 0xff);
+			stream.write ((int)(size >>  0) & 0xff);
+			stream.write ((int)(size >>  8) & 0xff);
+			stream.write ((int)(size >> 16) & 0xff);
 			
 			switch (getByteSize ()) {
 			case 8:
-					for (int index = 0; index < code.length; ++index) {
-						bytes [offset++] = (byte) code [index];
+					for (long addr = start; addr <= end; ++addr) {
+						stream.write (get (addr));
 					}
 					break;
 					
 			default:
-				System.err.println ("Error: Unsupported byte size");
+				stream.close ();
+				throw new IOException ("Unsupported byte size for " + file.getPath ());
 			}
 			
-			stream.write (bytes);
 			stream.close ();
 		}
-		catch (Exception error) {
-			System.err.println ("Error: A serious error occurred while writing the object file.");
+		catch (RuntimeException error) {
+			throw new IOException ("A serious error occurred writing " + file.getPath (), error);
 		}
 	}
 }
\ No newline at end of file
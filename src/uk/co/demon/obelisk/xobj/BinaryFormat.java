@@ -0,0 +1,885 @@
+/*
+ * Copyright (C),2005-2011 Andrew John Jacobs.
+ *
+ * This program is provided free of charge for educational purposes
+ *
+ * Redistribution and use in binary form without modification, is permitted
+ * provided that the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS 'AS IS' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package uk.co.demon.obelisk.xobj;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Hashtable;
+import java.util.Vector;
+
+/**
+ * The <CODE>BinaryFormat</CODE> class reads and writes object modules and
+ * libraries in a compact binary form as an alternative to XML.
+ * <P>
+ * A file starts with the four <CODE>MAGIC</CODE> bytes followed by a format
+ * version and a kind byte (<CODE>'M'</CODE> for a module, <CODE>'L'</CODE>
+ * for a library). Next comes a string table holding every target, module,
+ * section, symbol and external name used in the file and finally the modules
+ * themselves. Integers are written as variable length quantities (seven bits
+ * per byte, least significant first) with signed values zig-zag encoded.
+ * Strings are referred to by their index in the table plus one, zero being
+ * used for <CODE>null</CODE>.
+ * <P>
+ * Each module holds its target, endianness, byte size and name followed by
+ * its non-empty sections and its global symbols. A section has a name, a
+ * flags byte (absolute, keep), a start address if absolute and its parts
+ * in order. Code parts hold the raw byte values (one byte each for modules
+ * with bytes of up to 8 bits, two otherwise) while byte, word and long parts
+ * hold an expression tree written in prefix order. Jump parts hold their
+ * short, skip (signed) and long opcodes and a relative flag before the
+ * expression for their target.
+ * <P>
+ * A library starts with its member count and an index mapping each global
+ * symbol to the first member that defines it. Each member is preceded by
+ * its encoded length so that only the members a link actually needs have
+ * to be decoded. Version 1 libraries had neither and are decoded in full.
+ * 
+ * @author 	Andrew Jacobs
+ * @version	$Id$
+ */
+public final class BinaryFormat
+{
+	/**
+	 * The bytes that identify a binary object file.
+	 */
+	public static final byte []	MAGIC	= { 0x7F, 'X', 'O', 'B' };
+	
+	/**
+	 * The current version of the binary format.
+	 */
+	public static final int		VERSION	= 4;
+	
+	/**
+	 * Determines whether a buffer starts with the binary format magic bytes.
+	 * 
+	 * @param	data			The buffer to test.
+	 * @param	length			The number of valid bytes in the buffer.
+	 * @return	<CODE>true</CODE> if the data is in the binary format.
+	 */
+	public static boolean isBinary (final byte [] data, int length)
+	{
+		if (length < MAGIC.length) return (false);
+		
+		for (int index = 0; index < MAGIC.length; ++index)
+			if (data [index] != MAGIC [index]) return (false);
+		
+		return (true);
+	}
+	
+	/**
+	 * Writes an object module to the given stream.
+	 * 
+	 * @param	module			The <CODE>Module</CODE> to write.
+	 * @param	stream			The output stream.
+	 * @throws	IOException		If the data could not be written.
+	 */
+	public static void write (final Module module, OutputStream stream)
+		throws IOException
+	{
+		Writer		writer = new Writer ();
+		
+		writer.writeModule (module);
+		writer.writeTo (stream, 'M');
+	}
+	
+	/**
+	 * Writes a library to the given stream.
+	 * 
+	 * @param	library			The <CODE>Library</CODE> to write.
+	 * @param	stream			The output stream.
+	 * @throws	IOException		If the data could not be written.
+	 */
+	public static void write (final Library library, OutputStream stream)
+		throws IOException
+	{
+		Writer		writer  = new Writer ();
+		Module []	modules = library.getModules ();
+		ByteArrayOutputStream [] members
+			= new ByteArrayOutputStream [modules.length];
+		
+		for (int index = 0; index < modules.length; ++index)
+			members [index] = writer.encodeModule (modules [index]);
+		
+		Hashtable<String, Integer>	index = library.getIndex ();
+		
+		writer.writeNumber (modules.length);
+		writer.writeNumber (index.size ());
+		for (int member = 0; member < modules.length; ++member) {
+			Vector<String>	globals = modules [member].getGlobals ();
+			
+			for (int count = 0; count < globals.size (); ++count) {
+				String		symbol = globals.elementAt (count);
+				
+				if (index.get (symbol) == member) {
+					writer.writeString (symbol);
+					writer.writeNumber (member);
+				}
+			}
+		}
+		
+		for (int member = 0; member < modules.length; ++member)
+			writer.writeBytes (members [member]);
+		writer.writeTo (stream, 'L');
+	}
+	
+	/**
+	 * Converts the contents of a binary object file back into either a
+	 * <CODE>Module</CODE> or a <CODE>Library</CODE>.
+	 * 
+	 * @param	data			The file contents.
+	 * @param	length			The number of valid bytes in the buffer.
+	 * @return	The decoded object.
+	 * @throws	IOException		If the data is not a valid binary object.
+	 */
+	public static Object read (final byte [] data, int length)
+		throws IOException
+	{
+		if (!isBinary (data, length))
+			throw new IOException ("Not a binary object file");
+		
+		Reader		reader = new Reader (data, length);
+		
+		int version = reader.readNumber ();
+		if ((version < 1) || (version > VERSION))
+			throw new IOException ("Unsupported binary object version " + version);
+		
+		int kind = reader.readByte ();
+		reader.readStrings ();
+		
+		switch (kind) {
+		case 'M':
+			return (reader.readModule ());
+			
+		case 'L':
+			if (version > 1)
+				return (reader.readLibrary ());
+			else {
+				Library		library = new Library ();
+				int			count	= reader.readNumber ();
+				
+				for (int index = 0; index < count; ++index)
+					library.addModule (reader.readModule ());
+				return (library);
+			}
+		}
+		throw new IOException ("Unknown binary object kind " + kind);
+	}
+	
+	// Section flags
+	private static final int	ABSOLUTE	= 1;
+	private static final int	KEEP		= 2;
+	
+	// Part tags
+	private static final int	CODE	= 1;
+	private static final int	BYTE	= 2;
+	private static final int	WORD	= 3;
+	private static final int	LONG	= 4;
+	private static final int	JUMP	= 5;
+	
+	// Expression tags
+	private static final int	VAL		= 1;
+	private static final int	EXT		= 2;
+	private static final int	NOT		= 3;
+	private static final int	CPL		= 4;
+	private static final int	NEG		= 5;
+	private static final int	LAND	= 6;
+	private static final int	LOR		= 7;
+	private static final int	AND		= 8;
+	private static final int	OR		= 9;
+	private static final int	XOR		= 10;
+	private static final int	ADD		= 11;
+	private static final int	SUB		= 12;
+	private static final int	MUL		= 13;
+	private static final int	DIV		= 14;
+	private static final int	MOD		= 15;
+	private static final int	SHR		= 16;
+	private static final int	SHL		= 17;
+	private static final int	EQ		= 18;
+	private static final int	NE		= 19;
+	private static final int	LT		= 20;
+	private static final int	LE		= 21;
+	private static final int	GT		= 22;
+	private static final int	GE		= 23;
+	
+	/**
+	 * The <CODE>Writer</CODE> class encodes the body of a file while
+	 * collecting the string table that must precede it.
+	 */
+	private static final class Writer
+	{
+		/**
+		 * Appends a module to the body.
+		 * 
+		 * @param	module		The <CODE>Module</CODE> to encode.
+		 */
+		void writeModule (final Module module)
+		{
+			Vector<Section>	sections = module.getSections ();
+			Vector<String>	globals	 = module.getGlobals ();
+			int				count	 = 0;
+			
+			writeString (module.getTarget ());
+			body.write (module.isBigEndian () ? 1 : 0);
+			writeNumber (module.getByteSize ());
+			writeString (module.getName ());
+			
+			for (int index = 0; index < sections.size (); ++index)
+				if (sections.elementAt (index).getParts ().size () > 0) ++count;
+			
+			writeNumber (count);
+			for (int index = 0; index < sections.size (); ++index) {
+				Section		section = sections.elementAt (index);
+				
+				if (section.getParts ().size () > 0)
+					writeSection (section);
+			}
+			
+			writeNumber (globals.size ());
+			for (int index = 0; index < globals.size (); ++index) {
+				String		name = globals.elementAt (index);
+				
+				writeString (name);
+				writeExpr (module.getGlobal (name));
+			}
+		}
+		
+		/**
+		 * Encodes a module into its own buffer. Strings are added to the
+		 * shared string table.
+		 * 
+		 * @param	module		The <CODE>Module</CODE> to encode.
+		 * @return	The encoded module.
+		 */
+		ByteArrayOutputStream encodeModule (final Module module)
+		{
+			ByteArrayOutputStream	saved  = body;
+			ByteArrayOutputStream	result = new ByteArrayOutputStream ();
+			
+			body = result;
+			writeModule (module);
+			body = saved;
+			
+			return (result);
+		}
+		
+		/**
+		 * Appends a length prefixed block of encoded data to the body.
+		 * 
+		 * @param	data		The encoded data.
+		 * @throws	IOException	If the data could not be copied.
+		 */
+		void writeBytes (final ByteArrayOutputStream data)
+			throws IOException
+		{
+			writeNumber (data.size ());
+			data.writeTo (body);
+		}
+		
+		/**
+		 * Appends a section and its parts to the body.
+		 * 
+		 * @param	section		The <CODE>Section</CODE> to encode.
+		 */
+		void writeSection (final Section section)
+		{
+			Vector<Part>	parts = section.getParts ();
+			boolean			wide  = section.getModule ().getByteSize () > 8;
+			
+			writeString (section.getName ());
+			body.write ((section.isAbsolute () ? ABSOLUTE : 0) | (section.isKeep () ? KEEP : 0));
+			if (section.isAbsolute ())
+				writeLong (section.getStart ());
+			
+			writeNumber (parts.size ());
+			for (int index = 0; index < parts.size (); ++index) {
+				Part		part = parts.elementAt (index);
+				
+				if (part instanceof Code) {
+					Code		code   = (Code) part;
+					int []		values = new int [code.size ()];
+					
+					code.getBytes (values, 0);
+					body.write (CODE);
+					writeNumber (values.length);
+					for (int offset = 0; offset < values.length; ++offset) {
+						if (wide) body.write (values [offset] >> 8);
+						body.write (values [offset]);
+					}
+				}
+				else if (part instanceof Jump) {
+					Jump		jump = (Jump) part;
+					
+					body.write (JUMP);
+					body.write (jump.getShortOp ());
+					writeLong (jump.getSkipOp ());
+					body.write (jump.getLongOp ());
+					body.write (jump.isRelative () ? 1 : 0);
+					writeExpr (jump.getExpr ());
+				}
+				else {
+					if (part instanceof Byte)
+						body.write (BYTE);
+					else if (part instanceof Word)
+						body.write (WORD);
+					else
+						body.write (LONG);
+					
+					writeExpr (((Evaluatable) part).getExpr ());
+				}
+			}
+		}
+		
+		/**
+		 * Appends an expression tree to the body in prefix order.
+		 * 
+		 * @param	expr		The <CODE>Expr</CODE> to encode.
+		 */
+		void writeExpr (final Expr expr)
+		{
+			if (expr instanceof Value) {
+				Value		value	= (Value) expr;
+				Section		section = value.getSection ();
+				
+				body.write (VAL);
+				writeString ((section != null) ? section.getName () : null);
+				writeLong (value.getValue ());
+			}
+			else if (expr instanceof Extern) {
+				body.write (EXT);
+				writeString (((Extern) expr).getName ());
+			}
+			else if (expr instanceof UnaryExpr) {
+				if (expr instanceof UnaryExpr.Not)
+					body.write (NOT);
+				else if (expr instanceof UnaryExpr.Cpl)
+					body.write (CPL);
+				else
+					body.write (NEG);
+				
+				writeExpr (((UnaryExpr) expr).getExp ());
+			}
+			else {
+				if (expr instanceof BinaryExpr.LAnd)		body.write (LAND);
+				else if (expr instanceof BinaryExpr.LOr)	body.write (LOR);
+				else if (expr instanceof BinaryExpr.And)	body.write (AND);
+				else if (expr instanceof BinaryExpr.Or)		body.write (OR);
+				else if (expr instanceof BinaryExpr.Xor)	body.write (XOR);
+				else if (expr instanceof BinaryExpr.Add)	body.write (ADD);
+				else if (expr instanceof BinaryExpr.Sub)	body.write (SUB);
+				else if (expr instanceof BinaryExpr.Mul)	body.write (MUL);
+				else if (expr instanceof BinaryExpr.Div)	body.write (DIV);
+				else if (expr instanceof BinaryExpr.Mod)	body.write (MOD);
+				else if (expr instanceof BinaryExpr.Shr)	body.write (SHR);
+				else if (expr instanceof BinaryExpr.Shl)	body.write (SHL);
+				else if (expr instanceof BinaryExpr.Eq)		body.write (EQ);
+				else if (expr instanceof BinaryExpr.Ne)		body.write (NE);
+				else if (expr instanceof BinaryExpr.Lt)		body.write (LT);
+				else if (expr instanceof BinaryExpr.Le)		body.write (LE);
+				else if (expr instanceof BinaryExpr.Gt)		body.write (GT);
+				else if (expr instanceof BinaryExpr.Ge)		body.write (GE);
+				else
+					throw new IllegalArgumentException ("Unsupported expression: " + expr.getClass ().getName ());
+				
+				writeExpr (((BinaryExpr) expr).getLhs ());
+				writeExpr (((BinaryExpr) expr).getRhs ());
+			}
+		}
+		
+		/**
+		 * Appends a reference to a string, adding it to the string table if
+		 * it has not been seen before.
+		 * 
+		 * @param	text		The string or <CODE>null</CODE>.
+		 */
+		void writeString (final String text)
+		{
+			if (text == null) {
+				body.write (0);
+				return;
+			}
+			
+			Integer		index = indices.get (text);
+			
+			if (index == null) {
+				index = strings.size ();
+				indices.put (text, index);
+				strings.add (text);
+			}
+			writeNumber (index + 1);
+		}
+		
+		/**
+		 * Appends an unsigned value to the body.
+		 * 
+		 * @param	value		The value to encode.
+		 */
+		void writeNumber (long value)
+		{
+			encode (body, value);
+		}
+		
+		/**
+		 * Appends a signed value to the body.
+		 * 
+		 * @param	value		The value to encode.
+		 */
+		void writeLong (long value)
+		{
+			encode (body, (value << 1) ^ (value >> 63));
+		}
+		
+		/**
+		 * Writes the header, string table and body to the given stream.
+		 * 
+		 * @param	stream		The output stream.
+		 * @param	kind		The kind of object held in the body.
+		 * @throws	IOException	If the data could not be written.
+		 */
+		void writeTo (OutputStream stream, int kind)
+			throws IOException
+		{
+			ByteArrayOutputStream	head = new ByteArrayOutputStream ();
+			
+			head.write (MAGIC);
+			encode (head, VERSION);
+			head.write (kind);
+			
+			encode (head, strings.size ());
+			for (int index = 0; index < strings.size (); ++index) {
+				byte []	bytes = strings.elementAt (index).getBytes ("UTF-8");
+				
+				encode (head, bytes.length);
+				head.write (bytes);
+			}
+			
+			head.writeTo (stream);
+			body.writeTo (stream);
+			stream.flush ();
+		}
+		
+		/**
+		 * Writes a value as a variable length quantity.
+		 * 
+		 * @param	stream		The target buffer.
+		 * @param	value		The unsigned value to encode.
+		 */
+		private static void encode (ByteArrayOutputStream stream, long value)
+		{
+			while ((value & ~0x7FL) != 0) {
+				stream.write ((int)((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			stream.write ((int) value);
+		}
+		
+		/**
+		 * The encoded modules.
+		 */
+		private ByteArrayOutputStream	body	= new ByteArrayOutputStream ();
+		
+		/**
+		 * The strings in order of first use.
+		 */
+		private Vector<String>			strings	= new Vector<String> ();
+		
+		/**
+		 * Maps each string to its index in <CODE>strings</CODE>.
+		 */
+		private Hashtable<String, Integer>	indices	= new Hashtable<String, Integer> ();
+	}
+	
+	/**
+	 * The <CODE>Reader</CODE> class decodes the contents of a binary object
+	 * file held in memory.
+	 */
+	private static final class Reader
+	{
+		/**
+		 * Constructs a <CODE>Reader</CODE> positioned after the magic bytes.
+		 * 
+		 * @param	data		The file contents.
+		 * @param	length		The number of valid bytes.
+		 */
+		Reader (final byte [] data, int length)
+		{
+			this.data   = data;
+			this.length = length;
+			
+			offset = MAGIC.length;
+		}
+		
+		/**
+		 * Constructs a <CODE>Reader</CODE> that shares the data and string
+		 * table of another but starts at a different position.
+		 * 
+		 * @param	other		The <CODE>Reader</CODE> to share with.
+		 * @param	offset		The initial read position.
+		 */
+		Reader (final Reader other, int offset)
+		{
+			this.data    = other.data;
+			this.length  = other.length;
+			this.strings = other.strings;
+			this.offset  = offset;
+		}
+		
+		/**
+		 * Reads a library index and the member offsets. The members are
+		 * decoded when the <CODE>Library</CODE> first accesses them.
+		 * 
+		 * @return	The <CODE>Library</CODE> instance.
+		 * @throws	IOException	If the data is invalid.
+		 */
+		Library readLibrary ()
+			throws IOException
+		{
+			int			count	= readNumber ();
+			int			entries	= readNumber ();
+			Hashtable<String, Integer>	index
+				= new Hashtable<String, Integer> ();
+			
+			for (int entry = 0; entry < entries; ++entry) {
+				String	symbol = readString ();
+				int		member = readNumber ();
+				
+				if (member >= count)
+					throw new IOException ("Invalid library member " + member);
+				index.put (symbol, member);
+			}
+			
+			final int []	offsets = new int [count];
+			
+			for (int member = 0; member < count; ++member) {
+				int		size = readNumber ();
+				
+				if (offset + size > length) truncated ();
+				offsets [member] = offset;
+				offset += size;
+			}
+			
+			final Reader	reader	= this;
+			
+			return (new Library (new Library.Loader ()
+			{
+				public Module load (int member)
+				{
+					try {
+						return (new Reader (reader, offsets [member]).readModule ());
+					}
+					catch (IOException error) {
+						throw new IllegalStateException ("Invalid library member " + member + ": " + error.getMessage ());
+					}
+				}
+			}, count, index));
+		}
+		
+
+		/**
+		 * Reads the string table.
+		 * 
+		 * @throws	IOException	If the data is truncated.
+		 */
+		void readStrings ()
+			throws IOException
+		{
+			strings = new String [readNumber ()];
+			
+			for (int index = 0; index < strings.length; ++index) {
+				int		size = readNumber ();
+				
+				if ((size < 0) || (offset + size > length)) truncated ();
+				strings [index] = new String (data, offset, size, "UTF-8");
+				offset += size;
+			}
+		}
+		
+		/**
+		 * Reads a module and all of its sections and globals.
+		 * 
+		 * @return	The decoded <CODE>Module</CODE>.
+		 * @throws	IOException	If the data is invalid.
+		 */
+		Module readModule ()
+			throws IOException
+		{
+			String		target	 = readString ();
+			boolean		bigEndian = readByte () != 0;
+			int			byteSize = readNumber ();
+			Module		module	 = new Module (target, bigEndian, byteSize);
+			
+			module.setName (readString ());
+			
+			int			sections = readNumber ();
+			for (int index = 0; index < sections; ++index)
+				readSection (module);
+			
+			int			globals	 = readNumber ();
+			for (int index = 0; index < globals; ++index) {
+				String	name = readString ();
+				
+				module.addGlobal (name, readExpr (module));
+			}
+			return (module);
+		}
+		
+		/**
+		 * Reads a section and adds its parts to the module.
+		 * 
+		 * @param	module		The <CODE>Module</CODE> being decoded.
+		 * @throws	IOException	If the data is invalid.
+		 */
+		void readSection (Module module)
+			throws IOException
+		{
+			String		name	= readString ();
+			Section		section;
+			boolean		wide	= module.getByteSize () > 8;
+			
+			int			flags	= readByte ();
+			
+			if ((flags & ABSOLUTE) != 0)
+				section = module.findSection (name, readLong ());
+			else
+				section = module.findSection (name);
+			
+			if ((flags & KEEP) != 0)
+				section.setKeep (true);
+			
+			int			parts	= readNumber ();
+			for (int index = 0; index < parts; ++index) {
+				int		tag	= readByte ();
+				
+				switch (tag) {
+				case CODE:
+					{
+						int		count = readNumber ();
+						
+						if ((count < 0) || (offset + (wide ? 2 : 1) * count > length)) truncated ();
+						for (int value = 0; value < count; ++value) {
+							if (wide) {
+								section.addByte (((data [offset] & 0xFF) << 8) | (data [offset + 1] & 0xFF));
+								offset += 2;
+							}
+							else
+								section.addByte (data [offset++] & 0xFF);
+						}
+					}
+					break;
+					
+				case BYTE:	section.addByte (readExpr (module));	break;
+				case WORD:	section.addWord (readExpr (module));	break;
+				case LONG:	section.addLong (readExpr (module));	break;
+				
+				case JUMP:
+					{
+						int		shortOp  = readByte ();
+						int		skipOp	 = (int) readLong ();
+						int		longOp	 = readByte ();
+						boolean	relative = readByte () != 0;
+						
+						section.addJump (new Jump (shortOp, skipOp, longOp, relative, readExpr (module)));
+					}
+					break;
+				
+				default:
+					throw new IOException ("Invalid part tag " + tag);
+				}
+			}
+		}
+		
+		/**
+		 * Reads an expression tree.
+		 * 
+		 * @param	module		The <CODE>Module</CODE> being decoded.
+		 * @return	The decoded <CODE>Expr</CODE>.
+		 * @throws	IOException	If the data is invalid.
+		 */
+		Expr readExpr (Module module)
+			throws IOException
+		{
+			int			tag = readByte ();
+			
+			switch (tag) {
+			case VAL:
+				{
+					String	sect  = readString ();
+					long	value = readLong ();
+					
+					return (new Value ((sect != null) ? module.findSection (sect) : null, value));
+				}
+				
+			case EXT:	return (new Extern (readString ()));
+			case NOT:	return (new UnaryExpr.Not (readExpr (module)));
+			case CPL:	return (new UnaryExpr.Cpl (readExpr (module)));
+			case NEG:	return (new UnaryExpr.Neg (readExpr (module)));
+			}
+			
+			Expr		lhs = readExpr (module);
+			Expr		rhs = readExpr (module);
+			
+			switch (tag) {
+			case LAND:	return (new BinaryExpr.LAnd (lhs, rhs));
+			case LOR:	return (new BinaryExpr.LOr (lhs, rhs));
+			case AND:	return (new BinaryExpr.And (lhs, rhs));
+			case OR:	return (new BinaryExpr.Or (lhs, rhs));
+			case XOR:	return (new BinaryExpr.Xor (lhs, rhs));
+			case ADD:	return (new BinaryExpr.Add (lhs, rhs));
+			case SUB:	return (new BinaryExpr.Sub (lhs, rhs));
+			case MUL:	return (new BinaryExpr.Mul (lhs, rhs));
+			case DIV:	return (new BinaryExpr.Div (lhs, rhs));
+			case MOD:	return (new BinaryExpr.Mod (lhs, rhs));
+			case SHR:	return (new BinaryExpr.Shr (lhs, rhs));
+			case SHL:	return (new BinaryExpr.Shl (lhs, rhs));
+			case EQ:	return (new BinaryExpr.Eq (lhs, rhs));
+			case NE:	return (new BinaryExpr.Ne (lhs, rhs));
+			case LT:	return (new BinaryExpr.Lt (lhs, rhs));
+			case LE:	return (new BinaryExpr.Le (lhs, rhs));
+			case GT:	return (new BinaryExpr.Gt (lhs, rhs));
+			case GE:	return (new BinaryExpr.Ge (lhs, rhs));
+			}
+			throw new IOException ("Invalid expression tag " + tag);
+		}
+		
+		/**
+		 * Reads a string table reference.
+		 * 
+		 * @return	The referenced string or <CODE>null</CODE>.
+		 * @throws	IOException	If the data is invalid.
+		 */
+		String readString ()
+			throws IOException
+		{
+			int			index = readNumber ();
+			
+			if (index == 0) return (null);
+			if (index > strings.length)
+				throw new IOException ("Invalid string index " + index);
+			
+			return (strings [index - 1]);
+		}
+		
+		/**
+		 * Reads a single byte.
+		 * 
+		 * @return	The unsigned byte value.
+		 * @throws	IOException	If the data is truncated.
+		 */
+		int readByte ()
+			throws IOException
+		{
+			if (offset >= length) truncated ();
+			
+			return (data [offset++] & 0xFF);
+		}
+		
+		/**
+		 * Reads an unsigned value that must fit in an <CODE>int</CODE>.
+		 * 
+		 * @return	The decoded value.
+		 * @throws	IOException	If the data is invalid.
+		 */
+		int readNumber ()
+			throws IOException
+		{
+			long		value = decode ();
+			
+			if ((value < 0) || (value > Integer.MAX_VALUE))
+				throw new IOException ("Invalid count " + value);
+			
+			return ((int) value);
+		}
+		
+		/**
+		 * Reads a zig-zag encoded signed value.
+		 * 
+		 * @return	The decoded value.
+		 * @throws	IOException	If the data is truncated.
+		 */
+		long readLong ()
+			throws IOException
+		{
+			long		value = decode ();
+			
+			return ((value >>> 1) ^ -(value & 1));
+		}
+		
+		/**
+		 * Reads a variable length quantity.
+		 * 
+		 * @return	The decoded value.
+		 * @throws	IOException	If the data is truncated.
+		 */
+		private long decode ()
+			throws IOException
+		{
+			long		value = 0;
+			int			shift = 0;
+			int			next;
+			
+			do {
+				next   = readByte ();
+				value |= (long)(next & 0x7F) << shift;
+				shift += 7;
+			} while (((next & 0x80) != 0) && (shift < 64));
+			
+			return (value);
+		}
+		
+		/**
+		 * Reports an unexpected end of data.
+		 * 
+		 * @throws	IOException	Always.
+		 */
+		private void truncated ()
+			throws IOException
+		{
+			throw new IOException ("Binary object file is truncated");
+		}
+		
+		/**
+		 * The file contents.
+		 */
+		private final byte []	data;
+		
+		/**
+		 * The number of valid bytes in <CODE>data</CODE>.
+		 */
+		private final int		length;
+		
+		/**
+		 * The current read position.
+		 */
+		private int				offset;
+		
+		/**
+		 * The decoded string table.
+		 */
+		private String []		strings;
+	}
+	
+	/**
+	 * Prevents instances being created.
+	 */
+	private BinaryFormat ()
+	{ }
+}
\ No newline at end of file
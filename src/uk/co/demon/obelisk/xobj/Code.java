@@ -19,11 +19,13 @@
  * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
  * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
-
 package uk.co.demon.obelisk.xobj;
 
 /**
- * The <CODE>Code</CODE> class holds a seried of generated bytes.
+ * The <CODE>Code</CODE> class holds a seried of generated bytes. The values
+ * are kept in a growable primitive array (<CODE>byte</CODE> for modules with
+ * bytes of up to 8 bits, <CODE>short</CODE> for wider ones) and are only
+ * converted to hex when the object file is written.
  * 
  * @author 	Andrew Jacobs
  * @version	$Id$
@@ -36,6 +38,14 @@ public final class Code extends Part
 	public Code (final Module module)
 	{
 		this.module = module;
+		
+		span = module.getByteSize () / 4;
+		mask = (1 << (4 * span)) - 1;
+		
+		if (module.getByteSize () <= 8)
+			bytes = new byte [INITIAL_SIZE];
+		else
+			words = new short [INITIAL_SIZE];
 	}
 	
 	/**
@@ -45,7 +55,79 @@ public final class Code extends Part
 	 */
 	public void addByte (long value)
 	{
-		data.append (Hex.toHex (value, module.getByteSize () / 4));
+		if (bytes != null) {
+			if (length == bytes.length) {
+				byte [] grown = new byte [length * 2];
+				System.arraycopy (bytes, 0, grown, 0, length);
+				bytes = grown;
+			}
+			bytes [length++] = (byte)(value & mask);
+		}
+		else {
+			if (length == words.length) {
+				short [] grown = new short [length * 2];
+				System.arraycopy (words, 0, grown, 0, length);
+				words = grown;
+			}
+			words [length++] = (short)(value & mask);
+		}
+	}
+	
+	/**
+	 * Returns the number of bytes held in this code string.
+	 * 
+	 * @return	The number of bytes.
+	 */
+	public int size ()
+	{
+		return (length);
+	}
+	
+	/**
+	 * Returns the unsigned value of the byte at the given index.
+	 * 
+	 * @param 	index			The index of the byte.
+	 * @return	The byte value.
+	 */
+	public int getByte (int index)
+	{
+		if ((index < 0) || (index >= length))
+			throw new IndexOutOfBoundsException ("Index: " + index + ", Size: " + length);
+		
+		return ((bytes != null) ? (bytes [index] & mask) : (words [index] & mask));
+	}
+	
+	/**
+	 * Provides direct access to the underlying buffer for modules with bytes
+	 * of up to 8 bits. Only the first <CODE>size ()</CODE> entries are valid
+	 * and the array must not be modified.
+	 * 
+	 * @return	The byte buffer or <CODE>null</CODE> if the module uses wider
+	 * 			bytes.
+	 */
+	public byte [] getData ()
+	{
+		return (bytes);
+	}
+	
+	/**
+	 * Copies the unsigned byte values into the given array.
+	 * 
+	 * @param	buffer			The array to fill.
+	 * @param	offset			The index of the first element to fill.
+	 * @return	The number of values copied.
+	 */
+	public int getBytes (int [] buffer, int offset)
+	{
+		if (bytes != null) {
+			for (int index = 0; index < length; ++index)
+				buffer [offset + index] = bytes [index] & mask;
+		}
+		else {
+			for (int index = 0; index < length; ++index)
+				buffer [offset + index] = words [index] & mask;
+		}
+		return (length);
 	}
 	
 	/**
@@ -53,13 +135,51 @@ public final class Code extends Part
 	 */
 	public String toString ()
 	{
-		return (data.toString());
+		StringBuffer	buffer = new StringBuffer (length * span);
+		
+		for (int index = 0; index < length; ++index) {
+			int value = (bytes != null) ? bytes [index] : words [index];
+			
+			for (int shift = 4 * (span - 1); shift >= 0; shift -= 4)
+				buffer.append (HEX.charAt ((value >> shift) & 0x0f));
+		}
+		return (buffer.toString ());
 	}
 	
 	/**
-	 * A buffer containing the code bytes.
+	 * The initial capacity of the code buffer.
+	 */
+	private static final int	INITIAL_SIZE	= 16;
+	
+	/**
+	 * Constant string used in hex conversion.
+	 */
+	private static final String	HEX				= "0123456789ABCDEF";
+	
+	/**
+	 * The code bytes for modules with bytes of up to 8 bits.
+	 */
+	private byte []				bytes;
+	
+	/**
+	 * The code bytes for modules with wider bytes.
+	 */
+	private short []			words;
+	
+	/**
+	 * The number of bytes held.
+	 */
+	private int					length	= 0;
+	
+	/**
+	 * The number of hex digits in each byte.
+	 */
+	private final int			span;
+	
+	/**
+	 * The bit mask applied to each byte value.
 	 */
-	private StringBuffer	data	= new StringBuffer ();
+	private final int			mask;
 	
-	private final Module	module;
+	private final Module		module;
 }
\ No newline at end of file
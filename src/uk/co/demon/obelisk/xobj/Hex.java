@@ -37,7 +37,7 @@ public abstract class Hex
 	 */
 	public static String toHex (long value, int length)
 	{
-		buffer.setLength (0);
+		StringBuffer	buffer = new StringBuffer (8);
 	
 		switch (length) {
 		case 8:	buffer.append (HEX.charAt((int)((value >> 28) & 0x0f)));
@@ -57,9 +57,4 @@ public abstract class Hex
 	 * Constant string used in hex conversion.
 	 */
 	private static final String	HEX				= "0123456789ABCDEF";
-	
-	/**
-	 * String buffer used to construct values
-	 */
-	private static StringBuffer	buffer			= new StringBuffer ();
 }
\ No newline at end of file
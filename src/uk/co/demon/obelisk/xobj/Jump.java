@@ -0,0 +1,169 @@
+/*
+ * Copyright (C),2005 Andrew John Jacobs.
+ *
+ * This program is provided free of charge for educational purposes
+ *
+ * Redistribution and use in binary form without modification, is permitted
+ * provided that the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS 'AS IS' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package uk.co.demon.obelisk.xobj;
+
+/**
+ * The <CODE>Jump</CODE> class holds a jump or conditional branch whose final
+ * form is chosen by the linker. The assembler reserves space for the long
+ * form, an optional branch over followed by an opcode and a word address or
+ * displacement. Once final addresses are known the linker may replace it with
+ * the short form, a single opcode followed by a byte displacement, and move
+ * the code that follows it down.
+ * 
+ * @author 	Andrew Jacobs
+ * @version $Id$
+ */
+public final class Jump extends Part implements Evaluatable
+{
+	/**
+	 * Constructs a <CODE>Jump</CODE> instance for the given target.
+	 * 
+	 * @param	shortOp		The opcode of the short relative form.
+	 * @param	skipOp		The opcode of the branch that skips over the
+	 * 						long form or -1 if it is unconditional.
+	 * @param	longOp		The opcode of the long form.
+	 * @param	relative	<CODE>true</CODE> if the long form takes a word
+	 * 						displacement rather than an address.
+	 * @param 	expr		The expression for the target address.
+	 */
+	public Jump (int shortOp, int skipOp, int longOp, boolean relative, Expr expr)
+	{
+		this.shortOp  = shortOp;
+		this.skipOp   = skipOp;
+		this.longOp   = longOp;
+		this.relative = relative;
+		this.expr     = expr;
+	}
+	
+	/**
+	 * Provides access to the short form opcode.
+	 * 
+	 * @return	The short form opcode.
+	 */
+	public int getShortOp ()
+	{
+		return (shortOp);
+	}
+	
+	/**
+	 * Provides access to the opcode that skips over the long form.
+	 * 
+	 * @return	The skip opcode or -1 if there is none.
+	 */
+	public int getSkipOp ()
+	{
+		return (skipOp);
+	}
+	
+	/**
+	 * Provides access to the long form opcode.
+	 * 
+	 * @return	The long form opcode.
+	 */
+	public int getLongOp ()
+	{
+		return (longOp);
+	}
+	
+	/**
+	 * Determines if the long form takes a displacement.
+	 * 
+	 * @return	<CODE>true</CODE> if the long form is relative.
+	 */
+	public boolean isRelative ()
+	{
+		return (relative);
+	}
+	
+	/**
+	 * Calculates the size of the long form as reserved by the assembler.
+	 * 
+	 * @return	The size of the long form.
+	 */
+	public int getSize ()
+	{
+		return ((skipOp != -1) ? 5 : 3);
+	}
+	
+	/**
+	 * Calculates the size of the short form.
+	 * 
+	 * @return	The size of the short form.
+	 */
+	public int getShortSize ()
+	{
+		return (2);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	public Expr getExpr ()
+	{
+		return (expr);
+	}
+	
+	/**
+	 * Converts the jump into an XML string.
+	 * 
+	 * @return	The XML representation of this jump.
+	 */
+	public String toString ()
+	{
+		StringBuffer	buffer = new StringBuffer ();
+		
+		buffer.append ("<jump short='" + Hex.toHex (shortOp, 2) + "'");
+		if (skipOp != -1)
+			buffer.append (" skip='" + Hex.toHex (skipOp, 2) + "'");
+		buffer.append (" long='" + Hex.toHex (longOp, 2) + "'");
+		if (relative)
+			buffer.append (" rel='true'");
+		buffer.append (">" + expr + "</jump>");
+		
+		return (buffer.toString ());
+	}
+	
+	/**
+	 * The opcode of the short relative form.
+	 */
+	private final int		shortOp;
+	
+	/**
+	 * The opcode of the branch over the long form (or -1).
+	 */
+	private final int		skipOp;
+	
+	/**
+	 * The opcode of the long form.
+	 */
+	private final int		longOp;
+	
+	/**
+	 * Set if the long form takes a displacement.
+	 */
+	private final boolean	relative;
+	
+	/**
+	 * The target address expression.
+	 */
+	private final Expr		expr;
+}
\ No newline at end of file
@@ -19,53 +19,92 @@
  * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
  * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
-
 package uk.co.demon.obelisk.xobj;
 
+import java.util.Hashtable;
 import java.util.Vector;
 
 /**
  * A <CODE>Library</CODE> instance contains a complete code library.
+ * <P>
+ * A library keeps an index of the global symbols defined by its members.
+ * Libraries read from binary files are given the index stored in the file
+ * and decode each member only when it is first accessed.
  * 
  * @author 	Andrew Jacobs
  * @version	$Id$
  */
 public final class Library
 {
+	/**
+	 * The <CODE>Loader</CODE> interface is implemented by classes that can
+	 * decode library members on demand.
+	 */
+	interface Loader
+	{
+		/**
+		 * Decodes the indicated library member.
+		 * 
+		 * @param	index		The member number.
+		 * @return	The decoded <CODE>Module</CODE>.
+		 */
+		public Module load (int index);
+	}
+	
 	public Library ()
 	{ }
 	
+	/**
+	 * Constructs a <CODE>Library</CODE> whose members are decoded on demand.
+	 * 
+	 * @param	loader			The <CODE>Loader</CODE> used to decode members.
+	 * @param	count			The number of members.
+	 * @param	index			Maps each global symbol to its member number.
+	 */
+	Library (final Loader loader, int count, final Hashtable<String, Integer> index)
+	{
+		this.loader = loader;
+		this.index  = index;
+		
+		modules.setSize (count);
+	}
+	
 	public void clear ()
 	{
 		modules.clear ();
+		index = null;
 	}
 	
 	public void addModule (Module module)
 	{
 		modules.add (module);
+		index = null;
 	}
 	
 	public boolean updateModule (Module module)
 	{
 		for (int index = 0; index < modules.size (); ++index) {
-			Module target = modules.elementAt (index);
+			Module target = getModule (index);
 			
 			if (target.getName().equals (module.getName())) {
 				modules.set (index, module);
+				this.index = null;
 				return (true);
 			}
 		}
-		modules.add (module);
+		addModule (module);
 		return (false);
 	}
 	
 	public boolean removeModule (Module module)
 	{
 		for (int index = 0; index < modules.size (); ++index) {
-			Module target = modules.elementAt (index);
+			Module target = getModule (index);
 			
 			if (target.getName().equals (module.getName())) {
+				getModules ();
 				modules.remove (index);
+				this.index = null;
 				return (true);
 			}
 		}
@@ -77,11 +116,73 @@ public final class Library
 		Module [] result = new Module [modules.size ()];
 		
 		for (int index = 0; index < modules.size (); ++index)
-			result [index] = modules.get(index);
+			result [index] = getModule (index);
 		
 		return (result);
 	}
 	
+	/**
+	 * Returns the number of modules in the library.
+	 * 
+	 * @return	The module count.
+	 */
+	public int getModuleCount ()
+	{
+		return (modules.size ());
+	}
+	
+	/**
+	 * Returns the indicated library member, decoding it if necessary.
+	 * 
+	 * @param	index			The member number.
+	 * @return	The <CODE>Module</CODE> instance.
+	 */
+	public Module getModule (int index)
+	{
+		Module		module = modules.elementAt (index);
+		
+		if (module == null)
+			modules.set (index, module = loader.load (index));
+		
+		return (module);
+	}
+	
+	/**
+	 * Finds the first library member that defines the given global symbol.
+	 * 
+	 * @param	symbol			The symbol name.
+	 * @return	The member number or -1 if no member defines the symbol.
+	 */
+	public int findModule (final String symbol)
+	{
+		Integer		member = getIndex ().get (symbol);
+		
+		return ((member != null) ? member : -1);
+	}
+	
+	/**
+	 * Returns the index of global symbols to member numbers, building it
+	 * from the members if necessary. Where several members define a symbol
+	 * the first is indexed.
+	 * 
+	 * @return	The symbol index.
+	 */
+	public Hashtable<String, Integer> getIndex ()
+	{
+		if (index == null) {
+			index = new Hashtable<String, Integer> ();
+			
+			for (int member = 0; member < modules.size (); ++member) {
+				Vector<String>	globals = getModule (member).getGlobals ();
+				
+				for (int count = 0; count < globals.size (); ++count)
+					if (!index.containsKey (globals.elementAt (count)))
+						index.put (globals.elementAt (count), member);
+			}
+		}
+		return (index);
+	}
+	
 	/**
 	 * Converts the module into an XML string.
 	 * 
@@ -93,14 +194,26 @@ public final class Library
 		
 		buffer.append ("<library>");
 		for (int index = 0; index < modules.size (); ++index)
-			buffer.append ((modules.elementAt(index)).toString ());
+			buffer.append (getModule (index).toString ());
 		buffer.append ("</library>");
 		
 		return (buffer.toString ());
 	}
 
 	/**
-	 * All the modules in the library.
+	 * All the modules in the library. Members that have not yet been
+	 * decoded are <CODE>null</CODE>.
 	 */
 	private Vector<Module>		modules = new Vector<Module> ();
-}
+	
+	/**
+	 * The <CODE>Loader</CODE> used to decode members on demand.
+	 */
+	private Loader				loader	= null;
+	
+	/**
+	 * Maps global symbols to member numbers or <CODE>null</CODE> if the
+	 * index must be rebuilt.
+	 */
+	private Hashtable<String, Integer>	index	= null;
+}
\ No newline at end of file
@@ -82,6 +82,16 @@ public final class Module
 		this.name = name;
 	}
 	
+	/**
+	 * Provides access to the target architecture name.
+	 * 
+	 * @return	The target architecture.
+	 */
+	public String getTarget ()
+	{
+		return (target);
+	}
+	
 	/**
 	 * Determines the endianness of the module.
 	 * 
@@ -37,7 +37,7 @@ public abstract class Oct
 	 */
 	public static String toOct (long value, int length)
 	{
-		buffer.setLength (0);
+		StringBuffer	buffer = new StringBuffer (8);
 	
 		switch (length) {
 		case 8:	buffer.append (OCT.charAt((int)((value >> 21) & 0x07)));
@@ -57,9 +57,4 @@ public abstract class Oct
 	 * Constant string used in octal conversion.
 	 */
 	private static final String	OCT				= "01234567";
-	
-	/**
-	 * String buffer used to construct values
-	 */
-	private static StringBuffer	buffer			= new StringBuffer ();
 }
\ No newline at end of file
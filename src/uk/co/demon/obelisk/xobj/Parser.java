@@ -22,8 +22,11 @@
 
 package uk.co.demon.obelisk.xobj;
 
+import java.io.ByteArrayInputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.util.Stack;
 
 import javax.xml.parsers.ParserConfigurationException;
@@ -35,8 +38,9 @@ import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
 /**
- * The <CODE>Parser</CODE> class converts an XML file back into either an
- * object module or library.
+ * The <CODE>Parser</CODE> class converts an XML or binary file back into
+ * either an object module or library. The format is determined from the
+ * first few bytes of the file.
  * 
  * @author 	Andrew Jacobs
  * @version	$Id$
@@ -51,23 +55,114 @@ public final class Parser
 	 */
 	public static Object parse (final String fileName)
 	{
+		return (parse (fileName, System.err));
+	}
+	
+	/**
+	 * Parse an object or library file and convert back into Java objects,
+	 * reporting any problems to the given <CODE>PrintStream</CODE>.
+	 * 
+	 * @param 	fileName		The name of the file to process.
+	 * @param	messages		The <CODE>PrintStream</CODE> for messages.
+	 * @return	The parsed object.
+	 */
+	public static Object parse (final String fileName, final PrintStream messages)
+	{
+		Handler			handler = new Handler ();
+		byte []			data;
+		
+		try {
+			data = readFile (fileName);
+			
+			if (BinaryFormat.isBinary (data, data.length))
+				return (BinaryFormat.read (data, data.length));
+		}
+		catch (FileNotFoundException error) {
+			return (null);
+		}
+		catch (Exception error) {
+			error.printStackTrace (messages);
+			return (null);
+		}
+		
+		SAXParser		parser  = getParser (messages);
+		
+		if (parser == null) return (null);
+		
 		try {
-			stack.clear ();
-			getParser ().parse (new FileInputStream (fileName), handler);
+			parser.parse (new ByteArrayInputStream (data), handler);
 		}
 		catch (FileNotFoundException error) {
 			return (null);
 		}
 		catch (Exception error) {
-			error.printStackTrace(System.err);
+			error.printStackTrace (messages);
 			return (null);
 		}
 		
-		return (stack.pop ());
+		return (handler.stack.pop ());
+	}
+	
+	/**
+	 * Determines whether the named file holds a binary object module or
+	 * library.
+	 * 
+	 * @param 	fileName		The name of the file to test.
+	 * @return	<CODE>true</CODE> if the file is in the binary format.
+	 */
+	public static boolean isBinary (final String fileName)
+	{
+		byte []			data = new byte [BinaryFormat.MAGIC.length];
+		int				size = 0;
+		
+		try {
+			FileInputStream	stream = new FileInputStream (fileName);
+			int				count;
+			
+			while ((size < data.length) && ((count = stream.read (data, size, data.length - size)) > 0))
+				size += count;
+			stream.close ();
+		}
+		catch (IOException error) {
+			return (false);
+		}
+		return (BinaryFormat.isBinary (data, size));
+	}
+	
+	/**
+	 * Reads the entire contents of a file into memory.
+	 * 
+	 * @param 	fileName		The name of the file to read.
+	 * @return	The file contents.
+	 * @throws	IOException		If the file could not be read.
+	 */
+	private static byte [] readFile (final String fileName)
+		throws IOException
+	{
+		FileInputStream	stream = new FileInputStream (fileName);
+		
+		try {
+			byte []		data = new byte [(int) stream.getChannel ().size ()];
+			int			size = 0;
+			int			count;
+			
+			while ((size < data.length) && ((count = stream.read (data, size, data.length - size)) > 0))
+				size += count;
+			
+			if (size == data.length) return (data);
+			
+			byte []		result = new byte [size];
+			System.arraycopy (data, 0, result, 0, size);
+			return (result);
+		}
+		finally {
+			stream.close ();
+		}
 	}
 	
 	/**
-	 * A customised SAX handler to process the XML input stream
+	 * A customised SAX handler to process the XML input stream. Each parse
+	 * uses a new instance so that several files may be processed at once.
 	 */
 	private static class Handler extends DefaultHandler
 	{
@@ -78,12 +173,14 @@ public final class Parser
 			chars = new String (ch, start, length).trim ();
 						
 			if (tags.peek ().equals ("section")) {
-				bytes.append (chars);
-				
-				while (bytes.length () >= span) {
-					section.addByte (java.lang.Long.parseLong (
-							bytes.substring (0, span), 16));
-					bytes.delete (0, span);
+				for (int index = 0; index < chars.length (); ++index) {
+					value = (value << 4) | Character.digit (chars.charAt (index), 16);
+					
+					if (++digits == span) {
+						section.addByte (value);
+						value  = 0;
+						digits = 0;
+					}
 				}
 			}
 			else {
@@ -100,6 +197,17 @@ public final class Parser
 			tags.push (localName);
 			
 			switch (localName.charAt (0)) {
+			case 'j':
+				if (localName.equals ("jump")) {
+					String	skip = attrs.getValue ("skip");
+					
+					jumpShort 	 = Integer.parseInt (attrs.getValue ("short"), 16);
+					jumpSkip	 = (skip != null) ? Integer.parseInt (skip, 16) : -1;
+					jumpLong	 = Integer.parseInt (attrs.getValue ("long"), 16);
+					jumpRelative = "true".equals (attrs.getValue ("rel"));
+				}
+				break;
+				
 			case 'l':
 				if (localName.equals ("library")) {
 					stack.push (new Library ());
@@ -130,7 +238,11 @@ public final class Parser
 					else
 						section = module.findSection (attrs.getValue("name"));
 					
-					bytes.setLength (0);
+					if ("true".equals (attrs.getValue ("keep")))
+						section.setKeep (true);
+					
+					value  = 0;
+					digits = 0;
 				}
 				break;
 				
@@ -207,6 +319,15 @@ public final class Parser
 				}
 				break;
 				
+			case 'j':
+				if (localName.equals ("jump")) {
+					Expr	exp = (Expr) stack.pop ();
+					
+					section.addJump (new Jump (jumpShort, jumpSkip, jumpLong, jumpRelative, exp));
+					return;
+				}
+				break;
+				
 			case 'g':
 				if (localName.equals ("ge")) {
 					Expr	rhs = (Expr) stack.pop ();
@@ -286,6 +407,13 @@ public final class Parser
 					stack.push (new BinaryExpr.Mod (lhs, rhs));
 					return;
 				}
+				if (localName.equals ("mul")) {
+					Expr	rhs = (Expr) stack.pop ();
+					Expr	lhs = (Expr) stack.pop ();
+				
+					stack.push (new BinaryExpr.Mul (lhs, rhs));
+					return;
+				}
 				break;
 								
 			case 'n':
@@ -378,6 +506,8 @@ public final class Parser
 			}
 		}
 		
+		private Stack<Object>			stack	= new Stack<Object> ();
+		
 		private Stack<String>			tags	= new Stack<String> ();
 		
 		private Module					module;
@@ -388,7 +518,17 @@ public final class Parser
 		
 		private String					chars;
 		
-		private StringBuffer			bytes	= new StringBuffer ();
+		private int						jumpShort;
+		
+		private int						jumpSkip;
+		
+		private int						jumpLong;
+		
+		private boolean					jumpRelative;
+		
+		private long					value;
+		
+		private int						digits;
 	}
 	
 	/**
@@ -397,46 +537,32 @@ public final class Parser
 	private static SAXParserFactory	factory	= null;
 	
 	/**
-	 * The <CODE>SAXParser</CODE> used to parser the object module.
-	 */
-	private static SAXParser		parser	= null;
-	
-	/**
-	 * The <CODE>Handler</CODE> used to process the SAX event stream.
-	 */
-	private static Handler			handler	= new Handler ();
-	
-	/**
-	 * A <CODE>Stack</CODE> used to hold objects under construction.
-	 */
-	private static Stack<Object>	stack	= new Stack<Object> ();
-
-	/**
-	 * Returns a <CODE>SAXParser</CODE> that will be used to process the XML
-	 * file.
+	 * Returns a new <CODE>SAXParser</CODE> that will be used to process the
+	 * XML file. <CODE>SAXParser</CODE> instances are not thread safe so one
+	 * is created for each file.
 	 * 
-	 * @return	The <CODE>SAXParser</CODE>.
+	 * @param	messages		The <CODE>PrintStream</CODE> for messages.
+	 * @return	The <CODE>SAXParser</CODE> or <CODE>null</CODE> if one could
+	 * 			not be created.
 	 */
-	private static SAXParser getParser ()
+	private static synchronized SAXParser getParser (final PrintStream messages)
 	{
-		if (parser == null)	{
-			try {
-				if (factory == null) {
-					factory = SAXParserFactory.newInstance ();
-					
-					factory.setNamespaceAware (false);
-					factory.setValidating (false);
-				}
-				parser = factory.newSAXParser ();
-			}
-			catch (ParserConfigurationException error) {
-				System.err.println ("Error: No SAX Parser installed in the JAVA runtime");
-				System.exit (1);
-			}
-			catch (SAXException error) {
-				System.err.println ("Error: Failed to create a SAX parser");
-				System.exit (1);				
+		SAXParser		parser = null;
+		
+		try {
+			if (factory == null) {
+				factory = SAXParserFactory.newInstance ();
+				
+				factory.setNamespaceAware (false);
+				factory.setValidating (false);
 			}
+			parser = factory.newSAXParser ();
+		}
+		catch (ParserConfigurationException error) {
+			messages.println ("Error: No SAX Parser installed in the JAVA runtime");
+		}
+		catch (SAXException error) {
+			messages.println ("Error: Failed to create a SAX parser");
 		}
 		return (parser);
 	}
@@ -0,0 +1,317 @@
+/*
+ * Copyright (C),2005-2011 Andrew John Jacobs.
+ *
+ * This program is provided free of charge for educational purposes
+ *
+ * Redistribution and use in binary form without modification, is permitted
+ * provided that the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided
+ * with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR AND CONTRIBUTORS 'AS IS' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE AUTHOR OR CONTRIBUTORS BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package uk.co.demon.obelisk.xobj;
+
+import java.util.Arrays;
+import java.util.Vector;
+
+/**
+ * The <CODE>Relocations</CODE> class holds the expressions of a
+ * <CODE>Section</CODE> compiled into a flat postfix form. Symbols and
+ * sections are replaced by the numbers allocated to them in a
+ * <CODE>SymbolMap</CODE> and <CODE>SectionMap</CODE> so that each
+ * expression can be evaluated by a simple stack machine without walking
+ * a tree, hashing names or allocating objects.
+ * 
+ * @author	Andrew Jacobs
+ * @version	$Id$
+ */
+public final class Relocations
+{
+	/**
+	 * Compiles the expressions of every <CODE>Evaluatable</CODE> part in a
+	 * <CODE>Section</CODE> in order.
+	 * 
+	 * @param	section			The <CODE>Section</CODE> to be compiled.
+	 * @param	sections		The <CODE>SectionMap</CODE> that will be used
+	 * 							to evaluate the expressions.
+	 * @param	symbols			The <CODE>SymbolMap</CODE> that will be used
+	 * 							to evaluate the expressions.
+	 */
+	public Relocations (final Section section, final SectionMap sections, final SymbolMap symbols)
+	{
+		Vector<Part>	parts = section.getParts ();
+		int				count = 0;
+		
+		for (int index = 0; index < parts.size (); ++index)
+			if (parts.elementAt (index) instanceof Evaluatable) ++count;
+		
+		starts = new int [count + 1];
+		count  = 0;
+		
+		for (int index = 0; index < parts.size (); ++index) {
+			Part		part = parts.elementAt (index);
+			
+			if (part instanceof Evaluatable) {
+				starts [count++] = length;
+				depth = Math.max (depth, compile (((Evaluatable) part).getExpr (), sections, symbols));
+			}
+		}
+		starts [count] = length;
+		
+		code   = Arrays.copyOf (code, length);
+		values = Arrays.copyOf (values, constants);
+	}
+	
+	/**
+	 * Returns the number of compiled expressions.
+	 * 
+	 * @return	The number of expressions.
+	 */
+	public int size ()
+	{
+		return (starts.length - 1);
+	}
+	
+	/**
+	 * Returns the size of the stack needed to evaluate any of the
+	 * expressions.
+	 * 
+	 * @return	The stack depth.
+	 */
+	public int getDepth ()
+	{
+		return (depth);
+	}
+	
+	/**
+	 * Evaluates one of the compiled expressions.
+	 * 
+	 * @param	index			The position of the expression amongst the
+	 * 							section's <CODE>Evaluatable</CODE> parts.
+	 * @param	sections		The <CODE>SectionMap</CODE> it was compiled for.
+	 * @param	symbols			The <CODE>SymbolMap</CODE> it was compiled for.
+	 * @param	stack			A work area of at least <CODE>getDepth</CODE>
+	 * 							elements.
+	 * @return	The value of the expression.
+	 */
+	public long resolve (int index, SectionMap sections, SymbolMap symbols, long [] stack)
+	{
+		int			pc	= starts [index];
+		int			end	= starts [index + 1];
+		int			sp	= 0;
+		
+		while (pc < end) {
+			switch (code [pc++]) {
+			case CONST:	stack [sp++] = values [code [pc++]];							break;
+			case SYMBOL:stack [sp++] = symbols.addressOf (code [pc++]);					break;
+			case SECTION:
+						stack [sp++] = sections.addressOf (code [pc], values [code [pc + 1]]);
+						pc += 2;														break;
+			
+			case NOT:	stack [sp - 1] = (stack [sp - 1] != 0) ? 0 : 1;					break;
+			case CPL:	stack [sp - 1] = ~stack [sp - 1];								break;
+			case NEG:	stack [sp - 1] = -stack [sp - 1];								break;
+			
+			case LAND:	--sp; stack [sp - 1] = ((stack [sp - 1] != 0) && (stack [sp] != 0)) ? 1 : 0;	break;
+			case LOR:	--sp; stack [sp - 1] = ((stack [sp - 1] != 0) || (stack [sp] != 0)) ? 1 : 0;	break;
+			case AND:	--sp; stack [sp - 1] &= stack [sp];								break;
+			case OR:	--sp; stack [sp - 1] |= stack [sp];								break;
+			case XOR:	--sp; stack [sp - 1] ^= stack [sp];								break;
+			case ADD:	--sp; stack [sp - 1] += stack [sp];								break;
+			case SUB:	--sp; stack [sp - 1] -= stack [sp];								break;
+			case MUL:	--sp; stack [sp - 1] *= stack [sp];								break;
+			case DIV:	--sp; stack [sp - 1] /= stack [sp];								break;
+			case MOD:	--sp; stack [sp - 1] %= stack [sp];								break;
+			case SHR:	--sp; stack [sp - 1] >>= stack [sp];							break;
+			case SHL:	--sp; stack [sp - 1] <<= stack [sp];							break;
+			case EQ:	--sp; stack [sp - 1] = (stack [sp - 1] == stack [sp]) ? 1 : 0;	break;
+			case NE:	--sp; stack [sp - 1] = (stack [sp - 1] != stack [sp]) ? 1 : 0;	break;
+			case LT:	--sp; stack [sp - 1] = (stack [sp - 1] <  stack [sp]) ? 1 : 0;	break;
+			case LE:	--sp; stack [sp - 1] = (stack [sp - 1] <= stack [sp]) ? 1 : 0;	break;
+			case GT:	--sp; stack [sp - 1] = (stack [sp - 1] >  stack [sp]) ? 1 : 0;	break;
+			case GE:	--sp; stack [sp - 1] = (stack [sp - 1] >= stack [sp]) ? 1 : 0;	break;
+			}
+		}
+		return (stack [0]);
+	}
+	
+	// Operations that push a value onto the stack
+	private static final int	CONST	= 0;
+	private static final int	SYMBOL	= 1;
+	private static final int	SECTION	= 2;
+	
+	// Unary operations
+	private static final int	NOT		= 3;
+	private static final int	CPL		= 4;
+	private static final int	NEG		= 5;
+	
+	// Binary operations
+	private static final int	LAND	= 6;
+	private static final int	LOR		= 7;
+	private static final int	AND		= 8;
+	private static final int	OR		= 9;
+	private static final int	XOR		= 10;
+	private static final int	ADD		= 11;
+	private static final int	SUB		= 12;
+	private static final int	MUL		= 13;
+	private static final int	DIV		= 14;
+	private static final int	MOD		= 15;
+	private static final int	SHR		= 16;
+	private static final int	SHL		= 17;
+	private static final int	EQ		= 18;
+	private static final int	NE		= 19;
+	private static final int	LT		= 20;
+	private static final int	LE		= 21;
+	private static final int	GT		= 22;
+	private static final int	GE		= 23;
+	
+	/**
+	 * The start of each expression's code with a final entry marking the
+	 * end of the last one.
+	 */
+	private final int []		starts;
+	
+	/**
+	 * The operations and their operands.
+	 */
+	private int []				code		= new int [32];
+	
+	/**
+	 * The constants and section offsets used by the code.
+	 */
+	private long []				values		= new long [16];
+	
+	/**
+	 * The number of entries used in <CODE>code</CODE>.
+	 */
+	private int					length		= 0;
+	
+	/**
+	 * The number of entries used in <CODE>values</CODE>.
+	 */
+	private int					constants	= 0;
+	
+	/**
+	 * The deepest stack needed by any expression.
+	 */
+	private int					depth		= 1;
+	
+	/**
+	 * Appends the postfix form of an expression to the code.
+	 * 
+	 * @param	expr			The <CODE>Expr</CODE> to be compiled.
+	 * @param	sections		The <CODE>SectionMap</CODE> to number sections.
+	 * @param	symbols			The <CODE>SymbolMap</CODE> to number symbols.
+	 * @return	The stack depth needed to evaluate the expression.
+	 */
+	private int compile (Expr expr, SectionMap sections, SymbolMap symbols)
+	{
+		if (expr instanceof Value) {
+			Value		value = (Value) expr;
+			
+			if (value.getSection () == null)
+				emit (CONST, constant (value.getValue ()));
+			else {
+				emit (SECTION, sections.idOf (value.getSection ()));
+				emit (constant (value.getValue ()));
+			}
+			return (1);
+		}
+		
+		if (expr instanceof Extern) {
+			emit (SYMBOL, symbols.idOf (((Extern) expr).getName ()));
+			return (1);
+		}
+		
+		if (expr instanceof UnaryExpr) {
+			int			need = compile (((UnaryExpr) expr).getExp (), sections, symbols);
+			
+			if (expr instanceof UnaryExpr.Not)		emit (NOT);
+			else if (expr instanceof UnaryExpr.Cpl)	emit (CPL);
+			else if (expr instanceof UnaryExpr.Neg)	emit (NEG);
+			else throw new IllegalArgumentException ("Unsupported expression: " + expr);
+			
+			return (need);
+		}
+		
+		if (expr instanceof BinaryExpr) {
+			int			lhs = compile (((BinaryExpr) expr).getLhs (), sections, symbols);
+			int			rhs = compile (((BinaryExpr) expr).getRhs (), sections, symbols);
+			
+			if (expr instanceof BinaryExpr.LAnd)		emit (LAND);
+			else if (expr instanceof BinaryExpr.LOr)	emit (LOR);
+			else if (expr instanceof BinaryExpr.And)	emit (AND);
+			else if (expr instanceof BinaryExpr.Or)		emit (OR);
+			else if (expr instanceof BinaryExpr.Xor)	emit (XOR);
+			else if (expr instanceof BinaryExpr.Add)	emit (ADD);
+			else if (expr instanceof BinaryExpr.Sub)	emit (SUB);
+			else if (expr instanceof BinaryExpr.Mul)	emit (MUL);
+			else if (expr instanceof BinaryExpr.Div)	emit (DIV);
+			else if (expr instanceof BinaryExpr.Mod)	emit (MOD);
+			else if (expr instanceof BinaryExpr.Shr)	emit (SHR);
+			else if (expr instanceof BinaryExpr.Shl)	emit (SHL);
+			else if (expr instanceof BinaryExpr.Eq)		emit (EQ);
+			else if (expr instanceof BinaryExpr.Ne)		emit (NE);
+			else if (expr instanceof BinaryExpr.Lt)		emit (LT);
+			else if (expr instanceof BinaryExpr.Le)		emit (LE);
+			else if (expr instanceof BinaryExpr.Gt)		emit (GT);
+			else if (expr instanceof BinaryExpr.Ge)		emit (GE);
+			else throw new IllegalArgumentException ("Unsupported expression: " + expr);
+			
+			return (Math.max (lhs, rhs + 1));
+		}
+		
+		throw new IllegalArgumentException ("Unsupported expression: " + expr);
+	}
+	
+	/**
+	 * Appends an operation to the code.
+	 * 
+	 * @param	op				The operation or operand.
+	 */
+	private void emit (int op)
+	{
+		if (length == code.length)
+			code = Arrays.copyOf (code, 2 * code.length);
+		
+		code [length++] = op;
+	}
+	
+	/**
+	 * Appends an operation and its operand to the code.
+	 * 
+	 * @param	op				The operation.
+	 * @param	operand			Its operand.
+	 */
+	private void emit (int op, int operand)
+	{
+		emit (op);
+		emit (operand);
+	}
+	
+	/**
+	 * Adds a value to the constant pool.
+	 * 
+	 * @param	value			The value to be added.
+	 * @return	Its index in the pool.
+	 */
+	private int constant (long value)
+	{
+		if (constants == values.length)
+			values = Arrays.copyOf (values, 2 * values.length);
+		
+		values [constants] = value;
+		return (constants++);
+	}
+}
\ No newline at end of file
@@ -103,6 +103,28 @@ public class Section
 		return (!relative);
 	}
 	
+	/**
+	 * Determines if the section must be kept by the linker even when
+	 * nothing refers to it.
+	 * 
+	 * @return	A flag indicating if the section is a root.
+	 */
+	public boolean isKeep ()
+	{
+		return (keep);
+	}
+	
+	/**
+	 * Marks the section as one that the linker must keep even when
+	 * nothing refers to it.
+	 * 
+	 * @param	keep			The new keep flag.
+	 */
+	public void setKeep (boolean keep)
+	{
+		this.keep = keep;
+	}
+	
 	/**
 	 * Provides access to the start address of the section.
 	 * 
@@ -153,7 +175,8 @@ public class Section
 	 */
 	public void clear ()
 	{
-		size = 0;
+		size  = 0;
+		jumps = 0;
 		parts.clear();
 	}
 	
@@ -202,6 +225,63 @@ public class Section
 		}
 	}
 
+	/**
+	 * Adds a relaxable jump to the current section reserving space for its
+	 * long form.
+	 * 
+	 * @param 	jump			The <CODE>Jump</CODE> to add.
+	 */
+	public void addJump (Jump jump)
+	{
+		parts.add (jump);
+		size += jump.getSize ();
+		++jumps;
+	}
+	
+	/**
+	 * Replaces the relaxable jumps added so far with the bytes of their
+	 * long form so that the linker cannot move anything before the current
+	 * position.
+	 */
+	public void fixJumps ()
+	{
+		if (jumps == 0) return;
+		
+		Vector<Part>	old = parts;
+		
+		parts = new Vector<Part> ();
+		size  = 0;
+		jumps = 0;
+		for (int index = 0; index < old.size (); ++index) {
+			Part		part = old.elementAt (index);
+			
+			if (part instanceof Jump) {
+				Jump		jump = (Jump) part;
+				
+				if (jump.getSkipOp () != -1) {
+					addByte (jump.getSkipOp ());
+					addByte (3);
+				}
+				addByte (jump.getLongOp ());
+				if (jump.isRelative ())
+					addWord (new BinaryExpr.Sub (jump.getExpr (), Expr.add (getOrigin (), new Value (null, 2))));
+				else
+					addWord (jump.getExpr ());
+			}
+			else {
+				parts.add (part);
+				if (part instanceof Code)
+					size += ((Code) part).size ();
+				else if (part instanceof Byte)
+					size += 1;
+				else if (part instanceof Word)
+					size += 2;
+				else
+					size += 4;
+			}
+		}
+	}
+
 	/**
 	 * Adds a constant byte value to the current section.
 	 * 
@@ -282,6 +362,8 @@ public class Section
 			buffer.append ("<section name='" + name + "'");
 			if (!relative)
 				buffer.append (" addr='" + Hex.toHex (start, 8) + "'");
+			if (keep)
+				buffer.append (" keep='true'");
 			buffer.append (" size='" + size + "'");
 			buffer.append (">");
 			for (int index = 0; index < parts.size (); ++index)
@@ -340,6 +422,11 @@ public class Section
 	 */
 	private boolean				relative;
 	
+	/**
+	 * Set if the linker must keep this section.
+	 */
+	private boolean				keep		= false;
+	
 	/**
 	 * The start address of an absolute section.
 	 */
@@ -350,6 +437,11 @@ public class Section
 	 */
 	private int					size;
 	
+	/**
+	 * The number of relaxable jumps in the section.
+	 */
+	private int					jumps		= 0;
+	
 	/**
 	 * The set of constituent parts that make up is section.
 	 */
@@ -22,8 +22,8 @@
 
 package uk.co.demon.obelisk.xobj;
 
-import java.util.Enumeration;
-import java.util.Hashtable;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Vector;
 
 /**
@@ -43,7 +43,7 @@ public final class SectionMap
 	 */
 	public long baseAddressOf (Section section)
 	{
-		return ((map.get (section)).longValue ());
+		return (bases [ids.get (section)]);
 	}
 	
 	public void setBaseAddress (Section section, long addr)
@@ -52,7 +52,121 @@ public final class SectionMap
 //			" (" + section.getSize () + ") at " + Hex.toHex (addr, 8));
 //		System.out.println ("Code:" + section);
 		
-		map.put (section, new java.lang.Long (addr));
+		int			id = idOf (section);
+		
+		bases [id]	= addr;
+		placed [id]	= true;
+	}
+	
+	/**
+	 * Returns the number used to refer to a <CODE>Section</CODE> in compiled
+	 * expressions, allocating one if the section has not been seen before.
+	 * 
+	 * @param 	section			The target <CODE>Section</CODE>
+	 * @return	The section number.
+	 */
+	public int idOf (Section section)
+	{
+		Integer		id = ids.get (section);
+		
+		if (id == null) {
+			if (sections.size () == bases.length) {
+				bases	 = Arrays.copyOf (bases, 2 * bases.length);
+				placed	 = Arrays.copyOf (placed, 2 * placed.length);
+				removals = Arrays.copyOf (removals, 2 * removals.length);
+			}
+			ids.put (section, id = sections.size ());
+			sections.add (section);
+		}
+		return (id);
+	}
+	
+	/**
+	 * Determines the address of an offset within the given <CODE>Section</CODE>
+	 * allowing for any bytes removed from it by jump relaxation.
+	 * 
+	 * @param 	section			The target <CODE>Section</CODE>
+	 * @param	offset			The offset as assembled.
+	 * @return	The final address of the offset.
+	 */
+	public long addressOf (Section section, long offset)
+	{
+		return (addressOf (ids.get (section), offset));
+	}
+	
+	/**
+	 * Determines the address of an offset within the <CODE>Section</CODE>
+	 * with the given number allowing for any bytes removed from it by jump
+	 * relaxation.
+	 * 
+	 * @param 	id				The section number from <CODE>idOf</CODE>.
+	 * @param	offset			The offset as assembled.
+	 * @return	The final address of the offset.
+	 */
+	public long addressOf (int id, long offset)
+	{
+		long		addr = bases [id] + offset;
+		
+		if (relaxed > 0) {
+			int [][]	removal = removals [id];
+			
+			if (removal != null) {
+				int [] 		offsets = removal [0];
+				int			lo 		= 0;
+				int			hi 		= offsets.length;
+				
+				// Count the shortened sites that lie before the offset
+				while (lo < hi) {
+					int		mid = (lo + hi) >>> 1;
+					
+					if (offsets [mid] < offset)
+						lo = mid + 1;
+					else
+						hi = mid;
+				}
+				if (lo > 0) addr -= removal [1][lo - 1];
+			}
+		}
+		return (addr);
+	}
+	
+	/**
+	 * Records the bytes removed from a <CODE>Section</CODE> by shortening
+	 * jumps within it.
+	 * 
+	 * @param 	section			The target <CODE>Section</CODE>
+	 * @param 	offsets			The assembled offsets of the shortened jumps
+	 * 							in ascending order.
+	 * @param 	removed			The total bytes removed up to and including
+	 * 							each jump.
+	 */
+	public void setRemoved (Section section, int [] offsets, int [] removed)
+	{
+		int			id = idOf (section);
+		
+		if (removals [id] != null) --relaxed;
+		
+		if (offsets.length == 0)
+			removals [id] = null;
+		else {
+			removals [id] = new int [][] { offsets, removed };
+			++relaxed;
+		}
+	}
+	
+	/**
+	 * Determines the number of bytes removed from a <CODE>Section</CODE>
+	 * by jump relaxation.
+	 * 
+	 * @param 	section			The target <CODE>Section</CODE>
+	 * @return	The number of bytes removed.
+	 */
+	public int getRemoved (Section section)
+	{
+		Integer		id		= ids.get (section);
+		int [][]	removal = ((relaxed > 0) && (id != null)) ? removals [id] : null;
+		
+		return ((removal != null) ? removal [1][removal [1].length - 1] : 0);
 	}
 	
 	/**
@@ -62,18 +176,43 @@ public final class SectionMap
 	 */
 	public Vector<Section> getSections ()
 	{
-		Vector<Section>	sections = new Vector<Section> ();
-		Enumeration<Section> cursor = map.keys ();
+		Vector<Section>	result = new Vector<Section> ();
 		
-		while (cursor.hasMoreElements ())
-			sections.add (cursor.nextElement());
+		for (int id = 0; id < sections.size (); ++id)
+			if (placed [id]) result.add (sections.elementAt (id));
 		
-		return (sections);		
+		return (result);		
 	}
 	
 	/**
-	 * A mapping table for section to base address as an Integer.
+	 * A mapping table from section to section number.
+	 */
+	private HashMap<Section, Integer> ids
+		= new HashMap<Section, Integer> ();
+	
+	/**
+	 * The sections in number order.
+	 */
+	private Vector<Section>		sections = new Vector<Section> ();
+	
+	/**
+	 * The base address of each section indexed by number.
+	 */
+	private long []				bases	 = new long [64];
+	
+	/**
+	 * Indicates which sections have been given a base address.
+	 */
+	private boolean []			placed	 = new boolean [64];
+	
+	/**
+	 * The offsets of shortened jumps and cumulative bytes removed for each
+	 * relaxed section indexed by number.
+	 */
+	private int [][][]			removals = new int [64][][];
+	
+	/**
+	 * The number of sections that have had bytes removed.
 	 */
-	private Hashtable<Section, java.lang.Long>	map
-		= new Hashtable<Section, java.lang.Long> ();
+	private int					relaxed	 = 0;
 }
@@ -22,8 +22,8 @@
 
 package uk.co.demon.obelisk.xobj;
 
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Set;
 import java.util.Vector;
 
 /**
@@ -45,7 +45,10 @@ public final class SymbolMap
 	public void addAddress (final String name, long value)
 	{
 //		System.out.println ("Placing " + name + " at " + value);
-		map.put (name, new java.lang.Long (value));
+		int			id = idOf (name);
+		
+		addresses [id] = value;
+		defined [id]   = true;
 	}
 	
 	/**
@@ -56,7 +59,40 @@ public final class SymbolMap
 	 */
 	public long addressOf (final String name)
 	{
-		return (map.get (name).longValue ());
+		return (addresses [ids.get (name)]);
+	}
+	
+	/**
+	 * Looks up the address allocated to the symbol with the given number.
+	 * 
+	 * @param 	id				The symbol number from <CODE>idOf</CODE>.
+	 * @return	The associated memory address.
+	 */
+	public long addressOf (int id)
+	{
+		return (addresses [id]);
+	}
+	
+	/**
+	 * Returns the number used to refer to a symbol in compiled expressions,
+	 * allocating one if the symbol has not been seen before.
+	 * 
+	 * @param 	name			The symbol name.
+	 * @return	The symbol number.
+	 */
+	public int idOf (final String name)
+	{
+		Integer		id = ids.get (name);
+		
+		if (id == null) {
+			if (names.size () == addresses.length) {
+				addresses = Arrays.copyOf (addresses, 2 * addresses.length);
+				defined	  = Arrays.copyOf (defined, 2 * defined.length);
+			}
+			ids.put (name, id = names.size ());
+			names.add (name);
+		}
+		return (id);
 	}
 	
 	/**
@@ -67,17 +103,31 @@ public final class SymbolMap
 	public Vector<String> getSymbols ()
 	{
 		Vector<String>	symbols = new Vector<String> ();
-		Set<String>	keySet = map.keySet ();
 		
-		for (String key : keySet)
-			symbols.add (key);
+		for (int id = 0; id < names.size (); ++id)
+			if (defined [id]) symbols.add (names.elementAt (id));
 		
 		return (symbols);
 	}
 	
 	/**
-	 * A map of symbol name to address as an Integer.
+	 * A map of symbol name to symbol number.
+	 */
+	private HashMap<String, Integer> ids
+		= new HashMap<String, Integer> ();
+	
+	/**
+	 * The symbol names in number order.
+	 */
+	private Vector<String>		names	  = new Vector<String> ();
+	
+	/**
+	 * The address of each symbol indexed by number.
+	 */
+	private long []				addresses = new long [64];
+	
+	/**
+	 * Indicates which symbols have been given an address.
 	 */
-	private HashMap<String, java.lang.Long> map
-		= new HashMap<String, java.lang.Long> (); 
+	private boolean []			defined	  = new boolean [64];
 }
\ No newline at end of file
@@ -88,7 +88,7 @@ public final class Value extends Expr
 		if ((section == null) || ((sections == null) && (symbols == null)))
 			return (value);
 		
-		return (sections.baseAddressOf (section) + value);
+		return (sections.addressOf (section, value));
 	}
 	
 	/**